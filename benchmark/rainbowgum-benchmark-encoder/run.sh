@@ -0,0 +1 @@
+java -jar target/rainbowgum-benchmark-encoder-0.10.0-SNAPSHOT.jar $*
@@ -0,0 +1,73 @@
+package io.jstach.rainbowgum.benchmark.encoder;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+
+/**
+ * Measures time and allocated bytes per event of an encoder using a reused buffer the
+ * same way an appender with REUSE_BUFFER does.
+ */
+final class EncoderBenchmark {
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+		.getThreadMXBean();
+
+	private EncoderBenchmark() {
+	}
+
+	static void run(String name, LogEncoder encoder, LogEvent event, int iterations) {
+		var output = new NullOutput();
+		var buffer = encoder.buffer(output.bufferHints());
+		/*
+		 * Warmup so that the JIT has compiled the encode path before measuring.
+		 */
+		for (int i = 0; i < iterations; i++) {
+			encoder.encode(event, buffer);
+			buffer.drain(output, event);
+		}
+		long allocatedStart = threads.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			encoder.encode(event, buffer);
+			buffer.drain(output, event);
+		}
+		long duration = System.nanoTime() - start;
+		long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedStart;
+		System.out.printf("%-24s %10.1f ns/event %10.1f bytes allocated/event %8d bytes written/event%n", name,
+				(double) duration / iterations, (double) allocated / iterations, output.written / (2L * iterations));
+	}
+
+	static final class NullOutput implements LogOutput {
+
+		long written;
+
+		@Override
+		public URI uri() throws UnsupportedOperationException {
+			return URI.create("null:///");
+		}
+
+		@Override
+		public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+			written += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public OutputType type() {
+			return OutputType.MEMORY;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,36 @@
+package io.jstach.rainbowgum.benchmark.encoder;
+
+import java.lang.System.Logger.Level;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.json.encoder.EcsEncoderBuilder;
+import io.jstach.rainbowgum.json.encoder.GelfEncoderBuilder;
+import io.jstach.rainbowgum.json.encoder.LogbackJsonEncoderBuilder;
+import io.jstach.rainbowgum.json.encoder.LogstashEncoderBuilder;
+
+/**
+ * Benchmarks the JSON encoders with a reused buffer. With a reused buffer the
+ * steady-state allocation per event without a throwable should be zero or close to it.
+ */
+final class JsonEncoderBenchmark {
+
+	private JsonEncoderBenchmark() {
+	}
+
+	static void run(int iterations) {
+		LogEvent event = LogEvent.ofAll(Instant.now(), "main", 1L, Level.INFO,
+				"io.jstach.rainbowgum.benchmark.encoder.JsonEncoderBenchmark", "Hello {} with \"quotes\" and {}",
+				KeyValues.of(Map.of("requestId", "abc-123")), null, StandardMessageFormatter.SLF4J,
+				List.of("world", "more"));
+		EncoderBenchmark.run("gelf", new GelfEncoderBuilder("gelf").host("localhost").build(), event, iterations);
+		EncoderBenchmark.run("ecs", new EcsEncoderBuilder("ecs").build(), event, iterations);
+		EncoderBenchmark.run("logstash", new LogstashEncoderBuilder("logstash").build(), event, iterations);
+		EncoderBenchmark.run("logback", new LogbackJsonEncoderBuilder("logback").build(), event, iterations);
+	}
+
+}
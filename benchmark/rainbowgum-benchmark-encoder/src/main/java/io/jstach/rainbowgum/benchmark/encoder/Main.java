@@ -0,0 +1,21 @@
+package io.jstach.rainbowgum.benchmark.encoder;
+
+import io.jstach.rainbowgum.json.EscapeBenchmark;
+
+/**
+ * Runs encoder micro benchmarks. The first argument is the benchmark name and the second
+ * is the number of iterations.
+ */
+public class Main {
+
+	public static void main(String[] args) {
+		String name = args.length > 0 ? args[0] : "json";
+		int iterations = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : 1_000_000;
+		switch (name) {
+			case "json" -> JsonEncoderBenchmark.run(iterations);
+			case "escape" -> EscapeBenchmark.run(iterations);
+			default -> throw new IllegalArgumentException("Unknown benchmark: " + name);
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package io.jstach.rainbowgum.json;
+
+import java.util.List;
+
+/**
+ * Compares the SWAR JSON string escaping of {@link RawJsonWriter} against its scalar
+ * loop. It lives in the JSON package because the writer is package private which works
+ * as the benchmark runs on the class path.
+ */
+public final class EscapeBenchmark {
+
+	private EscapeBenchmark() {
+	}
+
+	/**
+	 * Runs the escape benchmark.
+	 * @param iterations number of strings written per measurement.
+	 */
+	public static void run(int iterations) {
+		String line = "Request completed method=GET path=/api/orders/12345 status=200 took=12ms user=alice ";
+		var inputs = List.of( //
+				new Input("short", "Hello world!"), //
+				new Input("ascii-100", line), //
+				new Input("ascii-1000", line.repeat(12)), //
+				new Input("stacktrace", stackTrace()), //
+				new Input("quotes", "key=\"value\" ".repeat(40)), //
+				new Input("latin1", "café crème brûlée ".repeat(20)));
+		for (var input : inputs) {
+			run(input, false, iterations);
+			run(input, true, iterations);
+		}
+	}
+
+	private static void run(Input input, boolean scalar, int iterations) {
+		var writer = new RawJsonWriter(1024 * 8);
+		String value = input.value();
+		int length = value.length();
+		/*
+		 * Warmup so that the JIT has compiled the escape loops before measuring.
+		 */
+		long sink = 0;
+		for (int i = 0; i < iterations; i++) {
+			sink += write(writer, value, length, scalar);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink += write(writer, value, length, scalar);
+		}
+		long duration = System.nanoTime() - start;
+		System.out.printf("%-12s %-6s %6d chars %10.1f ns/string %8.2f ns/char (%d)%n", input.name(),
+				scalar ? "scalar" : "swar", length, (double) duration / iterations,
+				(double) duration / iterations / Math.max(1, length), sink % 10);
+	}
+
+	private static int write(RawJsonWriter writer, String value, int length, boolean scalar) {
+		writer.reset();
+		if (scalar) {
+			writer.writeStringScalar(value, 0, length);
+		}
+		else {
+			writer.writeString(value, 0, length);
+		}
+		return writer.size();
+	}
+
+	private static String stackTrace() {
+		var sb = new StringBuilder("java.lang.IllegalStateException: boom\n");
+		for (int i = 0; i < 20; i++) {
+			sb.append("\tat com.example.service.OrderService.process(OrderService.java:").append(100 + i).append(")\n");
+		}
+		return sb.toString();
+	}
+
+	private record Input(String name, String value) {
+	}
+
+}
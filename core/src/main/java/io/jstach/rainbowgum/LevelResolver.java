@@ -1,16 +1,19 @@
 package io.jstach.rainbowgum;
 
 import java.lang.System.Logger.Level;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -54,6 +57,19 @@ public interface LevelResolver {
 
 	}
 
+	/**
+	 * Clears caching of levels only for the logger and its descendants which is useful
+	 * if only the configuration of that logger changed. For example clearing
+	 * <code>com.stuff</code> clears <code>com.stuff</code> and
+	 * <code>com.stuff.Foo</code> but not <code>com.stuffing</code>. An empty logger name
+	 * is the same as {@link #clear()}.
+	 * @param loggerName logger name prefix.
+	 * @apiNote the default calls {@link #clear()}.
+	 */
+	default void clear(String loggerName) {
+		clear();
+	}
+
 	/**
 	 * A special resolver that has direct mappings of logger name to level via
 	 * {@link #levelOrNull(String)}.
@@ -316,6 +332,10 @@ public interface LevelResolver {
 		 */
 		private final List<LevelResolver> fallbacks = new ArrayList<>();
 
+		private int cacheSize = CachedLevelResolver.DEFAULT_MAX_SIZE;
+
+		private boolean weakCache = false;
+
 		private Builder() {
 		}
 
@@ -343,7 +363,35 @@ public interface LevelResolver {
 				priority.addAll(fallbacks);
 				resolver = PriorityLevelResolver.of(priority);
 			}
-			return cached(resolver);
+			return cached(resolver, cacheSize, weakCache);
+		}
+
+		/**
+		 * Sets the maximum number of logger names whose resolved level is cached. When
+		 * the cache is full some of the entries are evicted.
+		 * @param cacheSize maximum number of cached logger names which should be greater
+		 * than zero.
+		 * @return this.
+		 * @throws IllegalArgumentException if the size is less than one.
+		 */
+		public Builder cacheSize(int cacheSize) {
+			if (cacheSize < 1) {
+				throw new IllegalArgumentException("cacheSize should be greater than zero. cacheSize: " + cacheSize);
+			}
+			this.cacheSize = cacheSize;
+			return this;
+		}
+
+		/**
+		 * If true the cache only weakly references the logger names so that the levels
+		 * of loggers that are garbage collected are dropped. This is useful if loggers
+		 * are created with dynamic names and not kept.
+		 * @param weakCache true to weakly reference logger names, default is false.
+		 * @return this.
+		 */
+		public Builder weakCache(boolean weakCache) {
+			this.weakCache = weakCache;
+			return this;
 		}
 
 		/**
@@ -404,14 +452,13 @@ public interface LevelResolver {
 				if (e.getKey().equals("")) {
 					return StaticLevelResolver.of(e.getValue());
 				}
-				return new SingleLevelResolver(e.getKey(), allToTrace(e.getValue()));
 			}
-			Map<String, Level> copy = new HashMap<>();
+			Map<String, Level> copy = new LinkedHashMap<>();
 
 			for (var et : levels.entrySet()) {
 				copy.put(et.getKey(), allToTrace(et.getValue()));
 			}
-			return new MapLevelResolver(copy);
+			return TrieLevelConfig.of(copy);
 		}
 
 		static Level allToTrace(Level level) {
@@ -422,10 +469,17 @@ public interface LevelResolver {
 		}
 
 		static LevelResolver cached(LevelResolver resolver) {
+			return cached(resolver, CachedLevelResolver.DEFAULT_MAX_SIZE, false);
+		}
+
+		static LevelResolver cached(LevelResolver resolver, int maxSize, boolean weak) {
 			if (resolver instanceof StaticLevelResolver) {
 				return resolver;
 			}
-			return new CachedLevelResolver(resolver);
+			if (weak) {
+				return new WeakCachedLevelResolver(resolver, maxSize);
+			}
+			return new CachedLevelResolver(resolver, maxSize);
 		}
 
 	}
@@ -475,23 +529,163 @@ enum StaticLevelResolver implements LevelConfig {
 
 }
 
-record SingleLevelResolver(String name, Level level) implements LevelConfig {
+/*
+ * Logger names are compiled into a trie of their dotted segments so that resolving walks
+ * the name once without creating a substring for every parent like
+ * LogProperties.findUpPathOrNull does. The walk visits the same prefixes as
+ * findUpPathOrNull (including empty segments of names like "a..b") and the deepest level
+ * found wins. It is immutable so config that can change builds a new one.
+ */
+final class TrieLevelConfig implements LevelConfig {
 
-	@Override
-	public @Nullable Level levelOrNull(String name) {
-		if (this.name.equals(name)) {
-			return this.level;
-		}
-		return null;
+	private final Map<String, Level> levels;
+
+	private final Node root;
+
+	private TrieLevelConfig(Map<String, Level> levels, Node root) {
+		this.levels = levels;
+		this.root = root;
 	}
 
-}
+	static TrieLevelConfig of(Map<String, Level> levels) {
+		var root = new NodeBuilder();
+		for (var e : levels.entrySet()) {
+			String name = e.getKey();
+			var node = root;
+			if (!name.isEmpty()) {
+				int start = 0;
+				while (true) {
+					int end = name.indexOf('.', start);
+					if (end < 0) {
+						end = name.length();
+					}
+					node = node.children.computeIfAbsent(name.substring(start, end), k -> new NodeBuilder());
+					if (end == name.length()) {
+						break;
+					}
+					start = end + 1;
+				}
+			}
+			var level = e.getValue();
+			/*
+			 * ALL means not set so the walk should keep the parents level.
+			 */
+			node.level = level == Level.ALL ? null : level;
+		}
+		return new TrieLevelConfig(Map.copyOf(levels), root.build());
+	}
 
-record MapLevelResolver(Map<String, Level> levels) implements LevelConfig {
 	@Override
 	public @Nullable Level levelOrNull(String name) {
 		return levels.get(name);
 	}
+
+	@Override
+	public Level resolveLevel(String name) {
+		var node = root;
+		var found = node.level;
+		int length = name.length();
+		int start = 0;
+		while (length > 0) {
+			int end = name.indexOf('.', start);
+			if (end < 0) {
+				end = length;
+			}
+			node = node.child(name, start, end);
+			if (node == null) {
+				break;
+			}
+			if (node.level != null) {
+				found = node.level;
+			}
+			if (end == length) {
+				break;
+			}
+			start = end + 1;
+		}
+		return found == null ? Level.ALL : found;
+	}
+
+	@Override
+	public String toString() {
+		return "TrieLevelConfig" + levels;
+	}
+
+	private static final class NodeBuilder {
+
+		@Nullable
+		Level level;
+
+		final Map<String, NodeBuilder> children = new LinkedHashMap<>();
+
+		Node build() {
+			if (children.isEmpty()) {
+				return new Node(level, Node.EMPTY_KEYS, Node.EMPTY_CHILDREN);
+			}
+			/*
+			 * Open addressing with at most half the slots used.
+			 */
+			int size = Integer.highestOneBit(children.size() * 2 - 1) << 1;
+			String[] keys = new String[size];
+			Node[] nodes = new Node[size];
+			int mask = size - 1;
+			for (var e : children.entrySet()) {
+				String key = e.getKey();
+				int i = Node.spread(key.hashCode()) & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				nodes[i] = e.getValue().build();
+			}
+			return new Node(level, keys, nodes);
+		}
+
+	}
+
+	@SuppressWarnings("ArrayRecordComponent")
+	private record Node(@Nullable Level level, @Nullable String[] keys, @Nullable Node[] children) {
+
+		static final String[] EMPTY_KEYS = new String[0];
+
+		static final Node[] EMPTY_CHILDREN = new Node[0];
+
+		@Nullable
+		Node child(String name, int start, int end) {
+			var keys = this.keys;
+			if (keys.length == 0) {
+				return null;
+			}
+			int mask = keys.length - 1;
+			int i = spread(hash(name, start, end)) & mask;
+			int length = end - start;
+			String key;
+			while ((key = keys[i]) != null) {
+				if (key.length() == length && key.regionMatches(0, name, start, length)) {
+					return children[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		/*
+		 * Same as String.hashCode of the segment without creating it.
+		 */
+		static int hash(String name, int start, int end) {
+			int h = 0;
+			for (int i = start; i < end; i++) {
+				h = 31 * h + name.charAt(i);
+			}
+			return h;
+		}
+
+		static int spread(int h) {
+			return h ^ (h >>> 16);
+		}
+
+	}
+
 }
 
 @SuppressWarnings("ArrayRecordComponent")
@@ -570,6 +764,13 @@ record CompositeLevelResolver(LevelResolver[] resolvers, Level defaultLevel) imp
 		}
 	}
 
+	@Override
+	public void clear(String loggerName) {
+		for (var resolver : resolvers) {
+			resolver.clear(loggerName);
+		}
+	}
+
 }
 
 /*
@@ -630,6 +831,13 @@ record PriorityLevelResolver(LevelResolver[] resolvers) implements LevelResolver
 		}
 	}
 
+	@Override
+	public void clear(String loggerName) {
+		for (var resolver : resolvers) {
+			resolver.clear(loggerName);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + Arrays.asList(resolvers);
@@ -637,20 +845,105 @@ record PriorityLevelResolver(LevelResolver[] resolvers) implements LevelResolver
 
 }
 
-final class CachedLevelResolver implements LevelResolver {
+/*
+ * Bounded so that loggers with dynamic names (per tenant, generated classes etc) cannot
+ * grow the cache forever. When full a quarter of the entries are evicted in whatever
+ * order the map iterates which is cheap and close enough to random. There is no access
+ * ordering on purpose as that would make every hit a write.
+ *
+ * A miss resolves outside of the map so a resolve can still be running when the cache
+ * is cleared. Every clear bumps the generation after clearing the wrapped resolver and
+ * before clearing the map and a resolve that sees the generation change takes back what
+ * it stored, so a level from the stale config never outlives the clear.
+ */
+sealed abstract class AbstractCachedLevelResolver<K> implements LevelResolver
+		permits CachedLevelResolver, WeakCachedLevelResolver {
+
+	static final int DEFAULT_MAX_SIZE = 10_000;
 
-	private final LevelResolver levelResolver;
+	protected final LevelResolver levelResolver;
 
-	private final ConcurrentHashMap<String, Level> levelCache = new ConcurrentHashMap<>();
+	protected final ConcurrentHashMap<K, Level> levelCache = new ConcurrentHashMap<>();
 
-	public CachedLevelResolver(LevelResolver levelResolver) {
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private final int maxSize;
+
+	AbstractCachedLevelResolver(LevelResolver levelResolver, int maxSize) {
 		super();
 		this.levelResolver = levelResolver;
+		this.maxSize = maxSize;
 	}
 
+	/*
+	 * Only used to get so it does not need to be a K as long as it equals the stored
+	 * key.
+	 */
+	protected abstract Object lookupKey(String name);
+
+	protected abstract K storeKey(String name);
+
+	protected abstract @Nullable String name(K key);
+
 	@Override
 	public Level resolveLevel(String name) {
-		return levelCache.computeIfAbsent(name, n -> levelResolver.resolveLevel(n));
+		var level = levelCache.get(lookupKey(name));
+		if (level != null) {
+			return level;
+		}
+		int g = generation.get();
+		level = levelResolver.resolveLevel(name);
+		K key = storeKey(name);
+		if (levelCache.putIfAbsent(key, level) == null) {
+			if (generation.get() != g) {
+				levelCache.remove(key, level);
+			}
+			else if (levelCache.size() > maxSize) {
+				evict();
+			}
+		}
+		return level;
+	}
+
+	private void evict() {
+		int target = maxSize - maxSize / 4;
+		var it = levelCache.keySet().iterator();
+		while (levelCache.size() > target && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	int size() {
+		return levelCache.size();
+	}
+
+	@Override
+	public void clear() {
+		levelResolver.clear();
+		generation.incrementAndGet();
+		levelCache.clear();
+	}
+
+	@Override
+	public void clear(String loggerName) {
+		if (loggerName.isEmpty()) {
+			clear();
+			return;
+		}
+		levelResolver.clear(loggerName);
+		generation.incrementAndGet();
+		for (var key : levelCache.keySet()) {
+			String name = name(key);
+			if (name == null || isDescendant(name, loggerName)) {
+				levelCache.remove(key);
+			}
+		}
+	}
+
+	static boolean isDescendant(String name, String loggerName) {
+		return name.startsWith(loggerName)
+				&& (name.length() == loggerName.length() || name.charAt(loggerName.length()) == '.');
 	}
 
 	@Override
@@ -658,10 +951,135 @@ final class CachedLevelResolver implements LevelResolver {
 		return this.getClass().getSimpleName() + "[" + levelResolver + "]";
 	}
 
+}
+
+final class CachedLevelResolver extends AbstractCachedLevelResolver<String> {
+
+	public CachedLevelResolver(LevelResolver levelResolver) {
+		this(levelResolver, DEFAULT_MAX_SIZE);
+	}
+
+	CachedLevelResolver(LevelResolver levelResolver, int maxSize) {
+		super(levelResolver, maxSize);
+	}
+
 	@Override
-	public void clear() {
-		levelCache.clear();
-		levelResolver.clear();
+	protected String lookupKey(String name) {
+		return name;
+	}
+
+	@Override
+	protected String storeKey(String name) {
+		return name;
+	}
+
+	@Override
+	protected String name(String key) {
+		return key;
+	}
+
+}
+
+/*
+ * The keys weakly reference the logger name instance the logger was created with so the
+ * entry goes away with the logger (unless the name is a constant). Stale entries are
+ * expunged when new entries are added. Lookups use a plain NameProbe instead of a
+ * NameKey as references are extra work for the garbage collector and a plain object can
+ * usually be scalar replaced.
+ */
+final class WeakCachedLevelResolver extends AbstractCachedLevelResolver<WeakCachedLevelResolver.NameKey> {
+
+	private final ReferenceQueue<String> queue = new ReferenceQueue<>();
+
+	WeakCachedLevelResolver(LevelResolver levelResolver, int maxSize) {
+		super(levelResolver, maxSize);
+	}
+
+	@Override
+	protected NameProbe lookupKey(String name) {
+		return new NameProbe(name);
+	}
+
+	@Override
+	protected NameKey storeKey(String name) {
+		expunge();
+		return new NameKey(name, queue);
+	}
+
+	@Override
+	protected @Nullable String name(NameKey key) {
+		return key.get();
+	}
+
+	private void expunge() {
+		Reference<? extends String> ref;
+		while ((ref = queue.poll()) != null) {
+			levelCache.remove(ref);
+		}
+	}
+
+	static final class NameKey extends WeakReference<String> {
+
+		private final int hash;
+
+		NameKey(String name, @Nullable ReferenceQueue<String> queue) {
+			super(name, queue);
+			this.hash = name.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		/*
+		 * Once collected a key is only equal to itself which is what expunging needs.
+		 */
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof NameKey other && hash == other.hash) {
+				var name = get();
+				return name != null && name.equals(other.get());
+			}
+			if (obj instanceof NameProbe probe && hash == probe.hash) {
+				var name = get();
+				return name != null && name.equals(probe.name);
+			}
+			return false;
+		}
+
+	}
+
+	static final class NameProbe {
+
+		private final String name;
+
+		private final int hash;
+
+		NameProbe(String name) {
+			this.name = name;
+			this.hash = name.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof NameKey key) {
+				return key.equals(this);
+			}
+			return obj instanceof NameProbe other && hash == other.hash && name.equals(other.name);
+		}
+
 	}
 
 }
@@ -744,7 +1162,7 @@ final class GroupLevelResolver implements LevelConfig {
 				loggerToLevels.put(logger, e.getValue());
 			}
 		}
-		return new MapLevelResolver(Map.copyOf(loggerToLevels));
+		return TrieLevelConfig.of(loggerToLevels);
 	}
 
 	@Override
@@ -778,9 +1196,13 @@ final class ConfigLevelResolver implements LevelConfig {
 		this.levelExtractor = levelExtractor;
 	}
 
+	/*
+	 * This is called for every parent of a logger name so we get straight from the
+	 * getter instead of building a Property for each call.
+	 */
 	@Override
 	public @Nullable Level levelOrNull(String name) {
-		return levelExtractor.build(name).get(properties).valueOrNull();
+		return levelExtractor.get(properties, name).valueOrNull();
 	}
 
 	@Override
@@ -1,15 +1,22 @@
 package io.jstach.rainbowgum;
 
 import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -57,6 +64,16 @@ public sealed interface LogAppender extends LogLifecycle, LogEventConsumer {
 	 */
 	static final String APPENDER_FLAGS_PROPERTY = LogProperties.APPENDER_FLAGS_PROPERTY;
 
+	/**
+	 * Capacity that encoder buffers kept across events are shrunk back to.
+	 */
+	static final String APPENDER_RETAINED_BUFFER_SIZE_PROPERTY = LogProperties.APPENDER_RETAINED_BUFFER_SIZE_PROPERTY;
+
+	/**
+	 * Level threshold of the appender.
+	 */
+	static final String APPENDER_LEVEL_PROPERTY = LogProperties.APPENDER_LEVEL_PROPERTY;
+
 	/**
 	 * Batch of events. <strong>DO NOT MODIFY THE ARRAY</strong>. Do not use the
 	 * <code>length</code> of the passed in array but instead use <code>count</code>
@@ -122,7 +139,25 @@ public sealed interface LogAppender extends LogLifecycle, LogEventConsumer {
 		 * <p>
 		 * This flag takes precedence over {@link #REENTRY_DROP}.
 		 */
-		REENTRY_LOG;
+		REENTRY_LOG,
+		/**
+		 * Large batches from async publishers are encoded in parallel on a small shared
+		 * pool of encoder threads (at most 4 and always less than the number of
+		 * processors) with each event getting its own {@linkplain LogEncoder#buffer
+		 * buffer}. The encoded events are still written in order by the publisher thread
+		 * through {@link LogOutput#write(LogEvent, LogEncoder.Buffer)} which means
+		 * {@link LogOutput#write(LogEvent[], int, LogEncoder, LogEncoder.Buffer)} is not
+		 * called. Batches smaller than 128 events are encoded as normal.
+		 * <p>
+		 * This is only worth it if encoding is the bottleneck (e.g. JSON to a fast
+		 * output) as each encoder thread keeps a bounded chunk of buffers for reuse. The
+		 * encoder must be thread safe which is already required for synchronous
+		 * publishers. Encoders that are not {@linkplain LogEncoder#isStateless()
+		 * stateless} (e.g. a pattern with a sequence number or deduplicated stack traces)
+		 * always encode in order on the publisher thread. Implies {@link #REUSE_BUFFER}
+		 * for single events.
+		 */
+		PARALLEL_ENCODE;
 
 		static Set<AppenderFlag> parse(Collection<String> value) {
 			if (value.isEmpty()) {
@@ -165,6 +200,8 @@ public sealed interface LogAppender extends LogLifecycle, LogEventConsumer {
 
 		private @Nullable EnumSet<AppenderFlag> flags = null;
 
+		private @Nullable Level level = null;
+
 		private final String name;
 
 		private Builder(String name) {
@@ -269,6 +306,20 @@ public sealed interface LogAppender extends LogLifecycle, LogEventConsumer {
 			return this;
 		}
 
+		/**
+		 * Sets the level threshold of the appender. Events of the route below the level
+		 * are skipped by this appender before they are encoded which allows one route to
+		 * feed a verbose appender and a terse one. If not set
+		 * {@value LogAppender#APPENDER_LEVEL_PROPERTY} is used and if that is not set all
+		 * events of the route are appended.
+		 * @param level level threshold.
+		 * @return this.
+		 */
+		public Builder level(Level level) {
+			this.level = Objects.requireNonNull(level);
+			return this;
+		}
+
 		/**
 		 * Builds.
 		 * @return an appender factory.
@@ -281,12 +332,13 @@ public sealed interface LogAppender extends LogLifecycle, LogEventConsumer {
 			var _output = output;
 			var _encoder = encoder;
 			var _flags = flags;
+			var _level = level;
 			/*
 			 * TODO should we use the parent name for resolution?
 			 */
 			return (n, config) -> {
 				AppenderConfig a = new AppenderConfig(_name, LogProvider.provideOrNull(_output, _name, config),
-						LogProvider.provideOrNull(_encoder, _name, config), _flags);
+						LogProvider.provideOrNull(_encoder, _name, config), _flags, _level);
 				return DefaultAppenderRegistry.appender(a, config);
 			};
 		}
@@ -617,6 +669,7 @@ sealed interface DirectLogAppender extends InternalLogAppender {
 				case LogAction.StandardAction.REOPEN -> List.of(reopen());
 				case LogAction.StandardAction.FLUSH -> List.of(flush());
 				case LogAction.StandardAction.STATUS -> List.of(status());
+				case LogAction.StandardAction.DUMP -> List.of(dump());
 			};
 			default -> throw new IllegalArgumentException(); // TODO fucking eclipse
 		};
@@ -628,6 +681,11 @@ sealed interface DirectLogAppender extends InternalLogAppender {
 		return new Response(LogOutput.class, name(), status);
 	}
 
+	default LogResponse dump() {
+		var status = output().dump();
+		return new Response(LogOutput.class, name(), status);
+	}
+
 	default LogResponse flush() {
 		output().flush();
 		return new Response(LogOutput.class, name(), LogResponse.Status.StandardStatus.OK);
@@ -648,7 +706,14 @@ sealed interface DirectLogAppender extends InternalLogAppender {
 		List<DirectLogAppender> appenders = new ArrayList<>();
 		for (var a : registry.find(LogAppender.class)) {
 			if (a instanceof InternalLogAppender internal) {
-				internal.visit(appenders::add);
+				/*
+				 * The visitor returns true to stop visiting which List.add would always
+				 * do.
+				 */
+				internal.visit(d -> {
+					appenders.add(d);
+					return false;
+				});
 			}
 		}
 		return appenders;
@@ -656,11 +721,24 @@ sealed interface DirectLogAppender extends InternalLogAppender {
 
 	static DirectLogAppender of(String name, LogOutput output, LogEncoder encoder,
 			Set<LogAppender.AppenderFlag> flags) {
+		return of(name, output, encoder, flags, AbstractLogAppender.RETAINED_BUFFER_SIZE_UNSET);
+	}
+
+	static DirectLogAppender of(String name, LogOutput output, LogEncoder encoder,
+			Set<LogAppender.AppenderFlag> flags, int retainedBufferSize) {
+		return of(name, output, encoder, flags, retainedBufferSize, Level.ALL);
+	}
+
+	static DirectLogAppender of(String name, LogOutput output, LogEncoder encoder,
+			Set<LogAppender.AppenderFlag> flags, int retainedBufferSize, Level level) {
 		var lock = AppenderLock.of(flags);
+		if (flags.contains(AppenderFlag.PARALLEL_ENCODE)) {
+			return new ParallelEncodeLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
+		}
 		if (flags.contains(AppenderFlag.REUSE_BUFFER)) {
-			return new ReuseBufferLogAppender(name, output, encoder, flags, lock);
+			return new ReuseBufferLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
 		}
-		return new DefaultLogAppender(name, output, encoder, flags, lock);
+		return new DefaultLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
 	}
 
 	// @Override
@@ -695,20 +773,140 @@ sealed abstract class AbstractLogAppender implements DirectLogAppender {
 
 	protected final boolean immediateFlush;
 
+	/*
+	 * What was configured and not what is used which is retainedCapacity. We keep it so
+	 * that copies of this appender are configured the same. RETAINED_BUFFER_SIZE_UNSET
+	 * trims to the default size but does not report buffer status.
+	 */
+	protected final int retainedBufferSize;
+
+	/**
+	 * Buffers that are kept across events are trimmed back to this after being drained.
+	 */
+	protected final int retainedCapacity;
+
+	/**
+	 * Events below this level are skipped before they are encoded.
+	 */
+	protected final Level level;
+
+	private final boolean levelFiltered;
+
+	private final LongAdder shrinkCount = new LongAdder();
+
+	static final int DEFAULT_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+	static final int RETAINED_BUFFER_SIZE_UNSET = 0;
+
 	/**
 	 * Creates an appender from an output and encoder.
 	 * @param output set the output field and will be started and closed with the
 	 * appender.
 	 * @param encoder set the encoder field.
+	 * @param retainedBufferSize reused buffers bigger than this are shrunk. If not
+	 * positive the default is used and the shrink count is not part of the status.
+	 * @param level events below this level are not appended.
 	 */
 	protected AbstractLogAppender(String name, LogOutput output, LogEncoder encoder,
-			Set<LogAppender.AppenderFlag> flags) {
+			Set<LogAppender.AppenderFlag> flags, int retainedBufferSize, Level level) {
 		super();
 		this.name = name;
 		this.output = output;
 		this.encoder = encoder;
 		this.flags = flags;
 		this.immediateFlush = !flags.contains(LogAppender.AppenderFlag.DISABLE_IMMEDIATE_FLUSH);
+		this.retainedBufferSize = retainedBufferSize;
+		this.retainedCapacity = retainedCapacity(retainedBufferSize, output.bufferHints());
+		this.level = level;
+		this.levelFiltered = level != Level.ALL;
+	}
+
+	/*
+	 * Checked before encoding and before taking the lock so that a terse appender on a
+	 * verbose route costs a comparison per event.
+	 */
+	protected final boolean isEnabled(LogEvent event) {
+		return !levelFiltered || LevelResolver.checkEnabled(event.level(), level);
+	}
+
+	/*
+	 * Returns the events of a batch at or above the level. The passed in array is
+	 * returned if the appender has no level as the array may not be modified.
+	 */
+	protected final LogEvent[] filter(LogEvent[] events, int count) {
+		if (!levelFiltered) {
+			return events;
+		}
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (LevelResolver.checkEnabled(events[i].level(), level)) {
+				kept++;
+			}
+		}
+		if (kept == count && events.length == count) {
+			return events;
+		}
+		LogEvent[] filtered = new LogEvent[kept];
+		int j = 0;
+		for (int i = 0; i < count; i++) {
+			var e = events[i];
+			if (LevelResolver.checkEnabled(e.level(), level)) {
+				filtered[j++] = e;
+			}
+		}
+		return filtered;
+	}
+
+	/*
+	 * If the output can only take so much per event there is no point in keeping more
+	 * than that around.
+	 */
+	static int retainedCapacity(int retainedBufferSize, LogEncoder.BufferHints hints) {
+		int size = retainedBufferSize > 0 ? retainedBufferSize : DEFAULT_RETAINED_BUFFER_SIZE;
+		int max = hints.maximumSize();
+		if (max > 0) {
+			return Math.min(max, size);
+		}
+		return size;
+	}
+
+	/**
+	 * Shrinks a buffer that is kept across events if it grew past the retained
+	 * capacity.
+	 * @param buffer a drained buffer.
+	 */
+	protected final void trim(LogEncoder.Buffer buffer) {
+		if (buffer.trim(retainedCapacity)) {
+			shrinkCount.increment();
+		}
+	}
+
+	/**
+	 * How many times buffers were shrunk.
+	 * @return shrink count.
+	 */
+	final long shrinkCount() {
+		return shrinkCount.sum();
+	}
+
+	@Override
+	public LogResponse status() {
+		Status status;
+		try {
+			status = output.status();
+		}
+		catch (Exception e) {
+			status = LogResponse.Status.ofError(e);
+		}
+		/*
+		 * Only when asked for so that the status of an appender stays what the output
+		 * reports.
+		 */
+		if (retainedBufferSize <= 0) {
+			return new Response(LogOutput.class, name, status);
+		}
+		var bufferStatus = new Status.BufferStatus(shrinkCount(), retainedCapacity);
+		return new Response(LogOutput.class, name, new Status.AggregateStatus(List.of(status, bufferStatus)));
 	}
 
 	@Override
@@ -724,7 +922,7 @@ sealed abstract class AbstractLogAppender implements DirectLogAppender {
 	@Override
 	public String toString() {
 		return getClass().getName() + "[name=" + name + " encoder=" + encoder + ", " + "output=" + output + ", flags="
-				+ flags + "]";
+				+ flags + ", level=" + level + "]";
 	}
 
 	@Override
@@ -942,8 +1140,8 @@ sealed abstract class LockLogAppender extends AbstractLogAppender implements Int
 	protected final AppenderLock lock;
 
 	public LockLogAppender(String name, LogOutput output, LogEncoder encoder, Set<LogAppender.AppenderFlag> flags,
-			AppenderLock lock) {
-		super(name, output, encoder, flags);
+			int retainedBufferSize, Level level, AppenderLock lock) {
+		super(name, output, encoder, flags, retainedBufferSize, level);
 		this.lock = lock;
 	}
 
@@ -982,27 +1180,39 @@ sealed abstract class LockLogAppender extends AbstractLogAppender implements Int
 		}
 		flags = EnumSet.copyOf(flags);
 		flags.addAll(this.flags);
+		if (flags.contains(LogAppender.AppenderFlag.PARALLEL_ENCODE)) {
+			return new ParallelEncodeLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
+		}
 		if (flags.contains(LogAppender.AppenderFlag.REUSE_BUFFER)) {
-			return new ReuseBufferLogAppender(name, output, encoder, flags, lock);
+			return new ReuseBufferLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
 		}
-		return new DefaultLogAppender(name, output, encoder, flags, lock);
+		return new DefaultLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
 	}
 
 }
 
 /*
- * The idea here is to have the virtual thread do the formatting outside of the lock
+ * The idea here is to have the virtual thread do the formatting outside of the lock. The
+ * buffers are borrowed from a small pool so that encoding outside of the lock does not
+ * allocate a buffer per event.
  */
 final class DefaultLogAppender extends LockLogAppender implements InternalLogAppender {
 
+	private final EncoderBufferPool pool;
+
 	DefaultLogAppender(String name, LogOutput output, LogEncoder encoder, Set<LogAppender.AppenderFlag> flags,
-			AppenderLock lock) {
-		super(name, output, encoder, flags, lock);
+			int retainedBufferSize, Level level, AppenderLock lock) {
+		super(name, output, encoder, flags, retainedBufferSize, level, lock);
+		this.pool = new EncoderBufferPool(encoder, output.bufferHints());
 	}
 
 	@Override
 	public final void append(LogEvent event) {
-		try (var buffer = encoder.buffer(output.bufferHints())) {
+		if (!isEnabled(event)) {
+			return;
+		}
+		var buffer = pool.acquire();
+		try {
 			encoder.encode(event, buffer);
 			if (!lock.tryLock()) {
 				return;
@@ -1017,10 +1227,19 @@ final class DefaultLogAppender extends LockLogAppender implements InternalLogApp
 				lock.unlock();
 			}
 		}
+		finally {
+			trim(buffer);
+			pool.release(buffer);
+		}
 	}
 
 	@Override
 	public void append(LogEvent[] events, int count) {
+		events = filter(events, count);
+		count = Math.min(count, events.length);
+		if (count == 0) {
+			return;
+		}
 		if (!lock.tryLock()) {
 			return;
 		}
@@ -1035,9 +1254,116 @@ final class DefaultLogAppender extends LockLogAppender implements InternalLogApp
 		}
 	}
 
+	@Override
+	public void close() {
+		super.close();
+		pool.close();
+	}
+
 	@Override
 	public DirectLogAppender changeLock(AppenderLock lock) {
-		return new DefaultLogAppender(name, output, encoder, flags, lock);
+		return new DefaultLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
+	}
+
+}
+
+/*
+ * Bounded pool of encoder buffers for appenders that encode outside of the lock. A
+ * ThreadLocal would keep a buffer alive for every thread that ever logged which with
+ * virtual threads is unbounded so instead there is a fixed number of slots sized by the
+ * processor count. Only as many threads as there are carrier threads can be encoding at
+ * once so that is roughly how many buffers are ever in use. A thread starts probing at
+ * the slot its id hashes to which keeps platform threads on the same buffer and spreads
+ * virtual threads out. If every probed slot is empty a new buffer is created and if every
+ * probed slot is full on release the buffer is left to the GC.
+ */
+final class EncoderBufferPool implements AutoCloseable {
+
+	static final int SLOTS = slots(Runtime.getRuntime().availableProcessors());
+
+	static final int PROBES = 4;
+
+	private final LogEncoder encoder;
+
+	private final LogEncoder.BufferHints hints;
+
+	private final AtomicReferenceArray<LogEncoder.@Nullable Buffer> slots;
+
+	private final int mask;
+
+	EncoderBufferPool(LogEncoder encoder, LogEncoder.BufferHints hints) {
+		this(encoder, hints, SLOTS);
+	}
+
+	EncoderBufferPool(LogEncoder encoder, LogEncoder.BufferHints hints, int slots) {
+		this.encoder = encoder;
+		this.hints = hints;
+		this.slots = new AtomicReferenceArray<>(slots);
+		this.mask = slots - 1;
+		if (Integer.bitCount(slots) != 1) {
+			throw new IllegalArgumentException("slots should be a power of two. slots: " + slots);
+		}
+	}
+
+	/*
+	 * Twice the processors rounded up to a power of two so that collisions are rare but
+	 * never more than 64 buffers per appender.
+	 */
+	static int slots(int processors) {
+		int n = Math.max(2, Math.min(64, processors * 2));
+		return Integer.highestOneBit(n - 1) << 1;
+	}
+
+	LogEncoder.Buffer acquire() {
+		int start = start();
+		for (int i = 0; i < PROBES; i++) {
+			int index = (start + i) & mask;
+			var buffer = slots.get(index);
+			if (buffer != null && slots.compareAndSet(index, buffer, null)) {
+				return buffer;
+			}
+		}
+		return encoder.buffer(hints);
+	}
+
+	void release(LogEncoder.Buffer buffer) {
+		buffer.clear();
+		int start = start();
+		for (int i = 0; i < PROBES; i++) {
+			int index = (start + i) & mask;
+			if (slots.get(index) == null && slots.compareAndSet(index, null, buffer)) {
+				return;
+			}
+		}
+	}
+
+	int pooled() {
+		int count = 0;
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int start() {
+		long id = Thread.currentThread().threadId();
+		/*
+		 * Thread ids are sequential so they are mixed to spread neighbouring ids.
+		 */
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32);
+	}
+
+	@Override
+	public void close() {
+		for (int i = 0; i < slots.length(); i++) {
+			var buffer = slots.getAndSet(i, null);
+			if (buffer != null) {
+				buffer.close();
+			}
+		}
 	}
 
 }
@@ -1050,8 +1376,8 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 	private final LogEncoder.Buffer buffer;
 
 	ReuseBufferLogAppender(String name, LogOutput output, LogEncoder encoder, Set<LogAppender.AppenderFlag> flags,
-			AppenderLock lock) {
-		super(name, output, encoder, flags, lock);
+			int retainedBufferSize, Level level, AppenderLock lock) {
+		super(name, output, encoder, flags, retainedBufferSize, level, lock);
 		this.buffer = encoder.buffer(output.bufferHints());
 	}
 
@@ -1062,6 +1388,9 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 
 	@Override
 	public final void append(LogEvent event) {
+		if (!isEnabled(event)) {
+			return;
+		}
 		if (!lock.tryLock()) {
 			return;
 		}
@@ -1069,6 +1398,7 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 			buffer.clear();
 			encoder.encode(event, buffer);
 			output.write(event, buffer);
+			trim(buffer);
 			if (immediateFlush) {
 				output.flush();
 			}
@@ -1080,11 +1410,101 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 
 	@Override
 	public void append(LogEvent[] events, int count) {
+		events = filter(events, count);
+		count = Math.min(count, events.length);
+		if (count == 0) {
+			return;
+		}
 		if (!lock.tryLock()) {
 			return;
 		}
 		try {
 			output.write(events, count, encoder, buffer);
+			trim(buffer);
+			if (immediateFlush) {
+				output.flush();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			super.close();
+			buffer.close();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public DirectLogAppender changeLock(AppenderLock lock) {
+		return new ReuseBufferLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
+	}
+
+}
+
+/*
+ * The idea here is that the async publisher thread is the single writer but encoding a
+ * batch is CPU bound so large batches are split into segments encoded by a pool. The
+ * publisher thread encodes the first segment itself and writes each segment as soon as it
+ * is done so writing overlaps with encoding the later segments.
+ */
+final class ParallelEncodeLogAppender extends LockLogAppender implements InternalLogAppender {
+
+	private final LogEncoder.Buffer buffer;
+
+	private final ParallelBatchEncoder batchEncoder;
+
+	ParallelEncodeLogAppender(String name, LogOutput output, LogEncoder encoder, Set<LogAppender.AppenderFlag> flags,
+			int retainedBufferSize, Level level, AppenderLock lock) {
+		super(name, output, encoder, flags, retainedBufferSize, level, lock);
+		var hints = output.bufferHints();
+		this.buffer = encoder.buffer(hints);
+		this.batchEncoder = new ParallelBatchEncoder(encoder, hints);
+	}
+
+	@Override
+	public final void append(LogEvent event) {
+		if (!isEnabled(event)) {
+			return;
+		}
+		if (!lock.tryLock()) {
+			return;
+		}
+		try {
+			buffer.clear();
+			encoder.encode(event, buffer);
+			output.write(event, buffer);
+			trim(buffer);
+			if (immediateFlush) {
+				output.flush();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void append(LogEvent[] events, int count) {
+		events = filter(events, count);
+		count = Math.min(count, events.length);
+		if (count == 0) {
+			return;
+		}
+		if (!lock.tryLock()) {
+			return;
+		}
+		try {
+			batchEncoder.write(output, events, count, buffer);
+			trim(buffer);
+			batchEncoder.trim(this::trim);
 			if (immediateFlush) {
 				output.flush();
 			}
@@ -1100,6 +1520,7 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 		try {
 			super.close();
 			buffer.close();
+			batchEncoder.close();
 		}
 		finally {
 			lock.unlock();
@@ -1108,7 +1529,153 @@ final class ReuseBufferLogAppender extends LockLogAppender implements InternalLo
 
 	@Override
 	public DirectLogAppender changeLock(AppenderLock lock) {
-		return new ReuseBufferLogAppender(name, output, encoder, flags, lock);
+		return new ParallelEncodeLogAppender(name, output, encoder, flags, retainedBufferSize, level, lock);
+	}
+
+}
+
+/*
+ * Not thread safe. It is guarded by the appender lock like the reused buffer.
+ */
+final class ParallelBatchEncoder {
+
+	/*
+	 * Below this many events per segment the hand off to the pool costs more than the
+	 * encoding.
+	 */
+	static final int MIN_SEGMENT_SIZE = 64;
+
+	/*
+	 * Each segment is encoded into its own chunk of buffers which are reused so bigger
+	 * batches are done in rounds rather than keeping a buffer for every event of the
+	 * largest batch.
+	 */
+	static final int MAX_SEGMENT_SIZE = 256;
+
+	static final int PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+
+	private final LogEncoder encoder;
+
+	private final LogEncoder.BufferHints hints;
+
+	private final boolean stateless;
+
+	private LogEncoder.Buffer[] buffers = new LogEncoder.Buffer[0];
+
+	ParallelBatchEncoder(LogEncoder encoder, LogEncoder.BufferHints hints) {
+		this.encoder = encoder;
+		this.hints = hints;
+		this.stateless = encoder.isStateless();
+	}
+
+	static int segments(int count, int parallelism) {
+		return Math.max(1, Math.min(parallelism + 1, count / MIN_SEGMENT_SIZE));
+	}
+
+	void write(LogOutput output, LogEvent[] events, int count, LogEncoder.Buffer buffer) {
+		write(output, events, count, buffer, PARALLELISM);
+	}
+
+	void write(LogOutput output, LogEvent[] events, int count, LogEncoder.Buffer buffer, int parallelism) {
+		int segments = segments(count, parallelism);
+		if (segments == 1 || !stateless) {
+			output.write(events, count, encoder, buffer);
+			return;
+		}
+		int size = Math.min(MAX_SEGMENT_SIZE, (count + segments - 1) / segments);
+		int round = segments * size;
+		var buffers = buffers(round);
+		for (int from = 0; from < count; from += round) {
+			writeRound(output, events, from, Math.min(count, from + round), size, buffers);
+		}
+	}
+
+	private void writeRound(LogOutput output, LogEvent[] events, int from, int to, int size,
+			LogEncoder.Buffer[] buffers) {
+		int segments = (to - from + size - 1) / size;
+		/*
+		 * The events array must not be shared past this call which is why every task is
+		 * joined before returning even on failure.
+		 */
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[segments - 1];
+		for (int s = 1; s < segments; s++) {
+			int start = from + s * size;
+			int end = Math.min(to, start + size);
+			tasks[s - 1] = EncoderPool.pool.submit(() -> encode(events, buffers, from, start, end));
+		}
+		try {
+			int end = Math.min(to, from + size);
+			encode(events, buffers, from, from, end);
+			write(output, events, buffers, from, from, end);
+			for (int s = 1; s < segments; s++) {
+				tasks[s - 1].join();
+				int start = from + s * size;
+				write(output, events, buffers, from, start, Math.min(to, start + size));
+			}
+		}
+		finally {
+			for (var task : tasks) {
+				task.quietlyJoin();
+			}
+		}
+	}
+
+	private void encode(LogEvent[] events, LogEncoder.Buffer[] buffers, int from, int start, int end) {
+		for (int i = start; i < end; i++) {
+			var b = buffers[i - from];
+			b.clear();
+			encoder.encode(events[i], b);
+		}
+	}
+
+	private static void write(LogOutput output, LogEvent[] events, LogEncoder.Buffer[] buffers, int from,
+			int start, int end) {
+		for (int i = start; i < end; i++) {
+			output.write(events[i], buffers[i - from]);
+		}
+	}
+
+	private LogEncoder.Buffer[] buffers(int count) {
+		var buffers = this.buffers;
+		if (buffers.length < count) {
+			var b = Arrays.copyOf(buffers, count);
+			for (int i = buffers.length; i < count; i++) {
+				b[i] = encoder.buffer(hints);
+			}
+			this.buffers = buffers = b;
+		}
+		return buffers;
+	}
+
+	int retainedBuffers() {
+		return buffers.length;
+	}
+
+	void trim(Consumer<LogEncoder.Buffer> trimmer) {
+		for (var b : buffers) {
+			trimmer.accept(b);
+		}
+	}
+
+	void close() {
+		for (var b : buffers) {
+			b.close();
+		}
+		buffers = new LogEncoder.Buffer[0];
+	}
+
+	/*
+	 * Lazily created on first parallel batch and shared by all appenders. Fork join
+	 * worker threads are daemon threads so there is nothing to shut down.
+	 */
+	static final class EncoderPool {
+
+		static final ForkJoinPool pool = new ForkJoinPool(Math.max(1, PARALLELISM), p -> {
+			var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			t.setName("rainbowgum-encoder-" + t.getPoolIndex());
+			return t;
+		}, null, false);
+
 	}
 
 }
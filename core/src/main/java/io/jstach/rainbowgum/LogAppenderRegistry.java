@@ -1,5 +1,6 @@
 package io.jstach.rainbowgum;
 
+import java.lang.System.Logger.Level;
 import java.net.URI;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -22,7 +23,7 @@ sealed interface LogAppenderRegistry permits DefaultAppenderRegistry {
 }
 
 record AppenderConfig(String name, @Nullable LogOutput output, @Nullable LogEncoder encoder,
-		@Nullable Set<AppenderFlag> flags) {
+		@Nullable Set<AppenderFlag> flags, @Nullable Level level) {
 
 	AppenderConfig {
 		validateName(name);
@@ -102,7 +103,7 @@ final class DefaultAppenderRegistry implements LogAppenderRegistry {
 			if (name.equals(LogAppender.CONSOLE_APPENDER_NAME)) {
 				return defaultConsoleAppender(config);
 			}
-			var builder = new AppenderConfig(name, null, null, null);
+			var builder = new AppenderConfig(name, null, null, null, null);
 			var outputProperty = outputProperty(LogAppender.APPENDER_OUTPUT_PROPERTY, name, config);
 			var encoderProperty = encoderProperty(LogAppender.APPENDER_ENCODER_PROPERTY, name, config);
 			return appender(builder, config, outputProperty, encoderProperty);
@@ -140,6 +141,22 @@ final class DefaultAppenderRegistry implements LogAppenderRegistry {
 			.value(EnumSet.noneOf(LogAppender.AppenderFlag.class));
 	}
 
+	private static Level resolveLevel(LogConfig config, String name) {
+		return Property.builder() //
+			.map(LevelResolver::parseLevel) //
+			.buildWithName(LogAppender.APPENDER_LEVEL_PROPERTY, name) //
+			.get(config.properties())
+			.value(Level.ALL);
+	}
+
+	private static int resolveRetainedBufferSize(LogConfig config, String name) {
+		return Property.builder() //
+			.ofInt() //
+			.buildWithName(LogAppender.APPENDER_RETAINED_BUFFER_SIZE_PROPERTY, name) //
+			.get(config.properties())
+			.value(AbstractLogAppender.RETAINED_BUFFER_SIZE_UNSET);
+	}
+
 	static LogAppender fileAppender(LogConfig config) {
 		final String name = LogAppender.FILE_APPENDER_NAME;
 		PropertyValue<LogOutput> fileProperty = Property.builder() //
@@ -209,7 +226,15 @@ final class DefaultAppenderRegistry implements LogAppenderRegistry {
 			flags = resolveFlags(config, name);
 		}
 
-		return DirectLogAppender.of(name, output, encoder, flags);
+		int retainedBufferSize = resolveRetainedBufferSize(config, name);
+
+		@Nullable
+		Level level = appenderConfig.level();
+		if (level == null) {
+			level = resolveLevel(config, name);
+		}
+
+		return DirectLogAppender.of(name, output, encoder, flags, retainedBufferSize, level);
 	}
 
 	private static PropertyValue<LogEncoder> resolveEncoder(String name, LogConfig config, LogOutput output,
@@ -224,7 +249,7 @@ final class DefaultAppenderRegistry implements LogAppenderRegistry {
 			String name, //
 			LogConfig config, //
 			PropertyValue<LogOutput> outputProperty, PropertyValue<LogEncoder> encoderProperty) {
-		var builder = new AppenderConfig(name, null, null, null);
+		var builder = new AppenderConfig(name, null, null, null, null);
 		return appender(builder, config, outputProperty, encoderProperty);
 
 	}
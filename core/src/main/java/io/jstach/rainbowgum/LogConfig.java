@@ -119,6 +119,18 @@ public sealed interface LogConfig extends LogProperty.PropertySupport {
 		 */
 		public void publish();
 
+		/**
+		 * Publish that only the configuration of the logger and its descendants has
+		 * changed. Cached levels of other loggers are kept so that they do not all have
+		 * to be resolved again.
+		 * @param loggerName logger name prefix that changed.
+		 * @see LevelResolver#clear(String)
+		 * @apiNote the default calls {@link #publish()}.
+		 */
+		default void publish(String loggerName) {
+			publish();
+		}
+
 		/**
 		 * Test to see if <strong>any</strong> changes are enabled for a logger.
 		 * @param loggerName logger name.
@@ -351,6 +363,10 @@ abstract class AbstractChangePublisher implements ChangePublisher {
 
 	protected abstract LogConfig reload();
 
+	protected LogConfig reload(String loggerName) {
+		return reload();
+	}
+
 	protected abstract LogConfig config();
 
 	@Override
@@ -361,6 +377,19 @@ abstract class AbstractChangePublisher implements ChangePublisher {
 		}
 	}
 
+	@Override
+	public void publish(String loggerName) {
+		LogConfig config = reload(loggerName);
+		for (var c : consumers) {
+			if (c instanceof ChangeListener listener) {
+				listener.changed(config, loggerName);
+			}
+			else {
+				c.accept(config);
+			}
+		}
+	}
+
 	@Override
 	public void subscribe(Consumer<? super LogConfig> consumer) {
 		consumers.add(consumer);
@@ -378,6 +407,16 @@ abstract class AbstractChangePublisher implements ChangePublisher {
 
 }
 
+/*
+ * Internal subscribers like the level caches of routes implement this so that they only
+ * clear what changed.
+ */
+interface ChangeListener extends Consumer<LogConfig> {
+
+	void changed(LogConfig config, String loggerName);
+
+}
+
 enum IgnoreChangePublisher implements ChangePublisher {
 
 	INSTANT;
@@ -448,6 +487,12 @@ final class DefaultLogConfig implements LogConfig {
 			return DefaultLogConfig.this;
 		}
 
+		@Override
+		protected LogConfig reload(String loggerName) {
+			levelResolver.clear(loggerName);
+			return DefaultLogConfig.this;
+		}
+
 	}
 
 	@Override
@@ -63,6 +63,29 @@ public interface LogEncoder {
 	 */
 	public void encode(LogEvent event, Buffer buffer);
 
+	/**
+	 * Whether the encoder reads {@link LogEvent#callerOrNull()}. If no encoder of the
+	 * configured appenders requires caller info the facades will not capture it even if
+	 * {@link LogConfig.ChangePublisher.ChangeType#CALLER} is allowed as walking the stack
+	 * for every event is expensive.
+	 * @return true by default as it is unknown what a custom encoder will output.
+	 * @see LogFormatter#requiresCaller()
+	 */
+	default boolean requiresCaller() {
+		return true;
+	}
+
+	/**
+	 * Whether the encoded bytes of an event only depend on that event and not on the
+	 * events encoded before it. {@link LogAppender.AppenderFlag#PARALLEL_ENCODE} only
+	 * encodes events concurrently and out of order if this is true.
+	 * @return false by default as it is unknown if a custom encoder keeps state.
+	 * @see LogFormatter#isStateless()
+	 */
+	default boolean isStateless() {
+		return false;
+	}
+
 	/**
 	 * Creates an encoder from a formatter.
 	 * @param formatter formatter.
@@ -154,6 +177,43 @@ public interface LogEncoder {
 			clear();
 		}
 
+		/**
+		 * Releases memory if the buffer grew past the retained capacity which happens
+		 * when an unusually large event was encoded. Appenders that reuse buffers call
+		 * this after the buffer is drained so that one large event does not inflate the
+		 * buffer for the life of the appender. The buffer must still be usable after
+		 * being trimmed.
+		 * @param retainedCapacity the capacity (in bytes or chars depending on the
+		 * buffer) that is fine to keep.
+		 * @return true if the buffer was shrunk.
+		 * @apiNote the default does nothing and returns false.
+		 */
+		default boolean trim(int retainedCapacity) {
+			return false;
+		}
+
+		/**
+		 * Shrinks a StringBuilder to the retained capacity if it has grown past it. The
+		 * contents are cleared if it is shrunk.
+		 * @param sb string builder.
+		 * @param retainedCapacity capacity to keep.
+		 * @return true if the string builder was shrunk.
+		 * @see #trim(int)
+		 */
+		public static boolean trim(StringBuilder sb, int retainedCapacity) {
+			if (sb.capacity() <= retainedCapacity) {
+				return false;
+			}
+			/*
+			 * StringBuilder can only shrink to its length so we grow the length to the
+			 * retained capacity first to keep that much warm.
+			 */
+			sb.setLength(retainedCapacity);
+			sb.trimToSize();
+			sb.setLength(0);
+			return true;
+		}
+
 		/**
 		 * A buffer that simply wraps a {@link StringBuilder}. Direct access to the
 		 * {@link StringBuilder} is available as the field {@link #stringBuilder}.
@@ -191,6 +251,11 @@ public interface LogEncoder {
 				stringBuilder.setLength(0);
 			}
 
+			@Override
+			public boolean trim(int retainedCapacity) {
+				return Buffer.trim(stringBuilder, retainedCapacity);
+			}
+
 		}
 
 	}
@@ -286,6 +351,16 @@ final class FormatterEncoder extends AbstractEncoder<StringBuilderBuffer> {
 		formatter.format(sb, event);
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return formatter.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		return formatter.isStateless();
+	}
+
 	@Override
 	protected StringBuilderBuffer doBuffer(BufferHints hints) {
 		return StringBuilderBuffer.of(new StringBuilder());
@@ -323,6 +323,28 @@ public sealed interface LogEvent {
 		return true;
 	}
 
+	/**
+	 * Number of unformatted message arguments. Events that are frozen or were created
+	 * with an already formatted message have none.
+	 * @return number of arguments that {@link #arg(int)} accepts.
+	 * @see #arg(int)
+	 */
+	default int argCount() {
+		return 0;
+	}
+
+	/**
+	 * Unformatted message argument that will be passed to the message formatter. This is
+	 * for encoders that store the message template and arguments instead of the
+	 * formatted message.
+	 * @param index zero based index less than {@link #argCount()}.
+	 * @return argument which may be <code>null</code>.
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #argCount()}.
+	 */
+	default @Nullable Object arg(int index) {
+		throw new IndexOutOfBoundsException(index);
+	}
+
 	/**
 	 * Appends the formatted message.
 	 * @param sb string builder to use.
@@ -503,6 +525,20 @@ public sealed interface LogEvent {
 			return new StackFrameCallerInfo(stackFrame);
 		}
 
+		/**
+		 * Creates immutable caller info from a stack frame reusing the caller info
+		 * previously created for the same call site (declaring class, method and
+		 * bytecode index). Unlike {@link #of(StackFrame)} the file name and line number
+		 * are only resolved the first time a call site is seen and the result does not
+		 * need copying when the event is frozen for an async publisher.
+		 * @param stackFrame stack frame must have
+		 * {@link java.lang.StackWalker.Option#RETAIN_CLASS_REFERENCE}.
+		 * @return frozen caller info.
+		 */
+		public static Caller ofCallSite(StackFrame stackFrame) {
+			return CallSiteCallers.caller(stackFrame);
+		}
+
 		/**
 		 * Returns caller from a certain depth or <code>null</code>
 		 * @param depth how deep in the stack to pull stack frame.
@@ -605,6 +641,56 @@ record StackFrameCallerInfo(StackFrame stackFrame) implements LogEvent.Caller {
 
 }
 
+/*
+ * Resolving the file name and line number of a stack frame creates a
+ * StackTraceElement which is most of the cost of caller info after the stack walk
+ * itself. The same log statement always produces the same caller so we cache the
+ * frozen caller per declaring class in a small direct mapped table keyed by method and
+ * bytecode index. The method descriptor is compared as well because overloads share
+ * a name and can easily have a log call at the same bytecode index. A collision just
+ * replaces the slot. Entries are immutable so racy reads and writes of the table are
+ * harmless.
+ */
+final class CallSiteCallers {
+
+	static final int SLOTS = 64;
+
+	private static final ClassValue<CallSite[]> callSites = new ClassValue<>() {
+		@Override
+		protected CallSite[] computeValue(Class<?> type) {
+			return new CallSite[SLOTS];
+		}
+	};
+
+	private CallSiteCallers() {
+	}
+
+	static Caller caller(StackFrame frame) {
+		String methodName = frame.getMethodName();
+		String descriptor = frame.getDescriptor();
+		int bci = frame.getByteCodeIndex();
+		var table = callSites.get(frame.getDeclaringClass());
+		int slot = ((methodName.hashCode() * 31 + descriptor.hashCode()) * 31 + bci) & (SLOTS - 1);
+		var site = table[slot];
+		if (site != null && site.matches(methodName, descriptor, bci)) {
+			return site.caller();
+		}
+		var caller = new FrozenCallerInfo(frame.getClassName(), frame.getFileName(), frame.getLineNumber(),
+				methodName);
+		table[slot] = new CallSite(methodName, descriptor, bci, caller);
+		return caller;
+	}
+
+	record CallSite(String methodName, String descriptor, int bci, FrozenCallerInfo caller) {
+
+		boolean matches(String methodName, String descriptor, int bci) {
+			return this.bci == bci && this.methodName.equals(methodName) && this.descriptor.equals(descriptor);
+		}
+
+	}
+
+}
+
 final class LogEventBuilder implements LogEvent.Builder {
 
 	private final LogEventLogger logger;
@@ -806,6 +892,17 @@ record OneArgLogEvent(Instant timestamp, String threadName, long threadId, Syste
 		messageFormatter.format(sb, message, arg1);
 	}
 
+	@Override
+	public int argCount() {
+		return 1;
+	}
+
+	@Override
+	public @Nullable Object arg(int index) {
+		Objects.checkIndex(index, 1);
+		return arg1;
+	}
+
 	@Override
 	public LogEvent freeze() {
 		return freeze(timestamp);
@@ -840,6 +937,19 @@ record TwoArgLogEvent(Instant timestamp, String threadName, long threadId, Syste
 		messageFormatter.format(sb, message, arg1, arg2);
 	}
 
+	@Override
+	public int argCount() {
+		return 2;
+	}
+
+	@Override
+	public @Nullable Object arg(int index) {
+		return switch (Objects.checkIndex(index, 2)) {
+			case 0 -> arg1;
+			default -> arg2;
+		};
+	}
+
 	@Override
 	public LogEvent freeze() {
 		return freeze(timestamp);
@@ -874,8 +984,14 @@ record ArrayArgLogEvent(Instant timestamp, String threadName, long threadId, Sys
 		messageFormatter.formatArray(sb, message, args, length);
 	}
 
+	@Override
 	public int argCount() {
-		return args.length;
+		return length;
+	}
+
+	@Override
+	public @Nullable Object arg(int index) {
+		return args[Objects.checkIndex(index, length)];
 	}
 
 	@Override
@@ -984,6 +1100,16 @@ record StackFrameLogEvent(LogEvent event, Caller callerOrNull) implements LogEve
 
 	}
 
+	@Override
+	public int argCount() {
+		return event.argCount();
+	}
+
+	@Override
+	public @Nullable Object arg(int index) {
+		return event.arg(index);
+	}
+
 	@Override
 	public @Nullable Throwable throwableOrNull() {
 		return event.throwableOrNull();
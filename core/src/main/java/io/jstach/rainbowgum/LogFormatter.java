@@ -4,6 +4,7 @@ import java.io.PrintWriter;
 import java.lang.System.Logger.Level;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -14,12 +15,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -86,6 +90,30 @@ public sealed interface LogFormatter {
 		return NoopFormatter.INSTANCE == this;
 	}
 
+	/**
+	 * Ask the formatter if it reads {@link LogEvent#callerOrNull()}. Facades use this
+	 * (through {@link LogEncoder#requiresCaller()}) to skip the costly stack walking
+	 * needed to capture caller info when nothing will output it.
+	 * @return true if the formatter might output caller info.
+	 * @apiNote {@link EventFormatter} returns true by default as a lambda cannot tell.
+	 */
+	default boolean requiresCaller() {
+		return false;
+	}
+
+	/**
+	 * Ask the formatter if its output only depends on the event being formatted and not
+	 * on what was formatted before. Appenders use this (through
+	 * {@link LogEncoder#isStateless()}) to decide if events can be formatted concurrently
+	 * and out of order as {@link LogAppender.AppenderFlag#PARALLEL_ENCODE} does.
+	 * @return true if the output only depends on the event.
+	 * @apiNote {@link EventFormatter} and {@link ThrowableFormatter} return false by
+	 * default as a lambda cannot tell.
+	 */
+	default boolean isStateless() {
+		return true;
+	}
+
 	/**
 	 * A special formatter that will do nothing. It is a singleton so identity comparison
 	 * can be used.
@@ -498,6 +526,26 @@ public sealed interface LogFormatter {
 		@Override
 		public void format(StringBuilder output, LogEvent event);
 
+		/**
+		 * Arbitrary event formatters might read caller info so this returns true unless
+		 * overridden.
+		 * @return true by default.
+		 */
+		@Override
+		default boolean requiresCaller() {
+			return true;
+		}
+
+		/**
+		 * Arbitrary event formatters might keep state such as a sequence number so this
+		 * returns false unless overridden.
+		 * @return false by default.
+		 */
+		@Override
+		default boolean isStateless() {
+			return false;
+		}
+
 		private static EventFormatter of(List<? extends LogFormatter> formatters) {
 			return new CompositeFormatter(StaticFormatter.coalesce(formatters));
 		}
@@ -673,6 +721,27 @@ public sealed interface LogFormatter {
 			return new DateTimeFormatterInstantFormatter(dateTimeFormatter, cacheMillisecondPrecision);
 		}
 
+		/**
+		 * Formats a timestamp using a JDK date time formatter whose output is the
+		 * formatted second followed by {@code fractionDigits} digits of the fraction of
+		 * second and nothing else, for example {@code yyyy-MM-dd HH:mm:ss,SSS} or
+		 * {@code HH:mm:ss.SSSSSS}. The part up to the fraction is only formatted when the
+		 * second changes and is cached per thread, the fraction digits are appended
+		 * without using the formatter so formatting usually does not allocate.
+		 * <p>
+		 * Like {@link #of(DateTimeFormatter, boolean)} the caller is responsible for the
+		 * guarantee. If the formatter renders sub second fields anywhere else the output
+		 * will be wrong.
+		 * @param dateTimeFormatter date time formatter.
+		 * @param fractionDigits number of fraction of second digits at the end of the
+		 * output from 0 to 9.
+		 * @return timestamp formatter.
+		 * @throws IllegalArgumentException if fractionDigits is not between 0 and 9.
+		 */
+		public static TimestampFormatter ofCachedSeconds(DateTimeFormatter dateTimeFormatter, int fractionDigits) {
+			return new SecondsCachingInstantFormatter(dateTimeFormatter, fractionDigits, "");
+		}
+
 	}
 
 	/**
@@ -695,6 +764,16 @@ public sealed interface LogFormatter {
 			}
 		}
 
+		/**
+		 * Custom throwable formatters might keep state so this returns false unless
+		 * overridden.
+		 * @return false by default.
+		 */
+		@Override
+		default boolean isStateless() {
+			return false;
+		}
+
 		/**
 		 * Default implementation uses {@link Throwable#printStackTrace(PrintWriter)}.
 		 * This formatter is equivalent to {@code of(Integer.MAX_VALUE, List.of())} except
@@ -754,6 +833,8 @@ public sealed interface LogFormatter {
 
 			private boolean packagingData = false;
 
+			private @Nullable Duration deduplicate = null;
+
 			private Builder() {
 			}
 
@@ -802,22 +883,53 @@ public sealed interface LogFormatter {
 				return this;
 			}
 
+			/**
+			 * Prints the full trace of a throwable only the first time its stack is seen
+			 * within the window, followed by a <code>[stack #id]</code> line. Later
+			 * throwables with the same stack (the class and frames of it and its causes,
+			 * but not the messages) print just their first line followed by
+			 * <code>[same stack as #id, seen N times]</code> until the window since the
+			 * full trace has passed. This is meant for outages where the same exception
+			 * is logged thousands of times a second. Stacks are tracked in a bounded
+			 * table so an unrelated stack can occasionally be printed in full again
+			 * early. The window is measured with {@link LogEvent#timestamp()} when
+			 * formatting an event. Defaults to <code>null</code> (every trace is printed
+			 * in full).
+			 * <p>
+			 * The formatter remembers what it printed so events should be formatted in
+			 * the order they were logged. Formatting the same event again (for example
+			 * when the formatter is shared by several appenders) gives the same output
+			 * and is not counted as a repeat. The formatter is not
+			 * {@linkplain LogFormatter#isStateless() stateless} so
+			 * {@link LogAppender#PARALLEL_ENCODE} still encodes it in order.
+			 * @param window how long after printing a full trace repeats are
+			 * abbreviated or <code>null</code> to disable.
+			 * @return this builder.
+			 */
+			public Builder deduplicate(@Nullable Duration window) {
+				this.deduplicate = window;
+				return this;
+			}
+
 			/**
 			 * Builds the formatter. If none of {@link #maxLines(int)},
-			 * {@link #excludes(List)}, or {@link #packagingData(boolean)} were set away
-			 * from their defaults, returns {@link ThrowableFormatter#of()} (i.e. plain
+			 * {@link #excludes(List)}, {@link #packagingData(boolean)} or
+			 * {@link #deduplicate(Duration)} were set away from their defaults, returns
+			 * {@link ThrowableFormatter#of()} (i.e. plain
 			 * {@link Throwable#printStackTrace()} behavior) instead of constructing a
 			 * formatter that walks the throwable manually for no reason.
 			 * @return formatter.
 			 */
 			public ThrowableFormatter build() {
-				if (maxLines == Integer.MAX_VALUE && excludes.isEmpty() && !packagingData) {
+				var deduplicate = this.deduplicate;
+				if (maxLines == Integer.MAX_VALUE && excludes.isEmpty() && !packagingData && deduplicate == null) {
 					return ThrowableFormatter.of();
 				}
 				List<Pattern> compiled = excludes.isEmpty() ? List.of()
 						: excludes.stream().map(Pattern::compile).toList();
 				var resolver = packagingData ? new PackagingDataResolver() : null;
-				return new StandardThrowableFormatter(maxLines, compiled, resolver);
+				var repeated = deduplicate == null ? null : new RepeatedThrowables(deduplicate);
+				return new StandardThrowableFormatter(maxLines, StackFrameExcludes.of(compiled), resolver, repeated);
 			}
 
 		}
@@ -914,6 +1026,11 @@ public sealed interface LogFormatter {
 		public void format(StringBuilder output, LogEvent event) {
 		}
 
+		@Override
+		public boolean isStateless() {
+			return true;
+		}
+
 	}
 
 }
@@ -932,6 +1049,26 @@ record CompositeFormatter(LogFormatter[] formatters) implements EventFormatter {
 		}
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		for (var formatter : formatters) {
+			if (formatter.requiresCaller()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		for (var formatter : formatters) {
+			if (!formatter.isStateless()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + Arrays.toString(formatters);
@@ -1021,38 +1158,40 @@ enum DefaultThreadFormatter implements LogFormatter {
 
 /**
  * Not an enum: error-prone's immutable-enum check flags enums holding mutable state, and
- * {@link #cache} is mutable (an {@link java.util.concurrent.atomic.AtomicReference}).
+ * {@link #formatter} is mutable (it holds a per thread cache).
  * {@link #description} exists solely to give each instance a stable identity for
  * {@link #toString()}.
  */
 final class DefaultInstantFormatter implements TimestampFormatter {
 
 	static final DefaultInstantFormatter TTLL = new DefaultInstantFormatter("TTLL",
-			DateTimeFormatter.ofPattern(TTLL_TIME_FORMAT).withZone(ZoneId.from(ZoneOffset.UTC)));
+			new SecondsCachingInstantFormatter(
+					DateTimeFormatter.ofPattern(TTLL_TIME_FORMAT).withZone(ZoneId.from(ZoneOffset.UTC)), 3, ""));
 
 	/*
 	 * appendInstant(3) renders a fixed-width 3-digit millisecond fraction (unlike
 	 * DateTimeFormatter.ISO_DATE_TIME, which renders a variable-width fraction of 0-9
 	 * digits based on the instant's actual sub-millisecond value) - fixed width matches
-	 * Logback/Log4j2's ISO output and is what makes this safe to millis-cache.
+	 * Logback/Log4j2's ISO output and is what makes this safe to cache by second. Years
+	 * outside 0000-9999 are rendered with a sign and more digits so those go through the
+	 * formatter directly.
 	 */
 	static final DefaultInstantFormatter ISO = new DefaultInstantFormatter("ISO",
-			new DateTimeFormatterBuilder().appendInstant(3).toFormatter());
+			new SecondsCachingInstantFormatter(new DateTimeFormatterBuilder().appendInstant(3).toFormatter(), 3, "Z",
+					-62_167_219_200L, 253_402_300_799L));
 
 	private final String description;
 
-	private final DateTimeFormatter formatter;
-
-	private final MillisCache cache = new MillisCache();
+	private final SecondsCachingInstantFormatter formatter;
 
-	private DefaultInstantFormatter(String description, DateTimeFormatter formatter) {
+	private DefaultInstantFormatter(String description, SecondsCachingInstantFormatter formatter) {
 		this.description = description;
 		this.formatter = formatter;
 	}
 
 	@Override
 	public void formatTimestamp(StringBuilder output, Instant instant) {
-		cache.formatTimestamp(output, instant, formatter);
+		formatter.formatTimestamp(output, instant);
 	}
 
 	@Override
@@ -1062,6 +1201,129 @@ final class DefaultInstantFormatter implements TimestampFormatter {
 
 }
 
+/**
+ * Formats timestamps whose output is the formatted second followed by a fixed number of
+ * fraction of second digits and a constant suffix, e.g. {@code HH:mm:ss.SSS} or ISO
+ * instants. The second prefix is only formatted when the second changes and the fraction
+ * digits are written arithmetically so a hit does not allocate.
+ * <p>
+ * Unlike {@link MillisCache} the cache is per platform thread. A miss only happens once a
+ * second but sharing a mutable entry would still have every logging thread write to the
+ * same cache line when the second rolls over, and a per millisecond cache does that up to
+ * a thousand times a second. Virtual threads are usually short lived so a thread local
+ * would miss on nearly every one of them and they share an immutable entry instead.
+ */
+final class SecondsCachingInstantFormatter implements TimestampFormatter {
+
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+			100_000_000, 1_000_000_000 };
+
+	private final DateTimeFormatter formatter;
+
+	private final int fractionDigits;
+
+	private final String suffix;
+
+	private final long minEpochSecond;
+
+	private final long maxEpochSecond;
+
+	private final ThreadLocal<SecondCache> caches = ThreadLocal.withInitial(SecondCache::new);
+
+	private volatile SharedSecond shared = new SharedSecond(Long.MIN_VALUE, "");
+
+	SecondsCachingInstantFormatter(DateTimeFormatter formatter, int fractionDigits, String suffix) {
+		this(formatter, fractionDigits, suffix, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	SecondsCachingInstantFormatter(DateTimeFormatter formatter, int fractionDigits, String suffix,
+			long minEpochSecond, long maxEpochSecond) {
+		if (fractionDigits < 0 || fractionDigits > 9) {
+			throw new IllegalArgumentException("fractionDigits should be between 0 and 9. Got: " + fractionDigits);
+		}
+		this.formatter = formatter;
+		this.fractionDigits = fractionDigits;
+		this.suffix = suffix;
+		this.minEpochSecond = minEpochSecond;
+		this.maxEpochSecond = maxEpochSecond;
+	}
+
+	@Override
+	@SuppressWarnings("JavaInstantGetSecondsGetNano")
+	public void formatTimestamp(StringBuilder output, Instant instant) {
+		long second = instant.getEpochSecond();
+		if (second < minEpochSecond || second > maxEpochSecond) {
+			formatter.formatTo(instant, output);
+			return;
+		}
+		if (Thread.currentThread().isVirtual()) {
+			var s = shared;
+			if (s.second != second) {
+				s = new SharedSecond(second, prefix(new StringBuilder(32), second));
+				shared = s;
+			}
+			output.append(s.prefix);
+		}
+		else {
+			var cache = caches.get();
+			if (cache.second != second) {
+				cache.update(second);
+			}
+			output.append(cache.prefix, 0, cache.length);
+		}
+		int digits = fractionDigits;
+		if (digits > 0) {
+			int fraction = instant.getNano() / POWERS_OF_TEN[9 - digits];
+			for (int p = POWERS_OF_TEN[digits - 1]; p > 0; p /= 10) {
+				output.append((char) ('0' + (fraction / p) % 10));
+			}
+		}
+		output.append(suffix);
+	}
+
+	private final class SecondCache {
+
+		private long second = Long.MIN_VALUE;
+
+		private char[] prefix = new char[32];
+
+		private int length;
+
+		private final StringBuilder scratch = new StringBuilder(32);
+
+		void update(long second) {
+			var sb = scratch;
+			sb.setLength(0);
+			int len = formatPrefix(sb, second);
+			if (len > prefix.length) {
+				prefix = new char[len];
+			}
+			sb.getChars(0, len, prefix, 0);
+			this.length = len;
+			this.second = second;
+		}
+
+	}
+
+	private record SharedSecond(long second, String prefix) {
+	}
+
+	private String prefix(StringBuilder sb, long second) {
+		int len = formatPrefix(sb, second);
+		return sb.substring(0, len);
+	}
+
+	private int formatPrefix(StringBuilder sb, long second) {
+		formatter.formatTo(Instant.ofEpochSecond(second), sb);
+		/*
+		 * The whole second formats with an all zero fraction which we drop along with the
+		 * suffix.
+		 */
+		return sb.length() - fractionDigits - suffix.length();
+	}
+
+}
+
 /**
  * Micro seconds over the events last second, for Logback compatibility - meant to be
  * composed after a millisecond-precision timestamp (see
@@ -1081,15 +1343,9 @@ enum MicrosInstantFormatter implements TimestampFormatter {
 		int millis_and_micros = nanos / 1000;
 		int micros = millis_and_micros % 1000;
 
-		if (micros >= 100) {
-			output.append(micros);
-		}
-		else if (micros >= 10) {
-			output.append("0").append(micros);
-		}
-		else {
-			output.append("00").append(micros);
-		}
+		output.append((char) ('0' + micros / 100));
+		output.append((char) ('0' + (micros / 10) % 10));
+		output.append((char) ('0' + micros % 10));
 	}
 
 }
@@ -1158,6 +1414,11 @@ enum DefaultThrowableFormatter implements ThrowableFormatter {
 		ThrowableFormatter.appendThrowable(output, throwable);
 	}
 
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 }
 
 /**
@@ -1174,18 +1435,69 @@ final class StandardThrowableFormatter implements ThrowableFormatter {
 
 	private final int maxLines;
 
-	private final List<Pattern> excludes;
+	private final StackFrameExcludes excludes;
 
 	private final @Nullable PackagingDataResolver packagingData;
 
-	StandardThrowableFormatter(int maxLines, List<Pattern> excludes, @Nullable PackagingDataResolver packagingData) {
+	private final @Nullable RepeatedThrowables repeated;
+
+	StandardThrowableFormatter(int maxLines, StackFrameExcludes excludes,
+			@Nullable PackagingDataResolver packagingData, @Nullable RepeatedThrowables repeated) {
 		this.maxLines = maxLines;
 		this.excludes = excludes;
 		this.packagingData = packagingData;
+		this.repeated = repeated;
+	}
+
+	@Override
+	public void format(StringBuilder output, LogEvent event) {
+		var t = event.throwableOrNull();
+		if (t != null) {
+			formatThrowable(output, t, event, event.timestamp().toEpochMilli());
+		}
 	}
 
 	@Override
 	public void formatThrowable(StringBuilder output, Throwable throwable) {
+		formatThrowable(output, throwable, throwable, System.currentTimeMillis());
+	}
+
+	/*
+	 * Deduplication depends on what was printed before.
+	 */
+	@Override
+	public boolean isStateless() {
+		return repeated == null;
+	}
+
+	/*
+	 * The key is the event (or the throwable when there is no event) so formatting it
+	 * again renders the same thing instead of counting another repeat.
+	 */
+	private void formatThrowable(StringBuilder output, Throwable throwable, Object key, long epochMilli) {
+		var repeated = this.repeated;
+		if (repeated == null) {
+			formatFull(output, throwable);
+			return;
+		}
+		var seen = repeated.seen(throwable);
+		int count = seen.occurrence(key, epochMilli);
+		if (count > 1) {
+			output.append(throwable)
+				.append(System.lineSeparator())
+				.append("\t[same stack as #")
+				.append(seen.id)
+				.append(", seen ")
+				.append(count)
+				.append(" times]")
+				.append(System.lineSeparator());
+			return;
+		}
+		formatFull(output, throwable);
+		output.append("\t[stack #").append(seen.id).append(']').append(System.lineSeparator());
+	}
+
+	private void formatFull(StringBuilder output, Throwable throwable) {
 		Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
 		dejaVu.add(throwable);
 		var trace = throwable.getStackTrace();
@@ -1273,11 +1585,251 @@ final class StandardThrowableFormatter implements ThrowableFormatter {
 	}
 
 	private boolean isExcluded(StackTraceElement element) {
-		if (excludes.isEmpty()) {
+		return excludes.isExcluded(element);
+	}
+
+}
+
+/**
+ * Tracks recently printed stacks for {@link ThrowableFormatter.Builder#deduplicate}. A
+ * stack is fingerprinted from the class names and frames of the throwable and its
+ * causes without building any strings. The table is bounded and cleared when full which
+ * at worst prints a stack in full again. A fingerprint is only a hash so a hit is
+ * confirmed against the class and top frame of the stack it was first seen with. On a
+ * mismatch the newer stack takes the entry.
+ */
+final class RepeatedThrowables {
+
+	static final int MAX_TRACKED = 256;
+
+	private static final int MAX_CAUSE_DEPTH = 16;
+
+	private final long windowMillis;
+
+	private final AtomicInteger ids = new AtomicInteger();
+
+	private final ConcurrentMap<Long, Seen> table = new ConcurrentHashMap<>();
+
+	RepeatedThrowables(Duration window) {
+		this.windowMillis = window.toMillis();
+	}
+
+	Seen seen(Throwable throwable) {
+		var trace = throwable.getStackTrace();
+		Long fingerprint = fingerprint(throwable, trace);
+		String className = throwable.getClass().getName();
+		@Nullable
+		StackTraceElement top = trace.length == 0 ? null : trace[0];
+		var seen = table.get(fingerprint);
+		if (seen != null && seen.matches(className, top)) {
+			return seen;
+		}
+		if (table.size() >= MAX_TRACKED) {
+			table.clear();
+		}
+		var created = new Seen(ids.incrementAndGet(), windowMillis, className, top);
+		return table.compute(fingerprint, (k, s) -> s != null && s.matches(className, top) ? s : created);
+	}
+
+	/*
+	 * The trace of the throwable is passed in as getStackTrace() copies it every call.
+	 */
+	static long fingerprint(Throwable throwable, StackTraceElement[] trace) {
+		long h = 1;
+		@Nullable
+		Throwable current = throwable;
+		for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+			h = mix(h, current.getClass().getName().hashCode());
+			for (var element : current == throwable ? trace : current.getStackTrace()) {
+				h = mix(h, element.hashCode());
+			}
+			current = current.getCause();
+		}
+		return h;
+	}
+
+	private static long mix(long h, int value) {
+		h = (h ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	static final class Seen {
+
+		/*
+		 * How many of the last decisions are remembered by key. Formatting the same event
+		 * twice normally happens right away so a few is plenty.
+		 */
+		static final int RECENT = 4;
+
+		final int id;
+
+		private final long windowMillis;
+
+		private final String className;
+
+		private final @Nullable StackTraceElement top;
+
+		private long windowStart = Long.MIN_VALUE;
+
+		private int count;
+
+		private final int[] recentKeys = new int[RECENT];
+
+		private final long[] recentMillis = new long[RECENT];
+
+		private final int[] recentCounts = new int[RECENT];
+
+		private int recentNext;
+
+		Seen(int id, long windowMillis, String className, @Nullable StackTraceElement top) {
+			this.id = id;
+			this.windowMillis = windowMillis;
+			this.className = className;
+			this.top = top;
+		}
+
+		boolean matches(String className, @Nullable StackTraceElement top) {
+			return this.className.equals(className) && Objects.equals(this.top, top);
+		}
+
+		/*
+		 * Returns how many times the stack has been seen in the current window including
+		 * this time. 1 means the full trace should be printed. A key seen recently gets
+		 * the same answer it got before. Keys are remembered by identity hash and time
+		 * rather than referenced so that neither events are kept alive nor a reference
+		 * is allocated for every repeat. Two keys would have to share both, with the same
+		 * stack, for one to get the other's answer.
+		 */
+		synchronized int occurrence(Object key, long epochMilli) {
+			int identity = System.identityHashCode(key);
+			for (int i = 0; i < RECENT; i++) {
+				if (recentCounts[i] != 0 && recentKeys[i] == identity && recentMillis[i] == epochMilli) {
+					return recentCounts[i];
+				}
+			}
+			int result;
+			if (count == 0 || epochMilli - windowStart >= windowMillis) {
+				windowStart = epochMilli;
+				count = 1;
+				result = 1;
+			}
+			else {
+				result = ++count;
+			}
+			recentKeys[recentNext] = identity;
+			recentMillis[recentNext] = epochMilli;
+			recentCounts[recentNext] = result;
+			recentNext = (recentNext + 1) % RECENT;
+			return result;
+		}
+
+	}
+
+}
+
+/**
+ * Decides which stack frames {@link StandardThrowableFormatter} omits. The exclude
+ * patterns are regular expressions found in {@link StackTraceElement#toString()} which
+ * is expensive to do for every frame of every throwable, so:
+ * <ul>
+ * <li>Decisions are cached by frame (class, method, file, line etc.) as error storms
+ * print the same frames over and over. The cache is bounded and cleared when full.</li>
+ * <li>Patterns that are just a qualified name like {@code org.springframework} or
+ * {@code java.lang.reflect.Method.invoke} are compiled into a trie that is searched over
+ * the frame's class and method name without building a string. A hit there is always a
+ * hit for the regular expression as the class and method name are in the string form of
+ * the frame.</li>
+ * <li>Otherwise the patterns are combined into a single alternation so the string form
+ * is scanned once rather than once per pattern.</li>
+ * </ul>
+ */
+final class StackFrameExcludes {
+
+	static final int MAX_CACHED_DECISIONS = 4096;
+
+	private static final StackFrameExcludes EMPTY = new StackFrameExcludes(List.of(), null, null);
+
+	private static final Pattern QUALIFIED_NAME = Pattern.compile("([A-Za-z0-9_]|\\\\[.$]|\\.)*");
+
+	private static final Pattern UNSAFE_TO_COMBINE = Pattern.compile("\\\\[1-9kQ]|\\(\\?");
+
+	private final List<Pattern> patterns;
+
+	private final @Nullable Pattern combined;
+
+	private final @Nullable NameTrie names;
+
+	private final ConcurrentMap<StackTraceElement, Boolean> decisions = new ConcurrentHashMap<>();
+
+	private StackFrameExcludes(List<Pattern> patterns, @Nullable Pattern combined, @Nullable NameTrie names) {
+		this.patterns = patterns;
+		this.combined = combined;
+		this.names = names;
+	}
+
+	static StackFrameExcludes of(List<Pattern> patterns) {
+		if (patterns.isEmpty()) {
+			return EMPTY;
+		}
+		NameTrie names = null;
+		boolean combine = true;
+		for (var p : patterns) {
+			String regex = p.pattern();
+			if (p.flags() == 0 && QUALIFIED_NAME.matcher(regex).matches()) {
+				if (names == null) {
+					names = new NameTrie();
+				}
+				/*
+				 * An unescaped dot matches any char but matching only a literal dot is a
+				 * subset of that which is all the trie needs to be.
+				 */
+				names.add(regex.replace("\\", ""));
+			}
+			/*
+			 * Group numbers, quoting and inline flags or comments could change meaning
+			 * when wrapped in an alternation.
+			 */
+			if (p.flags() != 0 || UNSAFE_TO_COMBINE.matcher(regex).find()) {
+				combine = false;
+			}
+		}
+		Pattern combined = null;
+		if (combine && patterns.size() > 1) {
+			String alternation = patterns.stream()
+				.map(p -> "(?:" + p.pattern() + ")")
+				.collect(Collectors.joining("|"));
+			combined = Pattern.compile(alternation);
+		}
+		return new StackFrameExcludes(List.copyOf(patterns), combined, names);
+	}
+
+	boolean isExcluded(StackTraceElement element) {
+		if (patterns.isEmpty()) {
 			return false;
 		}
+		Boolean cached = decisions.get(element);
+		if (cached != null) {
+			return cached;
+		}
+		boolean excluded = match(element);
+		if (decisions.size() >= MAX_CACHED_DECISIONS) {
+			decisions.clear();
+		}
+		decisions.put(element, excluded);
+		return excluded;
+	}
+
+	private boolean match(StackTraceElement element) {
+		var n = names;
+		if (n != null && n.find(element.getClassName(), element.getMethodName())) {
+			return true;
+		}
 		String s = element.toString();
-		for (var p : excludes) {
+		var c = combined;
+		if (c != null) {
+			return c.matcher(s).find();
+		}
+		for (var p : patterns) {
 			Matcher matcher = p.matcher(s);
 			if (matcher.find()) {
 				return true;
@@ -1286,6 +1838,82 @@ final class StandardThrowableFormatter implements ThrowableFormatter {
 		return false;
 	}
 
+	/*
+	 * A char trie of literal names searched at every offset of className + "." +
+	 * methodName.
+	 */
+	static final class NameTrie {
+
+		private final Node root = new Node();
+
+		void add(String name) {
+			Node node = root;
+			for (int i = 0; i < name.length(); i++) {
+				node = node.child(name.charAt(i));
+			}
+			node.terminal = true;
+		}
+
+		boolean find(String className, String methodName) {
+			if (root.terminal) {
+				return true;
+			}
+			int classLength = className.length();
+			int length = classLength + 1 + methodName.length();
+			for (int start = 0; start < length; start++) {
+				Node node = root;
+				for (int i = start; i < length; i++) {
+					char c = i < classLength ? className.charAt(i)
+							: i == classLength ? '.' : methodName.charAt(i - classLength - 1);
+					node = node.next(c);
+					if (node == null) {
+						break;
+					}
+					if (node.terminal) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private static final class Node {
+
+			private char[] keys = new char[0];
+
+			private Node[] children = new Node[0];
+
+			private boolean terminal;
+
+			@Nullable
+			Node next(char c) {
+				var k = keys;
+				for (int i = 0; i < k.length; i++) {
+					if (k[i] == c) {
+						return children[i];
+					}
+				}
+				return null;
+			}
+
+			Node child(char c) {
+				var existing = next(c);
+				if (existing != null) {
+					return existing;
+				}
+				int size = keys.length;
+				keys = Arrays.copyOf(keys, size + 1);
+				children = Arrays.copyOf(children, size + 1);
+				var node = new Node();
+				keys[size] = c;
+				children[size] = node;
+				return node;
+			}
+
+		}
+
+	}
+
 }
 
 /**
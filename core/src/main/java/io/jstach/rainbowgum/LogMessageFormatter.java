@@ -1,6 +1,7 @@
 package io.jstach.rainbowgum;
 
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -140,6 +141,8 @@ final class SLF4JMessageFormatter {
 
 	private static final char ESCAPE_CHAR = '\\';
 
+	private static final TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_SIZE);
+
 	private SLF4JMessageFormatter() {
 	}
 
@@ -188,6 +191,12 @@ final class SLF4JMessageFormatter {
 			return;
 		}
 
+		var template = cache.get(messagePattern);
+		if (template != null) {
+			template.format(sbuf, arg1, arg2, args, argCount);
+			return;
+		}
+
 		int i = 0;
 		int j;
 		int L;
@@ -238,6 +247,149 @@ final class SLF4JMessageFormatter {
 		sbuf.append(messagePattern, i, messagePattern.length());
 	}
 
+	/*
+	 * A message pattern scanned once with the same rules as format above. The scan does
+	 * not depend on the number of args, only where it stops does, so we record every
+	 * delimiter it would visit and stop emitting once the args run out.
+	 */
+	static final class Template {
+
+		private static final int PLACEHOLDER = 0;
+
+		private static final int ESCAPED = 1;
+
+		private static final int DOUBLE_ESCAPED = 2;
+
+		private static final int[] EMPTY = new int[0];
+
+		final String messagePattern;
+
+		/*
+		 * Delimiter index shifted left by 2 with the kind in the low bits.
+		 */
+		private final int[] delimiters;
+
+		private Template(String messagePattern, int[] delimiters) {
+			this.messagePattern = messagePattern;
+			this.delimiters = delimiters;
+		}
+
+		static Template parse(String messagePattern) {
+			int[] delimiters = EMPTY;
+			int count = 0;
+			int i = 0;
+			int j;
+			while ((j = messagePattern.indexOf(DELIM_STR, i)) != -1) {
+				int kind;
+				if (isEscapedDelimeter(messagePattern, j)) {
+					if (!isDoubleEscaped(messagePattern, j)) {
+						kind = ESCAPED;
+						i = j + 1;
+					}
+					else {
+						kind = DOUBLE_ESCAPED;
+						i = j + 2;
+					}
+				}
+				else {
+					kind = PLACEHOLDER;
+					i = j + 2;
+				}
+				if (count == delimiters.length) {
+					delimiters = Arrays.copyOf(delimiters, Math.max(4, count * 2));
+				}
+				delimiters[count++] = (j << 2) | kind;
+			}
+			return new Template(messagePattern, count == delimiters.length ? delimiters
+					: Arrays.copyOf(delimiters, count));
+		}
+
+		void format(final StringBuilder sbuf, //
+				final @Nullable Object arg1, //
+				final @Nullable Object arg2, //
+				final @Nullable Object @Nullable [] args, //
+				final int argCount) {
+			final String messagePattern = this.messagePattern;
+			final int[] delimiters = this.delimiters;
+			int i = 0;
+			int L = 0;
+			for (int d = 0; d < delimiters.length && L < argCount; d++) {
+				final int delimiter = delimiters[d];
+				final int j = delimiter >>> 2;
+				switch (delimiter & 3) {
+					case ESCAPED -> {
+						// drop the escape, the { starts the next literal
+						sbuf.append(messagePattern, i, j - 1);
+						i = j;
+					}
+					case DOUBLE_ESCAPED -> {
+						// consume one of the two backward slashes
+						sbuf.append(messagePattern, i, j - 1);
+						deeplyAppendParameter(sbuf, resolveArg(L++, arg1, arg2, args, argCount), null);
+						i = j + 2;
+					}
+					default -> {
+						sbuf.append(messagePattern, i, j);
+						deeplyAppendParameter(sbuf, resolveArg(L++, arg1, arg2, args, argCount), null);
+						i = j + 2;
+					}
+				}
+			}
+			sbuf.append(messagePattern, i, messagePattern.length());
+		}
+
+	}
+
+	/*
+	 * Parsed templates keyed on the identity of the message pattern. Most message patterns
+	 * are string literals so the same instance is logged over and over.
+	 *
+	 * The cache is a fixed size direct mapped table so it is bounded without any
+	 * eviction bookkeeping. A pattern is only parsed the second time the same instance
+	 * lands in its slot. Dynamically built patterns are a new instance every time so they
+	 * only ever replace the candidate reference and fall back to scanning without
+	 * allocating a template. Slots are written racily but templates are immutable so a
+	 * lost update only costs a rescan.
+	 */
+	static final class TemplateCache {
+
+		static final int DEFAULT_SIZE = 1024;
+
+		private final @Nullable String[] candidates;
+
+		private final @Nullable Template[] templates;
+
+		private final int mask;
+
+		TemplateCache(int size) {
+			if (Integer.bitCount(size) != 1) {
+				throw new IllegalArgumentException("size should be a power of 2. Got: " + size);
+			}
+			this.candidates = new @Nullable String[size];
+			this.templates = new @Nullable Template[size];
+			this.mask = size - 1;
+		}
+
+		@SuppressWarnings("ReferenceEquality")
+		@Nullable
+		Template get(String messagePattern) {
+			int h = System.identityHashCode(messagePattern);
+			int index = (h ^ (h >>> 16)) & mask;
+			var template = templates[index];
+			if (template != null && template.messagePattern == messagePattern) {
+				return template;
+			}
+			if (candidates[index] == messagePattern) {
+				template = Template.parse(messagePattern);
+				templates[index] = template;
+				return template;
+			}
+			candidates[index] = messagePattern;
+			return null;
+		}
+
+	}
+
 	private static @Nullable Object resolveArg(int i, @Nullable Object arg1, @Nullable Object arg2,
 			@Nullable Object @Nullable [] args, int argCount) {
 		if (i >= argCount || argCount == 0) {
@@ -163,6 +163,24 @@ public interface LogOutput extends LogLifecycle, Flushable, LogComponent {
 				public String contentType() {
 					return "application/json";
 				}
+			},
+			/**
+			 * application/vnd.msgpack
+			 */
+			APPLICATION_MSGPACK() {
+				@Override
+				public String contentType() {
+					return "application/vnd.msgpack";
+				}
+			},
+			/**
+			 * application/x-protobuf
+			 */
+			APPLICATION_PROTOBUF() {
+				@Override
+				public String contentType() {
+					return "application/x-protobuf";
+				}
 			}
 
 		}
@@ -337,6 +355,19 @@ public interface LogOutput extends LogLifecycle, Flushable, LogComponent {
 		return LogResponse.Status.StandardStatus.IGNORED;
 	}
 
+	/**
+	 * Attempts to write out events the output is holding in memory if supported and
+	 * <strong>SHOULD only be called by the appender</strong>! This call is mainly used to
+	 * get at recent events of an in memory output such as
+	 * {@link io.jstach.rainbowgum.output.RingLogOutput} when something has gone wrong.
+	 * @return status and the default implementation will return
+	 * {@link LogResponse.Status.StandardStatus#IGNORED}.
+	 * @see LogOutputRegistry#dump()
+	 */
+	default LogResponse.Status dump() {
+		return LogResponse.Status.StandardStatus.IGNORED;
+	}
+
 	/**
 	 * The preferred write style of an output. The output should still honor all write
 	 * methods but this signals to the encoder which style it prefers.
@@ -12,6 +12,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import io.jstach.rainbowgum.LogOutput.OutputProvider;
 import io.jstach.rainbowgum.output.FileOutput;
 import io.jstach.rainbowgum.output.ListLogOutput;
+import io.jstach.rainbowgum.output.RingLogOutput;
 
 /**
  * Register output providers by URI scheme.
@@ -28,6 +29,12 @@ public sealed interface LogOutputRegistry extends OutputProvider permits Default
 	 */
 	public static String LIST_OUTPUT_SCHEME = "list";
 
+	/**
+	 * The URI scheme for the in memory ring provider.
+	 * @see RingLogOutput
+	 */
+	public static String RING_OUTPUT_SCHEME = "ring";
+
 	/**
 	 * Register a provider by {@link URI#getScheme() scheme}.
 	 * @param scheme URI scheme to match for.
@@ -59,6 +66,16 @@ public sealed interface LogOutputRegistry extends OutputProvider permits Default
 	 */
 	public List<LogResponse> flush();
 
+	/**
+	 * Attempts to dump all outputs that hold recent events in memory such as
+	 * {@link RingLogOutput} usually after something has gone wrong. This call will block
+	 * if it attempts to dump. If reopening or flushing is already happening an empty list
+	 * will be returned.
+	 * @return the output status of dumped outputs or an empty list if no outputs were
+	 * dumped.
+	 */
+	public List<LogResponse> dump();
+
 	/**
 	 * Will retrieve the status of all outputs usually for health checking.
 	 * @return list of status of outputs.
@@ -99,6 +116,11 @@ final class DefaultOutputRegistry implements LogOutputRegistry {
 		return requestIO(LogAction.StandardAction.FLUSH);
 	}
 
+	@Override
+	public List<LogResponse> dump() {
+		return requestIO(LogAction.StandardAction.DUMP);
+	}
+
 	@Override
 	public List<LogResponse> status() {
 		/*
@@ -232,6 +254,23 @@ final class DefaultOutputRegistry implements LogOutputRegistry {
 			}
 
 		},
+		RING {
+
+			@Override
+			public LogProvider<LogOutput> provide(LogProviderRef ref) {
+				return RingLogOutput.of(ref);
+			}
+
+			@Override
+			public LogOutput provide(LogProviderRef ref, String name, LogProperties properties) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public String scheme() {
+				return RING_OUTPUT_SCHEME;
+			}
+		},
 		FILE {
 
 			@Override
@@ -117,6 +117,23 @@ import io.jstach.rainbowgum.annotation.LogConfigurable;
  * publisher is then configured by properties with {@value #PUBLISHER_PREFIX}.</td>
  * </tr>
  * <tr>
+ * <td>{@value #ROUTE_FILTER_SAMPLE_PROPERTY}, {@value #ROUTE_FILTER_FIRST_PROPERTY},
+ * {@value #ROUTE_FILTER_RATE_PROPERTY} and related</td>
+ * <td>Suppresses events of the route by sampling per level, keeping the first N events
+ * of a logger per interval and then every Kth, and a token bucket per logger. Suppression
+ * counts are reported by the route's publisher status.</td>
+ * </tr>
+ * <tr>
+ * <td>{@value #ROUTE_DEDUP_WINDOW_PROPERTY} = <code>int</code></td>
+ * <td>Collapses bursts of identical events of the route within the window (milliseconds)
+ * into the first event and a "previous message repeated N times" event.</td>
+ * </tr>
+ * <tr>
+ * <td>{@value #ROUTE_TAIL_KEY_PROPERTY} = <code>String</code></td>
+ * <td>Holds back low level events of the route per MDC key value (for example a trace id)
+ * and only logs them if an error is logged with the same value.</td>
+ * </tr>
+ * <tr>
  * <td>{@value #APPENDERS_PROPERTY} = <code>List&lt;String&gt;</code></td>
  * <td>A comma separated list of appenders that should be enabled. If not set
  * {@value LogAppender#CONSOLE_APPENDER_NAME} is the default.</td>
@@ -132,12 +149,30 @@ import io.jstach.rainbowgum.annotation.LogConfigurable;
  * is then configured by properties with {@value #ENCODER_PREFIX}.</td>
  * </tr>
  * <tr>
+ * <td>{@value #APPENDER_RETAINED_BUFFER_SIZE_PROPERTY } = <code>int</code></td>
+ * <td>Encoder buffers the appender keeps across events are shrunk back to this capacity
+ * (bytes or chars) after an unusually large event. The default is 64 KiB and it is capped
+ * by the output's {@linkplain LogEncoder.BufferHints#maximumSize() maximum size}. When set
+ * the appender status also reports how many times buffers were shrunk.</td>
+ * </tr>
+ * <tr>
+ * <td>{@value #APPENDER_LEVEL_PROPERTY } = LEVEL</td>
+ * <td>Only events of the route at or above the level are encoded and written by the
+ * appender. By default the appender takes every event of the route.</td>
+ * </tr>
+ * <tr>
  * <tr>
  * <td>{@value #OUTPUT_PREFIX} + <code>propertyName</code></td>
  * <td>Configures the named output. The name of the output usually comes from the
  * appender.</td>
  * </tr>
  * <tr>
+ * <td>{@value #OUTPUT_RING_SIZE_PROPERTY} = <code>int</code></td>
+ * <td>A <code>ring:///</code> output keeps that many bytes of the latest encoded events in
+ * memory and writes them to {@value #OUTPUT_RING_TARGET_PROPERTY} on an error, on close
+ * or when {@linkplain LogOutputRegistry#dump() dumped}.</td>
+ * </tr>
+ * <tr>
  * <td>{@value #ENCODER_PREFIX} + <code>propertyName</code></td>
  * <td>Configures the named encoder. The name of the encoder usually comes from the
  * appender.</td>
@@ -206,6 +241,26 @@ public interface LogProperties {
 	 */
 	static final String GLOBAL_QUEUE_ERROR_PROPERTY = ROOT_PREFIX + "global.queue.error";
 
+	/**
+	 * The maximum number of events queued before Rainbow Gum is fully bound. When the
+	 * queue is full the oldest events are dropped and a single summary of how many were
+	 * dropped is logged once Rainbow Gum is bound. The default is <code>10000</code>.
+	 */
+	static final String GLOBAL_QUEUE_SIZE_PROPERTY = ROOT_PREFIX + "global.queue.size";
+
+	/**
+	 * The maximum number of logger names whose resolved level is cached per route. The
+	 * default is 10,000.
+	 */
+	static final String GLOBAL_LEVEL_CACHE_SIZE_PROPERTY = ROOT_PREFIX + "global.level.cache.size";
+
+	/**
+	 * If <code>true</code> the level caches only weakly reference logger names so that
+	 * loggers with dynamic names that are no longer used can be garbage collected along
+	 * with their cached level. The default is <code>false</code>.
+	 */
+	static final String GLOBAL_LEVEL_CACHE_WEAK_PROPERTY = ROOT_PREFIX + "global.level.cache.weak";
+
 	/**
 	 * Will globally turn of any ANSI escape output as well disable extensions that do
 	 * things for ANSI escape like JANSI. If not set this is derived automatically from
@@ -245,6 +300,26 @@ public interface LogProperties {
 	 */
 	static final String OUTPUT_PREFIX = ROOT_PREFIX + "output.{" + NAME + "}.";
 
+	/**
+	 * Bytes of encoded events a <code>ring</code> output keeps in memory before the
+	 * oldest are overwritten. The default is 1 MiB.
+	 * @see io.jstach.rainbowgum.output.RingLogOutput
+	 */
+	static final String OUTPUT_RING_SIZE_PROPERTY = OUTPUT_PREFIX + "ring.size";
+
+	/**
+	 * Events at or above this level make a <code>ring</code> output dump what it holds.
+	 * The default is <code>ERROR</code> and <code>OFF</code> only dumps on request or on
+	 * close.
+	 */
+	static final String OUTPUT_RING_DUMP_PROPERTY = OUTPUT_PREFIX + "ring.dump";
+
+	/**
+	 * URI of the output a <code>ring</code> output dumps to. The default is
+	 * <code>stderr:///</code>.
+	 */
+	static final String OUTPUT_RING_TARGET_PROPERTY = OUTPUT_PREFIX + "ring.target";
+
 	/**
 	 * Logging output prefix for configuration.
 	 */
@@ -277,6 +352,20 @@ public interface LogProperties {
 	 */
 	static final String APPENDER_FLAGS_PROPERTY = LogProperties.APPENDER_PREFIX + "flags";
 
+	/**
+	 * Appender retained buffer size. Encoder buffers kept across events that grow past
+	 * this are shrunk after being drained.
+	 */
+	static final String APPENDER_RETAINED_BUFFER_SIZE_PROPERTY = LogProperties.APPENDER_PREFIX
+			+ "retainedBufferSize";
+
+	/**
+	 * Appender level threshold. Events of the route below the level are skipped by the
+	 * appender before they are encoded. The value should be the name of a
+	 * {@linkplain java.lang.System.Logger.Level level}.
+	 */
+	static final String APPENDER_LEVEL_PROPERTY = LogProperties.APPENDER_PREFIX + "level";
+
 	/**
 	 * Logging publisher prefix for configuration.
 	 */
@@ -313,6 +402,82 @@ public interface LogProperties {
 	 */
 	static final String ROUTE_FLAGS_PROPERTY = ROUTE_PREFIX + "flags";
 
+	/**
+	 * Probability of keeping an event per level as a map of level to a number between 0
+	 * and 1, for example <code>DEBUG=0.1,INFO=0.5</code>. Levels not in the map are not
+	 * sampled.
+	 */
+	static final String ROUTE_FILTER_SAMPLE_PROPERTY = ROUTE_PREFIX + "filter.sample";
+
+	/**
+	 * Number of events per logger that are kept per
+	 * {@linkplain #ROUTE_FILTER_INTERVAL_PROPERTY interval} before only every
+	 * {@linkplain #ROUTE_FILTER_EVERY_PROPERTY Kth} is kept. Zero, the default, disables
+	 * it.
+	 */
+	static final String ROUTE_FILTER_FIRST_PROPERTY = ROUTE_PREFIX + "filter.first";
+
+	/**
+	 * After the {@linkplain #ROUTE_FILTER_FIRST_PROPERTY first} events of an interval only
+	 * every Kth event is kept. Zero, the default, drops the rest of the interval.
+	 */
+	static final String ROUTE_FILTER_EVERY_PROPERTY = ROUTE_PREFIX + "filter.every";
+
+	/**
+	 * Interval in milliseconds for {@value #ROUTE_FILTER_FIRST_PROPERTY}. The default is
+	 * one minute.
+	 */
+	static final String ROUTE_FILTER_INTERVAL_PROPERTY = ROUTE_PREFIX + "filter.interval";
+
+	/**
+	 * Token bucket rate of events per second per logger. Zero, the default, disables it.
+	 */
+	static final String ROUTE_FILTER_RATE_PROPERTY = ROUTE_PREFIX + "filter.rate";
+
+	/**
+	 * Token bucket size of {@value #ROUTE_FILTER_RATE_PROPERTY}, that is how many events
+	 * of a logger can be logged at once. The default is the rate.
+	 */
+	static final String ROUTE_FILTER_BURST_PROPERTY = ROUTE_PREFIX + "filter.burst";
+
+	/**
+	 * Window in milliseconds in which repeats of an identical event (same logger, level,
+	 * message and arguments) are collapsed into a single "previous message repeated N
+	 * times" event. Zero, the default, disables it.
+	 */
+	static final String ROUTE_DEDUP_WINDOW_PROPERTY = ROUTE_PREFIX + "dedup.window";
+
+	/**
+	 * Key value (MDC) key such as <code>traceId</code> whose events below
+	 * {@value #ROUTE_TAIL_LEVEL_PROPERTY} are held back per key value and only logged if
+	 * an event at or above {@value #ROUTE_TAIL_FLUSH_PROPERTY} is logged with the same
+	 * value. Not set by default which disables holding back events.
+	 */
+	static final String ROUTE_TAIL_KEY_PROPERTY = ROUTE_PREFIX + "tail.key";
+
+	/**
+	 * Events below this level are held back. The default is <code>INFO</code>.
+	 */
+	static final String ROUTE_TAIL_LEVEL_PROPERTY = ROUTE_PREFIX + "tail.level";
+
+	/**
+	 * Events at or above this level log the held back events of their key. The default
+	 * is <code>ERROR</code>.
+	 */
+	static final String ROUTE_TAIL_FLUSH_PROPERTY = ROUTE_PREFIX + "tail.flush";
+
+	/**
+	 * Maximum held back events per key value after which the oldest are dropped. The
+	 * default is 100.
+	 */
+	static final String ROUTE_TAIL_SIZE_PROPERTY = ROUTE_PREFIX + "tail.size";
+
+	/**
+	 * Maximum key values with held back events after which the least recently used is
+	 * dropped. The default is 1000.
+	 */
+	static final String ROUTE_TAIL_KEYS_PROPERTY = ROUTE_PREFIX + "tail.keys";
+
 	/**
 	 * Analogous to {@link System#getProperty(String)}.
 	 * @param key property name.
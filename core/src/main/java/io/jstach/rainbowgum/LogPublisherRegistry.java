@@ -142,6 +142,13 @@ final class DefaultPublisherRegistry implements LogPublisherRegistry {
 			catch (Exception e) {
 				status = LogResponse.Status.ofError(e);
 			}
+			var filtering = serviceRegistry.findOrNull(FilteringRouter.class, name);
+			if (filtering != null) {
+				List<Status> statuses = new ArrayList<>();
+				statuses.add(status);
+				statuses.addAll(filtering.status());
+				status = new Status.AggregateStatus(statuses);
+			}
 			responses.add(new Response(LogPublisher.class, name, status));
 		});
 		return responses;
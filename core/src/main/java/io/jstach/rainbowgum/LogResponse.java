@@ -183,6 +183,49 @@ public sealed interface LogResponse {
 			}
 		}
 
+		/**
+		 * A buffer status for appenders that keep encoder buffers across events.
+		 *
+		 * @param shrinkCount how many times a buffer grew past the retained capacity and
+		 * was shrunk.
+		 * @param retainedCapacity the capacity buffers are shrunk back to.
+		 */
+		record BufferStatus(long shrinkCount, long retainedCapacity) implements MetricStatus {
+
+		}
+
+		/**
+		 * A filter status for routes that suppress events.
+		 *
+		 * @param sampled events dropped by sampling.
+		 * @param throttled events dropped after the first events of an interval.
+		 * @param rateLimited events dropped because the rate was exceeded.
+		 */
+		record FilterStatus(long sampled, long throttled, long rateLimited) implements MetricStatus {
+
+		}
+
+		/**
+		 * A status for routes that collapse repeated events.
+		 *
+		 * @param repeated events that were counted as a repeat instead of being logged.
+		 */
+		record DedupStatus(long repeated) implements MetricStatus {
+
+		}
+
+		/**
+		 * A status for routes that hold back low level events until an error.
+		 *
+		 * @param flushed held events that were logged because of an error.
+		 * @param discarded held events that were dropped because the buffer of the key
+		 * was full or the key was evicted.
+		 * @param keys the number of keys that currently have held events.
+		 */
+		record TailStatus(long flushed, long discarded, long keys) implements MetricStatus {
+
+		}
+
 	}
 
 }
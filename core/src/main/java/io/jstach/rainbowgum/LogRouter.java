@@ -1,20 +1,35 @@
 package io.jstach.rainbowgum;
 
 import java.lang.System.Logger.Level;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -192,6 +207,15 @@ public sealed interface LogRouter extends LogLifecycle {
 		 */
 		public boolean isChangeable(String loggerName);
 
+		/**
+		 * Whether any of the appenders on the routes encode caller info (see
+		 * {@link LogEncoder#requiresCaller()}). Facades that support
+		 * {@link LogConfig.ChangePublisher.ChangeType#CALLER} should check this before
+		 * walking the stack to capture the caller for every event.
+		 * @return true if caller info might be used or if it cannot be determined yet.
+		 */
+		public boolean requiresCaller();
+
 	}
 
 	/**
@@ -407,6 +431,18 @@ public sealed interface LogRouter extends LogLifecycle {
 				 * consulted.
 				 */
 				var routeLevelResolverBuilder = LevelResolver.builder();
+				Property.builder() //
+					.ofInt()
+					.build(LogProperties.GLOBAL_LEVEL_CACHE_SIZE_PROPERTY)
+					.get(config.properties())
+					.optional()
+					.ifPresent(routeLevelResolverBuilder::cacheSize);
+				boolean weakCache = Property.builder() //
+					.ofBoolean()
+					.build(LogProperties.GLOBAL_LEVEL_CACHE_WEAK_PROPERTY)
+					.get(config.properties())
+					.value(false);
+				routeLevelResolverBuilder.weakCache(weakCache);
 				var currentConfig = buildLevelConfigOrNull();
 				if (currentConfig != null) {
 					routeLevelResolverBuilder.config(currentConfig);
@@ -451,8 +487,18 @@ public sealed interface LogRouter extends LogLifecycle {
 				/*
 				 * This routers level resolver needs to be notified if config changes.
 				 */
-				config.changePublisher().subscribe(c -> {
-					_levelResolver.clear();
+				config.changePublisher().subscribe(new ChangeListener() {
+
+					@Override
+					public void accept(LogConfig c) {
+						_levelResolver.clear();
+					}
+
+					@Override
+					public void changed(LogConfig c, String loggerName) {
+						_levelResolver.clear(loggerName);
+					}
+
 				});
 				var publisher = this.publisher;
 
@@ -478,7 +524,19 @@ public sealed interface LogRouter extends LogLifecycle {
 				 * Register the publisher for lookup like status checks.
 				 */
 				config.serviceRegistry().put(LogPublisher.class, name, pub);
-				return factory.create(pub, levelResolver, name, config);
+				var router = factory.create(pub, levelResolver, name, config);
+				var filter = RouteFilter.ofOrNull(name, config.properties());
+				var tailBuffer = RouteTailBuffer.ofOrNull(name, config.properties());
+				var deduplicator = RouteDeduplicator.ofOrNull(name, config.properties());
+				if (filter != null || tailBuffer != null || deduplicator != null) {
+					var filtering = new FilteringRouter(router, filter, tailBuffer, deduplicator);
+					/*
+					 * Registered so that the publisher status includes the stages.
+					 */
+					config.serviceRegistry().put(FilteringRouter.class, name, filtering);
+					return filtering;
+				}
+				return router;
 			}
 
 		}
@@ -632,6 +690,780 @@ record SimpleRouter(String name, LogPublisher publisher, LevelResolver levelReso
 
 }
 
+/*
+ * Route stages that run before the router: the filter suppresses events, the tail buffer
+ * holds back low level events of a key until an error and the deduplicator collapses
+ * repeats. Suppressed and held back events are never enqueued. The composite router and
+ * logger routes consult the filter with accept before they freeze an event for an async
+ * route so suppressed events are never frozen either.
+ */
+final class FilteringRouter implements Router, Route {
+
+	private final Router router;
+
+	private final @Nullable RouteFilter filter;
+
+	private final @Nullable RouteTailBuffer tailBuffer;
+
+	private final @Nullable RouteDeduplicator deduplicator;
+
+	private final LogEventLogger downstream;
+
+	FilteringRouter(Router router, @Nullable RouteFilter filter, @Nullable RouteTailBuffer tailBuffer,
+			@Nullable RouteDeduplicator deduplicator) {
+		this.router = router;
+		this.filter = filter;
+		this.tailBuffer = tailBuffer;
+		this.deduplicator = deduplicator;
+		this.downstream = deduplicator == null ? router : e -> deduplicator.log(e, router);
+	}
+
+	@Override
+	public Route route(String loggerName, Level level) {
+		if (router.route(loggerName, level).isEnabled()) {
+			return this;
+		}
+		return Routes.NotFound;
+	}
+
+	@Override
+	public void log(LogEvent event) {
+		if (accept(event)) {
+			logAccepted(event);
+		}
+	}
+
+	/*
+	 * The filter only looks at the level, logger name and timestamp so the event does
+	 * not need to be frozen yet.
+	 */
+	boolean accept(LogEvent event) {
+		var f = filter;
+		return f == null || f.test(event);
+	}
+
+	void logAccepted(LogEvent event) {
+		var t = tailBuffer;
+		if (t != null) {
+			t.log(event, downstream);
+		}
+		else {
+			downstream.log(event);
+		}
+	}
+
+	List<LogResponse.Status> status() {
+		List<LogResponse.Status> status = new ArrayList<>();
+		var f = filter;
+		if (f != null) {
+			status.add(f.status());
+		}
+		var t = tailBuffer;
+		if (t != null) {
+			status.add(t.status());
+		}
+		var d = deduplicator;
+		if (d != null) {
+			status.add(d.status());
+		}
+		return status;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public LevelResolver levelResolver() {
+		return router.levelResolver();
+	}
+
+	@Override
+	public LogPublisher publisher() {
+		return router.publisher();
+	}
+
+	@Override
+	public boolean synchronous() {
+		return router.synchronous();
+	}
+
+	@Override
+	public void start(LogConfig config) {
+		router.start(config);
+	}
+
+	@Override
+	public void close() {
+		var d = deduplicator;
+		if (d != null) {
+			d.flush(router);
+		}
+		router.close();
+	}
+
+	@Override
+	public String toString() {
+		return "FilteringRouter[router=" + router + ", filter=" + filter + ", tailBuffer=" + tailBuffer
+				+ ", deduplicator=" + deduplicator + "]";
+	}
+
+}
+
+/*
+ * Tail based sampling: events below the hold level that carry the key (usually a trace
+ * id in the MDC) are held back in a small ring per key value. If an event at or above the
+ * flush level arrives for the key the held events are passed on in order before it.
+ * Otherwise they are discarded when the key is evicted as the least recently used or the
+ * route is closed. Memory is capped by the number of keys times the ring size.
+ *
+ * The keys are spread over a few stripes each with its own lock and least recently used
+ * map so producers of different keys rarely contend. Eviction is per stripe which makes
+ * it only roughly least recently used over all keys. Rings start small and grow up to
+ * the ring size as events are held so the many keys that never see many events stay
+ * cheap.
+ */
+final class RouteTailBuffer {
+
+	static final int MAX_STRIPES = 16;
+
+	private final String key;
+
+	private final Level holdLevel;
+
+	private final Level flushLevel;
+
+	private final int size;
+
+	private final Stripe[] stripes;
+
+	private final LongAdder flushed = new LongAdder();
+
+	private final LongAdder discarded = new LongAdder();
+
+	RouteTailBuffer(String key, Level holdLevel, Level flushLevel, int size, int maxKeys) {
+		if (size < 1 || maxKeys < 1) {
+			throw new IllegalArgumentException("tail buffer size and keys should be greater than zero");
+		}
+		this.key = key;
+		this.holdLevel = holdLevel;
+		this.flushLevel = flushLevel;
+		this.size = size;
+		/*
+		 * A power of two no larger than the max keys so every stripe holds at least one.
+		 */
+		int count = Integer.highestOneBit(Math.min(MAX_STRIPES, maxKeys));
+		int stripeKeys = maxKeys / count;
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe(stripeKeys, discarded);
+		}
+	}
+
+	static @Nullable RouteTailBuffer ofOrNull(String name, LogProperties properties) {
+		String key = Property.builder()
+			.buildWithName(LogProperties.ROUTE_TAIL_KEY_PROPERTY, name)
+			.get(properties)
+			.valueOrNull();
+		if (key == null || key.isBlank()) {
+			return null;
+		}
+		Level holdLevel = Property.builder()
+			.map(LevelResolver::parseLevel)
+			.buildWithName(LogProperties.ROUTE_TAIL_LEVEL_PROPERTY, name)
+			.get(properties)
+			.value(Level.INFO);
+		Level flushLevel = Property.builder()
+			.map(LevelResolver::parseLevel)
+			.buildWithName(LogProperties.ROUTE_TAIL_FLUSH_PROPERTY, name)
+			.get(properties)
+			.value(Level.ERROR);
+		int size = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_TAIL_SIZE_PROPERTY, name)
+			.get(properties)
+			.value(100);
+		int maxKeys = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_TAIL_KEYS_PROPERTY, name)
+			.get(properties)
+			.value(1_000);
+		return new RouteTailBuffer(key, holdLevel, flushLevel, size, maxKeys);
+	}
+
+	void log(LogEvent event, LogEventLogger next) {
+		var level = event.level();
+		boolean hold = !LevelResolver.checkEnabled(level, holdLevel);
+		boolean flush = !hold && LevelResolver.checkEnabled(level, flushLevel);
+		if (!hold && !flush) {
+			next.log(event);
+			return;
+		}
+		String id = event.keyValues().getValueOrNull(key);
+		if (id == null) {
+			next.log(event);
+			return;
+		}
+		if (hold) {
+			/*
+			 * The MDC backing the event may change before the event is flushed.
+			 */
+			var frozen = event.freeze();
+			var stripe = stripe(id);
+			stripe.lock.lock();
+			try {
+				var ring = stripe.rings.get(id);
+				if (ring == null) {
+					ring = new Ring(size);
+					stripe.rings.put(id, ring);
+				}
+				if (ring.add(frozen)) {
+					discarded.increment();
+				}
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+			return;
+		}
+		Ring ring;
+		var stripe = stripe(id);
+		stripe.lock.lock();
+		try {
+			ring = stripe.rings.remove(id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+		if (ring != null) {
+			flushed.add(ring.drain(next));
+		}
+		next.log(event);
+	}
+
+	private Stripe stripe(String id) {
+		int h = id.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+	}
+
+	int keys() {
+		int keys = 0;
+		for (var stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				keys += stripe.rings.size();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return keys;
+	}
+
+	LogResponse.Status.TailStatus status() {
+		return new LogResponse.Status.TailStatus(flushed.sum(), discarded.sum(), keys());
+	}
+
+	@Override
+	public String toString() {
+		return "RouteTailBuffer[key=" + key + ", flushed=" + flushed.sum() + ", discarded=" + discarded.sum() + "]";
+	}
+
+	private static final class Stripe {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Map<String, Ring> rings;
+
+		Stripe(int maxKeys, LongAdder discarded) {
+			this.rings = new LinkedHashMap<>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+					if (size() > maxKeys) {
+						discarded.add(eldest.getValue().count);
+						return true;
+					}
+					return false;
+				}
+
+			};
+		}
+
+	}
+
+	private static final class Ring {
+
+		private static final int INITIAL_CAPACITY = 4;
+
+		private final int size;
+
+		private LogEvent[] events;
+
+		private int head;
+
+		private int count;
+
+		Ring(int size) {
+			this.size = size;
+			this.events = new LogEvent[Math.min(size, INITIAL_CAPACITY)];
+		}
+
+		/*
+		 * Returns true if the oldest event was overwritten.
+		 */
+		boolean add(LogEvent event) {
+			int length = events.length;
+			if (count == length && length < size) {
+				grow();
+				length = events.length;
+			}
+			events[(head + count) % length] = event;
+			if (count < length) {
+				count++;
+				return false;
+			}
+			head = (head + 1) % length;
+			return true;
+		}
+
+		private void grow() {
+			int length = events.length;
+			var grown = new LogEvent[Math.min(size, length * 2)];
+			for (int i = 0; i < count; i++) {
+				grown[i] = events[(head + i) % length];
+			}
+			events = grown;
+			head = 0;
+		}
+
+		int drain(LogEventLogger next) {
+			int length = events.length;
+			for (int i = 0; i < count; i++) {
+				next.log(events[(head + i) % length]);
+			}
+			return count;
+		}
+
+	}
+
+}
+
+/*
+ * Suppresses events of a misbehaving logger before they reach the publisher. There are
+ * three independent stages that are applied in order:
+ *
+ * 1. probabilistic sampling per level
+ * 2. the first N events of a logger per interval and then only every Kth
+ * 3. a token bucket per logger
+ *
+ * The state of stage 2 and 3 is kept in a fixed number of stripes of atomic longs indexed
+ * by the logger name hash instead of a map of logger names. This keeps the filter lock
+ * free and its memory fixed at the cost of loggers that share a stripe sharing a budget.
+ */
+final class RouteFilter {
+
+	static final int STRIPES = 256;
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final LongSupplier clock;
+
+	private final double @Nullable [] sampleRates;
+
+	private final int first;
+
+	private final int every;
+
+	private final long interval;
+
+	private final long origin;
+
+	private final @Nullable AtomicLongArray windows;
+
+	private final long emissionInterval;
+
+	private final long burstTolerance;
+
+	private final @Nullable AtomicLongArray arrivals;
+
+	private final LongAdder sampled = new LongAdder();
+
+	private final LongAdder throttled = new LongAdder();
+
+	private final LongAdder rateLimited = new LongAdder();
+
+	/**
+	 * Creates a filter.
+	 * @param sampleRates probability of keeping an event indexed by level ordinal or
+	 * null.
+	 * @param first events kept per logger per interval or zero to disable.
+	 * @param every after first every Kth event is kept. Zero drops the rest.
+	 * @param intervalMillis interval of first.
+	 * @param rate events per second per logger or zero to disable.
+	 * @param burst maximum events at once per logger.
+	 * @param clock nano time.
+	 */
+	RouteFilter(double @Nullable [] sampleRates, int first, int every, long intervalMillis, int rate, int burst,
+			LongSupplier clock) {
+		if (first < 0 || every < 0 || rate < 0 || burst < 0 || intervalMillis < 1) {
+			throw new IllegalArgumentException("filter settings should not be negative");
+		}
+		this.clock = clock;
+		this.sampleRates = sampleRates;
+		this.first = first;
+		this.every = every;
+		this.interval = intervalMillis * NANOS_PER_MILLI;
+		long now = clock.getAsLong();
+		this.origin = now;
+		this.windows = first > 0 ? new AtomicLongArray(STRIPES) : null;
+		if (rate > 0) {
+			this.emissionInterval = Math.max(1, NANOS_PER_SECOND / rate);
+			this.burstTolerance = emissionInterval * (Math.max(burst, 1) - 1);
+			var a = new AtomicLongArray(STRIPES);
+			for (int i = 0; i < STRIPES; i++) {
+				a.set(i, now);
+			}
+			this.arrivals = a;
+		}
+		else {
+			this.emissionInterval = 0;
+			this.burstTolerance = 0;
+			this.arrivals = null;
+		}
+	}
+
+	static @Nullable RouteFilter ofOrNull(String name, LogProperties properties) {
+		double[] sampleRates = Property.builder()
+			.ofMap()
+			.map(RouteFilter::parseSampleRates)
+			.buildWithName(LogProperties.ROUTE_FILTER_SAMPLE_PROPERTY, name)
+			.get(properties)
+			.valueOrNull();
+		int first = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_FILTER_FIRST_PROPERTY, name)
+			.get(properties)
+			.value(0);
+		int rate = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_FILTER_RATE_PROPERTY, name)
+			.get(properties)
+			.value(0);
+		if (sampleRates == null && first == 0 && rate == 0) {
+			return null;
+		}
+		int every = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_FILTER_EVERY_PROPERTY, name)
+			.get(properties)
+			.value(0);
+		int intervalMillis = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_FILTER_INTERVAL_PROPERTY, name)
+			.get(properties)
+			.value(60_000);
+		int burst = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_FILTER_BURST_PROPERTY, name)
+			.get(properties)
+			.value(rate);
+		return new RouteFilter(sampleRates, first, every, intervalMillis, rate, burst, System::nanoTime);
+	}
+
+	static double[] parseSampleRates(Map<String, String> m) {
+		var levels = Level.values();
+		double[] rates = new double[levels.length];
+		Arrays.fill(rates, 1.0d);
+		m.forEach((k, v) -> {
+			var level = LevelResolver.parseLevel(k);
+			double rate = Double.parseDouble(v);
+			if (!(rate >= 0 && rate <= 1)) {
+				throw new IllegalArgumentException("Sample rate should be between 0 and 1. rate=" + v);
+			}
+			rates[level.ordinal()] = rate;
+		});
+		return rates;
+	}
+
+	boolean test(LogEvent event) {
+		var rates = this.sampleRates;
+		if (rates != null) {
+			double rate = rates[event.level().ordinal()];
+			if (rate < 1.0d && ThreadLocalRandom.current().nextDouble() >= rate) {
+				sampled.increment();
+				return false;
+			}
+		}
+		var windows = this.windows;
+		var arrivals = this.arrivals;
+		if (windows == null && arrivals == null) {
+			return true;
+		}
+		int stripe = stripe(event.loggerName());
+		long now = clock.getAsLong();
+		if (windows != null && !admit(windows, stripe, now)) {
+			throttled.increment();
+			return false;
+		}
+		if (arrivals != null && !acquire(arrivals, stripe, now)) {
+			rateLimited.increment();
+			return false;
+		}
+		return true;
+	}
+
+	private static int stripe(String loggerName) {
+		int h = loggerName.hashCode();
+		return (h ^ (h >>> 16)) & (STRIPES - 1);
+	}
+
+	/*
+	 * The window number and the count of events in it are packed into a single long so
+	 * that both are swapped with one CAS.
+	 */
+	private boolean admit(AtomicLongArray windows, int stripe, long now) {
+		long window = ((now - origin) / interval) & 0xFFFFFFFFL;
+		for (;;) {
+			long packed = windows.get(stripe);
+			long count = (packed >>> 32) == window ? Math.min((packed & 0xFFFFFFFFL) + 1, Integer.MAX_VALUE) : 1;
+			long next = (window << 32) | count;
+			if (packed == next || windows.compareAndSet(stripe, packed, next)) {
+				if (count <= first) {
+					return true;
+				}
+				return every > 0 && (count - first) % every == 0;
+			}
+		}
+	}
+
+	/*
+	 * Generic cell rate algorithm which is a token bucket that only needs the theoretical
+	 * arrival time of the next event.
+	 */
+	private boolean acquire(AtomicLongArray arrivals, int stripe, long now) {
+		for (;;) {
+			long tat = arrivals.get(stripe);
+			long start = tat - now > 0 ? tat : now;
+			if (start - now > burstTolerance) {
+				return false;
+			}
+			if (arrivals.compareAndSet(stripe, tat, start + emissionInterval)) {
+				return true;
+			}
+		}
+	}
+
+	LogResponse.Status.FilterStatus status() {
+		return new LogResponse.Status.FilterStatus(sampled.sum(), throttled.sum(), rateLimited.sum());
+	}
+
+	@Override
+	public String toString() {
+		return "RouteFilter[sampled=" + sampled.sum() + ", throttled=" + throttled.sum() + ", rateLimited="
+				+ rateLimited.sum() + "]";
+	}
+
+}
+
+/*
+ * Collapses bursts of identical events. The first event of a burst is passed on right
+ * away and the repeats are only counted. When a different event lands in the same stripe
+ * or the window of the burst closes a single "previous message repeated N times" event is
+ * passed on before the new event. Bursts whose window has closed are also swept on a
+ * time check while logging so a summary does not wait for the next event on its stripe.
+ *
+ * Events are identical if the logger name, level, message template and arguments are.
+ * The stripe is picked from the logger name and template only (their String hash codes
+ * are cached) and the burst keeps the references so a repeat is confirmed with equals.
+ * Arguments are compared by identity unless they are strings or boxed primitives so no
+ * user hashCode or equals runs while logging. Producers never block: the current
+ * burst of a stripe is swapped with a CAS and its count is closed with a CAS so no repeat
+ * is lost or counted twice.
+ */
+final class RouteDeduplicator {
+
+	static final int STRIPES = 256;
+
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private static final long CLOSED = -1;
+
+	private static final @Nullable Object[] NO_ARGS = {};
+
+	private final AtomicReferenceArray<@Nullable Burst> bursts = new AtomicReferenceArray<>(STRIPES);
+
+	private final long window;
+
+	private final LongSupplier clock;
+
+	private final AtomicLong nextSweep;
+
+	private final LongAdder repeated = new LongAdder();
+
+	private record Burst(String loggerName, Level level, String message, @Nullable Object[] args, long start,
+			AtomicLong count) {
+
+		boolean matches(LogEvent event) {
+			if (level != event.level() || !loggerName.equals(event.loggerName())
+					|| !message.equals(event.message())) {
+				return false;
+			}
+			int size = event.argCount();
+			if (size != args.length) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (!sameArg(args[i], event.arg(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	RouteDeduplicator(long windowMillis, LongSupplier clock) {
+		if (windowMillis < 1) {
+			throw new IllegalArgumentException("dedup window should be greater than zero");
+		}
+		this.window = windowMillis * NANOS_PER_MILLI;
+		this.clock = clock;
+		this.nextSweep = new AtomicLong(clock.getAsLong() + window);
+	}
+
+	static @Nullable RouteDeduplicator ofOrNull(String name, LogProperties properties) {
+		int windowMillis = Property.builder()
+			.ofInt()
+			.buildWithName(LogProperties.ROUTE_DEDUP_WINDOW_PROPERTY, name)
+			.get(properties)
+			.value(0);
+		if (windowMillis == 0) {
+			return null;
+		}
+		return new RouteDeduplicator(windowMillis, System::nanoTime);
+	}
+
+	void log(LogEvent event, LogEventLogger next) {
+		long now = clock.getAsLong();
+		long sweep = nextSweep.get();
+		if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + window)) {
+			sweep(now, next);
+		}
+		int stripe = stripe(event);
+		for (;;) {
+			var current = bursts.get(stripe);
+			if (current != null && now - current.start < window && current.matches(event)) {
+				long c = current.count.get();
+				if (c == CLOSED) {
+					continue;
+				}
+				if (current.count.compareAndSet(c, c + 1)) {
+					repeated.increment();
+					return;
+				}
+				continue;
+			}
+			var burst = new Burst(event.loggerName(), event.level(), event.message(), args(event), now,
+					new AtomicLong());
+			if (bursts.compareAndSet(stripe, current, burst)) {
+				if (current != null) {
+					close(current, next);
+				}
+				next.log(event);
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Passes on the repeat counts of all open bursts for example on close.
+	 */
+	void flush(LogEventLogger next) {
+		for (int i = 0; i < STRIPES; i++) {
+			var current = bursts.getAndSet(i, null);
+			if (current != null) {
+				close(current, next);
+			}
+		}
+	}
+
+	/*
+	 * Only one producer sweeps per window. A burst is removed from its stripe before it
+	 * is closed so a racing producer either counted into it already or starts a new one.
+	 */
+	private void sweep(long now, LogEventLogger next) {
+		for (int i = 0; i < STRIPES; i++) {
+			var current = bursts.get(i);
+			if (current != null && now - current.start >= window && bursts.compareAndSet(i, current, null)) {
+				close(current, next);
+			}
+		}
+	}
+
+	private static void close(Burst burst, LogEventLogger next) {
+		long count = burst.count.getAndSet(CLOSED);
+		if (count > 0) {
+			next.log(LogEvent.of(burst.level, burst.loggerName, "previous message repeated " + count + " times",
+					KeyValues.of(), null));
+		}
+	}
+
+	private static @Nullable Object[] args(LogEvent event) {
+		int size = event.argCount();
+		if (size == 0) {
+			return NO_ARGS;
+		}
+		@Nullable
+		Object[] args = new Object[size];
+		for (int i = 0; i < size; i++) {
+			args[i] = event.arg(i);
+		}
+		return args;
+	}
+
+	private static boolean sameArg(@Nullable Object a, @Nullable Object b) {
+		if (a == b) {
+			return true;
+		}
+		if (a == null || b == null) {
+			return false;
+		}
+		return (a instanceof String || a instanceof Integer || a instanceof Long || a instanceof Boolean
+				|| a instanceof Double || a instanceof Float || a instanceof Short || a instanceof Byte
+				|| a instanceof Character) && a.equals(b);
+	}
+
+	private static int stripe(LogEvent event) {
+		long h = event.loggerName().hashCode();
+		h = h * 31 + event.message().hashCode();
+		/*
+		 * murmur3 finalizer so the stripe bits are well mixed.
+		 */
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) (h ^ (h >>> 32)) & (STRIPES - 1);
+	}
+
+	LogResponse.Status.DedupStatus status() {
+		return new LogResponse.Status.DedupStatus(repeated.sum());
+	}
+
+	@Override
+	public String toString() {
+		return "RouteDeduplicator[repeated=" + repeated.sum() + "]";
+	}
+
+}
+
 sealed interface InternalRootRouter extends RootRouter {
 
 	/**
@@ -678,12 +1510,33 @@ sealed interface InternalRootRouter extends RootRouter {
 
 		RouteChangePublisher changePublisher = new RouteChangePublisher(
 				s -> config.changePublisher().allowedChanges(s).contains(ChangeType.LEVEL));
+		boolean requiresCaller = requiresCaller(config.serviceRegistry());
 		if (array.length == 1) {
 			var r = array[0];
-			return r.synchronous() ? new SingleSyncRootRouter(r, changePublisher)
-					: new SingleAsyncRootRouter(r, changePublisher);
+			return r.synchronous() ? new SingleSyncRootRouter(r, changePublisher, requiresCaller)
+					: new SingleAsyncRootRouter(r, changePublisher, requiresCaller);
+		}
+		return new CompositeLogRouter(array, globalLevelResolver, changePublisher, requiresCaller);
+	}
+
+	/*
+	 * The routes have already been built at this point which means the publishers have
+	 * registered their appenders (the only way a publisher can get appenders is through
+	 * LogAppender.Appenders which registers them). If for some reason we cannot find
+	 * any we assume the caller is needed as that was the behavior before encoders could
+	 * tell us.
+	 */
+	static boolean requiresCaller(ServiceRegistry registry) {
+		var appenders = DirectLogAppender.findAppenders(registry);
+		if (appenders.isEmpty()) {
+			return true;
+		}
+		for (var a : appenders) {
+			if (a.encoder().requiresCaller()) {
+				return true;
+			}
 		}
-		return new CompositeLogRouter(array, globalLevelResolver, changePublisher);
+		return false;
 	}
 
 	default boolean isEnabled(String loggerName, java.lang.System.Logger.Level level) {
@@ -695,6 +1548,18 @@ sealed interface InternalRootRouter extends RootRouter {
 
 	}
 
+	/**
+	 * Logs an event that has not been routed yet, for example one logged directly to the
+	 * global router.
+	 * @param event event whose level has not been checked.
+	 */
+	default void routeAndLog(LogEvent event) {
+		var route = route(event.loggerName(), event.level());
+		if (route.isEnabled()) {
+			route.log(event);
+		}
+	}
+
 	@Override
 	default void onChange(Consumer<? super RootRouter> router) {
 		changePublisher().add(router);
@@ -722,7 +1587,19 @@ sealed interface InternalRootRouter extends RootRouter {
 			consumers.add(consumer);
 		}
 
+		/*
+		 * Bumped before the consumers are notified so that route snapshots held by
+		 * facades are rebuilt on their next event. Publishing can happen from the config
+		 * subscriber and the global router at the same time so the bump must be atomic.
+		 */
+		private final AtomicInteger version = new AtomicInteger();
+
+		int version() {
+			return this.version.get();
+		}
+
 		void publish(RootRouter router) {
+			version.incrementAndGet();
 			for (var c : consumers) {
 				c.accept(router);
 			}
@@ -737,7 +1614,8 @@ sealed interface InternalRootRouter extends RootRouter {
 
 }
 
-record SingleSyncRootRouter(Router router, RouteChangePublisher changePublisher) implements InternalRootRouter {
+record SingleSyncRootRouter(Router router, RouteChangePublisher changePublisher,
+		boolean requiresCaller) implements InternalRootRouter {
 
 	@Override
 	public void start(LogConfig config) {
@@ -761,7 +1639,8 @@ record SingleSyncRootRouter(Router router, RouteChangePublisher changePublisher)
 
 }
 
-record SingleAsyncRootRouter(Router router, RouteChangePublisher changePublisher) implements InternalRootRouter {
+record SingleAsyncRootRouter(Router router, RouteChangePublisher changePublisher,
+		boolean requiresCaller) implements InternalRootRouter {
 
 	@Override
 	public void start(LogConfig config) {
@@ -786,8 +1665,15 @@ record SingleAsyncRootRouter(Router router, RouteChangePublisher changePublisher
 }
 
 @SuppressWarnings("ArrayRecordComponent") // TODO revisit perf
-record CompositeLogRouter(Router[] routers, LevelResolver levelResolver,
-		RouteChangePublisher changePublisher) implements InternalRootRouter, Route {
+record CompositeLogRouter(Router[] routers, LevelResolver levelResolver, RouteChangePublisher changePublisher,
+		boolean requiresCaller, Map<String, LoggerRoute> loggerRoutes) implements InternalRootRouter, Route {
+
+	static final int LOGGER_ROUTES_MAX_SIZE = CachedLevelResolver.DEFAULT_MAX_SIZE;
+
+	CompositeLogRouter(Router[] routers, LevelResolver levelResolver, RouteChangePublisher changePublisher,
+			boolean requiresCaller) {
+		this(routers, levelResolver, changePublisher, requiresCaller, new ConcurrentHashMap<>());
+	}
 
 	@Override
 	public Route route(String loggerName, Level level) {
@@ -796,16 +1682,37 @@ record CompositeLogRouter(Router[] routers, LevelResolver levelResolver,
 		 * resolver of all the routers.
 		 */
 		if (levelResolver.isEnabled(loggerName, level)) {
-			return this;
+			return loggerRoute(loggerName);
 		}
 		return Routes.NotFound;
 	}
 
+	/*
+	 * Facades usually hold on to the route of a logger so the snapshot is what saves us
+	 * from asking every router for its level on every event. The cache is only here for
+	 * callers that call route on every event and is simply dropped when full as the
+	 * snapshots are cheap to rebuild.
+	 */
+	LoggerRoute loggerRoute(String loggerName) {
+		var route = loggerRoutes.get(loggerName);
+		if (route != null) {
+			return route;
+		}
+		if (loggerRoutes.size() >= LOGGER_ROUTES_MAX_SIZE) {
+			loggerRoutes.clear();
+		}
+		return loggerRoutes.computeIfAbsent(loggerName, n -> new LoggerRoute(this, n));
+	}
+
 	@Override
 	public void log(LogEvent event) {
 		for (var router : routers) {
 			var route = router.route(event.loggerName(), event.level());
 			if (route.isEnabled()) {
+				var filtering = route instanceof FilteringRouter f ? f : null;
+				if (filtering != null && !filtering.accept(event)) {
+					continue;
+				}
 				/*
 				 * We assume async routers are earlier in the array.
 				 */
@@ -818,7 +1725,12 @@ record CompositeLogRouter(Router[] routers, LevelResolver levelResolver,
 					 */
 					event = event.freeze();
 				}
-				route.log(event);
+				if (filtering != null) {
+					filtering.logAccepted(event);
+				}
+				else {
+					route.log(event);
+				}
 			}
 		}
 	}
@@ -843,9 +1755,131 @@ record CompositeLogRouter(Router[] routers, LevelResolver levelResolver,
 	}
 }
 
+/*
+ * A route handle for a single logger name that holds the enabled routes of the
+ * composite for every level. The snapshot is versioned with the change publisher so a
+ * level change publish makes the next event rebuild it.
+ */
+final class LoggerRoute implements Route {
+
+	private static final Level[] LEVELS = Level.values();
+
+	private static final Route[] EMPTY = new Route[] {};
+
+	private final CompositeLogRouter root;
+
+	private final String loggerName;
+
+	private volatile Snapshot snapshot;
+
+	LoggerRoute(CompositeLogRouter root, String loggerName) {
+		this.root = root;
+		this.loggerName = loggerName;
+		this.snapshot = snapshot(root, loggerName, root.changePublisher().version());
+	}
+
+	/*
+	 * async[level][i] is whether routes[level][i] is of an async router which is where
+	 * the composite would freeze the event.
+	 */
+	private record Snapshot(int version, Route[][] routes, boolean[][] async) {
+	}
+
+	private static Snapshot snapshot(CompositeLogRouter root, String loggerName, int version) {
+		Route[][] routes = new Route[LEVELS.length][];
+		boolean[][] async = new boolean[LEVELS.length][];
+		List<Route> enabled = new ArrayList<>();
+		List<Boolean> enabledAsync = new ArrayList<>();
+		for (var level : LEVELS) {
+			enabled.clear();
+			enabledAsync.clear();
+			for (var router : root.routers()) {
+				var route = router.route(loggerName, level);
+				if (route.isEnabled()) {
+					enabled.add(route);
+					enabledAsync.add(!router.synchronous());
+				}
+			}
+			routes[level.ordinal()] = enabled.isEmpty() ? EMPTY : enabled.toArray(EMPTY);
+			boolean[] a = new boolean[enabledAsync.size()];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = enabledAsync.get(i);
+			}
+			async[level.ordinal()] = a;
+		}
+		return new Snapshot(version, routes, async);
+	}
+
+	Route[] routes(Level level) {
+		return current().routes[level.ordinal()];
+	}
+
+	private Snapshot current() {
+		var s = this.snapshot;
+		int version = root.changePublisher().version();
+		if (s.version != version) {
+			s = snapshot(root, loggerName, version);
+			this.snapshot = s;
+		}
+		return s;
+	}
+
+	@Override
+	public void log(LogEvent event) {
+		/*
+		 * Events built from a route of one logger can still carry another logger name
+		 * in which case the routers decide as before.
+		 */
+		if (!loggerName.equals(event.loggerName())) {
+			root.log(event);
+			return;
+		}
+		var s = current();
+		int ordinal = event.level().ordinal();
+		var routes = s.routes[ordinal];
+		var async = s.async[ordinal];
+		for (int i = 0; i < routes.length; i++) {
+			var route = routes[i];
+			/*
+			 * The same as the composite: the filter is consulted before the event is
+			 * frozen for an async route and once frozen the following routes get the
+			 * frozen event. Freeze is a noop if it is already frozen.
+			 */
+			if (route instanceof FilteringRouter f) {
+				if (!f.accept(event)) {
+					continue;
+				}
+				if (async[i]) {
+					event = event.freeze();
+				}
+				f.logAccepted(event);
+			}
+			else {
+				if (async[i]) {
+					event = event.freeze();
+				}
+				route.log(event);
+			}
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "LoggerRoute[loggerName=" + loggerName + "]";
+	}
+
+}
+
 final class QueueEventsRouter implements InternalRootRouter, Route {
 
-	private final ConcurrentLinkedQueue<LogEvent> events = new ConcurrentLinkedQueue<>();
+	static final int DEFAULT_QUEUE_SIZE = 10_000;
+
+	private final ArrayBlockingQueue<LogEvent> events;
 
 	private final LevelResolver levelResolver;
 
@@ -853,8 +1887,17 @@ final class QueueEventsRouter implements InternalRootRouter, Route {
 
 	private final RouteChangePublisher changePublisher = new RouteChangePublisher(s -> true);
 
+	private final ReentrantLock dropLock = new ReentrantLock();
+
+	private long dropped;
+
+	private @Nullable Instant firstDropped;
+
+	private @Nullable Instant lastDropped;
+
 	static QueueEventsRouter of() {
-		return new QueueEventsRouter(StaticLevelResolver.of(queueLevel()), StaticLevelResolver.of(errorLevel()));
+		return new QueueEventsRouter(StaticLevelResolver.of(queueLevel()), StaticLevelResolver.of(errorLevel()),
+				queueSize());
 	}
 
 	private static Level queueLevel() {
@@ -873,10 +1916,22 @@ final class QueueEventsRouter implements InternalRootRouter, Route {
 			.value(Level.ERROR);
 	}
 
-	private QueueEventsRouter(LevelResolver levelResolver, LevelResolver errorLevelResolver) {
+	private static int queueSize() {
+		return LogProperty.builder()
+			.ofInt()
+			.build(LogProperties.GLOBAL_QUEUE_SIZE_PROPERTY)
+			.get(LogProperties.StandardProperties.SYSTEM_PROPERTIES)
+			.value(DEFAULT_QUEUE_SIZE);
+	}
+
+	QueueEventsRouter(LevelResolver levelResolver, LevelResolver errorLevelResolver, int queueSize) {
 		super();
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queue size should be greater than zero. queueSize: " + queueSize);
+		}
 		this.levelResolver = levelResolver;
 		this.errorLevelResolver = errorLevelResolver;
+		this.events = new ArrayBlockingQueue<>(queueSize);
 	}
 
 	@Override
@@ -903,18 +1958,103 @@ final class QueueEventsRouter implements InternalRootRouter, Route {
 
 	@Override
 	public void log(LogEvent event) {
-		events.add(event);
+		/*
+		 * The queue is a ring. If Rainbow Gum is slow to initialize or never does we drop
+		 * the oldest events instead of growing without bound. Error events are not lost
+		 * as they are already written to the meta log below.
+		 */
+		while (!events.offer(event)) {
+			var oldest = events.poll();
+			if (oldest != null) {
+				dropped(oldest);
+			}
+		}
 		if (errorLevelResolver.isEnabled(event.loggerName(), event.level())) {
 			MetaLog.error(event);
 		}
 	}
 
+	private void dropped(LogEvent event) {
+		dropLock.lock();
+		try {
+			dropped++;
+			var timestamp = event.timestamp();
+			if (firstDropped == null) {
+				firstDropped = timestamp;
+			}
+			lastDropped = timestamp;
+		}
+		finally {
+			dropLock.unlock();
+		}
+	}
+
+	long dropped() {
+		dropLock.lock();
+		try {
+			return dropped;
+		}
+		finally {
+			dropLock.unlock();
+		}
+	}
+
+	/*
+	 * Takes the dropped count and the sample of when the drops happened and resets them.
+	 */
+	private @Nullable LogEvent droppedSummaryOrNull() {
+		long count;
+		Instant first;
+		Instant last;
+		dropLock.lock();
+		try {
+			count = dropped;
+			first = firstDropped;
+			last = lastDropped;
+			dropped = 0;
+			firstDropped = null;
+			lastDropped = null;
+		}
+		finally {
+			dropLock.unlock();
+		}
+		if (count == 0 || first == null || last == null) {
+			return null;
+		}
+		String message = count + " pre-init events dropped. First dropped event was at " + first
+				+ " and last at " + last + ". Increase " + LogProperties.GLOBAL_QUEUE_SIZE_PROPERTY
+				+ " to queue more events.";
+		return LogEvent.of(Level.WARNING, LogRouter.class.getName(), message, KeyValues.of(), null);
+	}
+
+	/*
+	 * The appenders are not known till the real router replaces this one so we have to
+	 * assume caller info is needed.
+	 */
+	@Override
+	public boolean requiresCaller() {
+		return true;
+	}
+
+	/*
+	 * Events logged directly are queued regardless of level as the real router will
+	 * decide once it replaces this one.
+	 */
+	@Override
+	public void routeAndLog(LogEvent event) {
+		log(event);
+	}
+
 	@Override
 	public void drain(InternalRootRouter delegate) {
 		LogEvent e;
 		while ((e = this.events.poll()) != null) {
 			delegate.route(e.loggerName(), e.level()).log(e);
 		}
+		var summary = droppedSummaryOrNull();
+		if (summary != null) {
+			delegate.routeAndLog(summary);
+		}
 	}
 
 	@Override
@@ -934,13 +2074,44 @@ enum GlobalLogRouter implements InternalRootRouter, Route {
 
 	INSTANCE;
 
-	private volatile InternalRootRouter delegate = QueueEventsRouter.of();
-
 	private final ReentrantLock drainLock = new ReentrantLock();
 
+	/*
+	 * The delegate is swapped at most a handful of times (startup and close) but read on
+	 * every event. Instead of a volatile field it is the constant target of a call site
+	 * so that the JIT can fold the delegate into compiled code and only deoptimize when
+	 * the delegate is swapped.
+	 */
+	private static final class Delegate {
+
+		private static final MutableCallSite SITE = new MutableCallSite(
+				MethodHandles.constant(InternalRootRouter.class, QueueEventsRouter.of()));
+
+		private static final MethodHandle GET = SITE.dynamicInvoker();
+
+		static InternalRootRouter get() {
+			try {
+				return (InternalRootRouter) GET.invokeExact();
+			}
+			catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		static void set(InternalRootRouter delegate) {
+			SITE.setTarget(MethodHandles.constant(InternalRootRouter.class, delegate));
+			MutableCallSite.syncAll(new MutableCallSite[] { SITE });
+		}
+
+	}
+
+	private static InternalRootRouter delegate() {
+		return Delegate.get();
+	}
+
 	@Override
 	public LevelResolver levelResolver() {
-		return delegate.levelResolver();
+		return delegate().levelResolver();
 	}
 
 	@Override
@@ -950,31 +2121,32 @@ enum GlobalLogRouter implements InternalRootRouter, Route {
 
 	@Override
 	public void log(LogEvent event) {
-		InternalRootRouter d = delegate;
-		if (d instanceof QueueEventsRouter q) {
-			q.log(event);
-		}
-		else {
-			var route = d.route(event.loggerName(), event.level());
-			if (route.isEnabled()) {
-				route.log(event);
-			}
-		}
+		delegate().routeAndLog(event);
+	}
+
+	@Override
+	public void routeAndLog(LogEvent event) {
+		delegate().routeAndLog(event);
 	}
 
 	@Override
 	public Route route(String loggerName, Level level) {
-		return this.delegate.route(loggerName, level);
+		return delegate().route(loggerName, level);
 	}
 
 	@Override
 	public boolean isEnabled(String loggerName, Level level) {
-		return this.delegate.isEnabled(loggerName, level);
+		return delegate().isEnabled(loggerName, level);
 	}
 
 	@Override
 	public RouteChangePublisher changePublisher() {
-		return this.delegate.changePublisher();
+		return delegate().changePublisher();
+	}
+
+	@Override
+	public boolean requiresCaller() {
+		return delegate().requiresCaller();
 	}
 
 	@Override
@@ -988,12 +2160,12 @@ enum GlobalLogRouter implements InternalRootRouter, Route {
 		}
 		drainLock.lock();
 		try {
-			var original = this.delegate;
+			var original = delegate();
 			if (original instanceof QueueEventsRouter q) {
 				q.changePublisher().transferTo(delegate.changePublisher());
 				delegate.changePublisher().publish(delegate);
 			}
-			this.delegate = Objects.requireNonNull(delegate);
+			Delegate.set(Objects.requireNonNull(delegate));
 			original.drain(delegate);
 			return original;
 		}
@@ -114,6 +114,16 @@ public class AbstractStandardEventFormatter implements LogFormatter.EventFormatt
 
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return eventFormatter.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		return eventFormatter.isStateless();
+	}
+
 	/**
 	 * Creates the standard default TTLL layout. This is largely the default of Log4J2 and
 	 * Logback if no formatting is picked. An example of what the default roughly looks
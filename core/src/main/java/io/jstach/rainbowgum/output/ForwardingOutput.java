@@ -111,4 +111,13 @@ interface ForwardingOutput extends LogOutput {
 	@Override
 	public Status reopen();
 
+	@Override
+	default Status dump() {
+		var d = delegate();
+		if (d != null) {
+			return d.dump();
+		}
+		return Status.StandardStatus.IGNORED;
+	}
+
 }
@@ -0,0 +1,337 @@
+package io.jstach.rainbowgum.output;
+
+import java.lang.System.Logger.Level;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.LevelResolver;
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogOutputRegistry;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.LogProperty.Property;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.LogProviderRef;
+import io.jstach.rainbowgum.LogResponse.Status;
+
+/**
+ * A flight recorder like output that keeps the latest encoded events in a fixed size
+ * in memory ring overwriting the oldest and only writes them to a target output when
+ * dumped. A dump happens when an event at or above the dump level (default
+ * <code>ERROR</code>) is written, when {@linkplain LogOutputRegistry#dump() requested}
+ * and when the output is closed which includes JVM shutdown. In between writes are just
+ * copies into the ring and {@link #flush()} does nothing so there is no I/O until a dump.
+ * Each held record keeps the level and content type it was written with and a dump
+ * passes them on to the target with an event of that level. The rest of the original
+ * event is not kept so memory stays bounded by the ring size.
+ * <p>
+ * It can be configured with the {@value LogOutputRegistry#RING_OUTPUT_SCHEME} URI scheme
+ * for example <code>ring:///?ring.size=65536&amp;ring.target=file:///tmp/crash.log</code>.
+ * @see LogProperties#OUTPUT_RING_SIZE_PROPERTY
+ * @see LogProperties#OUTPUT_RING_DUMP_PROPERTY
+ * @see LogProperties#OUTPUT_RING_TARGET_PROPERTY
+ * @apiNote like other outputs the appender guarantees there are no overlapping calls.
+ */
+public final class RingLogOutput implements LogOutput {
+
+	/**
+	 * Default ring size in bytes.
+	 */
+	public static final int DEFAULT_SIZE = 1024 * 1024;
+
+	/*
+	 * Each record is a 4 byte length, the level ordinal, the index of the content type in
+	 * contentTypes and then the encoded event. Any part may wrap around the end of the
+	 * ring.
+	 */
+	private static final int LENGTH = 4;
+
+	private static final int HEADER = LENGTH + 2;
+
+	private static final int MAX_CONTENT_TYPES = 256;
+
+	private static final Level[] LEVELS = Level.values();
+
+	private static final URI RING_URI = URI.create(LogOutputRegistry.RING_OUTPUT_SCHEME + ":///");
+
+	private final byte[] ring;
+
+	private final Level dumpLevel;
+
+	private final LogOutput target;
+
+	private int head;
+
+	private int size;
+
+	private long overwritten;
+
+	/*
+	 * Interned content types. An appender only has one encoder so there is usually one.
+	 */
+	private ContentType[] contentTypes = new ContentType[1];
+
+	private int contentTypeCount;
+
+	RingLogOutput(int capacity, Level dumpLevel, LogOutput target) {
+		if (capacity <= HEADER) {
+			throw new IllegalArgumentException("Ring size should be greater than " + HEADER + ". size: " + capacity);
+		}
+		this.ring = new byte[capacity];
+		this.dumpLevel = dumpLevel;
+		this.target = target;
+	}
+
+	/**
+	 * Creates a ring output that dumps on errors.
+	 * @param size size of the ring in bytes.
+	 * @param target output the events are written to on a dump.
+	 * @return ring output.
+	 */
+	public static RingLogOutput of(int size, LogOutput target) {
+		return of(size, Level.ERROR, target);
+	}
+
+	/**
+	 * Creates a ring output.
+	 * @param size size of the ring in bytes.
+	 * @param dumpLevel events at or above this level cause a dump. {@link Level#OFF}
+	 * will only dump on request or close.
+	 * @param target output the events are written to on a dump.
+	 * @return ring output.
+	 */
+	public static RingLogOutput of(int size, Level dumpLevel, LogOutput target) {
+		return new RingLogOutput(size, dumpLevel, target);
+	}
+
+	/**
+	 * Create output from provider ref. This is mostly an internal call.
+	 * @param ref ring provider ref.
+	 * @return provider.
+	 */
+	public static LogProvider<LogOutput> of(LogProviderRef ref) {
+		return (name, config) -> {
+			var uri = ref.uri();
+			LogProperties properties = config.properties();
+			if (uri.getRawQuery() != null) {
+				String prefix = LogProperties.interpolateKey(LogProperties.OUTPUT_PREFIX, k -> name);
+				properties = LogProperties.of(uri, prefix, properties, ref.keyOrNull());
+			}
+			int size = Property.builder()
+				.ofInt()
+				.buildWithName(LogProperties.OUTPUT_RING_SIZE_PROPERTY, name)
+				.get(properties)
+				.value(DEFAULT_SIZE);
+			Level dumpLevel = Property.builder()
+				.map(LevelResolver::parseLevel)
+				.buildWithName(LogProperties.OUTPUT_RING_DUMP_PROPERTY, name)
+				.get(properties)
+				.value(Level.ERROR);
+			LogProviderRef targetRef = Property.builder()
+				.ofProviderRef()
+				.buildWithName(LogProperties.OUTPUT_RING_TARGET_PROPERTY, name)
+				.get(properties)
+				.value(LogProviderRef.of(LogOutput.STDERR_URI));
+			var target = LogOutput.of(targetRef).provide(name + ".target", config);
+			return of(size, dumpLevel, target);
+		};
+	}
+
+	@Override
+	public void start(LogConfig config) {
+		target.start(config);
+	}
+
+	@Override
+	public URI uri() throws UnsupportedOperationException {
+		return RING_URI;
+	}
+
+	@Override
+	public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+		/*
+		 * An event bigger than the whole ring keeps its beginning as that is where the
+		 * message usually is.
+		 */
+		int type = intern(contentType);
+		int length = Math.min(len, ring.length - HEADER);
+		int needed = HEADER + length;
+		while (ring.length - size < needed) {
+			drop();
+		}
+		int tail = index(head + size);
+		putInt(tail, length);
+		ring[index(tail + LENGTH)] = (byte) event.level().ordinal();
+		ring[index(tail + LENGTH + 1)] = (byte) type;
+		copyIn(index(tail + HEADER), bytes, off, length);
+		size += needed;
+		var d = dumpLevel;
+		if (d != Level.OFF && event.level().getSeverity() >= d.getSeverity()) {
+			dump();
+		}
+	}
+
+	private int intern(ContentType contentType) {
+		var types = contentTypes;
+		int count = contentTypeCount;
+		for (int i = 0; i < count; i++) {
+			if (types[i] == contentType) {
+				return i;
+			}
+		}
+		if (count == MAX_CONTENT_TYPES) {
+			throw new IllegalStateException("Ring output supports at most " + MAX_CONTENT_TYPES + " content types");
+		}
+		if (count == types.length) {
+			contentTypes = types = Arrays.copyOf(types, Math.min(MAX_CONTENT_TYPES, count * 2));
+		}
+		types[count] = contentType;
+		contentTypeCount = count + 1;
+		return count;
+	}
+
+	/**
+	 * Writes the events held in the ring to the target output oldest first and empties
+	 * the ring. Each record is removed as soon as it is written so if the target fails
+	 * the records already written are not written again and the rest stay held for the
+	 * next dump.
+	 * @return {@link Status.StandardStatus#OK}.
+	 */
+	@Override
+	public Status dump() {
+		if (size == 0) {
+			return Status.StandardStatus.OK;
+		}
+		var t = target;
+		@Nullable
+		LogEvent[] events = new LogEvent[LEVELS.length];
+		byte @Nullable [] scratch = null;
+		while (size > 0) {
+			int length = getInt(head);
+			var level = LEVELS[ring[index(head + LENGTH)]];
+			var contentType = contentTypes[ring[index(head + LENGTH + 1)] & 0xFF];
+			var event = events[level.ordinal()];
+			if (event == null) {
+				event = LogEvent.of(level, RingLogOutput.class.getName(), "dump", KeyValues.of(), null);
+				events[level.ordinal()] = event;
+			}
+			int start = index(head + HEADER);
+			byte[] bytes;
+			int off;
+			if (start + length <= ring.length) {
+				bytes = ring;
+				off = start;
+			}
+			else {
+				if (scratch == null || scratch.length < length) {
+					scratch = new byte[length];
+				}
+				int first = ring.length - start;
+				System.arraycopy(ring, start, scratch, 0, first);
+				System.arraycopy(ring, 0, scratch, first, length - first);
+				bytes = scratch;
+				off = 0;
+			}
+			t.write(event, bytes, off, length, contentType);
+			remove(length);
+		}
+		t.flush();
+		return Status.StandardStatus.OK;
+	}
+
+	private void drop() {
+		remove(getInt(head));
+		overwritten++;
+	}
+
+	private void remove(int length) {
+		size -= HEADER + length;
+		head = size == 0 ? 0 : index(head + HEADER + length);
+	}
+
+	private int index(int position) {
+		return position >= ring.length ? position - ring.length : position;
+	}
+
+	private void putInt(int position, int value) {
+		for (int i = 0; i < LENGTH; i++) {
+			ring[index(position + i)] = (byte) (value >>> (24 - 8 * i));
+		}
+	}
+
+	private int getInt(int position) {
+		int value = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			value = (value << 8) | (ring[index(position + i)] & 0xFF);
+		}
+		return value;
+	}
+
+	private void copyIn(int position, byte[] bytes, int off, int len) {
+		int first = Math.min(len, ring.length - position);
+		System.arraycopy(bytes, off, ring, position, first);
+		System.arraycopy(bytes, off + first, ring, 0, len - first);
+	}
+
+	/**
+	 * Bytes of events currently held.
+	 * @return held bytes including record headers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Events that were overwritten by newer events before they could be dumped.
+	 * @return overwritten event count.
+	 */
+	public long overwritten() {
+		return overwritten;
+	}
+
+	/**
+	 * Does nothing as events are only written out on a dump.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public Status reopen() {
+		return target.reopen();
+	}
+
+	@Override
+	public Status status() throws Exception {
+		return target.status();
+	}
+
+	@Override
+	public OutputType type() {
+		return OutputType.MEMORY;
+	}
+
+	/**
+	 * Dumps what is held which is how the ring is written out on JVM shutdown and then
+	 * closes the target.
+	 */
+	@Override
+	public void close() {
+		try {
+			dump();
+		}
+		finally {
+			target.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RingLogOutput[size=" + ring.length + ", dumpLevel=" + dumpLevel + ", target=" + target + "]";
+	}
+
+}
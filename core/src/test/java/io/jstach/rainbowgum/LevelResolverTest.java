@@ -1,16 +1,26 @@
 package io.jstach.rainbowgum;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import io.jstach.rainbowgum.LevelResolver.LevelConfig;
 import io.jstach.rainbowgum.LogFormatter.LevelFormatter;
 import io.jstach.rainbowgum.LogRouter.RouteFlag;
 import io.jstach.rainbowgum.output.ListLogOutput;
@@ -22,6 +32,172 @@ class LevelResolverTest {
 		LevelResolver.builder().level(Level.OFF);
 	}
 
+	@Test
+	void testTrieMatchesPathWalk() {
+		Map<String, Level> levels = new LinkedHashMap<>();
+		levels.put("", Level.WARNING);
+		levels.put("com", Level.INFO);
+		levels.put("com.stuff", Level.DEBUG);
+		levels.put("com.stuff.a.b", Level.ERROR);
+		levels.put("com.stuffing", Level.TRACE);
+		levels.put("com.all", Level.ALL);
+		levels.put("a..b", Level.OFF);
+		levels.put("x.", Level.ERROR);
+		var trie = TrieLevelConfig.of(levels);
+		LevelConfig walk = levels::get;
+		for (String name : List.of("", "com", "com.stuff", "com.stuff.a", "com.stuff.a.b", "com.stuff.a.b.c",
+				"com.stuffing.x", "com.stuf", "com.all", "com.all.x", "org", "org.com.stuff", "a", "a.", "a..b",
+				"a..b.c", "a.b", "x", "x.", "x..", ".com", "com.")) {
+			assertEquals(walk.resolveLevel(name), trie.resolveLevel(name), name);
+			assertEquals(walk.levelOrNull(name), trie.levelOrNull(name), name);
+		}
+		assertEquals(Level.ALL, TrieLevelConfig.of(Map.of("com", Level.INFO)).resolveLevel("org"));
+	}
+
+	@Test
+	void testStaticLevelsUseTrie() {
+		var resolver = LevelResolver.builder()
+			.level(Level.INFO)
+			.level(Level.DEBUG, "com.stuff")
+			.level(Level.ALL, "com.stuff.trace")
+			.build();
+		assertEquals(Level.DEBUG, resolver.resolveLevel("com.stuff.foo"));
+		assertEquals(Level.TRACE, resolver.resolveLevel("com.stuff.trace.foo"));
+		assertEquals(Level.INFO, resolver.resolveLevel("com.other"));
+		assertEquals(Level.INFO, resolver.resolveLevel(""));
+	}
+
+	@Test
+	void testCacheIsBounded() {
+		var cache = new CachedLevelResolver(StaticLevelResolver.INFO, 8);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Level.INFO, cache.resolveLevel("logger" + i));
+			assertTrue(cache.size() <= 8, () -> "size: " + cache.size());
+		}
+	}
+
+	@Test
+	void testCacheClearPrefix() {
+		List<String> resolved = new ArrayList<>();
+		LevelResolver counting = name -> {
+			resolved.add(name);
+			return Level.INFO;
+		};
+		var cache = new CachedLevelResolver(counting);
+		var names = List.of("com.stuff", "com.stuff.Foo", "com.stuffing", "org");
+		names.forEach(cache::resolveLevel);
+		names.forEach(cache::resolveLevel);
+		assertEquals(names, resolved);
+		resolved.clear();
+		cache.clear("com.stuff");
+		names.forEach(cache::resolveLevel);
+		assertEquals(List.of("com.stuff", "com.stuff.Foo"), resolved);
+		resolved.clear();
+		cache.clear("");
+		names.forEach(cache::resolveLevel);
+		assertEquals(names, resolved);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = { false, true })
+	void testCacheClearDuringResolveDoesNotKeepStaleLevel(boolean weak) throws Exception {
+		AtomicReference<Level> configured = new AtomicReference<>(Level.INFO);
+		CountDownLatch resolving = new CountDownLatch(1);
+		CountDownLatch cleared = new CountDownLatch(1);
+		String name = "com.stuff.Slow";
+		LevelResolver slow = n -> {
+			var level = configured.get();
+			if (resolving.getCount() > 0) {
+				resolving.countDown();
+				try {
+					cleared.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return level;
+		};
+		AbstractCachedLevelResolver<?> cache = weak ? new WeakCachedLevelResolver(slow, 100)
+				: new CachedLevelResolver(slow);
+		/*
+		 * The resolve reads the old config and is still running when the prefix is
+		 * cleared for the new config.
+		 */
+		var resolver = new Thread(() -> cache.resolveLevel(name));
+		resolver.start();
+		resolving.await();
+		configured.set(Level.DEBUG);
+		cache.clear("com.stuff");
+		cleared.countDown();
+		resolver.join();
+		assertEquals(Level.DEBUG, cache.resolveLevel(name));
+	}
+
+	@Test
+	void testWeakCache() {
+		List<String> resolved = new ArrayList<>();
+		LevelResolver counting = name -> {
+			resolved.add(name);
+			return Level.DEBUG;
+		};
+		var cache = new WeakCachedLevelResolver(counting, 100);
+		String name = new String("dynamic.logger");
+		assertEquals(Level.DEBUG, cache.resolveLevel(name));
+		assertEquals(Level.DEBUG, cache.resolveLevel(new String("dynamic.logger")));
+		assertEquals(List.of("dynamic.logger"), resolved);
+		cache.clear("dynamic");
+		assertEquals(0, cache.size());
+		cache.resolveLevel(name);
+		/*
+		 * Simulate the logger name being collected.
+		 */
+		var key = cache.levelCache.keySet().iterator().next();
+		key.clear();
+		key.enqueue();
+		cache.resolveLevel("other");
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testWeakCacheProbeEqualsKey() {
+		String name = new String("dynamic.logger");
+		var key = new WeakCachedLevelResolver.NameKey(name, null);
+		var probe = new WeakCachedLevelResolver.NameProbe(new String("dynamic.logger"));
+		assertEquals(key.hashCode(), probe.hashCode());
+		assertTrue(probe.equals(key));
+		assertTrue(key.equals(probe));
+		assertFalse(probe.equals(new WeakCachedLevelResolver.NameProbe("other")));
+		key.clear();
+		assertFalse(probe.equals(key));
+		assertFalse(key.equals(probe));
+	}
+
+	@Test
+	void testPublishLoggerOnlyClearsThatLogger() {
+		var props = LogProperties.MutableLogProperties.builder()
+			.build()
+			.put("logging.global.change", "true")
+			.put("logging.level", "INFO")
+			.put("logging.level.com.stuff", "DEBUG");
+		LogConfig config = LogConfig.builder().properties(props).build();
+		var gum = RainbowGum.builder(config)
+			.route(r -> r.appender("list", a -> a.output(new ListLogOutput())))
+			.build();
+		try (var g = gum) {
+			var lr = g.router().levelResolver();
+			assertEquals(Level.DEBUG, lr.resolveLevel("com.stuff.Foo"));
+			assertEquals(Level.INFO, lr.resolveLevel("org.Foo"));
+			props.put("logging.level.com.stuff", "ERROR");
+			props.put("logging.level.org", "ERROR");
+			config.changePublisher().publish("com.stuff");
+			assertEquals(Level.ERROR, lr.resolveLevel("com.stuff.Foo"));
+			assertEquals(Level.INFO, lr.resolveLevel("org.Foo"));
+			config.changePublisher().publish();
+			assertEquals(Level.ERROR, lr.resolveLevel("org.Foo"));
+		}
+	}
+
 	@ParameterizedTest
 	@MethodSource("levels")
 	void testSingleRouterLevels(Level level, Level loggerLevel) {
@@ -1,18 +1,25 @@
 package io.jstach.rainbowgum;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.System.Logger.Level;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import io.jstach.rainbowgum.LogAppender.AppenderFlag;
 import io.jstach.rainbowgum.output.ListLogOutput;
@@ -152,6 +159,229 @@ class LogAppenderFlagTest {
 		assertEquals(0, outputB.flushCount);
 	}
 
+	@Test
+	void parallelEncodeFlagWritesBatchInOrder() {
+		var output = new CountingListLogOutput();
+		var testAppender = appender("test", output, AppenderFlag.PARALLEL_ENCODE, AppenderFlag.REUSE_BUFFER);
+		assertInstanceOf(ParallelEncodeLogAppender.class, testAppender);
+		var events = events(1000);
+		testAppender.append(events, 900);
+		testAppender.append(events[999]);
+		var expected = new ArrayList<String>();
+		for (int i = 0; i < 900; i++) {
+			expected.add("event " + i);
+		}
+		expected.add("event 999");
+		assertEquals(expected, output.events().stream().map(e -> e.getValue()).toList());
+		assertEquals(2, output.flushCount);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 63, 128, 129, 200, 257, 1000, 2500 })
+	void parallelBatchEncoderSegmentsKeepOrder(int count) {
+		var output = new ListLogOutput();
+		var encoder = LogFormatter.builder().message().encoder();
+		var batchEncoder = new ParallelBatchEncoder(encoder, output.bufferHints());
+		var events = events(count + 1);
+		var buffer = encoder.buffer(output.bufferHints());
+		/*
+		 * Twice to make sure the buffers are reused correctly.
+		 */
+		for (int round = 0; round < 2; round++) {
+			output.clear();
+			batchEncoder.write(output, events, count, buffer, 3);
+			var actual = output.events().stream().map(e -> e.getValue()).toList();
+			assertEquals(count, actual.size());
+			for (int i = 0; i < count; i++) {
+				assertEquals("event " + i, actual.get(i));
+			}
+		}
+		assertTrue(batchEncoder.retainedBuffers() <= 4 * ParallelBatchEncoder.MAX_SEGMENT_SIZE,
+				"retained buffers: " + batchEncoder.retainedBuffers());
+		batchEncoder.close();
+	}
+
+	@Test
+	void parallelBatchEncoderEncodesStatefulEncoderInOrder() {
+		var output = new ListLogOutput();
+		var counter = new AtomicLong();
+		var encoder = LogEncoder.of(LogFormatter.of((sb, e) -> sb.append(counter.getAndIncrement())));
+		assertFalse(encoder.isStateless());
+		var batchEncoder = new ParallelBatchEncoder(encoder, output.bufferHints());
+		var events = events(1000);
+		batchEncoder.write(output, events, 1000, encoder.buffer(output.bufferHints()), 3);
+		var actual = output.events().stream().map(e -> e.getValue()).toList();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(String.valueOf(i), actual.get(i));
+		}
+		assertEquals(0, batchEncoder.retainedBuffers());
+	}
+
+	@Test
+	void parallelBatchEncoderSegments() {
+		assertEquals(1, ParallelBatchEncoder.segments(127, 3));
+		assertEquals(2, ParallelBatchEncoder.segments(128, 3));
+		assertEquals(4, ParallelBatchEncoder.segments(1024, 3));
+		assertEquals(1, ParallelBatchEncoder.segments(1024, 0));
+	}
+
+	@Test
+	void defaultAppenderReusesPooledBuffers() throws Exception {
+		var output = new ListLogOutput();
+		var testAppender = appender("test", output);
+		assertInstanceOf(DefaultLogAppender.class, testAppender);
+		var events = events(100);
+		var threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			threads.add(Thread.ofVirtual().start(() -> {
+				for (var e : events) {
+					testAppender.append(e);
+				}
+			}));
+		}
+		for (var t : threads) {
+			t.join();
+		}
+		assertEquals(400, output.events().size());
+		for (var e : output.events()) {
+			assertEquals(e.getKey().message(), e.getValue());
+		}
+	}
+
+	@Test
+	void encoderBufferPoolIsBounded() {
+		var output = new ListLogOutput();
+		var encoder = LogFormatter.builder().message().encoder();
+		var pool = new EncoderBufferPool(encoder, output.bufferHints(), 4);
+		var first = pool.acquire();
+		pool.release(first);
+		assertSame(first, pool.acquire());
+		var buffers = new ArrayList<LogEncoder.Buffer>();
+		for (int i = 0; i < 10; i++) {
+			buffers.add(pool.acquire());
+		}
+		buffers.add(first);
+		for (var b : buffers) {
+			pool.release(b);
+		}
+		assertEquals(4, pool.pooled());
+		pool.close();
+		assertEquals(0, pool.pooled());
+	}
+
+	@Test
+	void encoderBufferPoolSlots() {
+		assertEquals(2, EncoderBufferPool.slots(1));
+		assertEquals(8, EncoderBufferPool.slots(3));
+		assertEquals(8, EncoderBufferPool.slots(4));
+		assertEquals(64, EncoderBufferPool.slots(200));
+	}
+
+	@Test
+	void reuseBufferIsShrunkAfterLargeEvent() {
+		var output = new ListLogOutput();
+		var testAppender = (AbstractLogAppender) appender("test", output, AppenderFlag.REUSE_BUFFER);
+		String large = "x".repeat(AbstractLogAppender.DEFAULT_RETAINED_BUFFER_SIZE * 2);
+		testAppender.append(TestEventBuilder.of().build(b -> b.message(large)));
+		testAppender.append(TestEventBuilder.of().build(b -> b.message("small")));
+		assertEquals(1, testAppender.shrinkCount());
+		assertEquals(large, output.events().get(0).getValue());
+		assertEquals("small", output.events().get(1).getValue());
+		// the retained buffer size was not configured so only the output status is reported
+		assertEquals(LogResponse.Status.StandardStatus.OK, testAppender.status().status());
+	}
+
+	@Test
+	void retainedBufferSizeProperty() {
+		var config = LogConfig.builder()
+			.properties(LogProperties.builder().fromProperties("logging.appender.test.retainedBufferSize=16").build())
+			.build();
+		var output = new ListLogOutput();
+		var testAppender = (AbstractLogAppender) LogAppender.builder("test")
+			.encoder(LogFormatter.builder().message().encoder())
+			.output(output)
+			.build()
+			.provide("test", config);
+		assertInstanceOf(DefaultLogAppender.class, testAppender);
+		testAppender.append(TestEventBuilder.of().build(b -> b.message("a message longer than sixteen")));
+		testAppender.append(TestEventBuilder.of().build(b -> b.message("short")));
+		assertEquals(1, testAppender.shrinkCount());
+		assertEquals(List.of("a message longer than sixteen", "short"),
+				output.events().stream().map(e -> e.getValue()).toList());
+		var expected = new LogResponse.Status.BufferStatus(1, 16);
+		assertEquals(new LogResponse.Status.AggregateStatus(List.of(LogResponse.Status.StandardStatus.OK, expected)),
+				testAppender.status().status());
+	}
+
+	@Test
+	void retainedCapacityIsCappedByMaximumSize() {
+		LogEncoder.BufferHints hints = () -> LogOutput.WriteMethod.STRING;
+		assertEquals(100, AbstractLogAppender.retainedCapacity(100, hints));
+		LogEncoder.BufferHints limited = new LogEncoder.BufferHints() {
+			@Override
+			public LogOutput.WriteMethod writeMethod() {
+				return LogOutput.WriteMethod.BYTES;
+			}
+
+			@Override
+			public int maximumSize() {
+				return 10;
+			}
+		};
+		assertEquals(10, AbstractLogAppender.retainedCapacity(100, limited));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "REUSE_BUFFER", "PARALLEL_ENCODE" })
+	void appenderLevelSkipsEventsBelowLevel(String flag) {
+		var output = new ListLogOutput();
+		var builder = LogAppender.builder("test")
+			.encoder(LogFormatter.builder().message().encoder())
+			.output(output)
+			.level(Level.WARNING);
+		if (!flag.isEmpty()) {
+			builder.flag(AppenderFlag.parse(flag));
+		}
+		var testAppender = builder.build().provide("test", LogConfig.builder().build());
+		testAppender.append(leveled(Level.INFO, "info"));
+		testAppender.append(leveled(Level.ERROR, "error"));
+		var batch = new LogEvent[] { leveled(Level.DEBUG, "debug"), leveled(Level.WARNING, "warning"),
+				leveled(Level.INFO, "info"), leveled(Level.ERROR, "not in batch") };
+		testAppender.append(batch, 3);
+		testAppender.append(batch, 1);
+		assertEquals(List.of("error", "warning"), output.events().stream().map(e -> e.getValue()).toList());
+		assertEquals("debug", batch[0].message());
+	}
+
+	@Test
+	void appenderLevelProperty() {
+		var config = LogConfig.builder()
+			.properties(LogProperties.builder().fromProperties("logging.appender.test.level=ERROR").build())
+			.build();
+		var output = new ListLogOutput();
+		var testAppender = LogAppender.builder("test")
+			.encoder(LogFormatter.builder().message().encoder())
+			.output(output)
+			.build()
+			.provide("test", config);
+		testAppender.append(leveled(Level.WARNING, "warning"));
+		testAppender.append(leveled(Level.ERROR, "error"));
+		assertEquals(List.of("error"), output.events().stream().map(e -> e.getValue()).toList());
+	}
+
+	private static LogEvent leveled(Level level, String message) {
+		return TestEventBuilder.of().level(level).build(b -> b.message(message));
+	}
+
+	private static LogEvent[] events(int count) {
+		var events = new LogEvent[count];
+		for (int i = 0; i < count; i++) {
+			String message = "event " + i;
+			events[i] = TestEventBuilder.of().build(b -> b.message(message));
+		}
+		return events;
+	}
+
 	static class CountingListLogOutput extends ListLogOutput {
 
 		int flushCount = 0;
@@ -4,7 +4,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -451,6 +454,88 @@ class LogEventTest {
 		assertCaller(event);
 	}
 
+	@Test
+	void testArgs() {
+		Instant instant = Instant.EPOCH;
+		for (int count = 0; count < 5; count++) {
+			Object[] args = new Object[count + 1];
+			for (int i = 0; i < count; i++) {
+				args[i] = "a" + i;
+			}
+			/*
+			 * A trailing throwable is not an argument.
+			 */
+			args[count] = new RuntimeException();
+			var event = LogEvent.ofAll(instant, "main", 1L, Level.INFO, "logger", "message", KeyValues.of(), null,
+					LogMessageFormatter.StandardMessageFormatter.SLF4J, args);
+			var caller = Caller.ofDepthOrNull(0);
+			assertNotNull(caller);
+			var withCaller = LogEvent.withCaller(event, caller);
+			for (var e : List.of(event, withCaller)) {
+				assertEquals(count, e.argCount());
+				for (int i = 0; i < count; i++) {
+					assertEquals("a" + i, e.arg(i));
+				}
+				int outOfBounds = count;
+				assertThrows(IndexOutOfBoundsException.class, () -> e.arg(outOfBounds));
+				assertEquals(0, e.freeze().argCount());
+			}
+		}
+	}
+
+	@Test
+	void testCallSiteCallerIsReusedForSameCallSite() {
+		Caller previous = null;
+		for (int i = 0; i < 3; i++) {
+			Caller caller = callSite();
+			assertInstanceOf(FrozenCallerInfo.class, caller);
+			if (previous != null) {
+				assertSame(previous, caller);
+			}
+			previous = caller;
+		}
+	}
+
+	@Test
+	void testCallSiteCallerMatchesStackFrameCaller() {
+		Caller expected = Caller.ofDepthOrNull(0);
+		Caller actual = callSite();
+		assertNotNull(expected);
+		assertEquals(expected.className(), actual.className());
+		assertEquals(expected.fileNameOrNull(), actual.fileNameOrNull());
+		assertEquals(expected.methodName(), actual.methodName());
+		assertEquals(expected.lineNumber() + 1, actual.lineNumber());
+	}
+
+	@Test
+	void testCallSiteCallerDistinguishesCallSitesAndOverloads() {
+		Caller a = callSite();
+		Caller b = callSite();
+		assertNotSame(a, b);
+		assertEquals(a.lineNumber() + 1, b.lineNumber());
+		/*
+		 * Same method name and the same bytecode offset in each overload.
+		 */
+		Caller first = overloaded(1);
+		Caller second = overloaded("1");
+		assertEquals(first.lineNumber() + 4, second.lineNumber());
+		assertEquals(first.lineNumber(), overloaded(2).lineNumber());
+		assertEquals(second.lineNumber(), overloaded("2").lineNumber());
+	}
+
+	private static Caller overloaded(int ignore) {
+		return callSite();
+	}
+
+	private static Caller overloaded(String ignore) {
+		return callSite();
+	}
+
+	private static Caller callSite() {
+		return StackFrameCallerInfo.stackWalker
+			.walk(s -> s.skip(1).limit(1).map(Caller::ofCallSite).findFirst().orElseThrow());
+	}
+
 	void assertCaller(LogEvent event) {
 		Caller caller = Caller.ofDepthOrNull(0);
 		if (caller == null) {
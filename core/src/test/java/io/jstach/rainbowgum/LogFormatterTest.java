@@ -7,10 +7,16 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.System.Logger.Level;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Test;
@@ -118,6 +124,167 @@ class LogFormatterTest {
 		assertEquals(3, lines.length, "excluded frame should not appear and should not trigger truncation");
 	}
 
+	@Test
+	void testExcludesMatchQualifiedNamesAndRegexesLikeToString() {
+		var t = new RuntimeException("boom");
+		t.setStackTrace(new StackTraceElement[] { frame("keepA", 1),
+				frame("org.springframework.aop.Proxy", "invoke", 2), frame("java.lang.reflect.Method", "invoke", 3),
+				frame("com.example.Gen$$Proxy", "call", 4), frame("keepB", 5), frame("com.example.Other", "x", 42) });
+
+		String actual = format(t, of(Integer.MAX_VALUE, List.of("org.springframework", "reflect\\.Method\\.invoke",
+				"\\$\\$Proxy", "App\\.java:42\\)$")));
+		String[] lines = lines(actual);
+
+		assertEquals("java.lang.RuntimeException: boom", lines[0]);
+		assertEquals("\tat com.example.App.keepA(App.java:1)", lines[1]);
+		assertEquals("\tat com.example.App.keepB(App.java:5)", lines[2]);
+		assertEquals(3, lines.length);
+	}
+
+	@Test
+	void testExcludesThatCannotBeCombinedStillMatch() {
+		var t = new RuntimeException("boom");
+		t.setStackTrace(new StackTraceElement[] { frame("keepA", 1), frame("aa", 2), frame("KEEPB", 3) });
+
+		// a back reference and an inline flag
+		String actual = format(t, of(Integer.MAX_VALUE, List.of("\\.(a)\\1\\(", "(?i)keepb")));
+		String[] lines = lines(actual);
+
+		assertEquals("\tat com.example.App.keepA(App.java:1)", lines[1]);
+		assertEquals(2, lines.length);
+	}
+
+	@Test
+	void testStackFrameExcludesCachesDecisionsAndStaysBounded() {
+		var excludes = StackFrameExcludes.of(List.of(java.util.regex.Pattern.compile("noisy")));
+		for (int i = 0; i < StackFrameExcludes.MAX_CACHED_DECISIONS * 2; i++) {
+			assertEquals(i % 2 == 0, excludes.isExcluded(frame(i % 2 == 0 ? "noisy" : "quiet", i)));
+		}
+		assertTrue(excludes.isExcluded(frame("noisy", 0)));
+		assertFalse(excludes.isExcluded(frame("quiet", 1)));
+	}
+
+	@Test
+	void testNameTrieSearchesAcrossClassAndMethod() {
+		var trie = new StackFrameExcludes.NameTrie();
+		trie.add("App.keep");
+		trie.add("springframework.");
+		assertTrue(trie.find("com.example.App", "keepA"));
+		assertTrue(trie.find("org.springframework.aop.Proxy", "invoke"));
+		assertFalse(trie.find("com.example.App", "kee"));
+		assertFalse(trie.find("org.spring", "framework"));
+		assertTrue(trie.find("org.springframework", "x"), "the dot between class and method counts");
+	}
+
+	@Test
+	void testDeduplicatePrintsFullStackOnceAWindow() {
+		var formatter = ThrowableFormatter.builder().deduplicate(Duration.ofSeconds(10)).build();
+		Instant start = Instant.parse("2023-11-14T22:13:20Z");
+
+		String first = format(formatter, sqlError("connection refused"), start);
+		String[] lines = lines(first);
+		assertEquals("java.lang.IllegalStateException: connection refused", lines[0]);
+		assertEquals("\tat com.example.App.query(App.java:1)", lines[1]);
+		assertEquals("\tat com.example.App.handle(App.java:2)", lines[2]);
+		assertTrue(lines[3].matches("\t\\[stack #\\d+\\]"), lines[3]);
+		String id = lines[3].substring("\t[stack #".length(), lines[3].length() - 1);
+
+		// a different message is still the same stack
+		String second = format(formatter, sqlError("timeout"), start.plusSeconds(1));
+		assertEquals("java.lang.IllegalStateException: timeout" + System.lineSeparator() + "\t[same stack as #" + id
+				+ ", seen 2 times]" + System.lineSeparator(), second);
+		String third = format(formatter, sqlError("timeout"), start.plusSeconds(2));
+		assertTrue(third.contains("seen 3 times"), third);
+
+		// once the window passes the full trace is printed again
+		String later = format(formatter, sqlError("timeout"), start.plusSeconds(10));
+		assertEquals("\t[stack #" + id + "]", lines(later)[3]);
+	}
+
+	@Test
+	void testDeduplicateFormatsTheSameEventTheSameWay() {
+		var formatter = ThrowableFormatter.builder().deduplicate(Duration.ofSeconds(10)).build();
+		assertFalse(formatter.isStateless());
+		Instant now = Instant.parse("2023-11-14T22:13:20Z");
+		var first = event(sqlError("a"), now);
+		var second = event(sqlError("b"), now.plusSeconds(1));
+
+		// e.g. two appenders sharing the formatter
+		String full = format(formatter, first);
+		assertEquals(full, format(formatter, first));
+		assertTrue(full.contains("\tat com.example.App.query(App.java:1)"), full);
+
+		String repeat = format(formatter, second);
+		assertTrue(repeat.contains("seen 2 times"), repeat);
+		assertEquals(repeat, format(formatter, second));
+		assertEquals(full, format(formatter, first));
+
+		String third = format(formatter, event(sqlError("c"), now.plusSeconds(2)));
+		assertTrue(third.contains("seen 3 times"), third);
+	}
+
+	@Test
+	void testDeduplicateTellsDifferentStacksApart() {
+		var formatter = ThrowableFormatter.builder().deduplicate(Duration.ofSeconds(10)).build();
+		Instant now = Instant.parse("2023-11-14T22:13:20Z");
+		format(formatter, sqlError("a"), now);
+
+		var otherLine = new IllegalStateException("a");
+		otherLine.setStackTrace(new StackTraceElement[] { frame("query", 99), frame("handle", 2) });
+		assertTrue(format(formatter, otherLine, now).contains("\tat com.example.App.query(App.java:99)"));
+
+		var withCause = sqlError("a");
+		withCause.initCause(new RuntimeException("cause"));
+		assertTrue(format(formatter, withCause, now).contains("Caused by: java.lang.RuntimeException: cause"));
+
+		var otherClass = new IllegalArgumentException("a");
+		otherClass.setStackTrace(sqlError("a").getStackTrace());
+		assertTrue(format(formatter, otherClass, now).contains("\tat com.example.App.query(App.java:1)"));
+	}
+
+	/*
+	 * "Aa" and "BB" have the same String hash code so the frames hash the same without
+	 * being equal and the two stacks get the same fingerprint.
+	 */
+	@Test
+	void testDeduplicateConfirmsFingerprintHits() {
+		var formatter = ThrowableFormatter.builder().deduplicate(Duration.ofSeconds(10)).build();
+		Instant now = Instant.parse("2023-11-14T22:13:20Z");
+		var first = new IllegalStateException("a");
+		first.setStackTrace(new StackTraceElement[] { new StackTraceElement("com.example.App", "run", "Aa.java", 1) });
+		var second = new IllegalStateException("a");
+		second.setStackTrace(new StackTraceElement[] { new StackTraceElement("com.example.App", "run", "BB.java", 1) });
+		assertEquals(RepeatedThrowables.fingerprint(first, first.getStackTrace()),
+				RepeatedThrowables.fingerprint(second, second.getStackTrace()));
+
+		String full = format(formatter, first, now);
+		assertTrue(full.contains("\tat com.example.App.run(Aa.java:1)"), full);
+		String collision = format(formatter, second, now.plusSeconds(1));
+		assertTrue(collision.contains("\tat com.example.App.run(BB.java:1)"), collision);
+		assertFalse(collision.contains("same stack"), collision);
+	}
+
+	private static IllegalStateException sqlError(String message) {
+		var t = new IllegalStateException(message);
+		t.setStackTrace(new StackTraceElement[] { frame("query", 1), frame("handle", 2) });
+		return t;
+	}
+
+	private static String format(LogFormatter formatter, Throwable t, Instant timestamp) {
+		return format(formatter, event(t, timestamp));
+	}
+
+	private static LogEvent event(Throwable t, Instant timestamp) {
+		return LogEvent.ofAll(timestamp, "main", 1, Level.ERROR, "test", "error", KeyValues.of(), t,
+				LogMessageFormatter.StandardMessageFormatter.SLF4J, (@Nullable Object @Nullable []) null);
+	}
+
+	private static String format(LogFormatter formatter, LogEvent event) {
+		StringBuilder sb = new StringBuilder();
+		formatter.format(sb, event);
+		return sb.toString();
+	}
+
 	@Test
 	void testCauseChainElidesCommonFramesWhenNotTruncated() {
 		var common = new StackTraceElement[] { frame("shared1", 10), frame("shared2", 11) };
@@ -299,6 +466,80 @@ class LogFormatterTest {
 		assertEquals(DateTimeFormatter.ISO_INSTANT.format(differentMillis), reformatted);
 	}
 
+	@Test
+	void testTimestampFormatterOfAndOfISOMatchDateTimeFormatter() {
+		var ttll = DateTimeFormatter.ofPattern(TimestampFormatter.TTLL_TIME_FORMAT).withZone(ZoneOffset.UTC);
+		var iso = new DateTimeFormatterBuilder().appendInstant(3).toFormatter();
+		Instant start = Instant.parse("2023-11-14T22:13:19.990Z");
+		/*
+		 * Steps of 3.7ms so that the second rolls over and the cached prefix is both hit
+		 * and replaced.
+		 */
+		for (int i = 0; i < 1000; i++) {
+			Instant instant = start.plusNanos(i * 3_700_000L);
+			assertEquals(ttll.format(instant), formatTimestamp(TimestampFormatter.of(), instant));
+			assertEquals(iso.format(instant), formatTimestamp(TimestampFormatter.ofISO(), instant));
+		}
+	}
+
+	@Test
+	void testTimestampFormatterOnVirtualThreads() throws Exception {
+		var ttll = DateTimeFormatter.ofPattern(TimestampFormatter.TTLL_TIME_FORMAT).withZone(ZoneOffset.UTC);
+		var formatter = TimestampFormatter.of();
+		Instant start = Instant.parse("2023-11-14T22:13:19.990Z");
+		List<String> expected = new ArrayList<>();
+		List<String> actual = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Instant instant = start.plusNanos(i * 3_700_000L);
+			expected.add(ttll.format(instant));
+			Thread.ofVirtual().start(() -> actual.add(formatTimestamp(formatter, instant))).join();
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testTimestampFormatterOfISOOutsideFourDigitYears() {
+		var iso = new DateTimeFormatterBuilder().appendInstant(3).toFormatter();
+		for (String s : List.of("0000-01-01T00:00:00.001Z", "9999-12-31T23:59:59.999Z", "+10000-01-01T00:00:00.123Z",
+				"-0001-12-31T23:59:59.5Z", "1969-12-31T23:59:59.999Z")) {
+			Instant instant = Instant.parse(s);
+			assertEquals(iso.format(instant), formatTimestamp(TimestampFormatter.ofISO(), instant));
+		}
+	}
+
+	@Test
+	void testTimestampFormatterOfCachedSecondsMatchesDateTimeFormatter() {
+		/*
+		 * New York has a DST transition on this day so the cached prefix has to follow
+		 * the offset change.
+		 */
+		Instant start = Instant.parse("2024-03-10T06:59:58.998Z");
+		for (var entry : Map.of("yyyy-MM-dd HH:mm:ss,SSS", 3, "HH:mm:ss.SSSSSS", 6, "yyyy-MM-dd'T'HH:mm:ss.S", 1,
+				"yyyy-MM-dd HH:mm:ss", 0, "HH:mm:ss.SSSSSSSSS", 9).entrySet()) {
+			var dtf = DateTimeFormatter.ofPattern(entry.getKey()).withZone(ZoneId.of("America/New_York"));
+			var formatter = TimestampFormatter.ofCachedSeconds(dtf, entry.getValue());
+			for (int i = 0; i < 1000; i++) {
+				Instant instant = start.plusNanos(i * 1_234_567L);
+				assertEquals(dtf.format(instant), formatTimestamp(formatter, instant), entry.getKey());
+			}
+		}
+	}
+
+	@Test
+	void testTimestampFormatterOfCachedSecondsCachesPerThread() throws InterruptedException {
+		var dtf = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+		var formatter = TimestampFormatter.ofCachedSeconds(dtf, 3);
+		Instant a = Instant.parse("2023-11-14T22:13:20.100Z");
+		Instant b = Instant.parse("2023-11-14T22:13:21.200Z");
+		assertEquals("22:13:20.100", formatTimestamp(formatter, a));
+		String[] other = new String[1];
+		Thread t = new Thread(() -> other[0] = formatTimestamp(formatter, b));
+		t.start();
+		t.join();
+		assertEquals("22:13:21.200", other[0]);
+		assertEquals("22:13:20.101", formatTimestamp(formatter, a.plusMillis(1)));
+	}
+
 	@Test
 	void testDefaultInstantFormatterToString() {
 		assertEquals("TTLL", TimestampFormatter.of().toString());
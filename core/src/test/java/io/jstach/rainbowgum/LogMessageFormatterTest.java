@@ -1,16 +1,21 @@
 package io.jstach.rainbowgum;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
 
@@ -92,6 +97,40 @@ class LogMessageFormatterTest {
 		assertEquals("", builder.toString());
 	}
 
+	@ParameterizedTest
+	@ValueSource(strings = { "", "no placeholders", "{}", "{}{}", "a {} b {} c {}", "\\{}", "a \\{} {}",
+			"a \\\\{} b", "{} \\{} {} \\\\{} {}", "x {} y \\{} z", "{", "}", "{ }", "\\", "trailing \\",
+			"{}}{{}" })
+	void testTemplateMatchesScan(String message) {
+		var template = SLF4JMessageFormatter.Template.parse(message);
+		@Nullable
+		Object[] args = { "A", "B", "C", "D" };
+		for (int length = 0; length <= args.length; length++) {
+			StringBuilder expected = new StringBuilder();
+			/*
+			 * A new instance each time is never cached so this is the scanning path.
+			 */
+			SLF4JMessageFormatter.format(expected, new String(message), args, length);
+			StringBuilder actual = new StringBuilder();
+			template.format(actual, args[0], args[1], args, length);
+			assertEquals(expected.toString(), actual.toString(), message + " with " + length + " args");
+		}
+	}
+
+	@Test
+	void testTemplateCacheOnlyParsesOnSecondSighting() {
+		var cache = new SLF4JMessageFormatter.TemplateCache(16);
+		String message = "Hello {}!";
+		assertNull(cache.get(message));
+		var template = cache.get(message);
+		assertNotNull(template);
+		assertSame(template, cache.get(message));
+		/*
+		 * An equal but different instance is a dynamic string and is not cached.
+		 */
+		assertNull(cache.get(new String(message)));
+	}
+
 	@SuppressWarnings("null")
 	private static Stream<Arguments> arg1Arg2Parameters() {
 		List<Arguments> list = new ArrayList<>();
@@ -2,11 +2,13 @@ package io.jstach.rainbowgum;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.System.Logger.Level;
 
 import org.junit.jupiter.api.Test;
 
+import io.jstach.rainbowgum.LogEvent.Caller;
 import io.jstach.rainbowgum.LogPublisher.PublisherFactory;
 
 class RainbowGumTest {
@@ -93,4 +95,23 @@ class RainbowGumTest {
 
 	}
 
+	@Test
+	void testRequiresCaller() throws Exception {
+		try (var gum = RainbowGum.builder().route(r -> {
+			r.appender("console", a -> a.output(LogOutput.ofStandardOut()));
+		}).build()) {
+			assertFalse(gum.router().requiresCaller());
+		}
+		var callerFormatter = LogFormatter.builder()
+			.message()
+			.event((o, e) -> o.append(Caller.toString(e.callerOrNull())))
+			.build();
+		try (var gum = RainbowGum.builder().route(r -> {
+			r.appender("console", a -> a.output(LogOutput.ofStandardOut()));
+			r.appender("caller", a -> a.output(LogOutput.ofStandardOut()).formatter(callerFormatter));
+		}).build()) {
+			assertTrue(gum.router().requiresCaller());
+		}
+	}
+
 }
@@ -7,11 +7,16 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.System.Logger.Level;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Test;
 
 import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
 
 class RouterTest {
 
@@ -204,4 +209,355 @@ class RouterTest {
 		}
 	}
 
+	@Test
+	void testCompositeRouteSnapshotIsRebuiltOnPublish() throws Exception {
+		var level = new AtomicReference<Level>(Level.INFO);
+		LevelResolver resolver1 = new LevelResolver() {
+			@Override
+			public Level resolveLevel(String name) {
+				return level.get();
+			}
+		};
+		var publisher1 = new TestSyncPublisher();
+		var router1 = new SimpleRouter("1", publisher1, resolver1);
+		var publisher2 = new TestSyncPublisher();
+		var router2 = new SimpleRouter("2", publisher2, LevelResolver.builder().level(Level.DEBUG).build());
+
+		var config = LogConfig.builder().build();
+		var root = InternalRootRouter.of(List.of(router1, router2), config);
+
+		var route = root.route("test", Level.DEBUG);
+		assertSame(route, root.route("test", Level.ERROR));
+		assertTrue(route instanceof LoggerRoute);
+		var loggerRoute = (LoggerRoute) route;
+		assertEquals(1, loggerRoute.routes(Level.DEBUG).length);
+		assertEquals(2, loggerRoute.routes(Level.INFO).length);
+
+		TestEventBuilder.of().level(Level.DEBUG).to(route).event().message("DEBUG").log();
+		assertEquals(0, publisher1.events.size());
+		assertEquals(1, publisher2.events.size());
+
+		/*
+		 * The snapshot is not rebuilt until a change is published.
+		 */
+		level.set(Level.DEBUG);
+		TestEventBuilder.of().level(Level.DEBUG).to(route).event().message("DEBUG").log();
+		assertEquals(0, publisher1.events.size());
+
+		((InternalRootRouter) root).changePublisher().publish(root);
+		TestEventBuilder.of().level(Level.DEBUG).to(route).event().message("DEBUG").log();
+		assertEquals(1, publisher1.events.size());
+		assertEquals(3, publisher2.events.size());
+		assertEquals(2, loggerRoute.routes(Level.DEBUG).length);
+	}
+
+	@Test
+	void testGlobalRouterSwapsDelegate() throws Exception {
+		var publisher = new TestSyncPublisher();
+		var router = new SimpleRouter("1", publisher, LevelResolver.builder().level(Level.INFO).build());
+		var root = InternalRootRouter.of(List.of(router), LogConfig.builder().build());
+		var global = GlobalLogRouter.INSTANCE;
+		global.drain(root);
+		try {
+			assertSame(root.changePublisher(), global.changePublisher());
+			TestEventBuilder.of().level(Level.DEBUG).to(global).event().message("DEBUG").log();
+			TestEventBuilder.of().level(Level.INFO).to(global).event().message("INFO").log();
+			assertEquals(1, publisher.events.size());
+			assertEquals(Level.INFO, publisher.events.getFirst().level());
+		}
+		finally {
+			global.close();
+		}
+		assertNotSame(root.changePublisher(), global.changePublisher());
+	}
+
+	@Test
+	void testQueueEventsRouterDropsOldestAndSummarizes() throws Exception {
+		var queue = new QueueEventsRouter(StaticLevelResolver.of(Level.INFO), StaticLevelResolver.of(Level.OFF), 2);
+		for (int i = 0; i < 4; i++) {
+			queue.log(LogEvent.ofAll(Instant.ofEpochMilli(i), "main", 1L, Level.INFO, "test", "event " + i,
+					KeyValues.of(), null, StandardMessageFormatter.SLF4J, List.of()));
+		}
+		assertEquals(2, queue.dropped());
+
+		var publisher = new TestSyncPublisher();
+		var router = new SimpleRouter("1", publisher, LevelResolver.builder().level(Level.INFO).build());
+		queue.drain(InternalRootRouter.of(List.of(router), LogConfig.builder().build()));
+
+		var events = List.copyOf(publisher.events);
+		assertEquals(3, events.size());
+		/*
+		 * Replayed events keep the timestamps from when they were logged.
+		 */
+		assertEquals(Instant.ofEpochMilli(2), events.get(0).timestamp());
+		assertEquals("event 2", events.get(0).message());
+		assertEquals(Instant.ofEpochMilli(3), events.get(1).timestamp());
+		assertEquals("event 3", events.get(1).message());
+		var summary = events.get(2);
+		assertEquals(Level.WARNING, summary.level());
+		assertTrue(summary.message().startsWith("2 pre-init events dropped. First dropped event was at "
+				+ Instant.ofEpochMilli(0) + " and last at " + Instant.ofEpochMilli(1)), summary.message());
+		assertEquals(0, queue.dropped());
+	}
+
+	@Test
+	void testRouteFilterFirstThenEvery() throws Exception {
+		long[] now = { 0 };
+		var filter = new RouteFilter(null, 2, 3, 1_000, 0, 0, () -> now[0]);
+		List<Boolean> kept = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			kept.add(filter.test(event("a", Level.INFO)));
+		}
+		assertEquals(List.of(true, true, false, false, true, false, false, true), kept);
+		/*
+		 * Loggers in other stripes and the next interval start over.
+		 */
+		assertTrue(filter.test(event("b", Level.INFO)));
+		now[0] = 1_000_000_000L;
+		assertTrue(filter.test(event("a", Level.INFO)));
+		assertEquals(new LogResponse.Status.FilterStatus(0, 4, 0), filter.status());
+	}
+
+	@Test
+	void testRouteFilterTokenBucket() throws Exception {
+		long[] now = { 0 };
+		var filter = new RouteFilter(null, 0, 0, 1_000, 10, 2, () -> now[0]);
+		assertTrue(filter.test(event("a", Level.INFO)));
+		assertTrue(filter.test(event("a", Level.INFO)));
+		assertFalse(filter.test(event("a", Level.INFO)));
+		/*
+		 * A rate of 10 per second is a token every 100ms.
+		 */
+		now[0] = 100_000_000L;
+		assertTrue(filter.test(event("a", Level.INFO)));
+		assertFalse(filter.test(event("a", Level.INFO)));
+		assertEquals(new LogResponse.Status.FilterStatus(0, 0, 2), filter.status());
+	}
+
+	/*
+	 * An event the async route filters out is not frozen for it so the synchronous route
+	 * after it gets the live event.
+	 */
+	@Test
+	void testRouteFilterRunsBeforeFreeze() throws Exception {
+		var resolver = LevelResolver.builder().level(Level.DEBUG).build();
+		var asyncPublisher = new TestAsyncPublisher();
+		var filter = new RouteFilter(null, 1, 0, 1_000, 0, 0, () -> 0L);
+		var filtering = new FilteringRouter(new SimpleRouter("1", asyncPublisher, resolver), filter, null, null);
+		var syncPublisher = new TestSyncPublisher();
+		var sync = new SimpleRouter("2", syncPublisher, resolver);
+		var root = (CompositeLogRouter) InternalRootRouter.of(List.of(filtering, sync), LogConfig.builder().build());
+
+		// the composite itself and then the cached logger route
+		for (var route : List.of(root, root.route("test", Level.DEBUG), root.route("test", Level.DEBUG))) {
+			var mkvs = MutableKeyValues.of().add("phase", "A");
+			TestEventBuilder.of().level(Level.DEBUG).to(route).event().keyValues(mkvs).message("msg").log();
+			var captured = syncPublisher.events.getLast();
+			if (asyncPublisher.events.size() == 1 && syncPublisher.events.size() == 1) {
+				assertNotSame(mkvs, captured.keyValues());
+			}
+			else {
+				assertSame(mkvs, captured.keyValues());
+			}
+		}
+		assertEquals(1, asyncPublisher.events.size());
+		assertEquals(3, syncPublisher.events.size());
+		assertEquals(new LogResponse.Status.FilterStatus(0, 2, 0), filter.status());
+	}
+
+	@Test
+	void testRouteFilterFromProperties() throws Exception {
+		var props = LogProperties.MutableLogProperties.builder()
+			.build()
+			.put("logging.route.default.filter.sample", "DEBUG=0")
+			.put("logging.route.default.filter.first", "1");
+		var config = LogConfig.builder().properties(props).build();
+		var publisher = new TestSyncPublisher();
+		var gum = RainbowGum.builder(config).route(r -> {
+			r.level(Level.DEBUG);
+			r.publisher((name, c, appenders) -> publisher);
+		}).build();
+		try (var g = gum.start()) {
+			for (int i = 0; i < 3; i++) {
+				TestEventBuilder.of().level(Level.DEBUG).to(g).event().message("DEBUG").log();
+				TestEventBuilder.of().level(Level.INFO).to(g).event().message("INFO").log();
+			}
+			assertEquals(1, publisher.events.size());
+			String actual = g.config().publisherRegistry().status().get(0).status().toString();
+			assertTrue(actual.contains("FilterStatus[sampled=3, throttled=2, rateLimited=0]"), actual);
+		}
+	}
+
+	@Test
+	void testConcurrentPublishesAreAllCounted() throws Exception {
+		var publisher = new InternalRootRouter.RouteChangePublisher(n -> true);
+		int threads = 4;
+		int publishes = 10_000;
+		List<Thread> started = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			started.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < publishes; i++) {
+					publisher.publish(GlobalLogRouter.INSTANCE);
+				}
+			}));
+		}
+		for (var t : started) {
+			t.join();
+		}
+		assertEquals(threads * publishes, publisher.version());
+	}
+
+	@Test
+	void testRouteDeduplicatorCollapsesBursts() throws Exception {
+		long[] now = { 0 };
+		var dedup = new RouteDeduplicator(1_000, () -> now[0]);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> out.add(e.loggerName() + " " + e.message());
+		for (int i = 0; i < 5; i++) {
+			dedup.log(event("a", Level.WARNING), next);
+		}
+		assertEquals(List.of("a msg"), out);
+		/*
+		 * The window closing ends the burst as does flushing.
+		 */
+		now[0] = 1_000_000_000L;
+		dedup.log(event("a", Level.WARNING), next);
+		dedup.log(event("a", Level.WARNING), next);
+		dedup.flush(next);
+		dedup.log(event("b", Level.WARNING), next);
+		assertEquals(List.of("a msg", "a previous message repeated 4 times", "a msg",
+				"a previous message repeated 1 times", "b msg"), out);
+		assertEquals(new LogResponse.Status.DedupStatus(5), dedup.status());
+	}
+
+	@Test
+	void testRouteDeduplicatorKeepsDifferentArgs() throws Exception {
+		var dedup = new RouteDeduplicator(1_000, () -> 0);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> out.add(e.message());
+		for (int i = 0; i < 3; i++) {
+			dedup.log(LogEvent.ofAll(Instant.ofEpochMilli(1), "main", 1L, Level.INFO, "a", "retry {}",
+					KeyValues.of(), null, StandardMessageFormatter.SLF4J, List.of(i)), next);
+		}
+		assertEquals(3, out.size());
+	}
+
+	@Test
+	void testRouteDeduplicatorDoesNotCallArgumentHashCode() throws Exception {
+		var dedup = new RouteDeduplicator(1_000, () -> 0);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> {
+			StringBuilder sb = new StringBuilder();
+			e.formattedMessage(sb);
+			out.add(sb.toString());
+		};
+		record Hostile(String name) {
+			@Override
+			public int hashCode() {
+				throw new AssertionError();
+			}
+
+			@Override
+			public boolean equals(@Nullable Object obj) {
+				throw new AssertionError();
+			}
+		}
+		var first = new Hostile("x");
+		for (var arg : List.of(first, first, new Hostile("x"), "y", new String("y"))) {
+			dedup.log(LogEvent.ofAll(Instant.ofEpochMilli(1), "main", 1L, Level.INFO, "a", "retry {}",
+					KeyValues.of(), null, StandardMessageFormatter.SLF4J, List.of(arg)), next);
+		}
+		dedup.flush(next);
+		assertEquals(List.of("retry Hostile[name=x]", "previous message repeated 1 times", "retry Hostile[name=x]",
+				"retry y", "previous message repeated 1 times"), out);
+	}
+
+	@Test
+	void testRouteDeduplicatorSweepsStaleBursts() throws Exception {
+		long[] now = { 0 };
+		var dedup = new RouteDeduplicator(1_000, () -> now[0]);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> out.add(e.loggerName() + " " + e.message());
+		dedup.log(event("a", Level.WARNING), next);
+		dedup.log(event("a", Level.WARNING), next);
+		/*
+		 * A later event of another logger closes the stale burst even if it lands on a
+		 * different stripe.
+		 */
+		now[0] = 1_000_000_000L;
+		dedup.log(event("b", Level.WARNING), next);
+		assertEquals(List.of("a msg", "a previous message repeated 1 times", "b msg"), out);
+	}
+
+	@Test
+	void testRouteTailBufferFlushesOnError() throws Exception {
+		var tail = new RouteTailBuffer("traceId", Level.INFO, Level.ERROR, 2, 2);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> out.add(e.message());
+		tail.log(traced("1", Level.DEBUG, "a"), next);
+		tail.log(traced("1", Level.DEBUG, "b"), next);
+		tail.log(traced("1", Level.TRACE, "c"), next);
+		tail.log(traced("2", Level.DEBUG, "other"), next);
+		tail.log(traced("1", Level.INFO, "info"), next);
+		tail.log(event("untraced", Level.DEBUG), next);
+		assertEquals(List.of("info", "msg"), out);
+		tail.log(traced("1", Level.ERROR, "error"), next);
+		assertEquals(List.of("info", "msg", "b", "c", "error"), out);
+		/*
+		 * The third key evicts the least recently used which discards its events.
+		 */
+		tail.log(traced("3", Level.DEBUG, "x"), next);
+		tail.log(traced("4", Level.DEBUG, "y"), next);
+		tail.log(traced("2", Level.ERROR, "error 2"), next);
+		assertEquals(List.of("info", "msg", "b", "c", "error", "error 2"), out);
+		assertEquals(new LogResponse.Status.TailStatus(2, 2, 2), tail.status());
+	}
+
+	@Test
+	void testRouteTailBufferGrowsRingsAcrossStripes() throws Exception {
+		var tail = new RouteTailBuffer("traceId", Level.INFO, Level.ERROR, 10, 100);
+		List<String> out = new ArrayList<>();
+		LogEventLogger next = e -> out.add(e.message());
+		for (int i = 0; i < 12; i++) {
+			tail.log(traced("1", Level.DEBUG, "m" + i), next);
+			tail.log(traced("k" + i, Level.DEBUG, "other"), next);
+		}
+		assertEquals(13, tail.keys());
+		tail.log(traced("1", Level.ERROR, "error"), next);
+		assertEquals(List.of("m2", "m3", "m4", "m5", "m6", "m7", "m8", "m9", "m10", "m11", "error"), out);
+		assertEquals(new LogResponse.Status.TailStatus(10, 2, 12), tail.status());
+	}
+
+	@Test
+	void testRouteTailBufferFromProperties() throws Exception {
+		var props = LogProperties.MutableLogProperties.builder()
+			.build()
+			.put("logging.route.default.tail.key", "traceId");
+		var config = LogConfig.builder().properties(props).build();
+		var publisher = new TestSyncPublisher();
+		var gum = RainbowGum.builder(config).route(r -> {
+			r.level(Level.DEBUG);
+			r.publisher((name, c, appenders) -> publisher);
+		}).build();
+		try (var g = gum.start()) {
+			var kvs = MutableKeyValues.of().add("traceId", "abc");
+			TestEventBuilder.of().level(Level.DEBUG).to(g).event().keyValues(kvs).message("debug").log();
+			assertEquals(0, publisher.events.size());
+			TestEventBuilder.of().level(Level.ERROR).to(g).event().keyValues(kvs).message("error").log();
+			assertEquals(List.of("debug", "error"), publisher.events.stream().map(LogEvent::message).toList());
+			String actual = g.config().publisherRegistry().status().get(0).status().toString();
+			assertTrue(actual.contains("TailStatus[flushed=1, discarded=0, keys=0]"), actual);
+		}
+	}
+
+	private static LogEvent traced(String traceId, Level level, String message) {
+		return LogEvent.ofAll(Instant.ofEpochMilli(1), "main", 1L, level, "test", message,
+				MutableKeyValues.of().add("traceId", traceId), null, StandardMessageFormatter.SLF4J, List.of());
+	}
+
+	private static LogEvent event(String loggerName, Level level) {
+		return LogEvent.ofAll(Instant.ofEpochMilli(1), "main", 1L, level, loggerName, "msg", KeyValues.of(), null,
+				StandardMessageFormatter.SLF4J, List.of());
+	}
+
 }
@@ -0,0 +1,143 @@
+package io.jstach.rainbowgum.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput.ContentType;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.RainbowGum;
+
+class RingLogOutputTest {
+
+	@Test
+	void testOverwritesOldestAndDumpsOnError() {
+		var target = new ListLogOutput();
+		/*
+		 * Each record is a 6 byte header plus 6 bytes so only 3 fit and the ring wraps.
+		 */
+		var ring = RingLogOutput.of(40, target);
+		for (int i = 0; i < 5; i++) {
+			ring.write(event(Level.INFO), "event" + i);
+		}
+		assertEquals(List.of(), messages(target));
+		assertEquals(36, ring.size());
+		assertEquals(2, ring.overwritten());
+
+		ring.write(event(Level.ERROR), "error!");
+		assertEquals(List.of("event3", "event4", "error!"), messages(target));
+		assertEquals(0, ring.size());
+		assertEquals(3, ring.overwritten());
+	}
+
+	@Test
+	void testDumpReplaysEachRecordWithItsLevelAndContentType() {
+		List<String> written = new ArrayList<>();
+		var target = new ListLogOutput() {
+			@Override
+			public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+				written.add(event.level() + " " + contentType.contentType() + " "
+						+ new String(bytes, off, len, StandardCharsets.UTF_8));
+			}
+		};
+		var ring = RingLogOutput.of(64, target);
+		write(ring, Level.DEBUG, "one", ContentType.StandardContentType.TEXT_PLAIN);
+		write(ring, Level.WARNING, "two", ContentType.StandardContentType.APPLICATION_JSON);
+		write(ring, Level.INFO, "three", ContentType.StandardContentType.TEXT_PLAIN);
+		assertEquals(List.of(), written);
+		ring.dump();
+		assertEquals(List.of("DEBUG text/plain one", "WARNING application/json two", "INFO text/plain three"),
+				written);
+	}
+
+	@Test
+	void testFailedDumpKeepsTheRest() {
+		List<String> written = new ArrayList<>();
+		boolean[] fail = { true };
+		var target = new ListLogOutput() {
+			@Override
+			public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+				String s = new String(bytes, off, len, StandardCharsets.UTF_8);
+				if (fail[0] && s.equals("two")) {
+					throw new IllegalStateException("disk full");
+				}
+				written.add(s);
+			}
+		};
+		var ring = RingLogOutput.of(29, Level.OFF, target);
+		write(ring, Level.INFO, "one", ContentType.StandardContentType.TEXT_PLAIN);
+		write(ring, Level.INFO, "two", ContentType.StandardContentType.TEXT_PLAIN);
+		write(ring, Level.INFO, "three", ContentType.StandardContentType.TEXT_PLAIN);
+		assertThrows(IllegalStateException.class, ring::dump);
+		assertEquals(List.of("one"), written);
+		assertEquals(20, ring.size());
+		/*
+		 * The ring is still consistent so it can keep overwriting and dumping.
+		 */
+		write(ring, Level.INFO, "four", ContentType.StandardContentType.TEXT_PLAIN);
+		write(ring, Level.INFO, "five", ContentType.StandardContentType.TEXT_PLAIN);
+		fail[0] = false;
+		ring.dump();
+		assertEquals(List.of("one", "four", "five"), written);
+		assertEquals(0, ring.size());
+		assertEquals(2, ring.overwritten());
+	}
+
+	@Test
+	void testTruncatesEventBiggerThanRing() {
+		var target = new ListLogOutput();
+		var ring = RingLogOutput.of(10, Level.OFF, target);
+		ring.write(event(Level.ERROR), "abcdefgh");
+		assertEquals(List.of(), messages(target));
+		ring.close();
+		assertEquals(List.of("abcd"), messages(target));
+	}
+
+	@Test
+	void testDumpFromRegistry() throws Exception {
+		String properties = """
+				logging.appenders=ring
+				logging.appender.ring.output=ring:///?ring.size=4096&ring.dump=OFF&ring.target=list:///
+				""";
+		LogConfig config = LogConfig.builder()
+			.properties(LogProperties.builder().fromProperties(properties).build())
+			.build();
+		try (var r = RainbowGum.builder(config).build().start()) {
+			r.router().eventBuilder("ring", Level.INFO).message("hello").log();
+			r.router().eventBuilder("ring", Level.ERROR).message("boom").log();
+			var target = (ListLogOutput) config.outputRegistry().output("ring.target").orElseThrow();
+			assertEquals(List.of(), target.events());
+			assertFalse(config.outputRegistry().dump().isEmpty());
+			var logged = messages(target);
+			assertEquals(2, logged.size());
+			assertTrue(logged.get(0).contains("hello"), logged.get(0));
+			assertTrue(logged.get(1).contains("boom"), logged.get(1));
+		}
+	}
+
+	private static void write(RingLogOutput ring, Level level, String s, ContentType contentType) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		ring.write(event(level), bytes, 0, bytes.length, contentType);
+	}
+
+	private static LogEvent event(Level level) {
+		return LogEvent.of(level, "test", "ignored", KeyValues.of(), null);
+	}
+
+	private static List<String> messages(ListLogOutput output) {
+		return output.events().stream().map(Entry::getValue).toList();
+	}
+
+}
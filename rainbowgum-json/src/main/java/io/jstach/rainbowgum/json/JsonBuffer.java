@@ -57,6 +57,12 @@ public final class JsonBuffer implements Buffer {
 		formattedMessageBuilder.setLength(0);
 	}
 
+	@Override
+	public boolean trim(int retainedCapacity) {
+		boolean trimmed = jsonWriter.trim(retainedCapacity);
+		return Buffer.trim(formattedMessageBuilder, retainedCapacity) || trimmed;
+	}
+
 	/**
 	 * Reusable String buffer for formatted messages.
 	 * @return buffer.
@@ -164,6 +170,45 @@ public final class JsonBuffer implements Buffer {
 		jsonWriter.writeByte(LF);
 	}
 
+	/**
+	 * Writes bytes that are already valid encoded JSON such as field names and literal
+	 * values that were encoded once ahead of time.
+	 * @param json UTF-8 JSON bytes that are written as is.
+	 */
+	public final void writeRaw(byte[] json) {
+		jsonWriter.writeBytes(json);
+	}
+
+	/**
+	 * Writes a quoted and escaped string value without a field name. The field name
+	 * and separator are expected to have been written with {@link #writeRaw(byte[])}.
+	 * @param v value
+	 */
+	public final void writeStringValue(String v) {
+		jsonWriter.writeString(v);
+	}
+
+	/**
+	 * Writes a quoted and escaped string value from a region of a char sequence without
+	 * a field name.
+	 * @param v value
+	 * @param start start index of value inclusive
+	 * @param end end index of value exclusive
+	 * @see #writeStringValue(String)
+	 */
+	public final void writeStringValue(CharSequence v, int start, int end) {
+		jsonWriter.writeString(v, start, end);
+	}
+
+	/**
+	 * Writes a number value without a field name.
+	 * @param v value
+	 * @see #writeStringValue(String)
+	 */
+	public final void writeLongValue(long v) {
+		jsonWriter.writeLong(v);
+	}
+
 	/**
 	 * Writes a string field.
 	 * @param k field name
@@ -193,6 +238,25 @@ public final class JsonBuffer implements Buffer {
 
 	}
 
+	/**
+	 * Writes a string field from a region of a char sequence without creating a string.
+	 * This is useful for writing content that was formatted into a reused
+	 * {@link StringBuilder} like {@link #getFormattedMessageBuilder()}.
+	 * @param k field name
+	 * @param v value
+	 * @param start start index of value inclusive
+	 * @param end end index of value exclusive
+	 * @param index the current index for comma determination
+	 * @param flag see {@link #EXTENDED_F}
+	 * @return index + 1
+	 */
+	public final int write(String k, CharSequence v, int start, int end, int index, int flag) {
+		_writeStartField(k, index, flag);
+		jsonWriter.writeString(v, start, end);
+		_writeEndField(flag);
+		return index + 1;
+	}
+
 	/**
 	 * Writes a double field.
 	 * @param k field name
@@ -233,7 +297,23 @@ public final class JsonBuffer implements Buffer {
 	 */
 	public final int writeLong(String k, long v, int index, int flag) {
 		_writeStartField(k, index, flag);
-		jsonWriter.writeAscii(Long.toString(v));
+		jsonWriter.writeLong(v);
+		_writeEndField(flag);
+		return index + 1;
+	}
+
+	/**
+	 * Writes a long field as a quoted string value (e.g. <code>"k":"123"</code>) without
+	 * creating a string.
+	 * @param k field name
+	 * @param v value
+	 * @param index the current index for comma determination
+	 * @param flag see {@link #EXTENDED_F}
+	 * @return index + 1
+	 */
+	public final int writeLongString(String k, long v, int index, int flag) {
+		_writeStartField(k, index, flag);
+		jsonWriter.writeQuotedLong(v);
 		_writeEndField(flag);
 		return index + 1;
 	}
@@ -325,7 +405,7 @@ public final class JsonBuffer implements Buffer {
 			 * break out of the field name and forge sibling fields.
 			 * https://github.com/jstachio/rainbowgum/issues/208
 			 */
-			jsonWriter.writeString(((char) extendedFieldPrefix.raw) + k);
+			jsonWriter.writeString(extendedFieldPrefix.raw, k);
 		}
 		else {
 			jsonWriter.writeString(k);
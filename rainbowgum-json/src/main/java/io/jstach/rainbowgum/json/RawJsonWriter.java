@@ -2,7 +2,10 @@ package io.jstach.rainbowgum.json;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import io.jstach.rainbowgum.LogEvent;
@@ -61,8 +64,35 @@ class RawJsonWriter {
 	 */
 	public static final byte ESCAPE = '\\';
 
+	private static final int NO_PREFIX = -1;
+
+	/*
+	 * Strings shorter than this are mostly field names and levels where the per call
+	 * overhead of the SWAR path is not worth it.
+	 */
+	static final int SWAR_MIN_LENGTH = 16;
+
+	private static final int SWAR_CHUNK = 256;
+
+	private static final int SWAR_BACKOFF = 32;
+
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGHS = 0x8080808080808080L;
+
+	private static final long CONTROLS = 0x2020202020202020L;
+
+	private static final long QUOTES = 0x2222222222222222L;
+
+	private static final long ESCAPES = 0x5C5C5C5C5C5C5C5CL;
+
 	private final Grisu3.FastDtoaBuilder doubleBuilder = new Grisu3.FastDtoaBuilder();
 
+	private final char[] chars = new char[SWAR_CHUNK];
+
 	public RawJsonWriter(int capacity) {
 		this.buffer = new byte[capacity];
 	}
@@ -93,26 +123,75 @@ class RawJsonWriter {
 		buffer[position++] = value;
 	}
 
+	/**
+	 * Write bytes into the JSON as is.
+	 * @param value bytes that are already JSON
+	 */
+	public final void writeBytes(final byte[] value) {
+		final int len = value.length;
+		if (position + len >= buffer.length) {
+			enlargeOrFlush(position, len);
+		}
+		System.arraycopy(value, 0, buffer, position, len);
+		position += len;
+	}
+
 	/**
 	 * Write a quoted string into the JSON. String will be appropriately escaped according
 	 * to JSON escaping rules.
 	 * @param value string to write
 	 */
 	public final void writeString(final String value) {
-		final int len = value.length();
-		if (position + (len << 2) + (len << 1) + 2 >= buffer.length) {
-			enlargeOrFlush(position, (len << 2) + (len << 1) + 2);
+		writeString(NO_PREFIX, value, 0, value.length());
+	}
+
+	/**
+	 * Write a region of a char sequence as a quoted string into the JSON. The region will
+	 * be appropriately escaped according to JSON escaping rules. This allows writing
+	 * directly from a reused {@link StringBuilder} without calling
+	 * {@link StringBuilder#toString()}.
+	 * @param value char sequence to write from
+	 * @param start start index inclusive
+	 * @param end end index exclusive
+	 */
+	public final void writeString(final CharSequence value, final int start, final int end) {
+		writeString(NO_PREFIX, value, start, end);
+	}
+
+	/**
+	 * Write a quoted string into the JSON where the first character inside the quotes is
+	 * the passed in ASCII prefix. This avoids string concatenation for prefixed field
+	 * names.
+	 * @param prefix ASCII prefix that does not need escaping
+	 * @param value string to write after the prefix
+	 */
+	public final void writeString(final byte prefix, final String value) {
+		writeString(prefix, value, 0, value.length());
+	}
+
+	private void writeString(final int prefix, final CharSequence value, final int start, final int end) {
+		final int len = end - start;
+		final int max = (len << 2) + (len << 1) + 3;
+		if (position + max >= buffer.length) {
+			enlargeOrFlush(position, max);
 		}
 		final byte[] _result = buffer;
 		_result[position] = QUOTE;
 		int cur = position + 1;
-		for (int i = 0; i < len; i++) {
+		if (prefix != NO_PREFIX) {
+			_result[cur++] = (byte) prefix;
+		}
+		if (len >= SWAR_MIN_LENGTH && (value instanceof String || value instanceof StringBuilder)) {
+			writeQuotedStringSwar(value, start, cur, end);
+			return;
+		}
+		for (int i = start; i < end; i++) {
 			final char c = value.charAt(i);
 			if (c > 31 && c != '"' && c != '\\' && c < 126) {
 				_result[cur++] = (byte) c;
 			}
 			else {
-				writeQuotedString(value, i, cur, len);
+				writeQuotedString(value, i, cur, end);
 				return;
 			}
 		}
@@ -120,199 +199,325 @@ class RawJsonWriter {
 		position = cur + 1;
 	}
 
-	@GeneratedByATrustedSource
+	/*
+	 * Writes the same bytes as writeQuotedString but checks 8 chars at a time. The chars
+	 * are bulk copied into a scratch array with getChars (an intrinsic for both Latin-1
+	 * and UTF-16 strings) and packed one byte per char into a long. If all 8 are ASCII
+	 * the long is stored with a single write and a SWAR mask finds the first control
+	 * char, quote or backslash in it. Clean runs are thus copied 8 bytes at a time and
+	 * only chars that need escaping or encoding go through writeCodePoint.
+	 *
+	 * We cannot read the Latin-1 bytes of a String directly without opening java.base
+	 * and the incubating Vector API is not something a logging library should require.
+	 */
+	private void writeQuotedStringSwar(final CharSequence str, int i, int cur, final int len) {
+		final byte[] _result = this.buffer;
+		final char[] chars = this.chars;
+		while (i < len) {
+			final int n = Math.min(chars.length, len - i);
+			if (str instanceof String s) {
+				s.getChars(i, i + n, chars, 0);
+			}
+			else {
+				((StringBuilder) str).getChars(i, i + n, chars, 0);
+			}
+			int k = 0;
+			while (k < n) {
+				/*
+				 * Fast path over groups of 8 chars. Stops with scalarEnd set to the
+				 * index the slow path has to get past before trying again.
+				 */
+				int scalarEnd = n;
+				while (k + 8 <= n) {
+					long word = 0;
+					int bits = 0;
+					for (int j = 0; j < 8; j++) {
+						final char c = chars[k + j];
+						bits |= c;
+						word |= (long) c << (j << 3);
+					}
+					if (bits >= 0x80) {
+						/*
+						 * Non ASCII text tends to come in runs (e.g. accented words or
+						 * CJK) so rather than failing every group we stay in the slow
+						 * path for a while.
+						 */
+						scalarEnd = Math.min(n, k + SWAR_BACKOFF);
+						break;
+					}
+					/*
+					 * Store all 8 bytes even when some need escaping. The escaped chars
+					 * overwrite them and there is always room since at least 8 chars
+					 * remain and each reserves 6 bytes.
+					 */
+					LONG_LE.set(_result, cur, word);
+					final long mask = escapeMask(word);
+					if (mask != 0) {
+						final int clean = Long.numberOfTrailingZeros(mask) >>> 3;
+						cur += clean;
+						k += clean;
+						scalarEnd = k + 1;
+						break;
+					}
+					cur += 8;
+					k += 8;
+				}
+				while (k < scalarEnd) {
+					final char c = chars[k];
+					int cp = c;
+					if (Character.isHighSurrogate(c) && i + k + 1 < len) {
+						final char low = k + 1 < n ? chars[k + 1] : str.charAt(i + k + 1);
+						if (Character.isLowSurrogate(low)) {
+							cp = Character.toCodePoint(c, low);
+							k++;
+						}
+					}
+					cur = writeCodePoint(cp, cur);
+					k++;
+				}
+			}
+			/*
+			 * k can be n + 1 if a surrogate pair straddled the chunk.
+			 */
+			i += k;
+		}
+		_result[cur] = QUOTE;
+		position = cur + 1;
+	}
+
+	/*
+	 * Returns a mask with the high bit set for bytes of word that are a control char,
+	 * quote or backslash. Only valid if every byte is ASCII. Bytes above the first match
+	 * can be false positives because of borrows but the lowest set bit is exact.
+	 */
+	static long escapeMask(final long word) {
+		final long controls = (word - CONTROLS) & ~word & HIGHS;
+		final long q = word ^ QUOTES;
+		final long quotes = (q - ONES) & ~q & HIGHS;
+		final long e = word ^ ESCAPES;
+		final long escapes = (e - ONES) & ~e & HIGHS;
+		return controls | quotes | escapes;
+	}
+
+	/*
+	 * Writes a quoted string with only the scalar loop. Used to check and benchmark the
+	 * SWAR path against.
+	 */
+	final void writeStringScalar(final CharSequence value, final int start, final int end) {
+		final int len = end - start;
+		final int max = (len << 2) + (len << 1) + 3;
+		if (position + max >= buffer.length) {
+			enlargeOrFlush(position, max);
+		}
+		buffer[position] = QUOTE;
+		writeQuotedString(value, start, position + 1, end);
+	}
+
+	/*
+	 * The scalar escape loop. It is also the reference the SWAR path is tested against.
+	 */
 	private void writeQuotedString(final CharSequence str, int i, int cur, final int len) {
 		final byte[] _result = this.buffer;
 		for (; i < len; i++) {
 			final char c = str.charAt(i);
-			if (c == '"') {
+			/*
+			 * Character.codePointAt(CharSequence, int) would look past len when writing a
+			 * region of a larger sequence so we pair surrogates ourselves.
+			 */
+			int cp = c;
+			if (Character.isHighSurrogate(c) && i + 1 < len) {
+				final char low = str.charAt(i + 1);
+				if (Character.isLowSurrogate(low)) {
+					cp = Character.toCodePoint(c, low);
+					i++;
+				}
+			}
+			cur = writeCodePoint(cp, cur);
+		}
+		_result[cur] = QUOTE;
+		position = cur + 1;
+	}
+
+	@GeneratedByATrustedSource
+	private int writeCodePoint(final int cp, int cur) {
+		final byte[] _result = this.buffer;
+		if (cp == '"') {
+			_result[cur++] = ESCAPE;
+			_result[cur++] = QUOTE;
+		}
+		else if (cp == '\\') {
+			_result[cur++] = ESCAPE;
+			_result[cur++] = ESCAPE;
+		}
+		else if (cp < 32) {
+			if (cp == 8) {
 				_result[cur++] = ESCAPE;
-				_result[cur++] = QUOTE;
+				_result[cur++] = 'b';
 			}
-			else if (c == '\\') {
+			else if (cp == 9) {
 				_result[cur++] = ESCAPE;
+				_result[cur++] = 't';
+			}
+			else if (cp == 10) {
 				_result[cur++] = ESCAPE;
+				_result[cur++] = 'n';
 			}
-			else if (c < 32) {
-				if (c == 8) {
-					_result[cur++] = ESCAPE;
-					_result[cur++] = 'b';
-				}
-				else if (c == 9) {
-					_result[cur++] = ESCAPE;
-					_result[cur++] = 't';
-				}
-				else if (c == 10) {
-					_result[cur++] = ESCAPE;
-					_result[cur++] = 'n';
-				}
-				else if (c == 12) {
-					_result[cur++] = ESCAPE;
-					_result[cur++] = 'f';
-				}
-				else if (c == 13) {
-					_result[cur++] = ESCAPE;
-					_result[cur++] = 'r';
-				}
-				else {
-					_result[cur] = ESCAPE;
-					_result[cur + 1] = 'u';
-					_result[cur + 2] = '0';
-					_result[cur + 3] = '0';
-					switch (c) {
-						case 0:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '0';
-							break;
-						case 1:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '1';
-							break;
-						case 2:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '2';
-							break;
-						case 3:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '3';
-							break;
-						case 4:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '4';
-							break;
-						case 5:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '5';
-							break;
-						case 6:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '6';
-							break;
-						case 7:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = '7';
-							break;
-						case 11:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = 'B';
-							break;
-						case 14:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = 'E';
-							break;
-						case 15:
-							_result[cur + 4] = '0';
-							_result[cur + 5] = 'F';
-							break;
-						case 16:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '0';
-							break;
-						case 17:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '1';
-							break;
-						case 18:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '2';
-							break;
-						case 19:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '3';
-							break;
-						case 20:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '4';
-							break;
-						case 21:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '5';
-							break;
-						case 22:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '6';
-							break;
-						case 23:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '7';
-							break;
-						case 24:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '8';
-							break;
-						case 25:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = '9';
-							break;
-						case 26:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'A';
-							break;
-						case 27:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'B';
-							break;
-						case 28:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'C';
-							break;
-						case 29:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'D';
-							break;
-						case 30:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'E';
-							break;
-						default:
-							_result[cur + 4] = '1';
-							_result[cur + 5] = 'F';
-							break;
-					}
-					cur += 6;
-				}
+			else if (cp == 12) {
+				_result[cur++] = ESCAPE;
+				_result[cur++] = 'f';
 			}
-			else if (c < 0x007F) {
-				_result[cur++] = (byte) c;
+			else if (cp == 13) {
+				_result[cur++] = ESCAPE;
+				_result[cur++] = 'r';
 			}
 			else {
-				final int cp = Character.codePointAt(str, i);
-				if (Character.isSupplementaryCodePoint(cp)) {
-					i++;
-				}
-				if (cp == 0x007F) {
-					_result[cur++] = (byte) cp;
-				}
-				else if (cp <= 0x7FF) {
-					_result[cur++] = (byte) (0xC0 | ((cp >> 6) & 0x1F));
-					_result[cur++] = (byte) (0x80 | (cp & 0x3F));
-				}
-				else if ((cp < 0xD800) || (cp > 0xDFFF && cp <= 0xFFFF)) {
-					_result[cur++] = (byte) (0xE0 | ((cp >> 12) & 0x0F));
-					_result[cur++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
-					_result[cur++] = (byte) (0x80 | (cp & 0x3F));
-				}
-				else if (cp >= 0x10000 && cp <= 0x10FFFF) {
-					_result[cur++] = (byte) (0xF0 | ((cp >> 18) & 0x07));
-					_result[cur++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
-					_result[cur++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
-					_result[cur++] = (byte) (0x80 | (cp & 0x3F));
-				}
-				else {
-					/*
-					 * An unpaired UTF-16 surrogate (e.g. malformed input reaching a log
-					 * message or MDC value). A logging encoder must not throw on
-					 * adversarial/malformed input, so emit the Unicode replacement
-					 * character (U+FFFD) instead of a real codepoint for it.
-					 */
-					_result[cur++] = (byte) 0xEF;
-					_result[cur++] = (byte) 0xBF;
-					_result[cur++] = (byte) 0xBD;
+				_result[cur] = ESCAPE;
+				_result[cur + 1] = 'u';
+				_result[cur + 2] = '0';
+				_result[cur + 3] = '0';
+				switch (cp) {
+					case 0:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '0';
+						break;
+					case 1:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '1';
+						break;
+					case 2:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '2';
+						break;
+					case 3:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '3';
+						break;
+					case 4:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '4';
+						break;
+					case 5:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '5';
+						break;
+					case 6:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '6';
+						break;
+					case 7:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = '7';
+						break;
+					case 11:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = 'B';
+						break;
+					case 14:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = 'E';
+						break;
+					case 15:
+						_result[cur + 4] = '0';
+						_result[cur + 5] = 'F';
+						break;
+					case 16:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '0';
+						break;
+					case 17:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '1';
+						break;
+					case 18:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '2';
+						break;
+					case 19:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '3';
+						break;
+					case 20:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '4';
+						break;
+					case 21:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '5';
+						break;
+					case 22:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '6';
+						break;
+					case 23:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '7';
+						break;
+					case 24:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '8';
+						break;
+					case 25:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = '9';
+						break;
+					case 26:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'A';
+						break;
+					case 27:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'B';
+						break;
+					case 28:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'C';
+						break;
+					case 29:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'D';
+						break;
+					case 30:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'E';
+						break;
+					default:
+						_result[cur + 4] = '1';
+						_result[cur + 5] = 'F';
+						break;
 				}
+				cur += 6;
 			}
 		}
-		_result[cur] = QUOTE;
-		position = cur + 1;
+		else if (cp <= 0x007F) {
+			_result[cur++] = (byte) cp;
+		}
+		else if (cp <= 0x7FF) {
+			_result[cur++] = (byte) (0xC0 | ((cp >> 6) & 0x1F));
+			_result[cur++] = (byte) (0x80 | (cp & 0x3F));
+		}
+		else if ((cp < 0xD800) || (cp > 0xDFFF && cp <= 0xFFFF)) {
+			_result[cur++] = (byte) (0xE0 | ((cp >> 12) & 0x0F));
+			_result[cur++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+			_result[cur++] = (byte) (0x80 | (cp & 0x3F));
+		}
+		else if (cp >= 0x10000 && cp <= 0x10FFFF) {
+			_result[cur++] = (byte) (0xF0 | ((cp >> 18) & 0x07));
+			_result[cur++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+			_result[cur++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+			_result[cur++] = (byte) (0x80 | (cp & 0x3F));
+		}
+		else {
+			/*
+			 * An unpaired UTF-16 surrogate (e.g. malformed input reaching a log
+			 * message or MDC value). A logging encoder must not throw on
+			 * adversarial/malformed input, so emit the Unicode replacement
+			 * character (U+FFFD) instead of a real codepoint for it.
+			 */
+			_result[cur++] = (byte) 0xEF;
+			_result[cur++] = (byte) 0xBF;
+			_result[cur++] = (byte) 0xBD;
+		}
+		return cur;
 	}
 
 	/**
@@ -376,8 +581,63 @@ class RawJsonWriter {
 		position += len;
 	}
 
+	/**
+	 * Write an int as a JSON number without creating a string.
+	 * @param value int to write
+	 */
 	public final void writeInt(final int value) {
-		writeAscii(Integer.toString(value));
+		writeLong(value);
+	}
+
+	/**
+	 * Write a long as a JSON number without creating a string.
+	 * @param value long to write
+	 */
+	public final void writeLong(final long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii("-9223372036854775808");
+			return;
+		}
+		if (position + 20 >= buffer.length) {
+			enlargeOrFlush(position, 20);
+		}
+		final byte[] _result = buffer;
+		int cur = position;
+		long v = value;
+		if (v < 0) {
+			_result[cur++] = '-';
+			v = -v;
+		}
+		final int end = cur + digitCount(v);
+		cur = end;
+		do {
+			final long q = v / 10;
+			_result[--cur] = (byte) ('0' + (int) (v - q * 10));
+			v = q;
+		}
+		while (v != 0);
+		position = end;
+	}
+
+	/**
+	 * Write a long as a quoted JSON string without creating a string.
+	 * @param value long to write
+	 */
+	public final void writeQuotedLong(final long value) {
+		writeByte(QUOTE);
+		writeLong(value);
+		writeByte(QUOTE);
+	}
+
+	private static int digitCount(final long v) {
+		long p = 10;
+		for (int d = 1; d < 19; d++) {
+			if (v < p) {
+				return d;
+			}
+			p *= 10;
+		}
+		return 19;
 	}
 
 	/**
@@ -435,4 +695,19 @@ class RawJsonWriter {
 		position = 0;
 	}
 
+	/**
+	 * Resets the writer and replaces the byte array if it grew past the retained
+	 * capacity.
+	 * @param retainedCapacity capacity to keep.
+	 * @return true if the byte array was replaced.
+	 */
+	final boolean trim(int retainedCapacity) {
+		position = 0;
+		if (buffer.length <= retainedCapacity) {
+			return false;
+		}
+		buffer = new byte[Math.max(16, retainedCapacity)];
+		return true;
+	}
+
 }
@@ -1,6 +1,5 @@
 package io.jstach.rainbowgum.json.encoder;
 
-import java.time.format.DateTimeFormatter;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -9,6 +8,7 @@ import io.jstach.rainbowgum.LogEncoder;
 import io.jstach.rainbowgum.LogEvent;
 import io.jstach.rainbowgum.LogFormatter.LevelFormatter;
 import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+import io.jstach.rainbowgum.LogFormatter.TimestampFormatter;
 import io.jstach.rainbowgum.LogProperties;
 import io.jstach.rainbowgum.LogProvider;
 import io.jstach.rainbowgum.annotation.LogConfigurable;
@@ -65,7 +65,11 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 
 	private final boolean prettyprint;
 
-	private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ISO_INSTANT;
+	/*
+	 * ECS timestamps are millisecond ISO instants. The shared ISO formatter caches the
+	 * formatted second and writes the milliseconds itself so no formatter runs per event.
+	 */
+	private static final TimestampFormatter timeFormatter = TimestampFormatter.ofISO();
 
 	EcsEncoder(@Nullable String serviceName, @Nullable String serviceVersion, @Nullable String serviceEnvironment,
 			@Nullable String serviceNodeName, @Nullable String eventDataset, boolean structured, boolean prettyprint) {
@@ -125,6 +129,16 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 				structured, prettyPrint);
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 	@Override
 	protected JsonBuffer doBuffer(BufferHints hints) {
 		return new JsonBuffer(this.prettyprint, ExtendedFieldPrefix.AT);
@@ -133,11 +147,23 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 	@Override
 	protected void doEncode(LogEvent event, JsonBuffer buffer) {
 		buffer.clear();
+		/*
+		 * The message, timestamp and stack trace are formatted into the one reused
+		 * builder and written as regions of it: [0, messageEnd) is the message,
+		 * [messageEnd, timeEnd) the timestamp and [timeEnd, length) the stack trace.
+		 */
 		var formattedMessage = buffer.getFormattedMessageBuilder();
 		event.formattedMessage(formattedMessage);
+		int messageEnd = formattedMessage.length();
+		timeFormatter.formatTimestamp(formattedMessage, event.timestamp());
+		int timeEnd = formattedMessage.length();
+		var t = event.throwableOrNull();
+		if (t != null) {
+			ThrowableFormatter.appendThrowable(formattedMessage, t);
+		}
 
-		int index = structured ? encodeStructured(event, buffer, formattedMessage)
-				: encodeFlattened(event, buffer, formattedMessage);
+		int index = structured ? encodeStructured(event, buffer, formattedMessage, messageEnd, timeEnd)
+				: encodeFlattened(event, buffer, formattedMessage, messageEnd, timeEnd);
 
 		if (index > 0 && prettyprint) {
 			buffer.writeLineFeed();
@@ -146,15 +172,15 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 		buffer.writeLineFeed();
 	}
 
-	private int encodeFlattened(LogEvent event, JsonBuffer buffer, StringBuilder formattedMessage) {
-		var now = event.timestamp();
+	private int encodeFlattened(LogEvent event, JsonBuffer buffer, StringBuilder formattedMessage, int messageEnd,
+			int timeEnd) {
 		var t = event.throwableOrNull();
 
 		buffer.write(JSONToken.OBJECT_START);
 		int index = 0;
-		index = buffer.write("@timestamp", timeFormatter.format(now), index);
+		index = buffer.write("@timestamp", formattedMessage, messageEnd, timeEnd, index, 0);
 		index = buffer.write("log.level", LevelFormatter.toString(event.level()), index);
-		index = buffer.write("message", formattedMessage.toString(), index);
+		index = buffer.write("message", formattedMessage, 0, messageEnd, index, 0);
 		index = buffer.write("ecs.version", ECS_VERSION, index);
 		index = buffer.write("service.name", serviceName, index);
 		index = buffer.write("service.version", serviceVersion, index);
@@ -167,22 +193,20 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 		if (t != null) {
 			index = buffer.write("error.type", t.getClass().getName(), index);
 			index = buffer.write("error.message", t.getMessage(), index);
-			var stackTrace = new StringBuilder();
-			ThrowableFormatter.appendThrowable(stackTrace, t);
-			index = buffer.write("error.stack_trace", stackTrace.toString(), index);
+			index = buffer.write("error.stack_trace", formattedMessage, timeEnd, formattedMessage.length(), index, 0);
 		}
 
 		index = writeKeyValues(event, buffer, index);
 		return index;
 	}
 
-	private int encodeStructured(LogEvent event, JsonBuffer buffer, StringBuilder formattedMessage) {
-		var now = event.timestamp();
+	private int encodeStructured(LogEvent event, JsonBuffer buffer, StringBuilder formattedMessage, int messageEnd,
+			int timeEnd) {
 		var t = event.throwableOrNull();
 
 		buffer.write(JSONToken.OBJECT_START);
 		int index = 0;
-		index = buffer.write("@timestamp", timeFormatter.format(now), index);
+		index = buffer.write("@timestamp", formattedMessage, messageEnd, timeEnd, index, 0);
 
 		int logIndex = buffer.writeObjectStart("log", index, 0);
 		logIndex = buffer.write("level", LevelFormatter.toString(event.level()), logIndex, 0);
@@ -190,7 +214,7 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 		buffer.writeObjectEnd();
 		index++;
 
-		index = buffer.write("message", formattedMessage.toString(), index);
+		index = buffer.write("message", formattedMessage, 0, messageEnd, index, 0);
 
 		int ecsIndex = buffer.writeObjectStart("ecs", index, 0);
 		buffer.write("version", ECS_VERSION, ecsIndex, 0);
@@ -231,9 +255,7 @@ public final class EcsEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 			int errorIndex = buffer.writeObjectStart("error", index, 0);
 			errorIndex = buffer.write("type", t.getClass().getName(), errorIndex, 0);
 			errorIndex = buffer.write("message", t.getMessage(), errorIndex, 0);
-			var stackTrace = new StringBuilder();
-			ThrowableFormatter.appendThrowable(stackTrace, t);
-			buffer.write("stack_trace", stackTrace.toString(), errorIndex, 0);
+			buffer.write("stack_trace", formattedMessage, timeEnd, formattedMessage.length(), errorIndex, 0);
 			buffer.writeObjectEnd();
 			index++;
 		}
@@ -123,6 +123,16 @@ public final class GelfEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 		return new GelfEncoder(host, _headers, prettyPrint, _timeFractionalDigits);
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 	@Override
 	protected JsonBuffer doBuffer(BufferHints hints) {
 		return new JsonBuffer(this.prettyprint, ExtendedFieldPrefix.UNDERSCORE);
@@ -131,35 +141,39 @@ public final class GelfEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
 	@Override
 	protected void doEncode(LogEvent event, JsonBuffer buffer) {
 		buffer.clear();
+		/*
+		 * The short message, full message and time are all formatted into the one reused
+		 * builder and written as regions of it so that no strings are created per event.
+		 */
 		var formattedMessage = buffer.getFormattedMessageBuilder();
 		final String host = this.host;
 		event.formattedMessage(formattedMessage);
-		final String shortMessage = formattedMessage.toString();
+		final int shortMessageEnd = formattedMessage.length();
 		Instant now = event.timestamp();
 		final double timeStamp = ((double) now.toEpochMilli()) / 1000;
-		@Nullable
-		String fullMessage = null;
 		var t = event.throwableOrNull();
 		if (t != null) {
 			formattedMessage.append("\n");
 			ThrowableFormatter.appendThrowable(formattedMessage, t);
-			fullMessage = formattedMessage.toString();
 		}
+		final int fullMessageEnd = formattedMessage.length();
+		timeFormatter.formatTimestamp(formattedMessage, now);
+		final int timeEnd = formattedMessage.length();
 		int level = levelToSyslogLevel(event.level());
 		buffer.write(JSONToken.OBJECT_START);
 		int index = 0;
 		index = buffer.write("host", host, index);
-		index = buffer.write("short_message", shortMessage, index);
-		index = buffer.write("full_message", fullMessage, index);
+		index = buffer.write("short_message", formattedMessage, 0, shortMessageEnd, index, 0);
+		if (t != null) {
+			index = buffer.write("full_message", formattedMessage, 0, fullMessageEnd, index, 0);
+		}
 		index = buffer.writeDouble("timestamp", timeStamp, index, 0);
 		index = buffer.writeInt("level", level, index, 0);
-		StringBuilder timeBuilder = new StringBuilder(32);
-		timeFormatter.formatTimestamp(timeBuilder, now);
-		index = buffer.write("_time", timeBuilder.toString(), index);
+		index = buffer.write("_time", formattedMessage, fullMessageEnd, timeEnd, index, 0);
 		index = buffer.write("_level", LevelFormatter.toString(event.level()), index);
 		index = buffer.write("_logger", event.loggerName(), index);
 		index = buffer.write("_thread_name", event.threadName(), index);
-		index = buffer.write("_thread_id", String.valueOf(event.threadId()), index);
+		index = buffer.writeLongString("_thread_id", event.threadId(), index, 0);
 
 		if (t != null) {
 			String tn = t.getClass().getName();
@@ -0,0 +1,964 @@
+package io.jstach.rainbowgum.json.encoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter;
+import io.jstach.rainbowgum.LogFormatter.LevelFormatter;
+import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.annotation.LogConfigurable;
+import io.jstach.rainbowgum.annotation.LogConfigurable.ConvertParameter;
+import io.jstach.rainbowgum.annotation.LogConfigurable.PassThroughParameter;
+import io.jstach.rainbowgum.json.JsonBuffer;
+import io.jstach.rainbowgum.json.JsonBuffer.ExtendedFieldPrefix;
+import io.jstach.rainbowgum.json.JsonBuffer.JSONToken;
+
+/**
+ * A JSON encoder whose fields are described by a JSON template instead of code. String
+ * values of the form <code>${keyword}</code> or <code>${keyword:argument}</code> are
+ * replaced with data from the event and everything else is copied as is.
+ *
+ * <pre class="language-properties">
+ * <code>
+ * logging.encoder.console.template={"ts":"${timestamp}","lvl":"${level}","msg":"${message}",\
+ *   "app":"orders","user":"${mdc:user}","error":"${exception}"}
+ * </code>
+ * </pre>
+ *
+ * The template is compiled once when the encoder is created into pre-encoded byte
+ * fragments (field names and literal values) and field writers so encoding an event
+ * does not look at the template again.
+ * <p>
+ * The keywords are named after the pattern keywords:
+ * <table class="table">
+ * <caption><strong>Template keywords</strong></caption>
+ * <tr>
+ * <th>Keyword</th>
+ * <th>Value</th>
+ * </tr>
+ * <tr>
+ * <td><code>timestamp</code></td>
+ * <td>ISO-8601 instant in UTC as a string.</td>
+ * </tr>
+ * <tr>
+ * <td><code>d</code>, <code>date</code></td>
+ * <td>Timestamp in the encoder zone formatted with the
+ * {@link DateTimeFormatter#ofPattern(String) pattern} argument or ISO-8601 with offset if
+ * there is no argument.</td>
+ * </tr>
+ * <tr>
+ * <td><code>epochMillis</code></td>
+ * <td>Milliseconds since epoch as a number.</td>
+ * </tr>
+ * <tr>
+ * <td><code>p</code>, <code>le</code>, <code>level</code></td>
+ * <td>Level name.</td>
+ * </tr>
+ * <tr>
+ * <td><code>c</code>, <code>lo</code>, <code>logger</code></td>
+ * <td>Logger name.</td>
+ * </tr>
+ * <tr>
+ * <td><code>t</code>, <code>thread</code></td>
+ * <td>Thread name.</td>
+ * </tr>
+ * <tr>
+ * <td><code>threadId</code></td>
+ * <td>Thread id as a number.</td>
+ * </tr>
+ * <tr>
+ * <td><code>m</code>, <code>msg</code>, <code>message</code></td>
+ * <td>Formatted message.</td>
+ * </tr>
+ * <tr>
+ * <td><code>ex</code>, <code>exception</code>, <code>throwable</code></td>
+ * <td>Stack trace. The field is omitted if there is no throwable.</td>
+ * </tr>
+ * <tr>
+ * <td><code>X</code>, <code>mdc</code></td>
+ * <td>With an argument the key value of that key and the field is omitted if missing.
+ * Without an argument an object of all key values.</td>
+ * </tr>
+ * <tr>
+ * <td><code>C</code>, <code>class</code>, <code>M</code>, <code>method</code>,
+ * <code>F</code>, <code>file</code>, <code>L</code>, <code>line</code></td>
+ * <td>Caller info. The field is omitted if there is no caller info. Using any of these
+ * makes the encoder {@linkplain #requiresCaller() require caller info}.</td>
+ * </tr>
+ * <tr>
+ * <td><code>property</code></td>
+ * <td>The value of the property named by the argument resolved once when the template is
+ * compiled.</td>
+ * </tr>
+ * </table>
+ * Additional keywords can be bound to any {@link LogFormatter} (for example one compiled
+ * from a pattern) with {@link Builder#formatter(String, LogFormatter)}. A literal string
+ * starting with <code>${</code> can be written by escaping it as <code>$${</code>.
+ * Placeholders are not allowed in arrays or as part of a larger string and the output is
+ * never pretty printed.
+ */
+public final class JsonTemplateEncoder extends LogEncoder.AbstractEncoder<JsonBuffer> {
+
+	/**
+	 * JSON template encoder URI scheme.
+	 */
+	public static final String JSON_TEMPLATE_SCHEME = "jsontemplate";
+
+	private final String template;
+
+	private final TemplateStep[] steps;
+
+	private final boolean requiresCaller;
+
+	private final boolean stateless;
+
+	JsonTemplateEncoder(String template, TemplateStep[] steps, boolean requiresCaller, boolean stateless) {
+		super();
+		this.template = template;
+		this.steps = steps;
+		this.requiresCaller = requiresCaller;
+		this.stateless = stateless;
+	}
+
+	/**
+	 * Compiles the template with default settings.
+	 * @param template JSON object template.
+	 * @return encoder.
+	 * @throws IllegalArgumentException if the template is not valid.
+	 */
+	public static JsonTemplateEncoder of(String template) {
+		return builder().template(template).build();
+	}
+
+	/**
+	 * Creates a builder to compile a template.
+	 * @return builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Creates a template encoder from configuration.
+	 * @param name property name prefix.
+	 * @param template JSON object template.
+	 * @param zoneId zone used by the <code>date</code> keyword, defaults to the system
+	 * default zone.
+	 * @param properties properties the <code>property</code> keyword reads from.
+	 * @return encoder.
+	 * @throws IllegalArgumentException if the template is not valid.
+	 */
+	@LogConfigurable(prefix = LogProperties.ENCODER_PREFIX)
+	static JsonTemplateEncoder of(@LogConfigurable.KeyParameter String name, String template,
+			@ConvertParameter("convertZoneId") @Nullable ZoneId zoneId,
+			@PassThroughParameter @Nullable LogProperties properties) {
+		var b = builder().template(template);
+		if (zoneId != null) {
+			b.zoneId(zoneId);
+		}
+		if (properties != null) {
+			b.properties(properties);
+		}
+		return b.build();
+	}
+
+	static ZoneId convertZoneId(@Nullable String zoneId) {
+		return zoneId == null ? ZoneId.systemDefault() : ZoneId.of(zoneId);
+	}
+
+	/**
+	 * The template this encoder was compiled from.
+	 * @return template.
+	 */
+	public String template() {
+		return this.template;
+	}
+
+	@Override
+	public boolean requiresCaller() {
+		return this.requiresCaller;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return this.stateless;
+	}
+
+	@Override
+	protected JsonBuffer doBuffer(BufferHints hints) {
+		return new JsonBuffer(false, ExtendedFieldPrefix.UNDERSCORE);
+	}
+
+	@Override
+	protected void doEncode(LogEvent event, JsonBuffer buffer) {
+		buffer.clear();
+		buffer.write(JSONToken.OBJECT_START);
+		writeSteps(steps, event, buffer);
+		buffer.write(JSONToken.OBJECT_END);
+		buffer.writeLineFeed();
+	}
+
+	static void writeSteps(TemplateStep[] steps, LogEvent event, JsonBuffer buffer) {
+		int index = 0;
+		for (var step : steps) {
+			index = step.write(event, buffer, index);
+		}
+	}
+
+	/**
+	 * Builder of a template encoder.
+	 */
+	public static final class Builder {
+
+		private @Nullable String template;
+
+		private ZoneId zoneId = ZoneId.systemDefault();
+
+		private LogProperties properties = LogProperties.StandardProperties.EMPTY;
+
+		private final Map<String, LogFormatter> formatters = new LinkedHashMap<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Sets the JSON object template which is required.
+		 * @param template JSON object with placeholders.
+		 * @return this.
+		 */
+		public Builder template(String template) {
+			this.template = template;
+			return this;
+		}
+
+		/**
+		 * Zone used by the <code>date</code> keyword. The default is the system default
+		 * zone.
+		 * @param zoneId zone id.
+		 * @return this.
+		 */
+		public Builder zoneId(ZoneId zoneId) {
+			this.zoneId = zoneId;
+			return this;
+		}
+
+		/**
+		 * Properties used to resolve the <code>property</code> keyword.
+		 * @param properties usually the config properties.
+		 * @return this.
+		 */
+		public Builder properties(LogProperties properties) {
+			this.properties = properties;
+			return this;
+		}
+
+		/**
+		 * Binds a keyword to a formatter whose output is written as a string. Builtin
+		 * keywords cannot be replaced.
+		 * @param keyword placeholder keyword which cannot contain <code>:</code>.
+		 * @param formatter formatter.
+		 * @return this.
+		 */
+		public Builder formatter(String keyword, LogFormatter formatter) {
+			if (keyword.indexOf(':') >= 0 || TemplateKeyword.find(keyword) != null) {
+				throw new IllegalArgumentException("Invalid formatter keyword: " + keyword);
+			}
+			formatters.put(keyword, formatter);
+			return this;
+		}
+
+		/**
+		 * Compiles the template.
+		 * @return encoder.
+		 * @throws IllegalArgumentException if the template is missing or not valid.
+		 */
+		public JsonTemplateEncoder build() {
+			String t = template;
+			if (t == null) {
+				throw new IllegalArgumentException("template is required");
+			}
+			var compiler = new TemplateCompiler(zoneId, properties, Map.copyOf(formatters));
+			var steps = compiler.compile(t);
+			return new JsonTemplateEncoder(t, steps, compiler.requiresCaller, compiler.stateless);
+		}
+
+	}
+
+}
+
+/*
+ * A compiled part of a JSON object. Index is the number of fields already written in the
+ * enclosing object and is used to decide whether a comma is needed.
+ */
+interface TemplateStep {
+
+	int write(LogEvent event, JsonBuffer buffer, int index);
+
+}
+
+/*
+ * One or more literal fields encoded once. The comma variant is used when fields were
+ * already written.
+ */
+record LiteralStep(byte[] first, byte[] rest, int count) implements TemplateStep {
+
+	@Override
+	public int write(LogEvent event, JsonBuffer buffer, int index) {
+		buffer.writeRaw(index == 0 ? first : rest);
+		return index + count;
+	}
+
+}
+
+record FieldStep(byte[] first, byte[] rest, TemplateValueWriter writer) implements TemplateStep {
+
+	@Override
+	public int write(LogEvent event, JsonBuffer buffer, int index) {
+		if (!writer.isPresent(event)) {
+			return index;
+		}
+		buffer.writeRaw(index == 0 ? first : rest);
+		writer.write(event, buffer);
+		return index + 1;
+	}
+
+}
+
+record ObjectStep(byte[] first, byte[] rest, TemplateStep[] steps) implements TemplateStep {
+
+	@Override
+	public int write(LogEvent event, JsonBuffer buffer, int index) {
+		buffer.writeRaw(index == 0 ? first : rest);
+		buffer.write(JSONToken.OBJECT_START);
+		JsonTemplateEncoder.writeSteps(steps, event, buffer);
+		buffer.write(JSONToken.OBJECT_END);
+		return index + 1;
+	}
+
+}
+
+interface TemplateValueWriter {
+
+	default boolean isPresent(LogEvent event) {
+		return true;
+	}
+
+	void write(LogEvent event, JsonBuffer buffer);
+
+}
+
+/*
+ * The builtin keywords with the same aliases as the pattern keywords.
+ */
+enum TemplateKeyword {
+
+	TIMESTAMP("timestamp"), //
+	DATE("d", "date"), //
+	EPOCH_MILLIS("epochMillis"), //
+	LEVEL("p", "le", "level"), //
+	LOGGER("c", "lo", "logger"), //
+	THREAD("t", "thread"), //
+	THREAD_ID("threadId"), //
+	MESSAGE("m", "msg", "message"), //
+	THROWABLE("ex", "exception", "throwable"), //
+	MDC("X", "mdc"), //
+	CLASS("C", "class"), //
+	METHOD("M", "method"), //
+	FILE("F", "file"), //
+	LINE("L", "line"), //
+	PROPERTY("property");
+
+	private final List<String> aliases;
+
+	private TemplateKeyword(String... aliases) {
+		this.aliases = List.of(aliases);
+	}
+
+	static @Nullable TemplateKeyword find(String name) {
+		for (var k : values()) {
+			if (k.aliases.contains(name)) {
+				return k;
+			}
+		}
+		return null;
+	}
+
+}
+
+final class TemplateCompiler {
+
+	private final ZoneId zoneId;
+
+	private final LogProperties properties;
+
+	private final Map<String, LogFormatter> formatters;
+
+	boolean requiresCaller;
+
+	boolean stateless = true;
+
+	TemplateCompiler(ZoneId zoneId, LogProperties properties, Map<String, LogFormatter> formatters) {
+		this.zoneId = zoneId;
+		this.properties = properties;
+		this.formatters = formatters;
+	}
+
+	TemplateStep[] compile(String template) {
+		var parser = new TemplateParser(template);
+		Object root = parser.parse();
+		if (!(root instanceof TemplateObject o)) {
+			throw new IllegalArgumentException("Template must be a JSON object");
+		}
+		return compileObject(o);
+	}
+
+	private TemplateStep[] compileObject(TemplateObject object) {
+		List<TemplateStep> steps = new ArrayList<>();
+		/*
+		 * Consecutive literal fields are merged into one fragment.
+		 */
+		StringBuilder literal = new StringBuilder();
+		int count = 0;
+		for (var e : object.members().entrySet()) {
+			String key = e.getKey();
+			Object value = resolveStatic(e.getValue());
+			if (!hasPlaceholder(value)) {
+				if (count > 0) {
+					literal.append(',');
+				}
+				appendString(literal, key);
+				literal.append(':');
+				appendValue(literal, value);
+				count++;
+				continue;
+			}
+			if (count > 0) {
+				steps.add(literalStep(literal, count));
+				literal.setLength(0);
+				count = 0;
+			}
+			byte[] first = fieldName(key, false);
+			byte[] rest = fieldName(key, true);
+			if (value instanceof TemplateObject o) {
+				steps.add(new ObjectStep(first, rest, compileObject(o)));
+			}
+			else if (value instanceof TemplatePlaceholder p) {
+				steps.add(new FieldStep(first, rest, writer(p)));
+			}
+			else {
+				throw new IllegalArgumentException("Placeholders are not allowed in arrays. field: " + key);
+			}
+		}
+		if (count > 0) {
+			steps.add(literalStep(literal, count));
+		}
+		return steps.toArray(new TemplateStep[] {});
+	}
+
+	/*
+	 * The property keyword is resolved now so that it becomes part of a literal fragment.
+	 */
+	private Object resolveStatic(Object value) {
+		if (value instanceof TemplatePlaceholder p && TemplateKeyword.find(p.name()) == TemplateKeyword.PROPERTY) {
+			String key = requireArgument(p);
+			String v = properties.valueOrNull(key);
+			return v == null ? TemplateLiteral.NULL : v;
+		}
+		if (value instanceof TemplateObject o) {
+			Map<String, Object> members = new LinkedHashMap<>();
+			o.members().forEach((k, v) -> members.put(k, resolveStatic(v)));
+			return new TemplateObject(members);
+		}
+		return value;
+	}
+
+	private static boolean hasPlaceholder(Object value) {
+		if (value instanceof TemplatePlaceholder) {
+			return true;
+		}
+		if (value instanceof TemplateObject o) {
+			return o.members().values().stream().anyMatch(TemplateCompiler::hasPlaceholder);
+		}
+		if (value instanceof List<?> list) {
+			return list.stream().anyMatch(v -> hasPlaceholder(Objects.requireNonNull(v)));
+		}
+		return false;
+	}
+
+	private TemplateValueWriter writer(TemplatePlaceholder p) {
+		var keyword = TemplateKeyword.find(p.name());
+		if (keyword == null) {
+			var formatter = formatters.get(p.name());
+			if (formatter == null) {
+				throw new IllegalArgumentException("Unknown template keyword: " + p.name());
+			}
+			noArgument(p);
+			if (!formatter.isStateless()) {
+				stateless = false;
+			}
+			return (event, buffer) -> {
+				var sb = buffer.getFormattedMessageBuilder();
+				sb.setLength(0);
+				formatter.format(sb, event);
+				buffer.writeStringValue(sb, 0, sb.length());
+			};
+		}
+		return switch (keyword) {
+			case TIMESTAMP -> {
+				noArgument(p);
+				yield dateWriter(DateTimeFormatter.ISO_INSTANT);
+			}
+			case DATE -> {
+				String pattern = p.argument();
+				var formatter = pattern == null ? DateTimeFormatter.ISO_OFFSET_DATE_TIME
+						: DateTimeFormatter.ofPattern(pattern);
+				yield dateWriter(formatter.withZone(zoneId));
+			}
+			case EPOCH_MILLIS -> {
+				noArgument(p);
+				yield (event, buffer) -> buffer.writeLongValue(event.timestamp().toEpochMilli());
+			}
+			case LEVEL -> {
+				noArgument(p);
+				yield (event, buffer) -> buffer.writeStringValue(LevelFormatter.toString(event.level()));
+			}
+			case LOGGER -> {
+				noArgument(p);
+				yield (event, buffer) -> buffer.writeStringValue(event.loggerName());
+			}
+			case THREAD -> {
+				noArgument(p);
+				yield (event, buffer) -> buffer.writeStringValue(event.threadName());
+			}
+			case THREAD_ID -> {
+				noArgument(p);
+				yield (event, buffer) -> buffer.writeLongValue(event.threadId());
+			}
+			case MESSAGE -> {
+				noArgument(p);
+				yield (event, buffer) -> {
+					var sb = buffer.getFormattedMessageBuilder();
+					sb.setLength(0);
+					event.formattedMessage(sb);
+					buffer.writeStringValue(sb, 0, sb.length());
+				};
+			}
+			case THROWABLE -> {
+				noArgument(p);
+				yield new ThrowableWriter();
+			}
+			case MDC -> {
+				String key = p.argument();
+				yield key == null ? new KeyValuesWriter() : new KeyValueWriter(key);
+			}
+			case CLASS, METHOD, FILE, LINE -> {
+				noArgument(p);
+				requiresCaller = true;
+				yield new CallerWriter(keyword);
+			}
+			case PROPERTY -> throw new IllegalStateException("resolved statically");
+		};
+	}
+
+	private static TemplateValueWriter dateWriter(DateTimeFormatter formatter) {
+		return (event, buffer) -> {
+			var sb = buffer.getFormattedMessageBuilder();
+			sb.setLength(0);
+			formatter.formatTo(event.timestamp(), sb);
+			buffer.writeStringValue(sb, 0, sb.length());
+		};
+	}
+
+	private static void noArgument(TemplatePlaceholder p) {
+		if (p.argument() != null) {
+			throw new IllegalArgumentException("Template keyword does not take an argument: " + p.name());
+		}
+	}
+
+	private static String requireArgument(TemplatePlaceholder p) {
+		String arg = p.argument();
+		if (arg == null || arg.isEmpty()) {
+			throw new IllegalArgumentException("Template keyword requires an argument: " + p.name());
+		}
+		return arg;
+	}
+
+	private static TemplateStep literalStep(StringBuilder literal, int count) {
+		String s = literal.toString();
+		return new LiteralStep(utf8(s), utf8("," + s), count);
+	}
+
+	private static byte[] fieldName(String key, boolean comma) {
+		StringBuilder sb = new StringBuilder();
+		if (comma) {
+			sb.append(',');
+		}
+		appendString(sb, key);
+		sb.append(':');
+		return utf8(sb.toString());
+	}
+
+	private static byte[] utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void appendValue(StringBuilder sb, Object value) {
+		if (value instanceof String s) {
+			appendString(sb, s);
+		}
+		else if (value instanceof TemplateLiteral l) {
+			sb.append(l.text());
+		}
+		else if (value instanceof TemplateObject o) {
+			sb.append('{');
+			boolean first = true;
+			for (var e : o.members().entrySet()) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				appendString(sb, e.getKey());
+				sb.append(':');
+				appendValue(sb, e.getValue());
+			}
+			sb.append('}');
+		}
+		else if (value instanceof List<?> list) {
+			sb.append('[');
+			for (int i = 0; i < list.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendValue(sb, Objects.requireNonNull(list.get(i)));
+			}
+			sb.append(']');
+		}
+		else {
+			throw new IllegalStateException("Unexpected template value: " + value);
+		}
+	}
+
+	static void appendString(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"' -> sb.append("\\\"");
+				case '\\' -> sb.append("\\\\");
+				case '\n' -> sb.append("\\n");
+				case '\r' -> sb.append("\\r");
+				case '\t' -> sb.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					}
+					else {
+						sb.append(c);
+					}
+				}
+			}
+		}
+		sb.append('"');
+	}
+
+}
+
+final class ThrowableWriter implements TemplateValueWriter {
+
+	@Override
+	public boolean isPresent(LogEvent event) {
+		return event.throwableOrNull() != null;
+	}
+
+	@Override
+	public void write(LogEvent event, JsonBuffer buffer) {
+		var t = Objects.requireNonNull(event.throwableOrNull());
+		var sb = buffer.getFormattedMessageBuilder();
+		sb.setLength(0);
+		ThrowableFormatter.appendThrowable(sb, t);
+		buffer.writeStringValue(sb, 0, sb.length());
+	}
+
+}
+
+record KeyValueWriter(String key) implements TemplateValueWriter {
+
+	@Override
+	public boolean isPresent(LogEvent event) {
+		return event.keyValues().getValueOrNull(key) != null;
+	}
+
+	@Override
+	public void write(LogEvent event, JsonBuffer buffer) {
+		buffer.writeStringValue(Objects.requireNonNull(event.keyValues().getValueOrNull(key)));
+	}
+
+}
+
+final class KeyValuesWriter implements TemplateValueWriter {
+
+	@Override
+	public void write(LogEvent event, JsonBuffer buffer) {
+		buffer.write(JSONToken.OBJECT_START);
+		var kvs = event.keyValues();
+		int index = 0;
+		for (int i = kvs.start(); i >= 0; i = kvs.next(i)) {
+			index = buffer.write(kvs.key(i), kvs.valueOrNull(i), index);
+		}
+		buffer.write(JSONToken.OBJECT_END);
+	}
+
+}
+
+record CallerWriter(TemplateKeyword keyword) implements TemplateValueWriter {
+
+	@Override
+	public boolean isPresent(LogEvent event) {
+		var caller = event.callerOrNull();
+		if (caller == null) {
+			return false;
+		}
+		return keyword != TemplateKeyword.FILE || caller.fileNameOrNull() != null;
+	}
+
+	@Override
+	public void write(LogEvent event, JsonBuffer buffer) {
+		var caller = Objects.requireNonNull(event.callerOrNull());
+		switch (keyword) {
+			case CLASS -> buffer.writeStringValue(caller.className());
+			case METHOD -> buffer.writeStringValue(caller.methodName());
+			case FILE -> buffer.writeStringValue(Objects.requireNonNull(caller.fileNameOrNull()));
+			case LINE -> buffer.writeLongValue(caller.lineNumber());
+			default -> throw new IllegalStateException("Not a caller keyword: " + keyword);
+		}
+	}
+
+}
+
+/*
+ * Parsed template values are String, TemplateLiteral (numbers, booleans and null),
+ * TemplatePlaceholder, TemplateObject and List.
+ */
+record TemplateObject(Map<String, Object> members) {
+}
+
+record TemplateLiteral(String text) {
+
+	static final TemplateLiteral NULL = new TemplateLiteral("null");
+
+}
+
+record TemplatePlaceholder(String name, @Nullable String argument) {
+
+	static final String START = "${";
+
+	static final String ESCAPED_START = "$${";
+
+	static Object parse(String s) {
+		if (s.startsWith(ESCAPED_START)) {
+			return s.substring(1);
+		}
+		if (s.startsWith(START)) {
+			if (!s.endsWith("}")) {
+				throw new IllegalArgumentException("A template placeholder must be the entire JSON string value: " + s);
+			}
+			String inner = s.substring(START.length(), s.length() - 1);
+			int colon = inner.indexOf(':');
+			if (colon < 0) {
+				return new TemplatePlaceholder(inner, null);
+			}
+			return new TemplatePlaceholder(inner.substring(0, colon), inner.substring(colon + 1));
+		}
+		if (s.contains(START)) {
+			throw new IllegalArgumentException("A template placeholder must be the entire JSON string value: " + s);
+		}
+		return s;
+	}
+
+}
+
+final class TemplateParser {
+
+	private final String input;
+
+	private int pos;
+
+	TemplateParser(String input) {
+		this.input = input;
+	}
+
+	Object parse() {
+		Object value = value();
+		skipWhitespace();
+		if (pos != input.length()) {
+			throw error("Unexpected trailing content");
+		}
+		return value;
+	}
+
+	private Object value() {
+		skipWhitespace();
+		if (pos >= input.length()) {
+			throw error("Unexpected end of template");
+		}
+		char c = input.charAt(pos);
+		return switch (c) {
+			case '{' -> object();
+			case '[' -> array();
+			case '"' -> TemplatePlaceholder.parse(string());
+			default -> literal();
+		};
+	}
+
+	private TemplateObject object() {
+		pos++;
+		Map<String, Object> members = new LinkedHashMap<>();
+		skipWhitespace();
+		if (peek() == '}') {
+			pos++;
+			return new TemplateObject(members);
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected field name");
+			}
+			String key = string();
+			skipWhitespace();
+			expect(':');
+			if (members.put(key, value()) != null) {
+				throw error("Duplicate field: " + key);
+			}
+			skipWhitespace();
+			char c = next();
+			if (c == '}') {
+				return new TemplateObject(members);
+			}
+			if (c != ',') {
+				throw error("Expected ',' or '}'");
+			}
+		}
+	}
+
+	private List<Object> array() {
+		pos++;
+		List<Object> values = new ArrayList<>();
+		skipWhitespace();
+		if (peek() == ']') {
+			pos++;
+			return values;
+		}
+		while (true) {
+			values.add(value());
+			skipWhitespace();
+			char c = next();
+			if (c == ']') {
+				return values;
+			}
+			if (c != ',') {
+				throw error("Expected ',' or ']'");
+			}
+		}
+	}
+
+	private String string() {
+		expect('"');
+		StringBuilder sb = new StringBuilder();
+		while (true) {
+			char c = next();
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c == '\\') {
+				char e = next();
+				switch (e) {
+					case '"', '\\', '/' -> sb.append(e);
+					case 'b' -> sb.append('\b');
+					case 'f' -> sb.append('\f');
+					case 'n' -> sb.append('\n');
+					case 'r' -> sb.append('\r');
+					case 't' -> sb.append('\t');
+					case 'u' -> {
+						if (pos + 4 > input.length()) {
+							throw error("Bad unicode escape");
+						}
+						try {
+							sb.append((char) Integer.parseInt(input, pos, pos + 4, 16));
+						}
+						catch (NumberFormatException ex) {
+							throw error("Bad unicode escape");
+						}
+						pos += 4;
+					}
+					default -> throw error("Bad escape");
+				}
+			}
+			else if (c < 0x20) {
+				throw error("Control character in string");
+			}
+			else {
+				sb.append(c);
+			}
+		}
+	}
+
+	private TemplateLiteral literal() {
+		int start = pos;
+		while (pos < input.length() && "{}[],:\" \t\r\n".indexOf(input.charAt(pos)) < 0) {
+			pos++;
+		}
+		String text = input.substring(start, pos);
+		if (text.equals("true") || text.equals("false") || text.equals("null")
+				|| text.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?")) {
+			return new TemplateLiteral(text);
+		}
+		pos = start;
+		throw error("Unexpected value");
+	}
+
+	private void skipWhitespace() {
+		while (pos < input.length()) {
+			char c = input.charAt(pos);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private char peek() {
+		if (pos >= input.length()) {
+			throw error("Unexpected end of template");
+		}
+		return input.charAt(pos);
+	}
+
+	private char next() {
+		char c = peek();
+		pos++;
+		return c;
+	}
+
+	private void expect(char c) {
+		if (next() != c) {
+			pos--;
+			throw error("Expected '" + c + "'");
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at index " + pos + " of template: " + input);
+	}
+
+}
@@ -0,0 +1,51 @@
+package io.jstach.rainbowgum.json.encoder;
+
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEncoder.EncoderProvider;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.LogProviderRef;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider.Configurator;
+import io.jstach.svc.ServiceProvider;
+
+/**
+ * Adds the {@link JsonTemplateEncoder} to encoder registry with
+ * {@value JsonTemplateEncoder#JSON_TEMPLATE_SCHEME} URI scheme.
+ * <p>
+ * The properties are documented on {@link JsonTemplateEncoderBuilder} and can also be
+ * passed as URI query parameters, for example <code>jsontemplate:///?template=...</code>.
+ * The template is compiled when the encoder is created so an invalid template fails
+ * configuration.
+ */
+@ServiceProvider(RainbowGumServiceProvider.class)
+public class JsonTemplateEncoderConfigurator implements Configurator {
+
+	/**
+	 * Default constructor for service loader.
+	 */
+	public JsonTemplateEncoderConfigurator() {
+	}
+
+	@Override
+	public boolean configure(LogConfig config, Pass pass) {
+		config.encoderRegistry()
+			.register(JsonTemplateEncoder.JSON_TEMPLATE_SCHEME, new JsonTemplateEncoderProvider());
+		return true;
+	}
+
+	private static class JsonTemplateEncoderProvider implements EncoderProvider {
+
+		@Override
+		public LogProvider<LogEncoder> provide(LogProviderRef ref) {
+			return (name, c) -> {
+				JsonTemplateEncoderBuilder b = new JsonTemplateEncoderBuilder(name);
+				b.properties(c.properties());
+				b.fromProperties(c.properties(), ref);
+				return b.build();
+			};
+		}
+
+	}
+
+}
@@ -76,6 +76,16 @@ public final class LogbackJsonEncoder extends LogEncoder.AbstractEncoder<JsonBuf
 		return new LogbackJsonEncoder(prettyPrint);
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 	@Override
 	protected JsonBuffer doBuffer(BufferHints hints) {
 		return new JsonBuffer(this.prettyprint, ExtendedFieldPrefix.UNDERSCORE);
@@ -86,6 +96,7 @@ public final class LogbackJsonEncoder extends LogEncoder.AbstractEncoder<JsonBuf
 		buffer.clear();
 		var formattedMessage = buffer.getFormattedMessageBuilder();
 		event.formattedMessage(formattedMessage);
+		int messageEnd = formattedMessage.length();
 		var now = event.timestamp();
 		var t = event.throwableOrNull();
 
@@ -105,7 +116,7 @@ public final class LogbackJsonEncoder extends LogEncoder.AbstractEncoder<JsonBuf
 		buffer.writeObjectEnd();
 		index++;
 
-		index = buffer.write("message", formattedMessage.toString(), index);
+		index = buffer.write("message", formattedMessage, 0, messageEnd, index, 0);
 
 		if (t != null) {
 			index = writeThrowable("throwable", t, buffer, index);
@@ -2,6 +2,7 @@ package io.jstach.rainbowgum.json.encoder;
 
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneRules;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -10,6 +11,7 @@ import io.jstach.rainbowgum.LogEncoder;
 import io.jstach.rainbowgum.LogEvent;
 import io.jstach.rainbowgum.LogFormatter.LevelFormatter;
 import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+import io.jstach.rainbowgum.LogFormatter.TimestampFormatter;
 import io.jstach.rainbowgum.LogProperties;
 import io.jstach.rainbowgum.LogProvider;
 import io.jstach.rainbowgum.annotation.LogConfigurable;
@@ -23,7 +25,8 @@ import io.jstach.rainbowgum.json.JsonBuffer.JSONToken;
  * <a href="https://github.com/logfellow/logstash-logback-encoder">
  * logstash-logback-encoder</a>'s <code>LogstashEncoder</code>.
  * <p>
- * Fields written: <code>@timestamp</code> (<code>ISO_OFFSET_DATE_TIME</code>, using
+ * Fields written: <code>@timestamp</code> (ISO offset date time at millisecond precision
+ * like <code>yyyy-MM-dd'T'HH:mm:ss.SSSXXX</code>, using
  * {@link #zoneId()} - defaulting to the system default zone, matching the reference
  * implementation), <code>@version</code> (constant <code>"1"</code>),
  * <code>message</code>, <code>logger_name</code>, <code>thread_name</code>,
@@ -48,13 +51,22 @@ public final class LogstashEncoder extends LogEncoder.AbstractEncoder<JsonBuffer
 
 	private final boolean prettyprint;
 
-	private final DateTimeFormatter timeFormatter;
+	private final TimestampFormatter timeFormatter;
+
+	private final ZoneRules zoneRules;
 
 	LogstashEncoder(ZoneId zoneId, boolean prettyprint) {
 		super();
 		this.zoneId = zoneId;
 		this.prettyprint = prettyprint;
-		this.timeFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(zoneId);
+		/*
+		 * The offset follows the fraction of second so it cannot be part of the cached
+		 * second. The local time is cached per second and the offset is looked up in the
+		 * zone rules whose ZoneOffset ids are already strings, so neither allocates.
+		 */
+		this.timeFormatter = TimestampFormatter
+			.ofCachedSeconds(DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS").withZone(zoneId), 3);
+		this.zoneRules = zoneId.getRules();
 	}
 
 	/**
@@ -99,6 +111,16 @@ public final class LogstashEncoder extends LogEncoder.AbstractEncoder<JsonBuffer
 		return zoneId == null ? ZoneId.systemDefault() : ZoneId.of(zoneId);
 	}
 
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 	@Override
 	protected JsonBuffer doBuffer(BufferHints hints) {
 		return new JsonBuffer(this.prettyprint, ExtendedFieldPrefix.AT);
@@ -107,25 +129,32 @@ public final class LogstashEncoder extends LogEncoder.AbstractEncoder<JsonBuffer
 	@Override
 	protected void doEncode(LogEvent event, JsonBuffer buffer) {
 		buffer.clear();
+		/*
+		 * The message, timestamp and stack trace are formatted into the one reused
+		 * builder and written as regions of it.
+		 */
 		var formattedMessage = buffer.getFormattedMessageBuilder();
 		event.formattedMessage(formattedMessage);
-		var now = event.timestamp();
+		int messageEnd = formattedMessage.length();
+		var timestamp = event.timestamp();
+		timeFormatter.formatTimestamp(formattedMessage, timestamp);
+		formattedMessage.append(zoneRules.getOffset(timestamp).getId());
+		int timeEnd = formattedMessage.length();
 		var t = event.throwableOrNull();
 
 		buffer.write(JSONToken.OBJECT_START);
 		int index = 0;
-		index = buffer.write("@timestamp", timeFormatter.format(now), index);
+		index = buffer.write("@timestamp", formattedMessage, messageEnd, timeEnd, index, 0);
 		index = buffer.write("@version", "1", index);
-		index = buffer.write("message", formattedMessage.toString(), index);
+		index = buffer.write("message", formattedMessage, 0, messageEnd, index, 0);
 		index = buffer.write("logger_name", event.loggerName(), index);
 		index = buffer.write("thread_name", event.threadName(), index);
 		index = buffer.write("level", LevelFormatter.toString(event.level()), index);
 		index = buffer.writeInt("level_value", levelValue(event.level()), index, 0);
 
 		if (t != null) {
-			var stackTrace = new StringBuilder();
-			ThrowableFormatter.appendThrowable(stackTrace, t);
-			index = buffer.write("stack_trace", stackTrace.toString(), index);
+			ThrowableFormatter.appendThrowable(formattedMessage, t);
+			index = buffer.write("stack_trace", formattedMessage, timeEnd, formattedMessage.length(), index, 0);
 		}
 
 		var kvs = event.keyValues();
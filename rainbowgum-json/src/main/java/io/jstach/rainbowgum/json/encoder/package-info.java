@@ -1,5 +1,6 @@
 /**
- * Common JSON encoders like GELF, ECS, Logstash's, and Logback's own JSON format.
+ * Common JSON encoders like GELF, ECS, Logstash's, and Logback's own JSON format as well as
+ * an encoder of custom JSON layouts.
  * <p>
  * The Service Loaded configurators add:
  * <ul>
@@ -17,6 +18,9 @@
  * <li><a href="https://logback.qos.ch/manual/encoders.html#JsonEncoder">Logback style
  * JSON</a> Encoder to encoder registry with {@value LogbackJsonEncoder#LOGBACK_SCHEME}
  * URI scheme.</li>
+ * <li>Template driven JSON Encoder where the fields are described by a JSON template to
+ * encoder registry with {@value JsonTemplateEncoder#JSON_TEMPLATE_SCHEME} URI
+ * scheme.</li>
  * </ul>
  */
 @org.eclipse.jdt.annotation.NonNullByDefault
@@ -8,6 +8,7 @@
  * @see io.jstach.rainbowgum.json.encoder.EcsEncoder
  * @see io.jstach.rainbowgum.json.encoder.LogstashEncoder
  * @see io.jstach.rainbowgum.json.encoder.LogbackJsonEncoder
+ * @see io.jstach.rainbowgum.json.encoder.JsonTemplateEncoder
  */
 module io.jstach.rainbowgum.json {
 	exports io.jstach.rainbowgum.json;
@@ -22,5 +23,6 @@ module io.jstach.rainbowgum.json {
 		with io.jstach.rainbowgum.json.encoder.GelfEncoderConfigurator,
 			io.jstach.rainbowgum.json.encoder.EcsEncoderConfigurator,
 			io.jstach.rainbowgum.json.encoder.LogstashEncoderConfigurator,
-			io.jstach.rainbowgum.json.encoder.LogbackJsonEncoderConfigurator;
+			io.jstach.rainbowgum.json.encoder.LogbackJsonEncoderConfigurator,
+			io.jstach.rainbowgum.json.encoder.JsonTemplateEncoderConfigurator;
 }
\ No newline at end of file
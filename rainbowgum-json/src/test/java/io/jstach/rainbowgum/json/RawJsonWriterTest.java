@@ -0,0 +1,167 @@
+package io.jstach.rainbowgum.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RawJsonWriterTest {
+
+	@Test
+	void testWriteLong() {
+		long[] values = { 0, 1, -1, 9, 10, 99, 100, 12345, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE,
+				999_999_999_999_999_999L, 1_000_000_000_000_000_000L, Long.MAX_VALUE, Long.MIN_VALUE,
+				Long.MIN_VALUE + 1 };
+		for (long v : values) {
+			var w = new RawJsonWriter(1);
+			w.writeLong(v);
+			assertEquals(Long.toString(v), string(w));
+		}
+	}
+
+	@Test
+	void testWriteInt() {
+		int[] values = { 0, 7, -7, 42, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (int v : values) {
+			var w = new RawJsonWriter(4);
+			w.writeInt(v);
+			assertEquals(Integer.toString(v), string(w));
+		}
+	}
+
+	@Test
+	void testWriteQuotedLong() {
+		var w = new RawJsonWriter(8);
+		w.writeQuotedLong(1234L);
+		assertEquals("\"1234\"", string(w));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "hello", "quote \" backslash \\ tab \t", "new\nline", "\u0001\u001f", "café",
+			"€ euro", "emoji 😀 end", "~tilde\u007f" })
+	void testWriteStringRegionMatchesSubstring(String value) {
+		String prefix = "abc";
+		String suffix = "xyz";
+		var sb = new StringBuilder().append(prefix).append(value).append(suffix);
+
+		var expected = new RawJsonWriter(16);
+		expected.writeString(value);
+
+		var actual = new RawJsonWriter(16);
+		actual.writeString(sb, prefix.length(), prefix.length() + value.length());
+
+		assertEquals(string(expected), string(actual));
+	}
+
+	@Test
+	void testWriteStringRegionDoesNotPairSurrogateOutsideRegion() {
+		String emoji = "😀";
+		var w = new RawJsonWriter(16);
+		/*
+		 * Region ends on the high surrogate so the low surrogate after it is not part of
+		 * the value and the high surrogate is unpaired.
+		 */
+		w.writeString(emoji, 0, 1);
+		assertEquals("\"�\"", string(w));
+	}
+
+	@Test
+	void testWritePrefixedString() {
+		var w = new RawJsonWriter(4);
+		w.writeString((byte) '_', "key\"");
+		assertEquals("\"_key\\\"\"", string(w));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "0123456789abcdef", "0123456789abcdef\"", "\"0123456789abcdef",
+			"01234567\n9abcdef0123456789", "0123456\\89abcdef0123456789", "café café café café café",
+			"0123456789abcde😀0123456789", "0123456\u0000\u001f\u007e\u007f0123456789",
+			"€€€€€€€€€€€€€€€€€€€€" })
+	void testWriteStringSwarMatchesScalar(String value) {
+		assertSwarMatchesScalar(value);
+		assertSwarMatchesScalar(new StringBuilder(value));
+	}
+
+	@Test
+	void testWriteStringSwarMatchesScalarRandom() {
+		/*
+		 * Mostly ASCII with the odd char that needs escaping or encoding so that both the
+		 * 8 char groups and the fall back are hit at every alignment and across the
+		 * scratch chunk boundary.
+		 */
+		char[] alphabet = "abcdefghijklmnopqrstuvwxyz \"\\\n\t\u0001\u007e\u007f\u00e9\u20ac\ud83d\ude00\ud800"
+			.toCharArray();
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			int length = random.nextInt(600);
+			var sb = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				sb.append(random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : (char) ('a' + j % 26));
+			}
+			assertSwarMatchesScalar(sb.toString());
+			assertSwarMatchesScalar(sb);
+		}
+	}
+
+	@Test
+	void testWriteStringSwarSurrogatePairAcrossChunk() {
+		var sb = new StringBuilder();
+		sb.append("a".repeat(255));
+		sb.append("😀");
+		sb.append("b".repeat(20));
+		assertSwarMatchesScalar(sb.toString());
+		var w = new RawJsonWriter(16);
+		w.writeString(sb.toString());
+		assertEquals("\"" + sb + "\"", string(w));
+	}
+
+	@Test
+	void testTrim() {
+		var w = new RawJsonWriter(16);
+		w.writeString("a".repeat(1000));
+		assertTrue(w.ensureCapacity(0).length > 1000);
+		assertTrue(w.trim(64));
+		assertEquals(64, w.ensureCapacity(0).length);
+		assertFalse(w.trim(64));
+		w.writeString("hello");
+		assertEquals("\"hello\"", string(w));
+	}
+
+	@Test
+	void testEscapeMask() {
+		assertEquals(0, RawJsonWriter.escapeMask(word("abcdefgh")));
+		assertEquals(0, RawJsonWriter.escapeMask(word(" ~\u007f!#[]}")));
+		assertEquals(0, Long.numberOfTrailingZeros(RawJsonWriter.escapeMask(word("\"bcdefgh"))) >>> 3);
+		assertEquals(3, Long.numberOfTrailingZeros(RawJsonWriter.escapeMask(word("abc\\efgh"))) >>> 3);
+		assertEquals(7, Long.numberOfTrailingZeros(RawJsonWriter.escapeMask(word("abcdefg\u001f"))) >>> 3);
+		assertEquals(2, Long.numberOfTrailingZeros(RawJsonWriter.escapeMask(word("ab\u0000\"\\\u0000gh"))) >>> 3);
+	}
+
+	private static long word(String eight) {
+		long word = 0;
+		for (int i = 0; i < 8; i++) {
+			word |= (long) eight.charAt(i) << (i << 3);
+		}
+		return word;
+	}
+
+	private static void assertSwarMatchesScalar(CharSequence value) {
+		var expected = new RawJsonWriter(16);
+		expected.writeStringScalar(value, 0, value.length());
+		var actual = new RawJsonWriter(16);
+		actual.writeString(value, 0, value.length());
+		assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	private static String string(RawJsonWriter w) {
+		return new String(w.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
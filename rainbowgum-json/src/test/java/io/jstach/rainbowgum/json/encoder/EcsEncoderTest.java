@@ -100,6 +100,23 @@ class EcsEncoderTest {
 		}
 	}
 
+	@Test
+	void testTimestampIsMilliseconds() {
+		EcsEncoder encoder = new EcsEncoderBuilder("ecs").build();
+		Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "ecs", "hello", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+
+		var buffer = encoder.buffer(WriteMethod.STRING);
+		encoder.encode(e, buffer);
+		ListLogOutput out = new ListLogOutput();
+		buffer.drain(out, e);
+		String actual = out.events().get(0).getValue();
+		assertTrue(actual.startsWith("{\"@timestamp\":\"2023-11-14T22:13:20.123Z\","), "Got: " + actual);
+	}
+
 	@Test
 	void testStructuredSimple() {
 		EcsEncoder encoder = new EcsEncoderBuilder("ecs").structured(true).build();
@@ -0,0 +1,194 @@
+package io.jstach.rainbowgum.json.encoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.System.Logger.Level;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.LogOutput.WriteMethod;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.RainbowGum;
+import io.jstach.rainbowgum.output.ListLogOutput;
+
+class JsonTemplateEncoderTest {
+
+	@Test
+	void testSimpleTemplate() {
+		var encoder = JsonTemplateEncoder.of("""
+				{
+				  "ts": "${timestamp}",
+				  "app": "orders",
+				  "version": 2,
+				  "tags": ["a", "b"],
+				  "lvl": "${level}",
+				  "logger": "${logger}",
+				  "thread": "${thread}",
+				  "tid": "${threadId}",
+				  "msg": "${message}",
+				  "millis": "${epochMillis}"
+				}
+				""");
+		String actual = encode(encoder, event("hello {}", KeyValues.of(), null, "world"));
+		String expected = "{\"ts\":\"1970-01-01T00:00:00.001Z\",\"app\":\"orders\",\"version\":2,"
+				+ "\"tags\":[\"a\",\"b\"],\"lvl\":\"INFO\",\"logger\":\"io.example.Service\","
+				+ "\"thread\":\"main\",\"tid\":1,\"msg\":\"hello world\",\"millis\":1}\n";
+		assertEquals(expected, actual);
+		assertFalse(encoder.requiresCaller());
+		assertTrue(encoder.isStateless());
+	}
+
+	@Test
+	void testOptionalFieldsAreOmitted() {
+		var encoder = JsonTemplateEncoder.of("""
+				{"user":"${mdc:user}","error":"${exception}","msg":"${m}","static":true}
+				""");
+		String actual = encode(encoder, event("hello", KeyValues.of(), null));
+		assertEquals("{\"msg\":\"hello\",\"static\":true}\n", actual);
+
+		var kvs = MutableKeyValues.of().add("user", "agent \"quoted\"");
+		actual = encode(encoder, event("hello", kvs, new RuntimeException("boom")));
+		assertTrue(actual.startsWith("{\"user\":\"agent \\\"quoted\\\"\",\"error\":\"java.lang.RuntimeException: boom"),
+				actual);
+		assertTrue(actual.endsWith("\"msg\":\"hello\",\"static\":true}\n"), actual);
+	}
+
+	@Test
+	void testNestedObjectsAndAllKeyValues() {
+		var encoder = JsonTemplateEncoder.builder().template("""
+				{"log":{"level":"${p}","origin":{"logger":"${c}"}},"labels":"${mdc}","service":{"name":"orders"}}
+				""").build();
+		var kvs = MutableKeyValues.of().add("k1", "v1").add("k\"2", "v2");
+		String actual = encode(encoder, event("hello", kvs, null));
+		String expected = "{\"log\":{\"level\":\"INFO\",\"origin\":{\"logger\":\"io.example.Service\"}},"
+				+ "\"labels\":{\"k1\":\"v1\",\"k\\\"2\":\"v2\"},\"service\":{\"name\":\"orders\"}}\n";
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testDateFormatterPropertyAndCustomFormatter() {
+		var properties = LogProperties.builder().fromProperties("app.name=orders").build();
+		var encoder = JsonTemplateEncoder.builder()
+			.template("""
+					{"date":"${d:yyyy-MM-dd HH:mm}","iso":"${date}","app":"${property:app.name}",
+					"missing":"${property:nope}","upper":"${upper}","literal":"$${message}"}
+					""")
+			.zoneId(ZoneOffset.ofHours(-5))
+			.properties(properties)
+			.formatter("upper", LogFormatter.of((sb, e) -> sb.append(e.loggerName().toUpperCase())))
+			.build();
+		String actual = encode(encoder, event("hello", KeyValues.of(), null));
+		String expected = "{\"date\":\"1969-12-31 19:00\",\"iso\":\"1969-12-31T19:00:00.001-05:00\","
+				+ "\"app\":\"orders\",\"missing\":null,\"upper\":\"IO.EXAMPLE.SERVICE\",\"literal\":\"${message}\"}\n";
+		assertEquals(expected, actual);
+		/*
+		 * A lambda formatter cannot declare itself stateless.
+		 */
+		assertFalse(encoder.isStateless());
+	}
+
+	@Test
+	void testCallerKeywordsRequireCaller() {
+		var encoder = JsonTemplateEncoder.of("""
+				{"class":"${C}","method":"${M}","line":"${L}","msg":"${m}"}
+				""");
+		assertTrue(encoder.requiresCaller());
+		var e = event("hello", KeyValues.of(), null);
+		assertEquals("{\"msg\":\"hello\"}\n", encode(encoder, e));
+		var caller = LogEvent.Caller.ofDepthOrNull(0);
+		if (caller == null) {
+			throw new IllegalStateException();
+		}
+		String actual = encode(encoder, LogEvent.withCaller(e, caller));
+		assertTrue(actual.startsWith("{\"class\":\"" + JsonTemplateEncoderTest.class.getName()
+				+ "\",\"method\":\"testCallerKeywordsRequireCaller\",\"line\":" + caller.lineNumber() + ","), actual);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "[]", "{", "{\"a\":}", "{\"a\":1,}", "{\"a\":\"${nope}\"}", "{\"a\":\"x ${m}\"}",
+			"{\"a\":[\"${m}\"]}", "{\"a\":\"${m:arg}\"}", "{\"a\":1,\"a\":2}", "{\"a\":tru}", "{\"a\":\"${property}\"}",
+			"{} {}" })
+	void testInvalidTemplates(String template) {
+		assertThrows(IllegalArgumentException.class, () -> JsonTemplateEncoder.of(template));
+	}
+
+	@Test
+	void testPlaceholderInsideStringMessage() {
+		var e = assertThrows(IllegalArgumentException.class, () -> JsonTemplateEncoder.of("{\"a\":\"x ${m}\"}"));
+		assertEquals("A template placeholder must be the entire JSON string value: x ${m}", e.getMessage());
+	}
+
+	@Test
+	void testFullLoadUri() throws Exception {
+		String properties = """
+				logging.appenders=list
+				logging.appender.list.output=list:///
+				logging.appender.list.encoder=jsontemplate
+				logging.encoder.list.template={"msg":"${message}","when":"${date:HH:mm:ss}"}
+				logging.encoder.list.zoneId=UTC
+				""";
+		LogConfig config = LogConfig.builder()
+			.properties(LogProperties.builder().fromProperties(properties).build())
+			.configurator(new JsonTemplateEncoderConfigurator())
+			.build();
+		try (var r = RainbowGum.builder(config).build().start()) {
+			Instant instant = Instant.ofEpochMilli(1);
+			r.router()
+				.eventBuilder("template", System.Logger.Level.INFO)
+				.message("hello")
+				.threadId(1)
+				.timestamp(instant)
+				.log();
+			ListLogOutput output = (ListLogOutput) config.outputRegistry().output("list").orElseThrow();
+			String actual = output.events().get(0).getValue();
+			assertEquals("{\"msg\":\"hello\",\"when\":\"00:00:00\"}\n", actual);
+		}
+	}
+
+	@Test
+	void testInvalidTemplateFailsConfiguration() {
+		String properties = """
+				logging.appenders=list
+				logging.appender.list.output=list:///
+				logging.appender.list.encoder=jsontemplate
+				logging.encoder.list.template={"msg":"${nope}"}
+				""";
+		LogConfig config = LogConfig.builder()
+			.properties(LogProperties.builder().fromProperties(properties).build())
+			.configurator(new JsonTemplateEncoderConfigurator())
+			.build();
+		var e = assertThrows(RuntimeException.class, () -> RainbowGum.builder(config).build().start());
+		assertTrue(String.valueOf(e.getMessage()).contains("Unknown template keyword: nope"), e.getMessage());
+	}
+
+	private static LogEvent event(String message, KeyValues kvs, @Nullable Throwable t, Object... args) {
+		Instant instant = Instant.ofEpochMilli(1);
+		return LogEvent.ofAll(instant, "main", 1L, Level.INFO, "io.example.Service", message, kvs, t,
+				StandardMessageFormatter.SLF4J, List.of(args));
+	}
+
+	private static String encode(LogEncoder encoder, LogEvent e) {
+		var buffer = encoder.buffer(WriteMethod.STRING);
+		encoder.encode(e, buffer);
+		ListLogOutput out = new ListLogOutput();
+		buffer.drain(out, e);
+		return out.events().get(0).getValue();
+	}
+
+}
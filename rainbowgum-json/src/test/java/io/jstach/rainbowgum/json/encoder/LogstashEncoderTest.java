@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.System.Logger.Level;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.List;
 
@@ -60,6 +61,33 @@ class LogstashEncoderTest {
 		assertTrue(actual.contains("\"@timestamp\":\"1969-12-31T19:00:00.001-05:00\""), "Got: " + actual);
 	}
 
+	/*
+	 * The offset is looked up per event rather than cached with the second so it has to
+	 * follow daylight saving time.
+	 */
+	@Test
+	void testZoneIdDaylightSavingOffset() {
+		var encoder = new LogstashEncoderBuilder("logstash").zoneId(ZoneId.of("America/New_York")).build();
+		Instant winter = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+		Instant summer = Instant.ofEpochSecond(1_689_372_800L, 123_456_789);
+		assertEquals("2023-11-14T17:13:20.123-05:00", timestamp(encoder, winter));
+		assertEquals("2023-07-14T18:13:20.123-04:00", timestamp(encoder, summer));
+	}
+
+	private static String timestamp(LogstashEncoder encoder, Instant instant) {
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "logstash", "hello", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		var buffer = encoder.buffer(WriteMethod.STRING);
+		encoder.encode(e, buffer);
+		ListLogOutput out = new ListLogOutput();
+		buffer.drain(out, e);
+		String actual = out.events().get(0).getValue();
+		int start = actual.indexOf("\"@timestamp\":\"") + 14;
+		return actual.substring(start, actual.indexOf('"', start));
+	}
+
 	/*
 	 * zoneId is an @Nullable (optional) property, so a malformed value goes through
 	 * Validator.addIfError() rather than add() - a branch that, until now, no test
@@ -0,0 +1,67 @@
+package io.jstach.rainbowgum.msgpack;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.LogEncoder.Buffer;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+
+/**
+ * Buffer of {@link BinaryLogEncoder}. It holds the encoded arguments, throwable and key
+ * values of an event until drained to an output.
+ */
+public final class BinaryLogBuffer implements Buffer {
+
+	final MessagePackBuffer tail = new MessagePackBuffer(256);
+
+	final StringBuilder scratch = new StringBuilder();
+
+	/*
+	 * Only used when the output is not a BinaryLogOutput in which case every record
+	 * carries its own dictionary.
+	 */
+	private @Nullable BinaryLogWriter selfContained;
+
+	private @Nullable MessagePackBuffer record;
+
+	BinaryLogBuffer() {
+	}
+
+	@Override
+	public void drain(LogOutput output, LogEvent event) {
+		if (output instanceof BinaryLogOutput b) {
+			b.writeRecord(event, tail);
+		}
+		else {
+			var w = selfContained;
+			var r = record;
+			if (w == null || r == null) {
+				w = selfContained = new BinaryLogWriter();
+				r = record = new MessagePackBuffer();
+			}
+			w.reset();
+			r.clear();
+			w.write(event, tail, r);
+			r.drain(output, event);
+		}
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		tail.clear();
+		scratch.setLength(0);
+	}
+
+	@Override
+	public boolean trim(int retainedCapacity) {
+		boolean trimmed = tail.trim(retainedCapacity);
+		trimmed = Buffer.trim(scratch, retainedCapacity) || trimmed;
+		var r = record;
+		if (r != null) {
+			trimmed = r.trim(retainedCapacity) || trimmed;
+		}
+		return trimmed;
+	}
+
+}
@@ -0,0 +1,117 @@
+package io.jstach.rainbowgum.msgpack;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+
+/**
+ * Encodes events into a compact binary log where the message is not formatted. Instead
+ * the message template and raw arguments are stored and the logger name, thread name and
+ * template are written once and then referred to by an id. Messages of events without
+ * arguments are written inline. Text is only rendered later with {@link BinaryLogReader}.
+ * <p>
+ * Interning needs to know what has already been written to the file so the encoder is
+ * meant to be paired with {@link BinaryLogOutput} (the {@value BinaryLogOutput#BINLOG_SCHEME}
+ * output scheme). With any other output every record is written self contained which is
+ * still readable but larger.
+ * <p>
+ * Arguments that are strings, integers, doubles, booleans or null are stored as is. Any
+ * other argument is converted to a string at log time as the object may change later.
+ * Events that were frozen before reaching the encoder (for example by some async
+ * publishers) have already been formatted and are stored inline without arguments.
+ *
+ * @see BinaryLogReader
+ */
+public final class BinaryLogEncoder extends LogEncoder.AbstractEncoder<BinaryLogBuffer> {
+
+	/**
+	 * Binary log encoder URI scheme.
+	 */
+	public static final String BINLOG_SCHEME = "binlog";
+
+	private static final BinaryLogEncoder INSTANCE = new BinaryLogEncoder();
+
+	private BinaryLogEncoder() {
+	}
+
+	/**
+	 * Gets the encoder which has no configuration.
+	 * @return encoder.
+	 */
+	public static BinaryLogEncoder of() {
+		return INSTANCE;
+	}
+
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
+	@Override
+	protected BinaryLogBuffer doBuffer(BufferHints hints) {
+		return new BinaryLogBuffer();
+	}
+
+	/*
+	 * Only the parts that are not interned are encoded here: arguments, throwable and
+	 * key values. The output adds the interned ids because only it knows what has been
+	 * written to the file.
+	 */
+	@Override
+	protected void doEncode(LogEvent event, BinaryLogBuffer buffer) {
+		buffer.clear();
+		var tail = buffer.tail;
+		var sb = buffer.scratch;
+		int count = event.argCount();
+		tail.writeArrayHeader(count);
+		for (int i = 0; i < count; i++) {
+			writeArg(tail, event.arg(i), sb);
+		}
+		var t = event.throwableOrNull();
+		if (t == null) {
+			tail.writeNil();
+		}
+		else {
+			sb.setLength(0);
+			ThrowableFormatter.appendThrowable(sb, t);
+			tail.writeString(sb, 0, sb.length());
+		}
+		tail.writeKeyValues(event.keyValues());
+	}
+
+	private static void writeArg(MessagePackBuffer tail, @Nullable Object arg, StringBuilder sb) {
+		if (arg == null) {
+			tail.writeNil();
+		}
+		else if (arg instanceof String s) {
+			tail.writeString(s);
+		}
+		else if (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) {
+			tail.writeLong(((Number) arg).longValue());
+		}
+		else if (arg instanceof Double d) {
+			tail.writeDouble(d);
+		}
+		else if (arg instanceof Boolean b) {
+			tail.writeBoolean(b);
+		}
+		else {
+			/*
+			 * Rendered the same way a lone SLF4J placeholder would render it which also
+			 * takes care of arrays.
+			 */
+			sb.setLength(0);
+			StandardMessageFormatter.SLF4J.format(sb, "{}", arg);
+			tail.writeString(sb, 0, sb.length());
+		}
+	}
+
+}
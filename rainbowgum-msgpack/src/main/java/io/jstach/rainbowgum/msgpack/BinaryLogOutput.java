@@ -0,0 +1,224 @@
+package io.jstach.rainbowgum.msgpack;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEncoder.BufferHints;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.LogProviderRef;
+import io.jstach.rainbowgum.LogResponse;
+import io.jstach.rainbowgum.output.FileOutput;
+
+/**
+ * Writes {@link BinaryLogEncoder} records to another output, usually a file, and keeps
+ * the dictionary of interned logger names, thread names and message templates for that
+ * output. Timestamps are written as the difference from the previous record.
+ * <p>
+ * The URI <code>binlog:///path/to/app.binlog</code> is a {@link FileOutput} of the same
+ * path and query. The dictionary is reset with a header record when the output is
+ * reopened (for example after rotation) or grows past {@value #MAX_DICTIONARY_SIZE}
+ * entries so that every file can be read on its own.
+ *
+ * @see BinaryLogReader
+ */
+public final class BinaryLogOutput implements LogOutput {
+
+	/**
+	 * Binary log file output URI scheme.
+	 */
+	public static final String BINLOG_SCHEME = "binlog";
+
+	/**
+	 * Maximum number of interned strings before the dictionary is reset.
+	 */
+	public static final int MAX_DICTIONARY_SIZE = 64 * 1024;
+
+	private final LogOutput output;
+
+	private final BinaryLogWriter writer = new BinaryLogWriter();
+
+	private final MessagePackBuffer record = new MessagePackBuffer();
+
+	private BinaryLogOutput(LogOutput output) {
+		this.output = output;
+	}
+
+	/**
+	 * Creates a binary log output that writes records to the given output.
+	 * @param output usually a file output.
+	 * @return binary log output.
+	 */
+	public static BinaryLogOutput of(LogOutput output) {
+		return new BinaryLogOutput(output);
+	}
+
+	/**
+	 * Create output from provider ref. This is mostly an internal call.
+	 * @param ref binlog provider ref.
+	 * @return provider.
+	 */
+	public static LogProvider<LogOutput> of(LogProviderRef ref) {
+		var uri = ref.uri();
+		String s = uri.toString();
+		var fileUri = URI.create(FILE_SCHEME + s.substring(BINLOG_SCHEME.length()));
+		var file = FileOutput.of(LogProviderRef.of(fileUri, ref.keyOrNull()));
+		return (name, config) -> of(file.provide(name, config));
+	}
+
+	/**
+	 * Writes the record of the event with the arguments, throwable and key values already
+	 * encoded.
+	 */
+	void writeRecord(LogEvent event, MessagePackBuffer tail) {
+		var r = record;
+		r.clear();
+		writer.write(event, tail, r);
+		r.drain(output, event);
+	}
+
+	@Override
+	public void start(LogConfig config) {
+		output.start(config);
+	}
+
+	@Override
+	public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+		output.write(event, bytes, off, len, contentType);
+	}
+
+	@Override
+	public void flush() {
+		output.flush();
+	}
+
+	@Override
+	public LogResponse.Status reopen() {
+		var status = output.reopen();
+		writer.reset();
+		return status;
+	}
+
+	@Override
+	public LogResponse.Status status() throws Exception {
+		return output.status();
+	}
+
+	@Override
+	public URI uri() throws UnsupportedOperationException {
+		return output.uri();
+	}
+
+	@Override
+	public OutputType type() {
+		return output.type();
+	}
+
+	@Override
+	public BufferHints bufferHints() {
+		return output.bufferHints();
+	}
+
+	@Override
+	public void close() {
+		output.close();
+	}
+
+	@Override
+	public String toString() {
+		return "BinaryLogOutput[" + output + "]";
+	}
+
+}
+
+/*
+ * Record layout. Every record is a MessagePack array whose first element is the type:
+ *
+ * [HEADER, version] resets the dictionary and the previous timestamp.
+ * [DEFINE, id, string] adds a dictionary entry.
+ * [EVENT, timestampDelta, level, loggerId, threadNameId, threadId, templateIdOrMessage,
+ * args, throwable, keyValues]
+ *
+ * Only templates of events with arguments are interned. Messages without arguments,
+ * including frozen events whose message is already formatted, are written inline as a
+ * string since they are often unique and would only fill the dictionary.
+ */
+final class BinaryLogWriter {
+
+	static final int HEADER = 0;
+
+	static final int DEFINE = 1;
+
+	static final int EVENT = 2;
+
+	static final int VERSION = 1;
+
+	static final int EVENT_FIELDS = 10;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+
+	private boolean started;
+
+	private long lastNanos;
+
+	void reset() {
+		started = false;
+	}
+
+	void write(LogEvent event, MessagePackBuffer tail, MessagePackBuffer out) {
+		/*
+		 * Three entries may be added per event.
+		 */
+		if (!started || dictionary.size() > BinaryLogOutput.MAX_DICTIONARY_SIZE - 3) {
+			dictionary.clear();
+			lastNanos = 0;
+			started = true;
+			out.writeArrayHeader(2);
+			out.writeLong(HEADER);
+			out.writeLong(VERSION);
+		}
+		int logger = id(event.loggerName(), out);
+		int threadName = id(event.threadName(), out);
+		boolean interned = event.argCount() > 0;
+		int template = interned ? id(event.message(), out) : -1;
+		long nanos = epochNanos(event.timestamp());
+		out.writeArrayHeader(EVENT_FIELDS);
+		out.writeLong(EVENT);
+		out.writeLong(nanos - lastNanos);
+		lastNanos = nanos;
+		out.writeLong(event.level().ordinal());
+		out.writeLong(logger);
+		out.writeLong(threadName);
+		out.writeLong(event.threadId());
+		if (interned) {
+			out.writeLong(template);
+		}
+		else {
+			out.writeString(event.message());
+		}
+		tail.writeTo(out);
+	}
+
+	private int id(String value, MessagePackBuffer out) {
+		Integer id = dictionary.get(value);
+		if (id != null) {
+			return id;
+		}
+		int newId = dictionary.size();
+		dictionary.put(value, newId);
+		out.writeArrayHeader(3);
+		out.writeLong(DEFINE);
+		out.writeLong(newId);
+		out.writeString(value);
+		return newId;
+	}
+
+	static long epochNanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+
+}
@@ -0,0 +1,431 @@
+package io.jstach.rainbowgum.msgpack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter;
+import io.jstach.rainbowgum.LogMessageFormatter;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.format.StandardEventFormatter;
+import io.jstach.rainbowgum.pattern.format.PatternCompiler;
+
+/**
+ * Reads a binary log written by {@link BinaryLogEncoder} and turns the records back into
+ * {@link LogEvent}s so they can be rendered with any {@link LogFormatter} such as one
+ * compiled from a pattern.
+ *
+ * <pre class="language-java">
+ * <code>
+ * try (var reader = BinaryLogReader.of(Path.of("app.binlog"))) {
+ *     var sb = new StringBuilder();
+ *     while (reader.hasNext()) {
+ *         formatter.format(sb, reader.next().toEvent());
+ *     }
+ * }
+ * </code>
+ * </pre>
+ *
+ * Files and streams are read in chunks so the whole log is never held in memory.
+ *
+ * It can also be run from the command line which prints the records with the default
+ * TTLL format or with a logback style pattern if given which requires the
+ * <code>rainbowgum-pattern</code> module:
+ *
+ * <pre>
+ * java io.jstach.rainbowgum.msgpack.BinaryLogReader app.binlog
+ * java io.jstach.rainbowgum.msgpack.BinaryLogReader app.binlog "%d %-5level [%t] %logger - %msg%n"
+ * </pre>
+ */
+public final class BinaryLogReader implements Closeable {
+
+	private static final Level[] LEVELS = Level.values();
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final MessagePackDecoder decoder;
+
+	private final @Nullable InputStream in;
+
+	/*
+	 * Only used when reading a stream. A record that does not fit is read again after
+	 * the buffer is refilled (and grown if the record is larger than the buffer).
+	 */
+	private byte[] buffer;
+
+	private int limit;
+
+	private final List<String> dictionary = new ArrayList<>();
+
+	private long lastNanos;
+
+	private @Nullable Record next;
+
+	/**
+	 * Creates a reader of binary log bytes.
+	 * @param bytes binary log.
+	 */
+	public BinaryLogReader(byte[] bytes) {
+		this.decoder = new MessagePackDecoder(bytes);
+		this.in = null;
+		this.buffer = bytes;
+		this.limit = bytes.length;
+	}
+
+	private BinaryLogReader(InputStream in) {
+		this.buffer = new byte[CHUNK_SIZE];
+		this.decoder = new MessagePackDecoder(buffer, 0, 0);
+		this.in = in;
+		this.limit = 0;
+	}
+
+	/**
+	 * Creates a reader of a binary log file which should be closed when done.
+	 * @param path binary log file.
+	 * @return reader.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static BinaryLogReader of(Path path) throws IOException {
+		return of(Files.newInputStream(path));
+	}
+
+	/**
+	 * Creates a reader of a binary log stream. Closing the reader closes the stream.
+	 * @param in binary log.
+	 * @return reader.
+	 */
+	public static BinaryLogReader of(InputStream in) {
+		return new BinaryLogReader(in);
+	}
+
+	/**
+	 * Reads all records.
+	 * @param bytes binary log.
+	 * @return records in the order written.
+	 * @throws IllegalArgumentException if the bytes are not a binary log.
+	 */
+	public static List<Record> read(byte[] bytes) {
+		var reader = new BinaryLogReader(bytes);
+		List<Record> records = new ArrayList<>();
+		while (reader.hasNext()) {
+			records.add(reader.next());
+		}
+		return records;
+	}
+
+	/**
+	 * Whether there is another event record.
+	 * @return true if {@link #next()} will return a record.
+	 * @throws IllegalArgumentException if the bytes are not a binary log.
+	 * @throws UncheckedIOException if the stream cannot be read.
+	 */
+	public boolean hasNext() {
+		if (next == null) {
+			next = advance();
+		}
+		return next != null;
+	}
+
+	/**
+	 * Reads the next event record.
+	 * @return record.
+	 * @throws NoSuchElementException if there are no more records.
+	 * @throws IllegalArgumentException if the bytes are not a binary log.
+	 * @throws UncheckedIOException if the stream cannot be read.
+	 */
+	public Record next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		var r = next;
+		next = null;
+		return r;
+	}
+
+	private @Nullable Record advance() {
+		while (true) {
+			if (!decoder.hasNext() && !fill(decoder.position())) {
+				return null;
+			}
+			int start = decoder.position();
+			try {
+				var r = readRecord();
+				if (r != null) {
+					return r;
+				}
+			}
+			catch (MessagePackDecoder.EndOfInput e) {
+				if (!fill(start)) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Moves the unread bytes from start to the front of the buffer and reads more after
+	 * them. The decoder is positioned at the start again.
+	 */
+	private boolean fill(int start) {
+		var in = this.in;
+		if (in == null) {
+			return false;
+		}
+		int remaining = limit - start;
+		byte[] b = buffer;
+		if (remaining == b.length) {
+			b = Arrays.copyOf(b, b.length << 1);
+		}
+		System.arraycopy(buffer, start, b, 0, remaining);
+		buffer = b;
+		int n;
+		try {
+			n = in.read(b, remaining, b.length - remaining);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		limit = remaining + Math.max(n, 0);
+		decoder.reset(b, 0, limit);
+		return n > 0;
+	}
+
+	/*
+	 * Returns null for records that are not events. The reader state is only changed once
+	 * the record has been read completely so that it can be read again after a refill.
+	 */
+	private @Nullable Record readRecord() {
+		int fields = decoder.readArrayHeader();
+		int type = (int) decoder.readLong();
+		switch (type) {
+			case BinaryLogWriter.HEADER -> {
+				long version = decoder.readLong();
+				if (version != BinaryLogWriter.VERSION) {
+					throw new IllegalArgumentException("Unsupported binary log version: " + version);
+				}
+				dictionary.clear();
+				lastNanos = 0;
+			}
+			case BinaryLogWriter.DEFINE -> {
+				int id = (int) decoder.readLong();
+				String value = decoder.requireString();
+				if (id == dictionary.size()) {
+					dictionary.add(value);
+				}
+				else if (id < dictionary.size()) {
+					dictionary.set(id, value);
+				}
+				else {
+					throw new IllegalArgumentException("Dictionary id out of order: " + id);
+				}
+			}
+			case BinaryLogWriter.EVENT -> {
+				if (fields < BinaryLogWriter.EVENT_FIELDS) {
+					throw new IllegalArgumentException("Expected " + BinaryLogWriter.EVENT_FIELDS
+							+ " event fields but was " + fields);
+				}
+				return readEvent(fields);
+			}
+			default -> throw new IllegalArgumentException("Unknown record type: " + type);
+		}
+		return null;
+	}
+
+	private Record readEvent(int fields) {
+		long nanos = lastNanos + decoder.readLong();
+		int level = (int) decoder.readLong();
+		if (level < 0 || level >= LEVELS.length) {
+			throw new IllegalArgumentException("Bad level ordinal: " + level);
+		}
+		String loggerName = lookup(decoder.readLong());
+		String threadName = lookup(decoder.readLong());
+		long threadId = decoder.readLong();
+		String template = switch (decoder.readValue()) {
+			case Long id -> lookup(id);
+			case String message -> message;
+			case null, default -> throw new IllegalArgumentException("Expected template id or message");
+		};
+		int argCount = decoder.readArrayHeader();
+		List<@Nullable Object> args = new ArrayList<>(argCount);
+		for (int i = 0; i < argCount; i++) {
+			args.add(decoder.readValue());
+		}
+		@Nullable
+		String throwable = decoder.readString();
+		Map<String, @Nullable String> keyValues = new LinkedHashMap<>();
+		int size = decoder.readMapHeader();
+		for (int i = 0; i < size; i++) {
+			keyValues.put(decoder.requireString(), decoder.readString());
+		}
+		for (int i = BinaryLogWriter.EVENT_FIELDS; i < fields; i++) {
+			decoder.readValue();
+		}
+		lastNanos = nanos;
+		Instant timestamp = Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+				Math.floorMod(nanos, 1_000_000_000L));
+		return new Record(timestamp, LEVELS[level], loggerName, threadName, threadId, template,
+				Collections.unmodifiableList(args), throwable, Collections.unmodifiableMap(keyValues));
+	}
+
+	private String lookup(long id) {
+		if (id < 0 || id >= dictionary.size()) {
+			throw new IllegalArgumentException("Undefined dictionary id: " + id);
+		}
+		return dictionary.get((int) id);
+	}
+
+	/**
+	 * Closes the stream being read if any.
+	 * @throws IOException if the stream fails to close.
+	 */
+	@Override
+	public void close() throws IOException {
+		var in = this.in;
+		if (in != null) {
+			in.close();
+		}
+	}
+
+	/**
+	 * A binary log event record.
+	 *
+	 * @param timestamp timestamp with nanosecond precision.
+	 * @param level level.
+	 * @param loggerName logger name.
+	 * @param threadName thread name.
+	 * @param threadId thread id.
+	 * @param template unformatted message.
+	 * @param args raw message arguments which are null, Boolean, Long, Double or String.
+	 * @param throwable throwable and stack trace or null.
+	 * @param keyValues key values in the order they were written.
+	 */
+	public record Record(Instant timestamp, Level level, String loggerName, String threadName, long threadId,
+			String template, List<@Nullable Object> args, @Nullable String throwable,
+			Map<String, @Nullable String> keyValues) {
+
+		/**
+		 * Creates an event that formats the message with SLF4J style placeholders.
+		 * @return event.
+		 */
+		public LogEvent toEvent() {
+			return toEvent(StandardMessageFormatter.SLF4J);
+		}
+
+		/**
+		 * Creates an event that formats the message with the given message formatter
+		 * which should be the one used when the event was logged.
+		 * @param messageFormatter message formatter.
+		 * @return event.
+		 */
+		public LogEvent toEvent(LogMessageFormatter messageFormatter) {
+			KeyValues kvs;
+			if (keyValues.isEmpty()) {
+				kvs = KeyValues.of();
+			}
+			else {
+				var m = MutableKeyValues.of(keyValues.size());
+				keyValues.forEach(m::putKeyValue);
+				kvs = m;
+			}
+			var t = throwable;
+			return LogEvent.ofAll(timestamp, threadName, threadId, level, loggerName, template, kvs,
+					t == null ? null : new RecordedThrowable(t), messageFormatter,
+					args.isEmpty() ? null : args.toArray());
+		}
+
+		/**
+		 * Formats the event with the formatter.
+		 * @param formatter for example a pattern formatter.
+		 * @return formatted event.
+		 */
+		public String format(LogFormatter formatter) {
+			var sb = new StringBuilder();
+			formatter.format(sb, toEvent());
+			return sb.toString();
+		}
+
+	}
+
+	/**
+	 * Prints a binary log file as text.
+	 * @param args the binary log file and optionally a pattern.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: BinaryLogReader <binlog file> [pattern]");
+			System.exit(2);
+		}
+		LogFormatter formatter = args.length == 2 ? compile(args[1]) : StandardEventFormatter.builder().build();
+		var out = System.out;
+		var sb = new StringBuilder();
+		try (var reader = BinaryLogReader.of(Path.of(args[0]))) {
+			while (reader.hasNext()) {
+				sb.setLength(0);
+				formatter.format(sb, reader.next().toEvent());
+				out.append(sb);
+			}
+		}
+		out.flush();
+	}
+
+	/*
+	 * Kept apart so the pattern module is only needed when a pattern is given.
+	 */
+	private static LogFormatter compile(String pattern) {
+		return PatternCompiler.builder().build().compile(pattern);
+	}
+
+}
+
+/*
+ * Stands in for the original throwable so that throwable formatters that print the
+ * stack trace print the recorded one.
+ */
+@SuppressWarnings("serial")
+final class RecordedThrowable extends RuntimeException {
+
+	private final String stackTrace;
+
+	RecordedThrowable(String stackTrace) {
+		super(null, null, false, false);
+		this.stackTrace = stackTrace;
+	}
+
+	@Override
+	public String toString() {
+		int index = stackTrace.indexOf('\n');
+		String first = index < 0 ? stackTrace : stackTrace.substring(0, index);
+		return first.strip();
+	}
+
+	@Override
+	public void printStackTrace(PrintWriter s) {
+		s.print(stackTrace);
+	}
+
+	@Override
+	public void printStackTrace(PrintStream s) {
+		s.print(stackTrace);
+	}
+
+}
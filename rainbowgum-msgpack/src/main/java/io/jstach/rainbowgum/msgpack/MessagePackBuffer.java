@@ -0,0 +1,412 @@
+package io.jstach.rainbowgum.msgpack;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.KeyValuesConsumer;
+import io.jstach.rainbowgum.LogEncoder.Buffer;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogOutput.ContentType.StandardContentType;
+
+/**
+ * A reusable buffer that writes <a href=
+ * "https://github.com/msgpack/msgpack/blob/master/spec.md">MessagePack</a> values into a
+ * growable byte array. Values are always written with the smallest format that can hold
+ * them.
+ */
+public final class MessagePackBuffer implements Buffer {
+
+	private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	/*
+	 * The map header is written after its entries are counted. We reserve the largest
+	 * header and shift the entries back if a smaller one fits.
+	 */
+	private static final int MAP32_HEADER_SIZE = 5;
+
+	private byte[] buf;
+
+	private int count;
+
+	private final StringBuilder formattedMessageBuilder = new StringBuilder();
+
+	/**
+	 * Creates a buffer.
+	 */
+	public MessagePackBuffer() {
+		this(1024);
+	}
+
+	MessagePackBuffer(int capacity) {
+		this.buf = new byte[Math.max(16, capacity)];
+	}
+
+	@Override
+	public void drain(LogOutput output, LogEvent event) {
+		output.write(event, buf, 0, count, StandardContentType.APPLICATION_MSGPACK);
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		count = 0;
+		formattedMessageBuilder.setLength(0);
+	}
+
+	@Override
+	public boolean trim(int retainedCapacity) {
+		count = 0;
+		boolean trimmed = false;
+		if (buf.length > retainedCapacity) {
+			buf = new byte[Math.max(16, retainedCapacity)];
+			trimmed = true;
+		}
+		return Buffer.trim(formattedMessageBuilder, retainedCapacity) || trimmed;
+	}
+
+	/**
+	 * Reusable String buffer for formatted messages.
+	 * @return buffer.
+	 */
+	public StringBuilder formattedMessageBuilder() {
+		return this.formattedMessageBuilder;
+	}
+
+	/**
+	 * Number of bytes written.
+	 * @return size.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Copies the written bytes.
+	 * @return a copy of the written bytes.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+
+	private void ensureCapacity(int extra) {
+		int minCapacity = count + extra;
+		if (minCapacity > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length << 1, minCapacity));
+		}
+	}
+
+	/**
+	 * Writes nil.
+	 */
+	public void writeNil() {
+		ensureCapacity(1);
+		buf[count++] = (byte) 0xc0;
+	}
+
+	/**
+	 * Writes a boolean.
+	 * @param value value.
+	 */
+	public void writeBoolean(boolean value) {
+		ensureCapacity(1);
+		buf[count++] = (byte) (value ? 0xc3 : 0xc2);
+	}
+
+	/**
+	 * Writes an integer using the smallest int or uint format.
+	 * @param value value.
+	 */
+	public void writeLong(long value) {
+		ensureCapacity(9);
+		byte[] b = buf;
+		int c = count;
+		if (value >= 0) {
+			if (value < 128) {
+				b[c++] = (byte) value;
+			}
+			else if (value < 256) {
+				b[c++] = (byte) 0xcc;
+				b[c++] = (byte) value;
+			}
+			else if (value < 65536) {
+				b[c++] = (byte) 0xcd;
+				SHORT_BE.set(b, c, (short) value);
+				c += 2;
+			}
+			else if (value < 4294967296L) {
+				b[c++] = (byte) 0xce;
+				INT_BE.set(b, c, (int) value);
+				c += 4;
+			}
+			else {
+				b[c++] = (byte) 0xcf;
+				LONG_BE.set(b, c, value);
+				c += 8;
+			}
+		}
+		else if (value >= -32) {
+			b[c++] = (byte) value;
+		}
+		else if (value >= Byte.MIN_VALUE) {
+			b[c++] = (byte) 0xd0;
+			b[c++] = (byte) value;
+		}
+		else if (value >= Short.MIN_VALUE) {
+			b[c++] = (byte) 0xd1;
+			SHORT_BE.set(b, c, (short) value);
+			c += 2;
+		}
+		else if (value >= Integer.MIN_VALUE) {
+			b[c++] = (byte) 0xd2;
+			INT_BE.set(b, c, (int) value);
+			c += 4;
+		}
+		else {
+			b[c++] = (byte) 0xd3;
+			LONG_BE.set(b, c, value);
+			c += 8;
+		}
+		count = c;
+	}
+
+	/**
+	 * Writes a 64 bit float.
+	 * @param value value.
+	 */
+	public void writeDouble(double value) {
+		ensureCapacity(9);
+		buf[count++] = (byte) 0xcb;
+		LONG_BE.set(buf, count, Double.doubleToRawLongBits(value));
+		count += 8;
+	}
+
+	/**
+	 * Writes an array header. The next <code>size</code> values are the array elements.
+	 * @param size number of elements.
+	 */
+	public void writeArrayHeader(int size) {
+		ensureCapacity(5);
+		if (size < 16) {
+			buf[count++] = (byte) (0x90 | size);
+		}
+		else if (size < 65536) {
+			buf[count++] = (byte) 0xdc;
+			SHORT_BE.set(buf, count, (short) size);
+			count += 2;
+		}
+		else {
+			buf[count++] = (byte) 0xdd;
+			INT_BE.set(buf, count, size);
+			count += 4;
+		}
+	}
+
+	/**
+	 * Writes a map header. The next <code>size</code> pairs of values are the keys and
+	 * values.
+	 * @param size number of entries.
+	 */
+	public void writeMapHeader(int size) {
+		ensureCapacity(5);
+		count = mapHeader(buf, count, size);
+	}
+
+	private static int mapHeader(byte[] b, int c, int size) {
+		if (size < 16) {
+			b[c++] = (byte) (0x80 | size);
+		}
+		else if (size < 65536) {
+			b[c++] = (byte) 0xde;
+			SHORT_BE.set(b, c, (short) size);
+			c += 2;
+		}
+		else {
+			b[c++] = (byte) 0xdf;
+			INT_BE.set(b, c, size);
+			c += 4;
+		}
+		return c;
+	}
+
+	private static int mapHeaderSize(int size) {
+		return size < 16 ? 1 : size < 65536 ? 3 : 5;
+	}
+
+	/**
+	 * Writes a string or nil if <code>null</code>.
+	 * @param value string.
+	 */
+	public void writeString(@Nullable CharSequence value) {
+		if (value == null) {
+			writeNil();
+			return;
+		}
+		writeString(value, 0, value.length());
+	}
+
+	/**
+	 * Writes the region of a char sequence as a UTF-8 string. Unpaired surrogates are
+	 * replaced with <code>?</code> like {@link String#getBytes(java.nio.charset.Charset)}.
+	 * @param value chars.
+	 * @param start inclusive.
+	 * @param end exclusive.
+	 */
+	public void writeString(CharSequence value, int start, int end) {
+		/*
+		 * The header needs the byte length up front. Most log text is ASCII so the
+		 * counting pass is usually just a compare per char and then the copy is a
+		 * narrowing loop. Equal char and byte counts do not imply ASCII because an
+		 * unpaired surrogate is one char and one replacement byte.
+		 */
+		int length = end - start;
+		int i = start;
+		while (i < end && value.charAt(i) < 0x80) {
+			i++;
+		}
+		boolean ascii = i == end;
+		if (!ascii) {
+			length = (i - start) + utf8Length(value, i, end);
+		}
+		ensureCapacity(length + 5);
+		byte[] b = buf;
+		int c = count;
+		if (length < 32) {
+			b[c++] = (byte) (0xa0 | length);
+		}
+		else if (length < 256) {
+			b[c++] = (byte) 0xd9;
+			b[c++] = (byte) length;
+		}
+		else if (length < 65536) {
+			b[c++] = (byte) 0xda;
+			SHORT_BE.set(b, c, (short) length);
+			c += 2;
+		}
+		else {
+			b[c++] = (byte) 0xdb;
+			INT_BE.set(b, c, length);
+			c += 4;
+		}
+		if (ascii) {
+			for (int j = start; j < end; j++) {
+				b[c++] = (byte) value.charAt(j);
+			}
+		}
+		else {
+			c = encodeUtf8(value, start, end, b, c);
+		}
+		count = c;
+	}
+
+	static int utf8Length(CharSequence value, int start, int end) {
+		int length = end - start;
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if (ch >= 0x80) {
+				if (ch < 0x800) {
+					length += 1;
+				}
+				else if (Character.isHighSurrogate(ch) && i + 1 < end
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					/*
+					 * 2 chars become 4 bytes.
+					 */
+					length += 2;
+					i++;
+				}
+				else if (Character.isSurrogate(ch)) {
+					/*
+					 * Unpaired surrogate is replaced with '?'.
+					 */
+				}
+				else {
+					length += 2;
+				}
+			}
+		}
+		return length;
+	}
+
+	private static int encodeUtf8(CharSequence value, int start, int end, byte[] b, int c) {
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if (ch < 0x80) {
+				b[c++] = (byte) ch;
+			}
+			else if (ch < 0x800) {
+				b[c++] = (byte) (0xc0 | (ch >> 6));
+				b[c++] = (byte) (0x80 | (ch & 0x3f));
+			}
+			else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(ch, value.charAt(++i));
+				b[c++] = (byte) (0xf0 | (cp >> 18));
+				b[c++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				b[c++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				b[c++] = (byte) (0x80 | (cp & 0x3f));
+			}
+			else if (Character.isSurrogate(ch)) {
+				b[c++] = (byte) '?';
+			}
+			else {
+				b[c++] = (byte) (0xe0 | (ch >> 12));
+				b[c++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+				b[c++] = (byte) (0x80 | (ch & 0x3f));
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Writes key values as a map of string to string or nil.
+	 * @param kvs key values.
+	 */
+	public void writeKeyValues(KeyValues kvs) {
+		ensureCapacity(MAP32_HEADER_SIZE);
+		int headerStart = count;
+		count += MAP32_HEADER_SIZE;
+		int entries = kvs.forEach(KeyValueWriter.INSTANCE, 0, this);
+		int headerSize = mapHeaderSize(entries);
+		int entriesStart = headerStart + MAP32_HEADER_SIZE;
+		if (headerSize != MAP32_HEADER_SIZE) {
+			System.arraycopy(buf, entriesStart, buf, headerStart + headerSize, count - entriesStart);
+			count -= MAP32_HEADER_SIZE - headerSize;
+		}
+		mapHeader(buf, headerStart, entries);
+	}
+
+	/**
+	 * Appends what has been written to this buffer to another buffer.
+	 * @param other buffer to append to.
+	 */
+	void writeTo(MessagePackBuffer other) {
+		other.ensureCapacity(count);
+		System.arraycopy(buf, 0, other.buf, other.count, count);
+		other.count += count;
+	}
+
+	private enum KeyValueWriter implements KeyValuesConsumer<MessagePackBuffer> {
+
+		INSTANCE;
+
+		@Override
+		public int accept(KeyValues kvs, String k, @Nullable String v, int index, MessagePackBuffer storage) {
+			storage.writeString(k);
+			storage.writeString(v);
+			return index + 1;
+		}
+
+	}
+
+}
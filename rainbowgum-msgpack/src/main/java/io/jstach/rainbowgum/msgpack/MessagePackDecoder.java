@@ -0,0 +1,390 @@
+package io.jstach.rainbowgum.msgpack;
+
+import java.lang.System.Logger.Level;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Reads events written by {@link MessagePackEncoder} back. It is intended for tests and
+ * tools and only understands the subset of MessagePack the encoders in this module write:
+ * nil, booleans, integers, floats, strings, arrays and maps.
+ *
+ * <pre class="language-java">
+ * <code>
+ * var decoder = new MessagePackDecoder(Files.readAllBytes(path));
+ * while (decoder.hasNext()) {
+ *     var event = decoder.next();
+ * }
+ * </code>
+ * </pre>
+ */
+public final class MessagePackDecoder {
+
+	private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	private static final Level[] LEVELS = Level.values();
+
+	private byte[] bytes;
+
+	private int end;
+
+	private int position;
+
+	/**
+	 * Creates a decoder over all of the bytes.
+	 * @param bytes concatenated encoded events.
+	 */
+	public MessagePackDecoder(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Creates a decoder over a region of bytes.
+	 * @param bytes concatenated encoded events.
+	 * @param offset start of the first event.
+	 * @param length number of bytes.
+	 */
+	public MessagePackDecoder(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * Decodes all the events.
+	 * @param bytes concatenated encoded events.
+	 * @return events in the order they were written.
+	 * @throws IllegalArgumentException if the bytes are not encoded events.
+	 */
+	public static List<Event> decode(byte[] bytes) {
+		var decoder = new MessagePackDecoder(bytes);
+		List<Event> events = new ArrayList<>();
+		while (decoder.hasNext()) {
+			events.add(decoder.next());
+		}
+		return events;
+	}
+
+	/**
+	 * Whether there are more bytes to decode.
+	 * @return true if {@link #next()} can be called.
+	 */
+	public boolean hasNext() {
+		return position < end;
+	}
+
+	/**
+	 * Decodes the next event.
+	 * @return event.
+	 * @throws IllegalArgumentException if the bytes are not an encoded event.
+	 */
+	public Event next() {
+		int fields = readArrayHeader();
+		if (fields < MessagePackEncoder.FIELD_COUNT) {
+			throw new IllegalArgumentException("Expected at least " + MessagePackEncoder.FIELD_COUNT
+					+ " fields but was " + fields + ". position: " + position);
+		}
+		long epochNanos = readLong();
+		int level = (int) readLong();
+		if (level < 0 || level >= LEVELS.length) {
+			throw new IllegalArgumentException("Bad level ordinal: " + level);
+		}
+		String loggerName = requireString();
+		String threadName = requireString();
+		long threadId = readLong();
+		String message = requireString();
+		@Nullable
+		String throwable = readString();
+		Map<String, @Nullable String> keyValues;
+		if (peekNil()) {
+			position++;
+			keyValues = Map.of();
+		}
+		else {
+			int size = readMapHeader();
+			keyValues = new LinkedHashMap<>(Math.max(4, size * 2));
+			for (int i = 0; i < size; i++) {
+				keyValues.put(requireString(), readString());
+			}
+			keyValues = Collections.unmodifiableMap(keyValues);
+		}
+		/*
+		 * Fields added by newer encoders are skipped.
+		 */
+		for (int i = MessagePackEncoder.FIELD_COUNT; i < fields; i++) {
+			skip();
+		}
+		Instant timestamp = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+				Math.floorMod(epochNanos, 1_000_000_000L));
+		return new Event(timestamp, LEVELS[level], loggerName, threadName, threadId, message, throwable,
+				keyValues);
+	}
+
+	/**
+	 * A decoded event.
+	 *
+	 * @param timestamp timestamp with nanosecond precision.
+	 * @param level level.
+	 * @param loggerName logger name.
+	 * @param threadName thread name.
+	 * @param threadId thread id.
+	 * @param message formatted message.
+	 * @param throwable throwable and stack trace or null.
+	 * @param keyValues key values in the order they were written.
+	 */
+	public record Event(Instant timestamp, Level level, String loggerName, String threadName, long threadId,
+			String message, @Nullable String throwable, Map<String, @Nullable String> keyValues) {
+	}
+
+	/*
+	 * Lets a streaming reader refill and parse the record again.
+	 */
+	void reset(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	int position() {
+		return position;
+	}
+
+	private int u8() {
+		if (position >= end) {
+			throw new EndOfInput("Unexpected end of input");
+		}
+		return bytes[position++] & 0xff;
+	}
+
+	private int u16() {
+		require(2);
+		int v = (short) SHORT_BE.get(bytes, position) & 0xffff;
+		position += 2;
+		return v;
+	}
+
+	private long u32() {
+		require(4);
+		long v = (int) INT_BE.get(bytes, position) & 0xffffffffL;
+		position += 4;
+		return v;
+	}
+
+	private long i64() {
+		require(8);
+		long v = (long) LONG_BE.get(bytes, position);
+		position += 8;
+		return v;
+	}
+
+	private void require(int n) {
+		if (end - position < n) {
+			throw new EndOfInput("Unexpected end of input");
+		}
+	}
+
+	private int length(long length) {
+		if (length > end - position) {
+			throw new EndOfInput("Length exceeds input: " + length);
+		}
+		return (int) length;
+	}
+
+	boolean peekNil() {
+		return position < end && (bytes[position] & 0xff) == 0xc0;
+	}
+
+	int readArrayHeader() {
+		int b = u8();
+		if ((b & 0xf0) == 0x90) {
+			return b & 0x0f;
+		}
+		return switch (b) {
+			case 0xdc -> u16();
+			case 0xdd -> length(u32());
+			default -> throw unexpected("array", b);
+		};
+	}
+
+	int readMapHeader() {
+		int b = u8();
+		if ((b & 0xf0) == 0x80) {
+			return b & 0x0f;
+		}
+		return switch (b) {
+			case 0xde -> u16();
+			case 0xdf -> length(u32());
+			default -> throw unexpected("map", b);
+		};
+	}
+
+	long readLong() {
+		int b = u8();
+		if (b < 0x80) {
+			return b;
+		}
+		if (b >= 0xe0) {
+			return (byte) b;
+		}
+		return switch (b) {
+			case 0xcc -> u8();
+			case 0xcd -> u16();
+			case 0xce -> u32();
+			case 0xcf -> i64();
+			case 0xd0 -> (byte) u8();
+			case 0xd1 -> (short) u16();
+			case 0xd2 -> (int) u32();
+			case 0xd3 -> i64();
+			default -> throw unexpected("integer", b);
+		};
+	}
+
+	String requireString() {
+		String s = readString();
+		if (s == null) {
+			throw new IllegalArgumentException("Expected string but was nil. position: " + (position - 1));
+		}
+		return s;
+	}
+
+	@Nullable String readString() {
+		int b = u8();
+		int length;
+		if ((b & 0xe0) == 0xa0) {
+			length = b & 0x1f;
+		}
+		else {
+			length = switch (b) {
+				case 0xc0 -> -1;
+				case 0xd9 -> u8();
+				case 0xda -> u16();
+				case 0xdb -> length(u32());
+				default -> throw unexpected("string", b);
+			};
+		}
+		if (length < 0) {
+			return null;
+		}
+		length = length(length);
+		String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return s;
+	}
+
+	/**
+	 * Reads any supported value.
+	 * @return null, Boolean, Long, Double, String, List or Map.
+	 */
+	@Nullable
+	Object readValue() {
+		require(1);
+		int b = bytes[position] & 0xff;
+		if (b == 0xc0) {
+			position++;
+			return null;
+		}
+		if (b == 0xc2 || b == 0xc3) {
+			position++;
+			return b == 0xc3;
+		}
+		if (b == 0xca) {
+			position++;
+			return (double) Float.intBitsToFloat((int) u32());
+		}
+		if (b == 0xcb) {
+			position++;
+			return Double.longBitsToDouble(i64());
+		}
+		if (b <= 0x7f || b >= 0xe0 || (b >= 0xcc && b <= 0xd3)) {
+			return readLong();
+		}
+		if ((b & 0xe0) == 0xa0 || (b >= 0xd9 && b <= 0xdb)) {
+			return readString();
+		}
+		if ((b & 0xf0) == 0x90 || b == 0xdc || b == 0xdd) {
+			int size = readArrayHeader();
+			List<@Nullable Object> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				list.add(readValue());
+			}
+			return list;
+		}
+		if ((b & 0xf0) == 0x80 || b == 0xde || b == 0xdf) {
+			int size = readMapHeader();
+			Map<@Nullable Object, @Nullable Object> map = new LinkedHashMap<>();
+			for (int i = 0; i < size; i++) {
+				map.put(readValue(), readValue());
+			}
+			return map;
+		}
+		throw unexpected("value", b);
+	}
+
+	private void skip() {
+		require(1);
+		int b = bytes[position] & 0xff;
+		if (b == 0xca || b == 0xcb) {
+			readValue();
+		}
+		else if (b <= 0x7f || b >= 0xe0 || (b >= 0xc0 && b <= 0xc3) || (b >= 0xcc && b <= 0xd3)) {
+			if (b == 0xc0 || b == 0xc2 || b == 0xc3) {
+				position++;
+			}
+			else {
+				readLong();
+			}
+		}
+		else if ((b & 0xe0) == 0xa0 || (b >= 0xd9 && b <= 0xdb)) {
+			readString();
+		}
+		else if ((b & 0xf0) == 0x90 || b == 0xdc || b == 0xdd) {
+			int size = readArrayHeader();
+			for (int i = 0; i < size; i++) {
+				skip();
+			}
+		}
+		else if ((b & 0xf0) == 0x80 || b == 0xde || b == 0xdf) {
+			int size = readMapHeader();
+			for (int i = 0; i < size * 2; i++) {
+				skip();
+			}
+		}
+		else {
+			throw unexpected("value", b);
+		}
+	}
+
+	IllegalArgumentException unexpected(String expected, int b) {
+		return new IllegalArgumentException(
+				"Expected " + expected + " but was 0x" + Integer.toHexString(b) + ". position: " + (position - 1));
+	}
+
+	/*
+	 * The input ended in the middle of a value.
+	 */
+	@SuppressWarnings("serial")
+	static final class EndOfInput extends IllegalArgumentException {
+
+		EndOfInput(String message) {
+			super(message);
+		}
+
+	}
+
+}
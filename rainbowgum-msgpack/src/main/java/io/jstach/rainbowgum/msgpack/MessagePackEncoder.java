@@ -0,0 +1,106 @@
+package io.jstach.rainbowgum.msgpack;
+
+import java.time.Instant;
+
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+
+/**
+ * A binary encoder that writes each event as a
+ * <a href="https://github.com/msgpack/msgpack/blob/master/spec.md">MessagePack</a>
+ * array. Unlike the JSON encoders there are no field names, no escaping and numbers are
+ * written as binary so events are both smaller and cheaper to encode. MessagePack values
+ * are self delimiting so a stream of events is just the concatenated arrays and can be
+ * read back with {@link MessagePackDecoder}.
+ * <p>
+ * Each event is an array of {@value #FIELD_COUNT} elements in this order:
+ * <ol>
+ * <li>timestamp as an integer of nanoseconds since the epoch</li>
+ * <li>level as an integer of {@link java.lang.System.Logger.Level#ordinal()}</li>
+ * <li>logger name as a string</li>
+ * <li>thread name as a string</li>
+ * <li>thread id as an integer</li>
+ * <li>formatted message as a string</li>
+ * <li>throwable with its stack trace as a string or nil</li>
+ * <li>key values as a map of string to string or nil</li>
+ * </ol>
+ * New fields will only ever be appended so readers should ignore extra elements.
+ */
+public final class MessagePackEncoder extends LogEncoder.AbstractEncoder<MessagePackBuffer> {
+
+	/**
+	 * MessagePack encoder URI scheme.
+	 */
+	public static final String MSGPACK_SCHEME = "msgpack";
+
+	/**
+	 * Number of elements in the event array.
+	 */
+	public static final int FIELD_COUNT = 8;
+
+	private static final MessagePackEncoder INSTANCE = new MessagePackEncoder();
+
+	private MessagePackEncoder() {
+	}
+
+	/**
+	 * Gets the encoder which has no configuration.
+	 * @return encoder.
+	 */
+	public static MessagePackEncoder of() {
+		return INSTANCE;
+	}
+
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
+	@Override
+	protected MessagePackBuffer doBuffer(BufferHints hints) {
+		return new MessagePackBuffer();
+	}
+
+	@Override
+	protected void doEncode(LogEvent event, MessagePackBuffer buffer) {
+		buffer.clear();
+		buffer.writeArrayHeader(FIELD_COUNT);
+		buffer.writeLong(epochNanos(event.timestamp()));
+		buffer.writeLong(event.level().ordinal());
+		buffer.writeString(event.loggerName());
+		buffer.writeString(event.threadName());
+		buffer.writeLong(event.threadId());
+		/*
+		 * The formatted message and stack trace share the one reused StringBuilder
+		 * because they are written to the buffer before the next use.
+		 */
+		var sb = buffer.formattedMessageBuilder();
+		event.formattedMessage(sb);
+		buffer.writeString(sb, 0, sb.length());
+		var t = event.throwableOrNull();
+		if (t == null) {
+			buffer.writeNil();
+		}
+		else {
+			sb.setLength(0);
+			ThrowableFormatter.appendThrowable(sb, t);
+			buffer.writeString(sb, 0, sb.length());
+		}
+		sb.setLength(0);
+		buffer.writeKeyValues(event.keyValues());
+	}
+
+	/*
+	 * A long of nanos overflows in 2262 which is far enough away for logs.
+	 */
+	static long epochNanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+
+}
@@ -0,0 +1,34 @@
+package io.jstach.rainbowgum.msgpack;
+
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider.Configurator;
+import io.jstach.svc.ServiceProvider;
+
+/**
+ * Adds <a href="https://msgpack.org">MessagePack</a> Encoder to encoder registry with
+ * {@value MessagePackEncoder#MSGPACK_SCHEME} URI scheme and the binary log encoder and
+ * output with {@value BinaryLogEncoder#BINLOG_SCHEME} URI scheme.
+ */
+@ServiceProvider(RainbowGumServiceProvider.class)
+public class MessagePackEncoderConfigurator implements Configurator {
+
+	/**
+	 * Default constructor for service loader.
+	 */
+	public MessagePackEncoderConfigurator() {
+	}
+
+	@Override
+	public boolean configure(LogConfig config, Pass pass) {
+		config.encoderRegistry()
+			.register(MessagePackEncoder.MSGPACK_SCHEME, ref -> LogProvider.<LogEncoder>of(MessagePackEncoder.of()));
+		config.encoderRegistry()
+			.register(BinaryLogEncoder.BINLOG_SCHEME, ref -> LogProvider.<LogEncoder>of(BinaryLogEncoder.of()));
+		config.outputRegistry().register(BinaryLogOutput.BINLOG_SCHEME, BinaryLogOutput::of);
+		return true;
+	}
+
+}
@@ -0,0 +1,5 @@
+/**
+ * MessagePack binary encoder, buffer and decoder.
+ */
+@org.eclipse.jdt.annotation.NonNullByDefault
+package io.jstach.rainbowgum.msgpack;
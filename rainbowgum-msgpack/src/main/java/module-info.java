@@ -0,0 +1,24 @@
+/**
+ * Provides a binary <a href="https://msgpack.org">MessagePack</a> encoder and a decoder
+ * to read the events back.
+ * This module does not require external MessagePack libraries but instead
+ * provides a zero dependency writer. A compact binary log format that interns repeated
+ * strings and defers message formatting to read time is also provided.
+ * @see io.jstach.rainbowgum.msgpack.MessagePackEncoder
+ * @see io.jstach.rainbowgum.msgpack.MessagePackDecoder
+ * @see io.jstach.rainbowgum.msgpack.BinaryLogEncoder
+ * @see io.jstach.rainbowgum.msgpack.BinaryLogOutput
+ * @see io.jstach.rainbowgum.msgpack.BinaryLogReader
+ */
+module io.jstach.rainbowgum.msgpack {
+	exports io.jstach.rainbowgum.msgpack;
+	requires transitive io.jstach.rainbowgum;
+
+	requires static io.jstach.rainbowgum.annotation;
+	requires static io.jstach.rainbowgum.pattern;
+	requires static io.jstach.svc;
+	requires static org.eclipse.jdt.annotation;
+
+	provides io.jstach.rainbowgum.spi.RainbowGumServiceProvider
+		with io.jstach.rainbowgum.msgpack.MessagePackEncoderConfigurator;
+}
@@ -0,0 +1,343 @@
+package io.jstach.rainbowgum.msgpack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.System.Logger.Level;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogOutput.WriteMethod;
+
+class BinaryLogTest {
+
+	@Test
+	void testRoundTrip() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+		MutableKeyValues kvs = MutableKeyValues.of();
+		kvs.putKeyValue("request", "abc");
+		kvs.putKeyValue("empty", null);
+		LogEvent e = LogEvent.ofAll(instant, "main", 42L, Level.WARNING, "io.example.Service",
+				"user {} bought {} items for {} paid={} note={} other={}", kvs, null, StandardMessageFormatter.SLF4J,
+				Arrays.<@Nullable Object>asList("agent", 3, 9.5d, true, null, List.of(1, 2)));
+		write(output, e);
+
+		var records = BinaryLogReader.read(out.toByteArray());
+		assertEquals(1, records.size());
+		var r = records.get(0);
+		assertEquals(instant, r.timestamp());
+		assertEquals(Level.WARNING, r.level());
+		assertEquals("io.example.Service", r.loggerName());
+		assertEquals("main", r.threadName());
+		assertEquals(42L, r.threadId());
+		assertEquals("user {} bought {} items for {} paid={} note={} other={}", r.template());
+		assertEquals(Arrays.<@Nullable Object>asList("agent", 3L, 9.5d, true, null, "[1, 2]"), r.args());
+		assertNull(r.throwable());
+		assertEquals("abc", r.keyValues().get("request"));
+		assertTrue(r.keyValues().containsKey("empty"));
+		assertEquals(List.of("request", "empty"), List.copyOf(r.keyValues().keySet()));
+
+		var sb = new StringBuilder();
+		r.toEvent().formattedMessage(sb);
+		assertEquals(formatted(e), sb.toString());
+	}
+
+	@Test
+	void testRepeatedStringsAreInterned() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		int[] sizes = new int[3];
+		for (int i = 0; i < 3; i++) {
+			Instant instant = Instant.ofEpochMilli(1_700_000_000_000L + i);
+			LogEvent e = LogEvent.ofAll(instant, "http-worker-1", 1L, Level.INFO, "io.example.very.long.ServiceName",
+					"processed request {} in {} ms", KeyValues.of(), null, StandardMessageFormatter.SLF4J,
+					List.of("id-" + i, i));
+			int before = out.size();
+			write(output, e);
+			sizes[i] = out.size() - before;
+		}
+		/*
+		 * The second and third records only carry ids, a small timestamp delta and the
+		 * arguments.
+		 */
+		assertTrue(sizes[1] < 25, "second record size: " + sizes[1]);
+		assertEquals(sizes[1], sizes[2]);
+		assertTrue(sizes[0] > sizes[1] + "io.example.very.long.ServiceName".length());
+
+		var records = BinaryLogReader.read(out.toByteArray());
+		assertEquals(3, records.size());
+		for (int i = 0; i < 3; i++) {
+			var r = records.get(i);
+			assertEquals(Instant.ofEpochMilli(1_700_000_000_000L + i), r.timestamp());
+			assertEquals("processed request id-" + i + " in " + i + " ms", r.format(messageFormatter()));
+		}
+	}
+
+	@Test
+	void testReopenWritesNewHeader() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		LogEvent e = event("first");
+		write(output, e);
+		output.reopen();
+		int start = out.size();
+		write(output, event("second"));
+		byte[] bytes = out.toByteArray();
+		/*
+		 * The part after reopen is readable on its own like a rotated file.
+		 */
+		var records = BinaryLogReader.read(Arrays.copyOfRange(bytes, start, bytes.length));
+		assertEquals(1, records.size());
+		assertEquals("second", records.get(0).template());
+		assertEquals("test", records.get(0).loggerName());
+		assertEquals(2, BinaryLogReader.read(bytes).size());
+	}
+
+	@Test
+	void testPlainOutputIsSelfContained() {
+		var out = new ByteArrayOutputStream();
+		var output = new TestOutput(out);
+		int start = 0;
+		for (String message : List.of("one", "two")) {
+			start = out.size();
+			write(output, event(message));
+		}
+		byte[] bytes = out.toByteArray();
+		var last = BinaryLogReader.read(Arrays.copyOfRange(bytes, start, bytes.length));
+		assertEquals(1, last.size());
+		assertEquals("two", last.get(0).template());
+		assertEquals(2, BinaryLogReader.read(bytes).size());
+	}
+
+	@Test
+	void testThrowable() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent.ofAll(instant, "main", 1L, Level.ERROR, "test", "failed {}", KeyValues.of(),
+				new IllegalStateException("boom"), StandardMessageFormatter.SLF4J, List.of("job"));
+		write(output, e);
+		var r = BinaryLogReader.read(out.toByteArray()).get(0);
+		String throwable = r.throwable();
+		assertNotNull(throwable);
+		assertTrue(throwable.startsWith("java.lang.IllegalStateException: boom"), throwable);
+		assertTrue(throwable.contains("BinaryLogTest"), throwable);
+
+		var event = r.toEvent();
+		var t = event.throwableOrNull();
+		assertNotNull(t);
+		assertEquals("java.lang.IllegalStateException: boom", t.toString());
+		var sb = new StringBuilder();
+		LogFormatter.ThrowableFormatter.appendThrowable(sb, t);
+		assertEquals(throwable, sb.toString());
+	}
+
+	@Test
+	void testFrozenEventStoresFormattedMessage() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "hello {}", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of("world"))
+			.freeze();
+		assertEquals(0, e.argCount());
+		write(output, e);
+		var r = BinaryLogReader.read(out.toByteArray()).get(0);
+		assertEquals("hello world", r.template());
+		assertEquals(List.of(), r.args());
+		// only the logger and thread names are interned
+		assertEquals(2, defines(out.toByteArray()));
+	}
+
+	@Test
+	void testOnlyTemplatesWithArgumentsAreInterned() {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		for (int i = 0; i < 10; i++) {
+			write(output, event("unique message " + i));
+		}
+		assertEquals(2, defines(out.toByteArray()));
+		Instant instant = Instant.ofEpochMilli(1);
+		for (int i = 0; i < 10; i++) {
+			write(output, LogEvent.ofAll(instant, "main", 1L, Level.INFO, "test", "message {}", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of(i)));
+		}
+		assertEquals(3, defines(out.toByteArray()));
+		var records = BinaryLogReader.read(out.toByteArray());
+		assertEquals(20, records.size());
+		assertEquals("unique message 9", records.get(9).template());
+		assertEquals("message {}", records.get(19).template());
+	}
+
+	/*
+	 * The stream hands out a few bytes at a time so records are split across reads and
+	 * the large record does not fit the initial chunk.
+	 */
+	@Test
+	void testReaderStreamsInChunks() throws IOException {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		String large = "x".repeat(200 * 1024);
+		Instant instant = Instant.ofEpochMilli(1);
+		for (int i = 0; i < 100; i++) {
+			Object arg = i == 50 ? large : i;
+			write(output, LogEvent.ofAll(instant, "main", 1L, Level.INFO, "test", "event {}", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of(arg)));
+		}
+		byte[] bytes = out.toByteArray();
+		var expected = BinaryLogReader.read(bytes);
+		List<BinaryLogReader.Record> actual = new ArrayList<>();
+		try (var reader = BinaryLogReader.of(new TricklingInputStream(bytes))) {
+			while (reader.hasNext()) {
+				actual.add(reader.next());
+			}
+		}
+		assertEquals(100, actual.size());
+		assertEquals(expected, actual);
+		assertEquals(List.of(large), actual.get(50).args());
+
+		var truncated = Arrays.copyOf(bytes, bytes.length - 1);
+		try (var reader = BinaryLogReader.of(new TricklingInputStream(truncated))) {
+			assertThrows(IllegalArgumentException.class, () -> {
+				while (reader.hasNext()) {
+					reader.next();
+				}
+			});
+		}
+	}
+
+	@Test
+	void testMainPrintsWithPattern(@TempDir Path dir) throws IOException {
+		var out = new ByteArrayOutputStream();
+		var output = BinaryLogOutput.of(new TestOutput(out));
+		write(output, LogEvent.ofAll(Instant.ofEpochMilli(1), "main", 1L, Level.WARNING, "test", "hello {}",
+				KeyValues.of(), null, StandardMessageFormatter.SLF4J, List.of("world")));
+		Path file = dir.resolve("app.binlog");
+		Files.write(file, out.toByteArray());
+
+		var printed = new ByteArrayOutputStream();
+		var original = System.out;
+		System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+		try {
+			BinaryLogReader.main(new String[] { file.toString(), "%-5level [%t] %logger - %msg%n" });
+		}
+		finally {
+			System.setOut(original);
+		}
+		assertEquals("WARN  [main] test - hello world" + System.lineSeparator(),
+				printed.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testReaderRejectsUnknownRecord() {
+		var buffer = new MessagePackBuffer();
+		buffer.writeArrayHeader(2);
+		buffer.writeLong(BinaryLogWriter.HEADER);
+		buffer.writeLong(BinaryLogWriter.VERSION);
+		buffer.writeArrayHeader(1);
+		buffer.writeLong(99);
+		var reader = new BinaryLogReader(buffer.toByteArray());
+		assertThrows(IllegalArgumentException.class, reader::hasNext);
+		assertFalse(new BinaryLogReader(new byte[0]).hasNext());
+	}
+
+	private static LogEvent event(String message) {
+		Instant instant = Instant.ofEpochMilli(1);
+		return LogEvent.ofAll(instant, "main", 1L, Level.INFO, "test", message, KeyValues.of(), null,
+				StandardMessageFormatter.SLF4J, List.of());
+	}
+
+	private static void write(LogOutput output, LogEvent e) {
+		var encoder = BinaryLogEncoder.of();
+		var buffer = encoder.buffer(WriteMethod.BYTES);
+		encoder.encode(e, buffer);
+		buffer.drain(output, e);
+	}
+
+	private static int defines(byte[] bytes) {
+		var decoder = new MessagePackDecoder(bytes);
+		int defines = 0;
+		while (decoder.hasNext()) {
+			int fields = decoder.readArrayHeader();
+			if (decoder.readLong() == BinaryLogWriter.DEFINE) {
+				defines++;
+			}
+			for (int i = 1; i < fields; i++) {
+				decoder.readValue();
+			}
+		}
+		return defines;
+	}
+
+	private static String formatted(LogEvent e) {
+		var sb = new StringBuilder();
+		e.formattedMessage(sb);
+		return sb.toString();
+	}
+
+	private static LogFormatter messageFormatter() {
+		return LogFormatter.of((sb, e) -> e.formattedMessage(sb));
+	}
+
+	private static final class TricklingInputStream extends InputStream {
+
+		private final ByteArrayInputStream in;
+
+		TricklingInputStream(byte[] bytes) {
+			this.in = new ByteArrayInputStream(bytes);
+		}
+
+		@Override
+		public int read() {
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			return in.read(b, off, Math.min(len, 7));
+		}
+
+	}
+
+	private static final class TestOutput extends LogOutput.AbstractOutputStreamOutput {
+
+		TestOutput(ByteArrayOutputStream out) {
+			super(URI.create("test:///"), out);
+		}
+
+		@Override
+		public OutputType type() {
+			return OutputType.MEMORY;
+		}
+
+	}
+
+}
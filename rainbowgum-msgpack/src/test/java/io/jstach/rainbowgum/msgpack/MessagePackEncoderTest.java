@@ -0,0 +1,223 @@
+package io.jstach.rainbowgum.msgpack;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.System.Logger.Level;
+import java.net.URI;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogOutput.WriteMethod;
+
+class MessagePackEncoderTest {
+
+	@Test
+	void testRoundTrip() {
+		Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+		MutableKeyValues kvs = MutableKeyValues.of();
+		kvs.putKeyValue("request", "abc");
+		kvs.putKeyValue("empty", null);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 42L, Level.WARNING, "io.example.Service", "hello {} ünïcødé 😀", kvs, null,
+					StandardMessageFormatter.SLF4J, List.of("world"))
+			.freeze(instant);
+
+		var events = MessagePackDecoder.decode(encode(e));
+		assertEquals(1, events.size());
+		var event = events.get(0);
+		assertEquals(instant, event.timestamp());
+		assertEquals(Level.WARNING, event.level());
+		assertEquals("io.example.Service", event.loggerName());
+		assertEquals("main", event.threadName());
+		assertEquals(42L, event.threadId());
+		assertEquals("hello world ünïcødé 😀", event.message());
+		assertNull(event.throwable());
+		Map<String, @Nullable String> expected = new LinkedHashMap<>();
+		expected.put("request", "abc");
+		expected.put("empty", null);
+		assertEquals(expected, event.keyValues());
+		assertEquals(List.copyOf(expected.keySet()), List.copyOf(event.keyValues().keySet()));
+	}
+
+	@Test
+	void testThrowable() {
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.ERROR, "test", "failed", KeyValues.of(),
+					new IllegalStateException("boom"), StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		var event = MessagePackDecoder.decode(encode(e)).get(0);
+		String throwable = event.throwable();
+		assertNotNull(throwable);
+		assertTrue(throwable.startsWith("java.lang.IllegalStateException: boom"), throwable);
+		assertTrue(throwable.contains("MessagePackEncoderTest"), throwable);
+		assertEquals(Map.of(), event.keyValues());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 15, 16, 40, 70_000 })
+	void testKeyValuesMapHeaderSizes(int size) {
+		MutableKeyValues kvs = MutableKeyValues.of(size);
+		for (int i = 0; i < size; i++) {
+			kvs.putKeyValue("k" + i, "v" + i);
+		}
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "kvs", kvs, null, StandardMessageFormatter.SLF4J,
+					List.of())
+			.freeze(instant);
+		var keyValues = MessagePackDecoder.decode(encode(e)).get(0).keyValues();
+		assertEquals(size, keyValues.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals("v" + i, keyValues.get("k" + i));
+		}
+	}
+
+	@Test
+	void testDrainConcatenatesEvents() {
+		var encoder = MessagePackEncoder.of();
+		var out = new ByteArrayOutputStream();
+		var output = new TestOutput(out);
+		var buffer = encoder.buffer(WriteMethod.BYTES);
+		for (int i = 0; i < 3; i++) {
+			Instant instant = Instant.ofEpochMilli(i);
+			LogEvent e = LogEvent
+				.ofAll(instant, "main", i, Level.INFO, "test", "event " + i, KeyValues.of(), null,
+						StandardMessageFormatter.SLF4J, List.of())
+				.freeze(instant);
+			encoder.encode(e, buffer);
+			buffer.drain(output, e);
+		}
+		var events = MessagePackDecoder.decode(out.toByteArray());
+		assertEquals(3, events.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals("event " + i, events.get(i).message());
+			assertEquals(Instant.ofEpochMilli(i), events.get(i).timestamp());
+		}
+	}
+
+	@Test
+	void testSmallEventBytes() {
+		Instant instant = Instant.ofEpochSecond(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "m", 1L, Level.INFO, "t", "hi", KeyValues.of(), null, StandardMessageFormatter.SLF4J,
+					List.of())
+			.freeze(instant);
+		byte[] expected = { (byte) 0x98, // array(8)
+				(byte) 0xce, 0x3b, (byte) 0x9a, (byte) 0xca, 0x00, // uint32 1_000_000_000
+				0x03, // INFO ordinal
+				(byte) 0xa1, 't', //
+				(byte) 0xa1, 'm', //
+				0x01, //
+				(byte) 0xa2, 'h', 'i', //
+				(byte) 0xc0, // no throwable
+				(byte) 0x80 // empty map
+		};
+		assertArrayEquals(expected, encode(e));
+	}
+
+	@Test
+	void testWriteLongMinimalFormats() {
+		long[] values = { 0, 127, 128, 255, 256, 65535, 65536, 4294967295L, 4294967296L, Long.MAX_VALUE, -1, -32, -33,
+				-128, -129, Short.MIN_VALUE, Short.MIN_VALUE - 1, Integer.MIN_VALUE, Integer.MIN_VALUE - 1L,
+				Long.MIN_VALUE };
+		int[] sizes = { 1, 1, 2, 2, 3, 3, 5, 5, 9, 9, 1, 1, 2, 2, 3, 3, 5, 5, 9, 9 };
+		for (int i = 0; i < values.length; i++) {
+			var buffer = new MessagePackBuffer(1);
+			buffer.writeLong(values[i]);
+			assertEquals(sizes[i], buffer.size(), "value: " + values[i]);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "a", "0123456789012345678901234567890", "01234567890123456789012345678901", "café",
+			"€ euro", "emoji 😀 end", "\ud800 unpaired" })
+	void testWriteStringMatchesUtf8(String value) {
+		for (String s : List.of(value, value.repeat(10), value.repeat(3000))) {
+			var buffer = new MessagePackBuffer(1);
+			buffer.writeString(s);
+			byte[] utf8 = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+			byte[] actual = buffer.toByteArray();
+			int header = actual.length - utf8.length;
+			assertEquals(utf8.length < 32 ? 1 : utf8.length < 256 ? 2 : utf8.length < 65536 ? 3 : 5, header);
+			assertArrayEquals(utf8, java.util.Arrays.copyOfRange(actual, header, actual.length));
+		}
+	}
+
+	@Test
+	void testDecoderRejectsTruncatedInput() {
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "hello", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		byte[] bytes = encode(e);
+		var decoder = new MessagePackDecoder(bytes, 0, bytes.length - 3);
+		assertThrows(IllegalArgumentException.class, decoder::next);
+	}
+
+	@Test
+	void testDecoderSkipsAppendedFields() {
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "hello", KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		byte[] bytes = encode(e);
+		var buffer = new MessagePackBuffer();
+		buffer.writeArrayHeader(MessagePackEncoder.FIELD_COUNT + 2);
+		byte[] fields = java.util.Arrays.copyOfRange(bytes, 1, bytes.length);
+		byte[] prefix = buffer.toByteArray();
+		buffer.clear();
+		buffer.writeBoolean(true);
+		buffer.writeArrayHeader(1);
+		buffer.writeString("extra");
+		byte[] suffix = buffer.toByteArray();
+		var out = new ByteArrayOutputStream();
+		out.writeBytes(prefix);
+		out.writeBytes(fields);
+		out.writeBytes(suffix);
+		var events = MessagePackDecoder.decode(out.toByteArray());
+		assertEquals(1, events.size());
+		assertEquals("hello", events.get(0).message());
+	}
+
+	private static byte[] encode(LogEvent e) {
+		var encoder = MessagePackEncoder.of();
+		var buffer = (MessagePackBuffer) encoder.buffer(WriteMethod.BYTES);
+		encoder.encode(e, buffer);
+		return buffer.toByteArray();
+	}
+
+	private static final class TestOutput extends LogOutput.AbstractOutputStreamOutput {
+
+		TestOutput(ByteArrayOutputStream out) {
+			super(URI.create("test:///"), out);
+		}
+
+		@Override
+		public OutputType type() {
+			return OutputType.MEMORY;
+		}
+
+	}
+
+}
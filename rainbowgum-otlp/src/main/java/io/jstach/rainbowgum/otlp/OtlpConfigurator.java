@@ -0,0 +1,51 @@
+package io.jstach.rainbowgum.otlp;
+
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEncoder.EncoderProvider;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.LogProviderRef;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider;
+import io.jstach.rainbowgum.spi.RainbowGumServiceProvider.Configurator;
+import io.jstach.svc.ServiceProvider;
+
+/**
+ * Adds the OTLP encoder to the encoder registry with the
+ * {@value OtlpLogEncoder#OTLP_SCHEME} URI scheme and the OTLP/HTTP output to the output
+ * registry with the {@value OtlpHttpOutput#OTLP_SCHEME} and
+ * {@value OtlpHttpOutput#OTLPS_SCHEME} URI schemes.
+ * <p>
+ * The encoder properties are documented on {@link OtlpLogEncoderBuilder} and the output
+ * properties on {@link OtlpHttpOutputBuilder}.
+ */
+@ServiceProvider(RainbowGumServiceProvider.class)
+public class OtlpConfigurator implements Configurator {
+
+	/**
+	 * Default constructor for service loader.
+	 */
+	public OtlpConfigurator() {
+	}
+
+	@Override
+	public boolean configure(LogConfig config, Pass pass) {
+		config.encoderRegistry().register(OtlpLogEncoder.OTLP_SCHEME, new OtlpEncoderProvider());
+		config.outputRegistry().register(OtlpHttpOutput.OTLP_SCHEME, OtlpHttpOutput::of);
+		config.outputRegistry().register(OtlpHttpOutput.OTLPS_SCHEME, OtlpHttpOutput::of);
+		return true;
+	}
+
+	private static class OtlpEncoderProvider implements EncoderProvider {
+
+		@Override
+		public LogProvider<LogEncoder> provide(LogProviderRef ref) {
+			return (name, c) -> {
+				OtlpLogEncoderBuilder b = new OtlpLogEncoderBuilder(name);
+				b.fromProperties(c.properties(), ref);
+				return b.build();
+			};
+		}
+
+	}
+
+}
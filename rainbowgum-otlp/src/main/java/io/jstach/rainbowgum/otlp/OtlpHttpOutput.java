@@ -0,0 +1,432 @@
+package io.jstach.rainbowgum.otlp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.LogProvider;
+import io.jstach.rainbowgum.LogProviderRef;
+import io.jstach.rainbowgum.LogResponse;
+import io.jstach.rainbowgum.MetaLog;
+import io.jstach.rainbowgum.annotation.LogConfigurable;
+import io.jstach.rainbowgum.annotation.LogConfigurable.DefaultParameter;
+import io.jstach.rainbowgum.annotation.LogConfigurable.PassThroughParameter;
+
+/**
+ * Exports events encoded by {@link OtlpLogEncoder} to an OpenTelemetry collector with
+ * <a href="https://opentelemetry.io/docs/specs/otlp/#otlphttp">OTLP/HTTP</a> protobuf
+ * requests over HTTP/1.1.
+ * <p>
+ * Encoded events are collected until the appender flushes or the batch limits are
+ * reached and then sent as a single <code>ExportLogsServiceRequest</code>. An appender
+ * flushes after every event when synchronous so this output should be used with the
+ * async publisher which flushes once per drained batch.
+ * <p>
+ * Requests are sent by a dedicated daemon thread so the appender is not held up by the
+ * network. Up to {@value #MAX_QUEUED_BATCHES} batches can wait to be sent after which
+ * writes block until the collector catches up. Closing the output waits for the waiting
+ * batches to be sent.
+ * <p>
+ * The output URI is <code>otlp://host:port/path</code> (or <code>otlps</code> for
+ * HTTPS) where the port defaults to {@value #DEFAULT_PORT} and the path to
+ * {@value #DEFAULT_PATH}. The batch limits, timeout, service name and extra headers are
+ * configured with the properties documented on {@link OtlpHttpOutputBuilder} which can
+ * also be passed as URI query parameters.
+ * Failed requests are reported to the meta log and the batch is dropped. There are no
+ * retries as a local collector is expected to do that.
+ */
+public final class OtlpHttpOutput implements LogOutput {
+
+	/**
+	 * OTLP over HTTP output URI scheme.
+	 */
+	public static final String OTLP_SCHEME = "otlp";
+
+	/**
+	 * OTLP over HTTPS output URI scheme.
+	 */
+	public static final String OTLPS_SCHEME = "otlps";
+
+	/**
+	 * Default OTLP/HTTP port.
+	 */
+	public static final int DEFAULT_PORT = 4318;
+
+	/**
+	 * Default OTLP/HTTP logs path.
+	 */
+	public static final String DEFAULT_PATH = "/v1/logs";
+
+	/**
+	 * Default batch size.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 512;
+
+	/**
+	 * Default batch bytes.
+	 */
+	public static final int DEFAULT_BATCH_BYTES = 1024 * 1024;
+
+	/**
+	 * Default timeout.
+	 */
+	public static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+	/**
+	 * The OpenTelemetry default when the service is not known.
+	 */
+	public static final String DEFAULT_SERVICE_NAME = "unknown_service:java";
+
+	private static final int RESOURCE_ATTRIBUTES = 1;
+
+	private static final int EXPORT_RESOURCE_LOGS = 1;
+
+	/**
+	 * How many full batches can wait for the sender thread.
+	 */
+	static final int MAX_QUEUED_BATCHES = 2;
+
+	/*
+	 * Room for the request tag and the largest length varint in front of the resource.
+	 */
+	private static final int HEADER_RESERVE = 1 + 5;
+
+	private static final int INITIAL_CAPACITY = 8 * 1024;
+
+	private static final Batch CLOSE = new Batch(new byte[0], 0, 0);
+
+	private final URI uri;
+
+	private final URI endpoint;
+
+	private final int batchSize;
+
+	private final int batchBytes;
+
+	private final Duration timeout;
+
+	private final Map<String, String> headers;
+
+	/*
+	 * The resource field of ResourceLogs which is the same for every request.
+	 */
+	private final byte[] resource;
+
+	/*
+	 * Where the encoded records start in a request buffer. Every buffer is laid out as
+	 * the reserved header room, the resource and then the records so a request is sent
+	 * straight from it without copying.
+	 */
+	private final int recordsStart;
+
+	private final BlockingQueue<Batch> queued = new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES);
+
+	private final BlockingQueue<byte[]> spare = new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES + 2);
+
+	private byte[] pending;
+
+	private int pendingSize;
+
+	private int pendingCount;
+
+	private @Nullable Thread sender;
+
+	/*
+	 * Only used by the sender thread.
+	 */
+	private @Nullable HttpClient client;
+
+	private volatile @Nullable Exception lastError;
+
+	OtlpHttpOutput(URI uri, URI endpoint, String serviceName, int batchSize, int batchBytes, Duration timeout,
+			Map<String, String> headers) {
+		this.uri = uri;
+		this.endpoint = endpoint;
+		this.batchSize = Math.max(1, batchSize);
+		this.batchBytes = Math.max(1, batchBytes);
+		this.timeout = timeout;
+		this.headers = Map.copyOf(headers);
+		this.resource = resource(serviceName);
+		this.recordsStart = HEADER_RESERVE + resource.length;
+		this.pending = newBuffer();
+	}
+
+	/**
+	 * Creates an output that exports to the given endpoint.
+	 * @param endpoint HTTP or HTTPS URL of the collector logs endpoint.
+	 * @param serviceName <code>service.name</code> resource attribute.
+	 * @return output.
+	 */
+	public static OtlpHttpOutput of(URI endpoint, String serviceName) {
+		return new OtlpHttpOutput(endpoint, endpoint, serviceName, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_BYTES,
+				Duration.ofMillis(DEFAULT_TIMEOUT_MILLIS), Map.of());
+	}
+
+	/**
+	 * Create output from provider ref. This is mostly an internal call.
+	 * @param ref otlp provider ref.
+	 * @return provider.
+	 */
+	public static LogProvider<LogOutput> of(LogProviderRef ref) {
+		return (name, config) -> {
+			OtlpHttpOutputBuilder b = new OtlpHttpOutputBuilder(name);
+			b.uri(ref.uri());
+			b.fromProperties(config.properties(), ref);
+			return b.build();
+		};
+	}
+
+	/**
+	 * Creates an output from configuration.
+	 * @param name property name prefix.
+	 * @param uri <code>otlp</code> or <code>otlps</code> URI of the collector.
+	 * @param batchSize maximum number of records in one request.
+	 * @param batchBytes maximum number of encoded record bytes in one request.
+	 * @param timeoutMillis connect and request timeout in milliseconds.
+	 * @param serviceName value of the <code>service.name</code> resource attribute.
+	 * @param headers extra HTTP request headers.
+	 * @return output.
+	 */
+	@LogConfigurable(prefix = LogProperties.OUTPUT_PREFIX)
+	static OtlpHttpOutput of(@LogConfigurable.KeyParameter String name, @PassThroughParameter @Nullable URI uri,
+			@DefaultParameter("DEFAULT_BATCH_SIZE") Integer batchSize,
+			@DefaultParameter("DEFAULT_BATCH_BYTES") Integer batchBytes,
+			@DefaultParameter("DEFAULT_TIMEOUT_MILLIS") Integer timeoutMillis,
+			@DefaultParameter("DEFAULT_SERVICE_NAME") String serviceName, @Nullable Map<String, String> headers) {
+		if (uri == null) {
+			throw new IllegalArgumentException("OTLP output URI is required. name: " + name);
+		}
+		return new OtlpHttpOutput(uri, endpoint(uri), serviceName, batchSize, batchBytes,
+				Duration.ofMillis(timeoutMillis), headers == null ? Map.of() : headers);
+	}
+
+	static URI endpoint(URI uri) {
+		String scheme = OTLPS_SCHEME.equals(uri.getScheme()) ? "https" : "http";
+		String host = uri.getHost();
+		if (host == null) {
+			throw new IllegalArgumentException("OTLP output URI is missing host. uri: " + uri);
+		}
+		int port = uri.getPort() < 0 ? DEFAULT_PORT : uri.getPort();
+		String path = uri.getPath();
+		if (path == null || path.isEmpty() || path.equals("/")) {
+			path = DEFAULT_PATH;
+		}
+		try {
+			return new URI(scheme, null, host, port, path, null, null);
+		}
+		catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static byte[] resource(String serviceName) {
+		var buffer = new ProtobufBuffer(64);
+		int resource = buffer.beginMessage(OtlpLogEncoder.RESOURCE_LOGS_RESOURCE);
+		int kv = buffer.beginMessage(RESOURCE_ATTRIBUTES);
+		buffer.writeStringField(OtlpLogEncoder.KEY_VALUE_KEY, "service.name");
+		int any = buffer.beginMessage(OtlpLogEncoder.KEY_VALUE_VALUE);
+		buffer.writeStringField(OtlpLogEncoder.ANY_VALUE_STRING, serviceName);
+		buffer.endMessage(any);
+		buffer.endMessage(kv);
+		buffer.endMessage(resource);
+		return buffer.toByteArray();
+	}
+
+	@Override
+	public void write(LogEvent event, byte[] bytes, int off, int len, ContentType contentType) {
+		if (contentType != ContentType.StandardContentType.APPLICATION_PROTOBUF) {
+			var e = new IllegalArgumentException("OTLP output requires the " + OtlpLogEncoder.OTLP_SCHEME
+					+ " encoder. content type: " + contentType);
+			MetaLog.error(OtlpHttpOutput.class, e);
+			return;
+		}
+		if (pendingSize > 0 && pendingSize + len > batchBytes) {
+			send();
+		}
+		int minCapacity = recordsStart + pendingSize + len;
+		if (minCapacity > pending.length) {
+			pending = Arrays.copyOf(pending, Math.max(pending.length << 1, minCapacity));
+		}
+		System.arraycopy(bytes, off, pending, recordsStart + pendingSize, len);
+		pendingSize += len;
+		if (++pendingCount >= batchSize) {
+			send();
+		}
+	}
+
+	@Override
+	public void flush() {
+		if (pendingCount > 0) {
+			send();
+		}
+	}
+
+	/*
+	 * ExportLogsServiceRequest { resource_logs = 1 } holding one ResourceLogs whose
+	 * scope_logs entries are exactly the encoded events. The header is written right in
+	 * front of the resource and the returned batch covers the whole request.
+	 */
+	Batch request() {
+		byte[] buf = pending;
+		int resourceLogsLength = resource.length + pendingSize;
+		int off = HEADER_RESERVE - 1 - ProtobufBuffer.varintSize(resourceLogsLength);
+		int i = off;
+		buf[i++] = (byte) (EXPORT_RESOURCE_LOGS << 3 | ProtobufBuffer.WIRE_LEN);
+		long value = resourceLogsLength;
+		while ((value & ~0x7FL) != 0) {
+			buf[i++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[i] = (byte) value;
+		return new Batch(buf, off, recordsStart + pendingSize - off);
+	}
+
+	private void send() {
+		var batch = request();
+		var b = spare.poll();
+		pending = b == null ? newBuffer() : b;
+		pendingSize = 0;
+		pendingCount = 0;
+		var s = sender;
+		if (s == null) {
+			s = sender = new Thread(this::run);
+			s.setDaemon(true);
+			s.setName(OtlpHttpOutput.class.getSimpleName());
+			s.start();
+		}
+		try {
+			queued.put(batch);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			lastError = e;
+			MetaLog.error(OtlpHttpOutput.class, e);
+		}
+	}
+
+	private byte[] newBuffer() {
+		byte[] buf = new byte[recordsStart + INITIAL_CAPACITY];
+		System.arraycopy(resource, 0, buf, HEADER_RESERVE, resource.length);
+		return buf;
+	}
+
+	private void run() {
+		while (true) {
+			Batch batch;
+			try {
+				batch = queued.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			if (batch == CLOSE) {
+				return;
+			}
+			post(batch);
+			spare.offer(batch.buffer());
+		}
+	}
+
+	private void post(Batch batch) {
+		var request = HttpRequest.newBuilder(endpoint)
+			.timeout(timeout)
+			.header("Content-Type", ContentType.StandardContentType.APPLICATION_PROTOBUF.contentType());
+		headers.forEach(request::header);
+		var body = HttpRequest.BodyPublishers.ofByteArray(batch.buffer(), batch.off(), batch.len());
+		try {
+			var response = client().send(request.POST(body).build(), HttpResponse.BodyHandlers.discarding());
+			int status = response.statusCode();
+			if (status < 200 || status >= 300) {
+				throw new IOException("OTLP export failed. status: " + status + " endpoint: " + endpoint);
+			}
+			lastError = null;
+		}
+		catch (IOException e) {
+			lastError = e;
+			MetaLog.error(OtlpHttpOutput.class, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			lastError = e;
+			MetaLog.error(OtlpHttpOutput.class, e);
+		}
+	}
+
+	private HttpClient client() {
+		var c = client;
+		if (c == null) {
+			c = client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(timeout)
+				.build();
+		}
+		return c;
+	}
+
+	@Override
+	public LogResponse.Status status() throws Exception {
+		var e = lastError;
+		if (e != null) {
+			throw e;
+		}
+		return LogResponse.Status.StandardStatus.OK;
+	}
+
+	@Override
+	public URI uri() {
+		return uri;
+	}
+
+	@Override
+	public OutputType type() {
+		return OutputType.NETWORK;
+	}
+
+	@Override
+	public void close() {
+		flush();
+		var s = sender;
+		if (s == null) {
+			return;
+		}
+		sender = null;
+		try {
+			queued.put(CLOSE);
+			s.join(timeout.toMillis() * (MAX_QUEUED_BATCHES + 1));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			MetaLog.error(OtlpHttpOutput.class, e);
+		}
+		/*
+		 * The sender has finished or is stuck past its timeouts.
+		 */
+		var c = client;
+		if (c != null) {
+			client = null;
+			c.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "OtlpHttpOutput[endpoint=" + endpoint + "]";
+	}
+
+	record Batch(byte[] buffer, int off, int len) {
+	}
+
+}
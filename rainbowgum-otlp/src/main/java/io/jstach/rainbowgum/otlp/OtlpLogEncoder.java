@@ -0,0 +1,346 @@
+package io.jstach.rainbowgum.otlp;
+
+import java.lang.System.Logger.Level;
+import java.time.Instant;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.KeyValuesConsumer;
+import io.jstach.rainbowgum.LogEncoder;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogFormatter.ThrowableFormatter;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.annotation.LogConfigurable;
+import io.jstach.rainbowgum.annotation.LogConfigurable.DefaultParameter;
+
+/**
+ * Encodes events as OpenTelemetry
+ * <a href="https://opentelemetry.io/docs/specs/otel/logs/data-model/">log records</a> in
+ * the OTLP protobuf format without a protobuf runtime.
+ * <p>
+ * Each event is written as a complete <code>ScopeLogs</code> entry of a
+ * <code>ResourceLogs</code> message where the scope name is the logger name. Repeated
+ * protobuf fields can be concatenated so a batch of encoded events only needs a resource
+ * header in front of it to become an <code>ExportLogsServiceRequest</code> which is what
+ * {@link OtlpHttpOutput} does.
+ * <p>
+ * The log record is mapped as follows:
+ * <ul>
+ * <li>timestamp to <code>time_unix_nano</code> and
+ * <code>observed_time_unix_nano</code></li>
+ * <li>level to <code>severity_number</code> and <code>severity_text</code></li>
+ * <li>formatted message to a string <code>body</code></li>
+ * <li>key values to string attributes</li>
+ * <li>thread to <code>thread.name</code> and <code>thread.id</code> attributes</li>
+ * <li>throwable to <code>exception.type</code>, <code>exception.message</code> and
+ * <code>exception.stacktrace</code> attributes</li>
+ * <li>the hex trace id, span id and trace flags key values (usually from the MDC) to
+ * <code>trace_id</code>, <code>span_id</code> and <code>flags</code>. Values that are
+ * not valid hex of the right length are left as attributes.</li>
+ * </ul>
+ */
+public final class OtlpLogEncoder extends LogEncoder.AbstractEncoder<ProtobufBuffer> {
+
+	/**
+	 * OTLP encoder URI scheme.
+	 */
+	public static final String OTLP_SCHEME = "otlp";
+
+	/**
+	 * Default key value key of the hex trace id which is what the OpenTelemetry MDC
+	 * instrumentation uses.
+	 */
+	public static final String TRACE_ID_KEY = "trace_id";
+
+	/**
+	 * Default key value key of the hex span id.
+	 */
+	public static final String SPAN_ID_KEY = "span_id";
+
+	/**
+	 * Default key value key of the hex trace flags.
+	 */
+	public static final String TRACE_FLAGS_KEY = "trace_flags";
+
+	/*
+	 * Field numbers from opentelemetry/proto/logs/v1/logs.proto and
+	 * opentelemetry/proto/common/v1/common.proto.
+	 */
+	static final int RESOURCE_LOGS_RESOURCE = 1;
+
+	static final int RESOURCE_LOGS_SCOPE_LOGS = 2;
+
+	static final int SCOPE_LOGS_SCOPE = 1;
+
+	static final int SCOPE_LOGS_LOG_RECORDS = 2;
+
+	static final int SCOPE_NAME = 1;
+
+	static final int LOG_RECORD_TIME_UNIX_NANO = 1;
+
+	static final int LOG_RECORD_SEVERITY_NUMBER = 2;
+
+	static final int LOG_RECORD_SEVERITY_TEXT = 3;
+
+	static final int LOG_RECORD_BODY = 5;
+
+	static final int LOG_RECORD_ATTRIBUTES = 6;
+
+	static final int LOG_RECORD_FLAGS = 8;
+
+	static final int LOG_RECORD_TRACE_ID = 9;
+
+	static final int LOG_RECORD_SPAN_ID = 10;
+
+	static final int LOG_RECORD_OBSERVED_TIME_UNIX_NANO = 11;
+
+	static final int KEY_VALUE_KEY = 1;
+
+	static final int KEY_VALUE_VALUE = 2;
+
+	static final int ANY_VALUE_STRING = 1;
+
+	static final int ANY_VALUE_INT = 3;
+
+	/*
+	 * Bits of the key values counter marking trace context keys already written as
+	 * record fields so they are not repeated as attributes.
+	 */
+	private static final int TRACE_ID_WRITTEN = 1;
+
+	private static final int SPAN_ID_WRITTEN = 2;
+
+	private static final int TRACE_FLAGS_WRITTEN = 4;
+
+	private static final OtlpLogEncoder DEFAULT = new OtlpLogEncoder(TRACE_ID_KEY, SPAN_ID_KEY, TRACE_FLAGS_KEY);
+
+	private final String traceIdKey;
+
+	private final String spanIdKey;
+
+	private final String traceFlagsKey;
+
+	private final KeyValuesConsumer<ProtobufBuffer> attributeWriter = this::writeAttribute;
+
+	private OtlpLogEncoder(String traceIdKey, String spanIdKey, String traceFlagsKey) {
+		this.traceIdKey = traceIdKey;
+		this.spanIdKey = spanIdKey;
+		this.traceFlagsKey = traceFlagsKey;
+	}
+
+	/**
+	 * Gets the encoder using the default OpenTelemetry MDC keys.
+	 * @return encoder.
+	 * @see #TRACE_ID_KEY
+	 * @see #SPAN_ID_KEY
+	 * @see #TRACE_FLAGS_KEY
+	 */
+	public static OtlpLogEncoder of() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Creates an encoder that reads the trace context from the given key value keys.
+	 * @param traceIdKey key of the hex trace id.
+	 * @param spanIdKey key of the hex span id.
+	 * @param traceFlagsKey key of the hex trace flags.
+	 * @return encoder.
+	 */
+	public static OtlpLogEncoder of(String traceIdKey, String spanIdKey, String traceFlagsKey) {
+		if (traceIdKey.equals(TRACE_ID_KEY) && spanIdKey.equals(SPAN_ID_KEY) && traceFlagsKey.equals(TRACE_FLAGS_KEY)) {
+			return DEFAULT;
+		}
+		return new OtlpLogEncoder(traceIdKey, spanIdKey, traceFlagsKey);
+	}
+
+	/**
+	 * Creates an encoder from configuration.
+	 * @param name property name prefix.
+	 * @param traceIdKey key value key of the hex trace id.
+	 * @param spanIdKey key value key of the hex span id.
+	 * @param traceFlagsKey key value key of the hex trace flags.
+	 * @return encoder.
+	 */
+	@LogConfigurable(prefix = LogProperties.ENCODER_PREFIX)
+	static OtlpLogEncoder of(@LogConfigurable.KeyParameter String name,
+			@DefaultParameter("TRACE_ID_KEY") String traceIdKey, @DefaultParameter("SPAN_ID_KEY") String spanIdKey,
+			@DefaultParameter("TRACE_FLAGS_KEY") String traceFlagsKey) {
+		return of(traceIdKey, spanIdKey, traceFlagsKey);
+	}
+
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
+	@Override
+	protected ProtobufBuffer doBuffer(BufferHints hints) {
+		return new ProtobufBuffer();
+	}
+
+	@Override
+	protected void doEncode(LogEvent event, ProtobufBuffer buffer) {
+		buffer.clear();
+		int scopeLogs = buffer.beginMessage(RESOURCE_LOGS_SCOPE_LOGS);
+		int scope = buffer.beginMessage(SCOPE_LOGS_SCOPE);
+		buffer.writeStringField(SCOPE_NAME, event.loggerName());
+		buffer.endMessage(scope);
+
+		int record = buffer.beginMessage(SCOPE_LOGS_LOG_RECORDS);
+		long nanos = epochNanos(event.timestamp());
+		buffer.writeFixed64Field(LOG_RECORD_TIME_UNIX_NANO, nanos);
+		buffer.writeFixed64Field(LOG_RECORD_OBSERVED_TIME_UNIX_NANO, nanos);
+		Level level = event.level();
+		int severity = severityNumber(level);
+		if (severity != 0) {
+			buffer.writeVarintField(LOG_RECORD_SEVERITY_NUMBER, severity);
+			buffer.writeStringField(LOG_RECORD_SEVERITY_TEXT, severityText(level));
+		}
+
+		var sb = buffer.formattedMessageBuilder();
+		event.formattedMessage(sb);
+		int body = buffer.beginMessage(LOG_RECORD_BODY);
+		buffer.writeStringField(ANY_VALUE_STRING, sb, 0, sb.length());
+		buffer.endMessage(body);
+		sb.setLength(0);
+
+		KeyValues kvs = event.keyValues();
+		int written = writeTraceContext(kvs, buffer);
+		kvs.forEach(attributeWriter, written, buffer);
+		writeStringAttribute(buffer, "thread.name", event.threadName());
+		writeIntAttribute(buffer, "thread.id", event.threadId());
+
+		var t = event.throwableOrNull();
+		if (t != null) {
+			writeStringAttribute(buffer, "exception.type", t.getClass().getName());
+			String message = t.getMessage();
+			if (message != null) {
+				writeStringAttribute(buffer, "exception.message", message);
+			}
+			ThrowableFormatter.appendThrowable(sb, t);
+			int kv = buffer.beginMessage(LOG_RECORD_ATTRIBUTES);
+			buffer.writeStringField(KEY_VALUE_KEY, "exception.stacktrace");
+			int value = buffer.beginMessage(KEY_VALUE_VALUE);
+			buffer.writeStringField(ANY_VALUE_STRING, sb, 0, sb.length());
+			buffer.endMessage(value);
+			buffer.endMessage(kv);
+			sb.setLength(0);
+		}
+		buffer.endMessage(record);
+		buffer.endMessage(scopeLogs);
+	}
+
+	private int writeTraceContext(KeyValues kvs, ProtobufBuffer buffer) {
+		int written = 0;
+		if (writeHexField(buffer, LOG_RECORD_TRACE_ID, kvs.getValueOrNull(traceIdKey), 16)) {
+			written |= TRACE_ID_WRITTEN;
+		}
+		if (writeHexField(buffer, LOG_RECORD_SPAN_ID, kvs.getValueOrNull(spanIdKey), 8)) {
+			written |= SPAN_ID_WRITTEN;
+		}
+		@Nullable
+		String flags = kvs.getValueOrNull(traceFlagsKey);
+		if (flags != null && flags.length() == 2) {
+			int hi = Character.digit(flags.charAt(0), 16);
+			int lo = Character.digit(flags.charAt(1), 16);
+			if (hi >= 0 && lo >= 0) {
+				buffer.writeFixed32Field(LOG_RECORD_FLAGS, (hi << 4) | lo);
+				written |= TRACE_FLAGS_WRITTEN;
+			}
+		}
+		return written;
+	}
+
+	private int writeAttribute(KeyValues kvs, String key, @Nullable String value, int written,
+			ProtobufBuffer buffer) {
+		if (((written & TRACE_ID_WRITTEN) != 0 && key.equals(traceIdKey))
+				|| ((written & SPAN_ID_WRITTEN) != 0 && key.equals(spanIdKey))
+				|| ((written & TRACE_FLAGS_WRITTEN) != 0 && key.equals(traceFlagsKey))) {
+			return written;
+		}
+		writeStringAttribute(buffer, key, value);
+		return written;
+	}
+
+	private static void writeStringAttribute(ProtobufBuffer buffer, String key, @Nullable String value) {
+		int kv = buffer.beginMessage(LOG_RECORD_ATTRIBUTES);
+		buffer.writeStringField(KEY_VALUE_KEY, key);
+		/*
+		 * A null value is an empty AnyValue which OTLP defines as null.
+		 */
+		int any = buffer.beginMessage(KEY_VALUE_VALUE);
+		if (value != null) {
+			buffer.writeStringField(ANY_VALUE_STRING, value);
+		}
+		buffer.endMessage(any);
+		buffer.endMessage(kv);
+	}
+
+	private static void writeIntAttribute(ProtobufBuffer buffer, String key, long value) {
+		int kv = buffer.beginMessage(LOG_RECORD_ATTRIBUTES);
+		buffer.writeStringField(KEY_VALUE_KEY, key);
+		int any = buffer.beginMessage(KEY_VALUE_VALUE);
+		buffer.writeVarintField(ANY_VALUE_INT, value);
+		buffer.endMessage(any);
+		buffer.endMessage(kv);
+	}
+
+	/*
+	 * Decodes the hex straight into the buffer. If a char is not hex the field is rolled
+	 * back.
+	 */
+	private static boolean writeHexField(ProtobufBuffer buffer, int field, @Nullable String hex, int byteLength) {
+		if (hex == null || hex.length() != byteLength * 2) {
+			return false;
+		}
+		int mark = buffer.size();
+		int start = buffer.beginMessage(field);
+		for (int i = 0; i < hex.length(); i += 2) {
+			int hi = Character.digit(hex.charAt(i), 16);
+			int lo = Character.digit(hex.charAt(i + 1), 16);
+			if (hi < 0 || lo < 0) {
+				buffer.truncate(mark);
+				return false;
+			}
+			buffer.writeRawByte((hi << 4) | lo);
+		}
+		buffer.endMessage(start);
+		return true;
+	}
+
+	static int severityNumber(Level level) {
+		return switch (level) {
+			case TRACE -> 1;
+			case DEBUG -> 5;
+			case INFO -> 9;
+			case WARNING -> 13;
+			case ERROR -> 17;
+			case ALL, OFF -> 0;
+		};
+	}
+
+	static String severityText(Level level) {
+		return switch (level) {
+			case TRACE -> "TRACE";
+			case DEBUG -> "DEBUG";
+			case INFO -> "INFO";
+			case WARNING -> "WARN";
+			case ERROR -> "ERROR";
+			case ALL, OFF -> "";
+		};
+	}
+
+	/*
+	 * A long of nanos overflows in 2262 which is far enough away for logs.
+	 */
+	static long epochNanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+
+}
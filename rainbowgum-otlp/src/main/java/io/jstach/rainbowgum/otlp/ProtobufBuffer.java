@@ -0,0 +1,319 @@
+package io.jstach.rainbowgum.otlp;
+
+import java.util.Arrays;
+
+import io.jstach.rainbowgum.LogEncoder.Buffer;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogOutput;
+import io.jstach.rainbowgum.LogOutput.ContentType.StandardContentType;
+
+/**
+ * A reusable buffer that writes
+ * <a href="https://protobuf.dev/programming-guides/encoding/">protobuf wire format</a>
+ * fields into a growable byte array. Only the wire types needed for OTLP are supported.
+ */
+public final class ProtobufBuffer implements Buffer {
+
+	static final int WIRE_VARINT = 0;
+
+	static final int WIRE_FIXED64 = 1;
+
+	static final int WIRE_LEN = 2;
+
+	static final int WIRE_FIXED32 = 5;
+
+	/*
+	 * Nested message lengths are only known after the message is written. We reserve
+	 * the largest varint a length can need and shift the message back if a smaller one
+	 * fits which keeps the output canonical.
+	 */
+	private static final int MAX_LENGTH_VARINT = 5;
+
+	private byte[] buf;
+
+	private int count;
+
+	private final StringBuilder formattedMessageBuilder = new StringBuilder();
+
+	/**
+	 * Creates a buffer.
+	 */
+	public ProtobufBuffer() {
+		this(1024);
+	}
+
+	ProtobufBuffer(int capacity) {
+		this.buf = new byte[Math.max(16, capacity)];
+	}
+
+	@Override
+	public void drain(LogOutput output, LogEvent event) {
+		output.write(event, buf, 0, count, StandardContentType.APPLICATION_PROTOBUF);
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		count = 0;
+		formattedMessageBuilder.setLength(0);
+	}
+
+	@Override
+	public boolean trim(int retainedCapacity) {
+		count = 0;
+		boolean trimmed = false;
+		if (buf.length > retainedCapacity) {
+			buf = new byte[Math.max(16, retainedCapacity)];
+			trimmed = true;
+		}
+		return Buffer.trim(formattedMessageBuilder, retainedCapacity) || trimmed;
+	}
+
+	/**
+	 * Reusable String buffer for formatted messages.
+	 * @return buffer.
+	 */
+	public StringBuilder formattedMessageBuilder() {
+		return this.formattedMessageBuilder;
+	}
+
+	/**
+	 * Number of bytes written.
+	 * @return size.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Copies the written bytes.
+	 * @return a copy of the written bytes.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+
+	private void ensureCapacity(int extra) {
+		int minCapacity = count + extra;
+		if (minCapacity > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length << 1, minCapacity));
+		}
+	}
+
+	/**
+	 * Writes a field tag.
+	 * @param field field number.
+	 * @param wireType wire type.
+	 */
+	void writeTag(int field, int wireType) {
+		writeVarint((field << 3) | wireType);
+	}
+
+	/**
+	 * Writes an unsigned varint.
+	 * @param value treated as unsigned.
+	 */
+	void writeVarint(long value) {
+		ensureCapacity(10);
+		byte[] b = buf;
+		int c = count;
+		while ((value & ~0x7FL) != 0) {
+			b[c++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		b[c++] = (byte) value;
+		count = c;
+	}
+
+	/**
+	 * Writes a little endian 64 bit value.
+	 * @param value value.
+	 */
+	void writeFixed64(long value) {
+		ensureCapacity(8);
+		byte[] b = buf;
+		int c = count;
+		for (int i = 0; i < 8; i++) {
+			b[c++] = (byte) value;
+			value >>>= 8;
+		}
+		count = c;
+	}
+
+	/**
+	 * Writes a little endian 32 bit value.
+	 * @param value value.
+	 */
+	void writeFixed32(int value) {
+		ensureCapacity(4);
+		byte[] b = buf;
+		int c = count;
+		b[c++] = (byte) value;
+		b[c++] = (byte) (value >>> 8);
+		b[c++] = (byte) (value >>> 16);
+		b[c++] = (byte) (value >>> 24);
+		count = c;
+	}
+
+	void writeRawByte(int value) {
+		ensureCapacity(1);
+		buf[count++] = (byte) value;
+	}
+
+	/**
+	 * Discards everything written after the given size.
+	 * @param size a previous {@link #size()}.
+	 */
+	void truncate(int size) {
+		count = size;
+	}
+
+	void writeVarintField(int field, long value) {
+		writeTag(field, WIRE_VARINT);
+		writeVarint(value);
+	}
+
+	void writeFixed64Field(int field, long value) {
+		writeTag(field, WIRE_FIXED64);
+		writeFixed64(value);
+	}
+
+	void writeFixed32Field(int field, int value) {
+		writeTag(field, WIRE_FIXED32);
+		writeFixed32(value);
+	}
+
+	void writeBytesField(int field, byte[] value, int off, int len) {
+		writeTag(field, WIRE_LEN);
+		writeVarint(len);
+		ensureCapacity(len);
+		System.arraycopy(value, off, buf, count, len);
+		count += len;
+	}
+
+	void writeStringField(int field, CharSequence value) {
+		writeStringField(field, value, 0, value.length());
+	}
+
+	/**
+	 * Writes a string field encoded as UTF-8. Unpaired surrogates are replaced with
+	 * <code>?</code>.
+	 */
+	void writeStringField(int field, CharSequence value, int start, int end) {
+		writeTag(field, WIRE_LEN);
+		int i = start;
+		while (i < end && value.charAt(i) < 0x80) {
+			i++;
+		}
+		if (i == end) {
+			int length = end - start;
+			writeVarint(length);
+			ensureCapacity(length);
+			byte[] b = buf;
+			int c = count;
+			for (int j = start; j < end; j++) {
+				b[c++] = (byte) value.charAt(j);
+			}
+			count = c;
+			return;
+		}
+		int length = (i - start) + utf8Length(value, i, end);
+		writeVarint(length);
+		ensureCapacity(length);
+		count = encodeUtf8(value, start, end, buf, count);
+	}
+
+	/**
+	 * Starts a length delimited nested message.
+	 * @param field field number of the message.
+	 * @return position to pass to {@link #endMessage(int)}.
+	 */
+	int beginMessage(int field) {
+		writeTag(field, WIRE_LEN);
+		ensureCapacity(MAX_LENGTH_VARINT);
+		int start = count;
+		count += MAX_LENGTH_VARINT;
+		return start;
+	}
+
+	/**
+	 * Ends a nested message started with {@link #beginMessage(int)}.
+	 * @param start position returned from begin.
+	 */
+	void endMessage(int start) {
+		int contentStart = start + MAX_LENGTH_VARINT;
+		int length = count - contentStart;
+		int varintSize = varintSize(length);
+		if (varintSize != MAX_LENGTH_VARINT) {
+			System.arraycopy(buf, contentStart, buf, start + varintSize, length);
+			count -= MAX_LENGTH_VARINT - varintSize;
+		}
+		int c = start;
+		long value = length;
+		while ((value & ~0x7FL) != 0) {
+			buf[c++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[c] = (byte) value;
+	}
+
+	static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			size++;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	private static int utf8Length(CharSequence value, int start, int end) {
+		int length = end - start;
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if (ch >= 0x80) {
+				if (ch < 0x800) {
+					length += 1;
+				}
+				else if (Character.isHighSurrogate(ch) && i + 1 < end
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					length += 2;
+					i++;
+				}
+				else if (!Character.isSurrogate(ch)) {
+					length += 2;
+				}
+			}
+		}
+		return length;
+	}
+
+	private static int encodeUtf8(CharSequence value, int start, int end, byte[] b, int c) {
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if (ch < 0x80) {
+				b[c++] = (byte) ch;
+			}
+			else if (ch < 0x800) {
+				b[c++] = (byte) (0xc0 | (ch >> 6));
+				b[c++] = (byte) (0x80 | (ch & 0x3f));
+			}
+			else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(ch, value.charAt(++i));
+				b[c++] = (byte) (0xf0 | (cp >> 18));
+				b[c++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				b[c++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				b[c++] = (byte) (0x80 | (cp & 0x3f));
+			}
+			else if (Character.isSurrogate(ch)) {
+				b[c++] = (byte) '?';
+			}
+			else {
+				b[c++] = (byte) (0xe0 | (ch >> 12));
+				b[c++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+				b[c++] = (byte) (0x80 | (ch & 0x3f));
+			}
+		}
+		return c;
+	}
+
+}
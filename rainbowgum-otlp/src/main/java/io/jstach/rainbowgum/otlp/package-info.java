@@ -0,0 +1,5 @@
+/**
+ * OpenTelemetry protobuf log encoder and HTTP export output.
+ */
+@org.eclipse.jdt.annotation.NonNullByDefault
+package io.jstach.rainbowgum.otlp;
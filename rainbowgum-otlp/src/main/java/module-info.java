@@ -0,0 +1,20 @@
+/**
+ * Provides an <a href="https://opentelemetry.io/docs/specs/otlp/">OpenTelemetry (OTLP)</a>
+ * protobuf log encoder and an output that exports batches to a collector over HTTP.
+ * This module does not require protobuf or OpenTelemetry libraries but instead
+ * provides a zero dependency protobuf writer.
+ * @see io.jstach.rainbowgum.otlp.OtlpLogEncoder
+ * @see io.jstach.rainbowgum.otlp.OtlpHttpOutput
+ */
+module io.jstach.rainbowgum.otlp {
+	exports io.jstach.rainbowgum.otlp;
+	requires transitive io.jstach.rainbowgum;
+	requires java.net.http;
+
+	requires static io.jstach.rainbowgum.annotation;
+	requires static io.jstach.svc;
+	requires static org.eclipse.jdt.annotation;
+
+	provides io.jstach.rainbowgum.spi.RainbowGumServiceProvider
+		with io.jstach.rainbowgum.otlp.OtlpConfigurator;
+}
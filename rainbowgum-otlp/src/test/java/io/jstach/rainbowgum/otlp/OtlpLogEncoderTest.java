@@ -0,0 +1,475 @@
+package io.jstach.rainbowgum.otlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.System.Logger.Level;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import io.jstach.rainbowgum.KeyValues;
+import io.jstach.rainbowgum.KeyValues.MutableKeyValues;
+import io.jstach.rainbowgum.LogConfig;
+import io.jstach.rainbowgum.LogEvent;
+import io.jstach.rainbowgum.LogMessageFormatter.StandardMessageFormatter;
+import io.jstach.rainbowgum.LogOutput.WriteMethod;
+import io.jstach.rainbowgum.LogProperties;
+import io.jstach.rainbowgum.RainbowGum;
+
+class OtlpLogEncoderTest {
+
+	static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+	static final String SPAN_ID = "00f067aa0ba902b7";
+
+	@Test
+	void testEncodeLogRecord() {
+		Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+		MutableKeyValues kvs = MutableKeyValues.of();
+		kvs.putKeyValue("trace_id", TRACE_ID);
+		kvs.putKeyValue("span_id", SPAN_ID);
+		kvs.putKeyValue("trace_flags", "01");
+		kvs.putKeyValue("user", "alice");
+		kvs.putKeyValue("empty", null);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 42L, Level.WARNING, "io.example.Service", "hello {} ü", kvs, null,
+					StandardMessageFormatter.SLF4J, List.of("world"))
+			.freeze(instant);
+
+		var scopeLogs = Message.parse(encode(e)).message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS);
+		assertEquals("io.example.Service",
+				scopeLogs.message(OtlpLogEncoder.SCOPE_LOGS_SCOPE).string(OtlpLogEncoder.SCOPE_NAME));
+		var record = scopeLogs.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+		long nanos = 1_700_000_000_123_456_789L;
+		assertEquals(nanos, record.number(OtlpLogEncoder.LOG_RECORD_TIME_UNIX_NANO));
+		assertEquals(nanos, record.number(OtlpLogEncoder.LOG_RECORD_OBSERVED_TIME_UNIX_NANO));
+		assertEquals(13L, record.number(OtlpLogEncoder.LOG_RECORD_SEVERITY_NUMBER));
+		assertEquals("WARN", record.string(OtlpLogEncoder.LOG_RECORD_SEVERITY_TEXT));
+		assertEquals("hello world ü",
+				record.message(OtlpLogEncoder.LOG_RECORD_BODY).string(OtlpLogEncoder.ANY_VALUE_STRING));
+		assertArrayEquals(HexFormat.of().parseHex(TRACE_ID), record.bytes(OtlpLogEncoder.LOG_RECORD_TRACE_ID));
+		assertArrayEquals(HexFormat.of().parseHex(SPAN_ID), record.bytes(OtlpLogEncoder.LOG_RECORD_SPAN_ID));
+		assertEquals(1L, record.number(OtlpLogEncoder.LOG_RECORD_FLAGS));
+
+		Map<String, @Nullable Object> expected = new LinkedHashMap<>();
+		expected.put("user", "alice");
+		expected.put("empty", null);
+		expected.put("thread.name", "main");
+		expected.put("thread.id", 42L);
+		assertEquals(expected, attributes(record));
+		assertEquals(List.copyOf(expected.keySet()), List.copyOf(attributes(record).keySet()));
+	}
+
+	@Test
+	void testInvalidTraceContextStaysAttribute() {
+		Instant instant = Instant.ofEpochMilli(1);
+		MutableKeyValues kvs = MutableKeyValues.of();
+		kvs.putKeyValue("trace_id", "not-a-trace-id-but-32-chars-long");
+		kvs.putKeyValue("span_id", "short");
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "hello", kvs, null, StandardMessageFormatter.SLF4J,
+					List.of())
+			.freeze(instant);
+		var record = Message.parse(encode(e))
+			.message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)
+			.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+		assertFalse(record.has(OtlpLogEncoder.LOG_RECORD_TRACE_ID));
+		assertFalse(record.has(OtlpLogEncoder.LOG_RECORD_SPAN_ID));
+		var attributes = attributes(record);
+		assertEquals("not-a-trace-id-but-32-chars-long", attributes.get("trace_id"));
+		assertEquals("short", attributes.get("span_id"));
+	}
+
+	@Test
+	void testCustomTraceContextKeys() {
+		Instant instant = Instant.ofEpochMilli(1);
+		MutableKeyValues kvs = MutableKeyValues.of();
+		kvs.putKeyValue("traceId", TRACE_ID);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", "hello", kvs, null, StandardMessageFormatter.SLF4J,
+					List.of())
+			.freeze(instant);
+		var encoder = OtlpLogEncoder.of("traceId", "spanId", "traceFlags");
+		var buffer = (ProtobufBuffer) encoder.buffer(WriteMethod.BYTES);
+		encoder.encode(e, buffer);
+		var record = Message.parse(buffer.toByteArray())
+			.message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)
+			.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+		assertArrayEquals(HexFormat.of().parseHex(TRACE_ID), record.bytes(OtlpLogEncoder.LOG_RECORD_TRACE_ID));
+		assertNull(attributes(record).get("traceId"));
+	}
+
+	@Test
+	void testThrowableAttributes() {
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.ERROR, "test", "failed", KeyValues.of(),
+					new IllegalStateException("boom"), StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		var record = Message.parse(encode(e))
+			.message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)
+			.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+		assertEquals(17L, record.number(OtlpLogEncoder.LOG_RECORD_SEVERITY_NUMBER));
+		var attributes = attributes(record);
+		assertEquals("java.lang.IllegalStateException", attributes.get("exception.type"));
+		assertEquals("boom", attributes.get("exception.message"));
+		String stacktrace = (String) attributes.get("exception.stacktrace");
+		assertTrue(stacktrace != null && stacktrace.contains("OtlpLogEncoderTest"), stacktrace);
+	}
+
+	@Test
+	void testLargeNestedMessageLengths() {
+		/*
+		 * A message over 16K forces 3 byte length varints at every nesting level.
+		 */
+		String message = "x".repeat(20_000);
+		Instant instant = Instant.ofEpochMilli(1);
+		LogEvent e = LogEvent
+			.ofAll(instant, "main", 1L, Level.INFO, "test", message, KeyValues.of(), null,
+					StandardMessageFormatter.SLF4J, List.of())
+			.freeze(instant);
+		var record = Message.parse(encode(e))
+			.message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)
+			.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+		assertEquals(message, record.message(OtlpLogEncoder.LOG_RECORD_BODY).string(OtlpLogEncoder.ANY_VALUE_STRING));
+	}
+
+	@Test
+	void testEndpoint() {
+		assertEquals(URI.create("http://localhost:4318/v1/logs"),
+				OtlpHttpOutput.endpoint(URI.create("otlp://localhost")));
+		assertEquals(URI.create("https://collector:443/custom/logs"),
+				OtlpHttpOutput.endpoint(URI.create("otlps://collector:443/custom/logs?batchSize=10")));
+		assertThrows(IllegalArgumentException.class, () -> OtlpHttpOutput.endpoint(URI.create("otlp:///")));
+	}
+
+	@Test
+	void testHttpOutputBatchesRequests() throws Exception {
+		try (var server = new StandInCollector(200)) {
+			var output = new OtlpHttpOutput(server.uri(), server.uri(), "orders", 2, 1024 * 1024,
+					Duration.ofSeconds(5), Map.of("Authorization", "Bearer token"));
+			var encoder = OtlpLogEncoder.of();
+			var buffer = encoder.buffer(WriteMethod.BYTES);
+			for (int i = 0; i < 5; i++) {
+				Instant instant = Instant.ofEpochMilli(i);
+				LogEvent e = LogEvent
+					.ofAll(instant, "main", 1L, Level.INFO, "logger" + i, "event " + i, KeyValues.of(), null,
+							StandardMessageFormatter.SLF4J, List.of())
+					.freeze(instant);
+				encoder.encode(e, buffer);
+				output.write(e, buffer);
+			}
+			output.flush();
+			output.status();
+			output.close();
+
+			var requests = server.requests();
+			assertEquals(3, requests.size());
+			List<String> bodies = new ArrayList<>();
+			for (var request : requests) {
+				assertEquals("/v1/logs", request.path());
+				assertEquals("application/x-protobuf", request.headers().get("content-type"));
+				assertEquals("Bearer token", request.headers().get("authorization"));
+				var resourceLogs = Message.parse(request.body()).message(1);
+				var resource = resourceLogs.message(OtlpLogEncoder.RESOURCE_LOGS_RESOURCE);
+				assertEquals(Map.of("service.name", "orders"), attributes(resource, 1));
+				for (var scopeLogs : resourceLogs.messages(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)) {
+					bodies.add(scopeLogs.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS)
+						.message(OtlpLogEncoder.LOG_RECORD_BODY)
+						.string(OtlpLogEncoder.ANY_VALUE_STRING));
+				}
+			}
+			assertEquals(List.of("event 0", "event 1", "event 2", "event 3", "event 4"), bodies);
+		}
+	}
+
+	@Test
+	void testHttpOutputErrorStatus() throws Exception {
+		try (var server = new StandInCollector(503)) {
+			var output = new OtlpHttpOutput(server.uri(), server.uri(), "orders", 10, 1024 * 1024,
+					Duration.ofSeconds(5), Map.of());
+			var encoder = OtlpLogEncoder.of();
+			var buffer = encoder.buffer(WriteMethod.BYTES);
+			Instant instant = Instant.ofEpochMilli(1);
+			LogEvent e = LogEvent
+				.ofAll(instant, "main", 1L, Level.INFO, "test", "hello", KeyValues.of(), null,
+						StandardMessageFormatter.SLF4J, List.of())
+				.freeze(instant);
+			encoder.encode(e, buffer);
+			output.write(e, buffer);
+			output.flush();
+			// requests are sent by the sender thread which close waits for
+			output.close();
+			assertThrows(IOException.class, output::status);
+			assertEquals(1, server.requests().size());
+		}
+	}
+
+	@Test
+	void testConfiguredFromProperties() throws Exception {
+		try (var server = new StandInCollector(200)) {
+			int port = server.uri().getPort();
+			String properties = """
+					logging.appenders=otlp
+					logging.appender.otlp.output=otlp://localhost:%d/v1/logs?serviceName=orders&batchSize=5
+					logging.appender.otlp.encoder=otlp
+					logging.encoder.otlp.traceIdKey=tid
+					""".formatted(port);
+			LogConfig config = LogConfig.builder()
+				.properties(LogProperties.builder().fromProperties(properties).build())
+				.configurator(new OtlpConfigurator())
+				.build();
+			try (var r = RainbowGum.builder(config).build().start()) {
+				r.router()
+					.eventBuilder("configured", Level.INFO)
+					.message("hello")
+					.keyValues(MutableKeyValues.of().add("tid", TRACE_ID))
+					.log();
+			}
+			var requests = server.requests();
+			assertEquals(1, requests.size());
+			var resourceLogs = Message.parse(requests.get(0).body()).message(1);
+			var resource = resourceLogs.message(OtlpLogEncoder.RESOURCE_LOGS_RESOURCE);
+			assertEquals(Map.of("service.name", "orders"), attributes(resource, 1));
+			var record = resourceLogs.message(OtlpLogEncoder.RESOURCE_LOGS_SCOPE_LOGS)
+				.message(OtlpLogEncoder.SCOPE_LOGS_LOG_RECORDS);
+			assertArrayEquals(HexFormat.of().parseHex(TRACE_ID), record.bytes(OtlpLogEncoder.LOG_RECORD_TRACE_ID));
+		}
+	}
+
+	private static byte[] encode(LogEvent e) {
+		var encoder = OtlpLogEncoder.of();
+		var buffer = (ProtobufBuffer) encoder.buffer(WriteMethod.BYTES);
+		encoder.encode(e, buffer);
+		return buffer.toByteArray();
+	}
+
+	private static Map<String, @Nullable Object> attributes(Message record) {
+		return attributes(record, OtlpLogEncoder.LOG_RECORD_ATTRIBUTES);
+	}
+
+	private static Map<String, @Nullable Object> attributes(Message message, int field) {
+		Map<String, @Nullable Object> attributes = new LinkedHashMap<>();
+		for (var kv : message.messages(field)) {
+			var value = kv.message(OtlpLogEncoder.KEY_VALUE_VALUE);
+			Object v;
+			if (value.has(OtlpLogEncoder.ANY_VALUE_STRING)) {
+				v = value.string(OtlpLogEncoder.ANY_VALUE_STRING);
+			}
+			else if (value.has(OtlpLogEncoder.ANY_VALUE_INT)) {
+				v = value.number(OtlpLogEncoder.ANY_VALUE_INT);
+			}
+			else {
+				v = null;
+			}
+			attributes.put(kv.string(OtlpLogEncoder.KEY_VALUE_KEY), v);
+		}
+		return attributes;
+	}
+
+	/*
+	 * Minimal protobuf reader that keeps every field as a list of raw values.
+	 */
+	record Message(Map<Integer, List<Object>> fields) {
+
+		static Message parse(byte[] bytes) {
+			Map<Integer, List<Object>> fields = new LinkedHashMap<>();
+			int[] pos = { 0 };
+			while (pos[0] < bytes.length) {
+				long tag = varint(bytes, pos);
+				int field = (int) (tag >>> 3);
+				Object value = switch ((int) (tag & 7)) {
+					case 0 -> varint(bytes, pos);
+					case 1 -> {
+						long v = 0;
+						for (int i = 7; i >= 0; i--) {
+							v = (v << 8) | (bytes[pos[0] + i] & 0xff);
+						}
+						pos[0] += 8;
+						yield v;
+					}
+					case 2 -> {
+						int len = (int) varint(bytes, pos);
+						byte[] v = java.util.Arrays.copyOfRange(bytes, pos[0], pos[0] + len);
+						pos[0] += len;
+						yield v;
+					}
+					case 5 -> {
+						long v = 0;
+						for (int i = 3; i >= 0; i--) {
+							v = (v << 8) | (bytes[pos[0] + i] & 0xff);
+						}
+						pos[0] += 4;
+						yield v;
+					}
+					default -> throw new IllegalArgumentException("wire type: " + (tag & 7));
+				};
+				fields.computeIfAbsent(field, k -> new ArrayList<>()).add(value);
+			}
+			return new Message(fields);
+		}
+
+		private static long varint(byte[] bytes, int[] pos) {
+			long result = 0;
+			int shift = 0;
+			while (true) {
+				byte b = bytes[pos[0]++];
+				result |= (long) (b & 0x7f) << shift;
+				if (b >= 0) {
+					return result;
+				}
+				shift += 7;
+			}
+		}
+
+		boolean has(int field) {
+			return fields.containsKey(field);
+		}
+
+		Object one(int field) {
+			var values = fields.get(field);
+			if (values == null || values.size() != 1) {
+				throw new AssertionError("expected one field " + field + " in " + fields.keySet());
+			}
+			return values.get(0);
+		}
+
+		long number(int field) {
+			return (Long) one(field);
+		}
+
+		byte[] bytes(int field) {
+			return (byte[]) one(field);
+		}
+
+		String string(int field) {
+			return new String(bytes(field), StandardCharsets.UTF_8);
+		}
+
+		Message message(int field) {
+			return parse(bytes(field));
+		}
+
+		List<Message> messages(int field) {
+			return fields.getOrDefault(field, List.of()).stream().map(b -> parse((byte[]) b)).toList();
+		}
+
+	}
+
+	record Request(String path, Map<String, String> headers, byte[] body) {
+	}
+
+	/*
+	 * Just enough HTTP/1.1 to stand in for a collector without pulling in an HTTP server
+	 * module.
+	 */
+	static final class StandInCollector implements AutoCloseable {
+
+		private final ServerSocket serverSocket;
+
+		private final int status;
+
+		private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+		private final Thread thread;
+
+		StandInCollector(int status) throws IOException {
+			this.serverSocket = new ServerSocket(0);
+			this.status = status;
+			this.thread = Thread.ofPlatform().daemon().start(this::run);
+		}
+
+		URI uri() {
+			return URI.create("http://localhost:" + serverSocket.getLocalPort() + "/v1/logs");
+		}
+
+		List<Request> requests() {
+			return requests;
+		}
+
+		private void run() {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					Thread.ofPlatform().daemon().start(() -> handle(socket));
+				}
+				catch (IOException e) {
+					return;
+				}
+			}
+		}
+
+		private void handle(Socket socket) {
+			try (socket) {
+				InputStream in = new BufferedInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				while (true) {
+					String requestLine = readLine(in);
+					if (requestLine == null || requestLine.isEmpty()) {
+						return;
+					}
+					Map<String, String> headers = new LinkedHashMap<>();
+					String line;
+					while ((line = readLine(in)) != null && !line.isEmpty()) {
+						int colon = line.indexOf(':');
+						headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+								line.substring(colon + 1).trim());
+					}
+					int length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+					byte[] body = in.readNBytes(length);
+					requests.add(new Request(requestLine.split(" ")[1], headers, body));
+					out.write(("HTTP/1.1 " + status + " X\r\nContent-Length: 0\r\n\r\n")
+						.getBytes(StandardCharsets.US_ASCII));
+					out.flush();
+				}
+			}
+			catch (IOException e) {
+				// connection closed by client.
+			}
+		}
+
+		private static @Nullable String readLine(InputStream in) throws IOException {
+			var line = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != -1) {
+				if (b == '\n') {
+					String s = line.toString(StandardCharsets.US_ASCII);
+					return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+				}
+				line.write(b);
+			}
+			return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+		}
+
+		@Override
+		public void close() throws Exception {
+			serverSocket.close();
+			thread.join(1000);
+		}
+
+	}
+
+}
@@ -27,9 +27,11 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -201,6 +203,16 @@ enum CallerInfoFormatter implements EventFormatter {
 
 	protected abstract void format(StringBuilder output, Caller caller);
 
+	@Override
+	public boolean requiresCaller() {
+		return true;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
 }
 
 enum StandardKeywordFactory implements KeywordFactory {
@@ -219,6 +231,10 @@ enum StandardKeywordFactory implements KeywordFactory {
 			if (locale != null) {
 				dtf = dtf.withLocale(locale);
 			}
+			int fractionDigits = trailingFractionDigits(pattern);
+			if (fractionDigits >= 0) {
+				return LogFormatter.TimestampFormatter.ofCachedSeconds(dtf, fractionDigits);
+			}
 			return LogFormatter.TimestampFormatter.of(dtf, isMillisOrCoarserPrecision(pattern));
 		}
 	},
@@ -426,6 +442,38 @@ enum StandardKeywordFactory implements KeywordFactory {
 		return true;
 	}
 
+	/**
+	 * The number of fraction of second digits if the only sub second field of a
+	 * {@link DateTimeFormatter} pattern is a run of {@code S} at its very end (e.g.
+	 * {@code HH:mm:ss.SSS}), 0 if it has no sub second fields at all, otherwise -1.
+	 * Patterns with a non negative result can be cached by second (see
+	 * {@link LogFormatter.TimestampFormatter#ofCachedSeconds(DateTimeFormatter, int)}).
+	 */
+	static int trailingFractionDigits(String pattern) {
+		boolean literal = false;
+		int consecutiveS = 0;
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (consecutiveS > 0 && c != 'S') {
+				return -1;
+			}
+			if (c == '\'') {
+				literal = !literal;
+				continue;
+			}
+			if (literal) {
+				continue;
+			}
+			if (c == 'n' || c == 'N' || c == 'A') {
+				return -1;
+			}
+			if (c == 'S') {
+				consecutiveS++;
+			}
+		}
+		return consecutiveS <= 9 ? consecutiveS : -1;
+	}
+
 	// MICROS, //
 	// THREAD, //
 	// LEVEL, //
@@ -446,6 +494,16 @@ enum StandardKeywordFactory implements KeywordFactory {
 
 	record LoggerFormatter(Abbreviator abbreviator) implements LogFormatter.EventFormatter {
 
+		@Override
+		public boolean requiresCaller() {
+			return false;
+		}
+
+		@Override
+		public boolean isStateless() {
+			return true;
+		}
+
 		@Override
 		public void format(StringBuilder output, LogEvent event) {
 			String out = abbreviator.abbreviate(event.loggerName());
@@ -457,6 +515,16 @@ enum StandardKeywordFactory implements KeywordFactory {
 
 	record RelativeTimeFormatter(Instant startTime) implements LogFormatter.EventFormatter {
 
+		@Override
+		public boolean requiresCaller() {
+			return false;
+		}
+
+		@Override
+		public boolean isStateless() {
+			return true;
+		}
+
 		@Override
 		public void format(StringBuilder output, LogEvent event) {
 			long millis = Duration.between(startTime, event.timestamp()).toMillis();
@@ -467,6 +535,19 @@ enum StandardKeywordFactory implements KeywordFactory {
 
 	record LocalSequenceNumberFormatter(AtomicLong counter) implements LogFormatter.EventFormatter {
 
+		@Override
+		public boolean requiresCaller() {
+			return false;
+		}
+
+		/*
+		 * The number depends on how many events were formatted before.
+		 */
+		@Override
+		public boolean isStateless() {
+			return false;
+		}
+
 		@Override
 		public void format(StringBuilder output, LogEvent event) {
 			output.append(counter.getAndIncrement());
@@ -543,27 +624,63 @@ final class ANSIConstants {
 
 	final static String BRIGHT_WHITE = "97";
 
+	static String escape(String code) {
+		return ESC_START + code + ESC_END;
+	}
+
+	/*
+	 * Complete escape sequences indexed by level ordinal.
+	 */
+	static String[] levelStarts(Function<Level, String> codes) {
+		var levels = Level.values();
+		String[] starts = new String[levels.length];
+		for (var level : levels) {
+			starts[level.ordinal()] = escape(codes.apply(level));
+		}
+		return starts;
+	}
+
+	static String[] constantStarts(String code) {
+		String[] starts = new String[Level.values().length];
+		Arrays.fill(starts, escape(code));
+		return starts;
+	}
+
 }
 
+/*
+ * The escape sequences are precomputed per level ordinal so that formatting an event
+ * appends a single string before and after the child.
+ */
 record HighlightFormatter(@Nullable LogFormatter child) implements LogFormatter.EventFormatter {
 
+	static final String[] STARTS = ANSIConstants.levelStarts(HighlightFormatter::levelToANSI);
+
+	@Override
+	public boolean requiresCaller() {
+		var c = child;
+		return c != null && c.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		var c = child;
+		return c == null || c.isStateless();
+	}
+
 	@Override
 	public void format(StringBuilder output, LogEvent event) {
 		/*
 		 * TODO should a null child be a noop? Need to see what logback does for compat.
 		 */
-		var level = event.level();
-		String code = levelToANSI(level);
-		output.append(ANSIConstants.ESC_START);
-		output.append(code);
-		output.append(ANSIConstants.ESC_END);
+		output.append(STARTS[event.level().ordinal()]);
 		if (child != null) {
 			child.format(output, event);
 		}
 		output.append(ANSIConstants.SET_DEFAULT_COLOR);
 	}
 
-	private static String levelToANSI(Level level) {
+	static String levelToANSI(Level level) {
 		return switch (level) {
 			case ERROR -> BOLD + RED_FG;
 			case WARNING -> BOLD + RED_FG;
@@ -579,23 +696,33 @@ record HighlightFormatter(@Nullable LogFormatter child) implements LogFormatter.
  */
 record ClrLevelFormatter(@Nullable LogFormatter child) implements LogFormatter.EventFormatter {
 
+	static final String[] STARTS = ANSIConstants.levelStarts(ClrLevelFormatter::levelToANSI);
+
+	@Override
+	public boolean requiresCaller() {
+		var c = child;
+		return c != null && c.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		var c = child;
+		return c == null || c.isStateless();
+	}
+
 	@Override
 	public void format(StringBuilder output, LogEvent event) {
 		/*
 		 * TODO should a null child be a noop? Need to see what logback does for compat.
 		 */
-		var level = event.level();
-		String code = levelToANSI(level);
-		output.append(ANSIConstants.ESC_START);
-		output.append(code);
-		output.append(ANSIConstants.ESC_END);
+		output.append(STARTS[event.level().ordinal()]);
 		if (child != null) {
 			child.format(output, event);
 		}
 		output.append(ANSIConstants.SET_DEFAULT_COLOR);
 	}
 
-	private static String levelToANSI(Level level) {
+	static String levelToANSI(Level level) {
 		return switch (level) {
 			case ERROR -> RED_FG;
 			case WARNING -> YELLOW_FG;
@@ -608,13 +735,26 @@ record ClrLevelFormatter(@Nullable LogFormatter child) implements LogFormatter.E
 
 }
 
-record ClrStaticFormatter(@Nullable LogFormatter child, String code) implements LogFormatter.EventFormatter {
+/*
+ * The start is the complete escape sequence.
+ */
+record ClrStaticFormatter(@Nullable LogFormatter child, String start) implements LogFormatter.EventFormatter {
+
+	@Override
+	public boolean requiresCaller() {
+		var c = child;
+		return c != null && c.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		var c = child;
+		return c == null || c.isStateless();
+	}
 
 	@Override
 	public void format(StringBuilder output, LogEvent event) {
-		output.append(ANSIConstants.ESC_START);
-		output.append(code);
-		output.append(ANSIConstants.ESC_END);
+		output.append(start);
 		if (child != null) {
 			child.format(output, event);
 		}
@@ -623,6 +763,72 @@ record ClrStaticFormatter(@Nullable LogFormatter child, String code) implements
 
 }
 
+/*
+ * Output that only depends on the level such as the level keyword with its padding and
+ * any colors around it. The complete text is precomputed per level ordinal when the
+ * pattern is compiled.
+ */
+record LevelTableFormatter(String[] levels) implements LogFormatter.EventFormatter {
+
+	private static final Level[] LEVELS = Level.values();
+
+	@Override
+	public boolean requiresCaller() {
+		return false;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
+	@Override
+	public void format(StringBuilder output, LogEvent event) {
+		output.append(levels[event.level().ordinal()]);
+	}
+
+	/*
+	 * Returns null if the formatter output depends on more than the level.
+	 */
+	static @Nullable LevelTableFormatter ofOrNull(@Nullable LogFormatter formatter) {
+		if (formatter instanceof LevelTableFormatter t) {
+			return t;
+		}
+		if (formatter instanceof LogFormatter.LevelFormatter lf) {
+			String[] levels = new String[LEVELS.length];
+			for (var level : LEVELS) {
+				levels[level.ordinal()] = lf.formatLevel(level);
+			}
+			return new LevelTableFormatter(levels);
+		}
+		return null;
+	}
+
+	LevelTableFormatter pad(Padding padding) {
+		String[] padded = new String[levels.length];
+		for (int i = 0; i < levels.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			padding.format(sb, levels[i]);
+			padded[i] = sb.toString();
+		}
+		return new LevelTableFormatter(padded);
+	}
+
+	LevelTableFormatter wrap(String[] starts, String end) {
+		String[] wrapped = new String[levels.length];
+		for (int i = 0; i < levels.length; i++) {
+			wrapped[i] = starts[i] + levels[i] + end;
+		}
+		return new LevelTableFormatter(wrapped);
+	}
+
+	@Override
+	public String toString() {
+		return "LevelTableFormatter[levels=" + Arrays.toString(levels) + "]";
+	}
+
+}
+
 enum HighlightCompositeFactory implements CompositeFactory {
 
 	HIGHTLIGHT() {
@@ -635,6 +841,10 @@ enum HighlightCompositeFactory implements CompositeFactory {
 				}
 				return child;
 			}
+			var table = LevelTableFormatter.ofOrNull(child);
+			if (table != null) {
+				return table.wrap(HighlightFormatter.STARTS, ANSIConstants.SET_DEFAULT_COLOR);
+			}
 			return new HighlightFormatter(child);
 		}
 
@@ -654,10 +864,21 @@ enum HighlightCompositeFactory implements CompositeFactory {
 				return child;
 			}
 			String color = node.optOrNull(0, HighlightCompositeFactory::clrParseColor);
+			var table = LevelTableFormatter.ofOrNull(child);
 			if (color == null) {
+				if (table != null) {
+					return table.wrap(ClrLevelFormatter.STARTS, ANSIConstants.SET_DEFAULT_COLOR);
+				}
 				return new ClrLevelFormatter(child);
 			}
-			return new ClrStaticFormatter(child, color);
+			if (table != null) {
+				return table.wrap(ANSIConstants.constantStarts(color), ANSIConstants.SET_DEFAULT_COLOR);
+			}
+			if (child instanceof LogFormatter.StaticFormatter sf) {
+				return new LogFormatter.StaticFormatter(
+						ANSIConstants.escape(color) + sf.content() + ANSIConstants.SET_DEFAULT_COLOR);
+			}
+			return new ClrStaticFormatter(child, ANSIConstants.escape(color));
 		}
 
 	};
@@ -724,11 +945,15 @@ enum ColorCompositeFactory implements CompositeFactory {
 	}
 
 	LogFormatter create(PatternKeyword node, @Nullable LogFormatter child, boolean ansi) {
+		if (ansi) {
+			var table = LevelTableFormatter.ofOrNull(child);
+			if (table != null) {
+				return table.wrap(ANSIConstants.constantStarts(fg), ANSIConstants.SET_DEFAULT_COLOR);
+			}
+		}
 		var b = LogFormatter.builder();
 		if (ansi) {
-			b.text(ANSIConstants.ESC_START);
-			b.text(fg);
-			b.text(ANSIConstants.ESC_END);
+			b.text(ANSIConstants.escape(fg));
 		}
 		if (child != null) {
 			b.add(child);
@@ -748,6 +973,16 @@ enum ColorCompositeFactory implements CompositeFactory {
 
 record PadFormatter(Padding padding, LogFormatter formatter) implements LogFormatter.EventFormatter {
 
+	@Override
+	public boolean requiresCaller() {
+		return formatter.requiresCaller();
+	}
+
+	@Override
+	public boolean isStateless() {
+		return formatter.isStateless();
+	}
+
 	public static LogFormatter of(LogFormatter formatter, @Nullable Padding padding) {
 		if (padding == null) {
 			return formatter;
@@ -757,6 +992,10 @@ record PadFormatter(Padding padding, LogFormatter formatter) implements LogForma
 			padding.format(b, sf.content());
 			return new LogFormatter.StaticFormatter(b.toString());
 		}
+		var table = LevelTableFormatter.ofOrNull(formatter);
+		if (table != null) {
+			return table.pad(padding);
+		}
 		return new PadFormatter(padding, formatter);
 	}
 
@@ -92,6 +92,24 @@ class CompilerTest {
 		assertEquals("012", sb.toString());
 	}
 
+	@Test
+	void testRequiresCallerOnlyForCallerKeywords() {
+		var c = PatternCompiler.builder().patternConfig(PatternConfig.ofUniversal()).build();
+		for (var k : KeywordKey.values()) {
+			boolean expected = switch (k) {
+				case CLASS, FILE, LINE, METHOD -> true;
+				default -> false;
+			};
+			for (String alias : k.aliases()) {
+				String pattern = "%" + alias;
+				assertEquals(expected, c.compile(pattern).requiresCaller(), pattern);
+			}
+		}
+		assertFalse(c.compile("%d [%thread] %-5level %logger{36} - %msg%n").requiresCaller());
+		assertTrue(c.compile("%d %highlight(%-5level) %cyan(%logger{15}.%M:%L) - %msg%n").requiresCaller());
+		assertTrue(c.compile("%clr(%5.10file)").requiresCaller());
+	}
+
 	public static final boolean OUTPUT = true;
 
 	enum PatternTest {
@@ -2,14 +2,19 @@ package io.jstach.rainbowgum.pattern.format;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.System.Logger.Level;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import io.jstach.rainbowgum.LogEvent;
+
 /*
  * Direct tests of a few pure-function parsing/lookup helpers in
  * PatternFormatterFactory.java that have many branches which are awkward to reach one at
@@ -44,6 +49,24 @@ class PatternFormatterFactoryTest {
 		assertTrue(StandardKeywordFactory.isMillisOrCoarserPrecision("SS'x'SS"));
 	}
 
+	@Test
+	void trailingFractionDigitsCountsOnlyAFractionAtTheVeryEnd() {
+		assertEquals(3, StandardKeywordFactory.trailingFractionDigits("yyyy-MM-dd HH:mm:ss,SSS"));
+		assertEquals(1, StandardKeywordFactory.trailingFractionDigits("HH:mm:ss.S"));
+		assertEquals(6, StandardKeywordFactory.trailingFractionDigits("HH:mm:ss.SSSSSS"));
+		assertEquals(9, StandardKeywordFactory.trailingFractionDigits("HH:mm:ss.SSSSSSSSS"));
+		// no sub second fields at all, S inside a literal does not count.
+		assertEquals(0, StandardKeywordFactory.trailingFractionDigits("yyyy-MM-dd HH:mm:ss"));
+		assertEquals(0, StandardKeywordFactory.trailingFractionDigits("'SSSS' HH:mm:ss"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "HH:mm:ss.SSS'Z'", "SS'x'SS", "HH:mm:ss.SSS n", "HH:mm:ss N", "HH:mm:ss A",
+			"HH:mm:ss.SSSSSSSSSS" })
+	void trailingFractionDigitsIsNegativeWhenFractionIsNotLastOrFinerFieldsAreUsed(String pattern) {
+		assertEquals(-1, StandardKeywordFactory.trailingFractionDigits(pattern));
+	}
+
 	@Test
 	void keyAndFallbackSplitsOnColonDashWhenPresent() {
 		var kf = StandardKeywordFactory.keyAndFallback("requestId:-none");
@@ -84,4 +107,45 @@ class PatternFormatterFactoryTest {
 		assertEquals(ANSIConstants.BLUE_FG, HighlightCompositeFactory.clrParseColor("blue"));
 	}
 
+	/*
+	 * Level only composites are precomputed per level when compiled so they must render
+	 * exactly what the per event formatters render.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { "%highlight(%-5level)", "%highlight(%level)", "%clr(%5level)", "%clr(%level){red}",
+			"%red(%-5level)", "%boldBlue(%le)", "%-5level", "%.3level" })
+	void levelOnlyFormattersArePrecomputed(String pattern) {
+		var config = PatternConfig.copy(PatternConfig.builder(), PatternConfig.ofUniversal())
+			.ansiDisabled(false)
+			.build();
+		var c = (Compiler) PatternCompiler.builder().patternConfig(config).build();
+		var formatter = c.compile(pattern, false);
+		assertInstanceOf(LevelTableFormatter.class, formatter, pattern);
+		var noFastPath = c.compile(pattern.replace("level", "level%X{none}").replace("%le)", "%le%X{none})"));
+		assertFalse(noFastPath instanceof LevelTableFormatter, pattern);
+		for (var level : Level.values()) {
+			var event = LogEvent.of(level, "logger", "message", null);
+			StringBuilder expected = new StringBuilder();
+			noFastPath.format(expected, event);
+			StringBuilder actual = new StringBuilder();
+			formatter.format(actual, event);
+			assertEquals(expected.toString(), actual.toString(), pattern + " " + level);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "%d %-5level [%t] %logger - %msg%n", "%highlight(%-5level) %msg", "%-20(%logger) %msg",
+			"%clr(%msg){red}" })
+	void standardPatternsAreStateless(String pattern) {
+		var formatter = PatternCompiler.builder().build().compile(pattern);
+		assertTrue(formatter.isStateless(), pattern);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "%lsn %msg", "%-8(%lsn) %msg", "%highlight(%lsn)" })
+	void sequenceNumberPatternsAreNotStateless(String pattern) {
+		var formatter = PatternCompiler.builder().build().compile(pattern);
+		assertFalse(formatter.isStateless(), pattern);
+	}
+
 }
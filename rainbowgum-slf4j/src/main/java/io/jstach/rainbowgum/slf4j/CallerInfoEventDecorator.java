@@ -57,37 +57,37 @@ final class CallerInfoEventDecorator implements LogEventHandler {
 	}
 
 	public void handle(LogEvent event, int depth) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(event, caller);
 	}
 
 	@Override
 	public void handle(Level level, String msg) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(event0(level, msg), caller);
 	}
 
 	@Override
 	public void handle(Level level, String format, Throwable throwable) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(event(level, format, throwable), caller);
 	}
 
 	@Override
 	public void handle(Level level, String format, Object arg) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(event1(level, format, arg), caller);
 	}
 
 	@Override
 	public void handle(Level level, String format, Object arg1, Object arg2) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(event2(level, format, arg1, arg2), caller);
 	}
 
 	@Override
 	public void handleArray(Level level, String format, Object[] args) {
-		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+		var caller = stackWalker.walk(s -> s.skip(depth).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 		handle(eventArray(level, format, args), caller);
 	}
 
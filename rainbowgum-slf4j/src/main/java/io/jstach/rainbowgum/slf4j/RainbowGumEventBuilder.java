@@ -148,7 +148,7 @@ class RainbowGumEventBuilder implements LoggingEventBuilder, DepthAwareEventBuil
 		Caller caller = null;
 		if (handler.isCallerAware()) {
 			caller = LogEventHandler.stackWalker
-				.walk(s -> s.skip(depth + DEPTH_DELTA).limit(1).map(f -> Caller.of(f)).findFirst().orElse(null));
+				.walk(s -> s.skip(depth + DEPTH_DELTA).limit(1).map(Caller::ofCallSite).findFirst().orElse(null));
 			event = LogEvent.withCaller(event, caller);
 		}
 		logger.log(event);
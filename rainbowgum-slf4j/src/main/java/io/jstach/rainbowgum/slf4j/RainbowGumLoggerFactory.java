@@ -58,7 +58,7 @@ class RainbowGumLoggerFactory implements ILoggerFactory {
 				// ChangeableLogger changeable = new ChangeableLogger(name, logger, mdc,
 				// Levels.toSlf4jInt(level),
 				// callerInfo);
-				var handler = maybeAddCallerInfo(name, allowedChanges, logger, 1);
+				var handler = maybeAddCallerInfo(name, router, allowedChanges, logger, 1);
 				var changeable = ReplaceableLogger.of(Levels.toSlf4jLevel(level), handler);
 				subscribe(name, router, changeable);
 				newLogger = changeable;
@@ -70,7 +70,7 @@ class RainbowGumLoggerFactory implements ILoggerFactory {
 				}
 				else {
 					var slf4jLevel = Levels.toSlf4jLevel(level);
-					LogEventHandler handler = maybeAddCallerInfo(name, allowedChanges, logger, 0);
+					LogEventHandler handler = maybeAddCallerInfo(name, router, allowedChanges, logger, 0);
 					newLogger = LevelLogger.of(slf4jLevel, handler);
 				}
 			}
@@ -97,10 +97,14 @@ class RainbowGumLoggerFactory implements ILoggerFactory {
 		// });
 	}
 
-	private LogEventHandler maybeAddCallerInfo(String loggerName, Set<ChangeType> allowedChanges, LogEventLogger logger,
-			int depth) {
+	private LogEventHandler maybeAddCallerInfo(String loggerName, RootRouter router, Set<ChangeType> allowedChanges,
+			LogEventLogger logger, int depth) {
 		LogEventHandler _logger;
-		if (allowedChanges.contains(ChangeType.CALLER)) {
+		/*
+		 * Walking the stack on every log call is expensive so even if caller info is
+		 * allowed we only do it if some encoder is going to output it.
+		 */
+		if (allowedChanges.contains(ChangeType.CALLER) && router.requiresCaller()) {
 			_logger = LogEventHandler.ofCallerInfo(loggerName, logger, mdc, depth);
 		}
 		else {
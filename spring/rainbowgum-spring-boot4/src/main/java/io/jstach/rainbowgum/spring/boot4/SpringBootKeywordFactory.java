@@ -90,6 +90,11 @@ enum SpringBootKeywordFactory implements KeywordFactory, PatternKeyProvider {
 			correlationIdFormatter.formatTo(event.keyValues()::getValueOrNull, output);
 		}
 
+		@Override
+		public boolean requiresCaller() {
+			return false;
+		}
+
 	}
 
 	/**